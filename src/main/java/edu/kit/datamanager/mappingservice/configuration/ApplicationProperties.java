@@ -16,6 +16,8 @@
 package edu.kit.datamanager.mappingservice.configuration;
 
 import edu.kit.datamanager.configuration.GenericPluginProperties;
+import edu.kit.datamanager.mappingservice.python.util.ProcessIoPump;
+import edu.kit.datamanager.mappingservice.util.FileUtil;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import org.springframework.beans.factory.annotation.Value;
@@ -48,6 +50,212 @@ public class ApplicationProperties extends GenericPluginProperties {
     @Value("${mapping-service.gemma.gemmaLocation}")
     private URL gemmaLocation;
 
+    /**
+     * Evaluate gemma mappings inside the JVM instead of running 'mapping_single.py'.
+     */
+    @Value("${mapping-service.gemma.inProcess:true}")
+    private boolean gemmaInProcess = true;
+
+    /**
+     * Stream JSON and XML sources keeping only values referenced by the mapping.
+     */
+    @Value("${mapping-service.gemma.streaming:true}")
+    private boolean gemmaStreaming = true;
+
+    /**
+     * Number of python workers kept alive for gemma (0 = start python for each mapping).
+     */
+    @Value("${mapping-service.gemma.workers:0}")
+    private int gemmaWorkers = 0;
+
+    /**
+     * Number of mappings after which a python worker is restarted.
+     */
+    @Value("${mapping-service.gemma.workerMaxJobs:1000}")
+    private int gemmaWorkerMaxJobs = 1000;
+
+    /**
+     * Interval in seconds for checking idle python workers (0 = no health check).
+     */
+    @Value("${mapping-service.gemma.workerHealthCheckInterval:60}")
+    private int gemmaWorkerHealthCheckInterval = 60;
+
+    /**
+     * Handling of the output of python scripts (FORWARD, SAMPLE or DISCARD).
+     */
+    @Value("${mapping-service.python.outputMode:SAMPLE}")
+    private ProcessIoPump.Mode pythonOutputMode = ProcessIoPump.Mode.SAMPLE;
+
+    /**
+     * Number of lines of stdout/stderr kept per python process.
+     */
+    @Value("${mapping-service.python.outputLines:100}")
+    private int pythonOutputLines = ProcessIoPump.DEFAULT_MAX_LINES;
+
+    /**
+     * Maximum CPU time in seconds of a python script (0 = unlimited, Linux only).
+     */
+    @Value("${mapping-service.python.cpuLimit:0}")
+    private long pythonCpuLimit = 0;
+
+    /**
+     * Maximum memory (address space) in MiB of a python script (0 = unlimited, Linux only).
+     */
+    @Value("${mapping-service.python.memoryLimit:0}")
+    private long pythonMemoryLimit = 0;
+
+    /**
+     * Maximum number of mappings executed concurrently (0 = unlimited).
+     */
+    @Value("${mapping-service.execution.maxConcurrent:0}")
+    private int executionMaxConcurrent = 0;
+
+    /**
+     * Maximum number of concurrent mappings by mapping type, e.g. 'GEMMA:4,XSLT:8'.
+     */
+    @Value("${mapping-service.execution.typeLimits:}")
+    private String executionTypeLimits = "";
+
+    /**
+     * Maximum time in seconds a mapping waits for execution (0 = wait forever).
+     */
+    @Value("${mapping-service.execution.queueTimeout:60}")
+    private long executionQueueTimeout = 60;
+
+    /**
+     * Number of documents downloaded in advance while mapping a list of URLs.
+     */
+    @Value("${mapping-service.execution.prefetch:4}")
+    private int executionPrefetch = 4;
+
+    /**
+     * Number of documents of a batch mapped in parallel (0 = number of processors).
+     */
+    @Value("${mapping-service.execution.batchParallelism:0}")
+    private int executionBatchParallelism = 0;
+
+    /**
+     * Maximum number of documents extracted from the ZIP archives of a batch
+     * (0 = unlimited).
+     */
+    @Value("${mapping-service.execution.batchMaxDocuments:1000}")
+    private int executionBatchMaxDocuments = 1000;
+
+    /**
+     * Maximum number of bytes extracted from the ZIP archives of a batch
+     * (0 = unlimited).
+     */
+    @Value("${mapping-service.execution.batchMaxSize:1073741824}")
+    private long executionBatchMaxSize = 1073741824L;
+
+    /**
+     * Process requests on virtual threads (requires Java 21+).
+     */
+    @Value("${mapping-service.execution.virtualThreads:false}")
+    private boolean executionVirtualThreads = false;
+
+    /**
+     * Maximum number of concurrent mapping requests if requests are processed on virtual threads.
+     */
+    @Value("${mapping-service.execution.maxRequests:1000}")
+    private int executionMaxRequests = 1000;
+
+    /**
+     * Maximum size in bytes of downloaded resources (0 = unlimited).
+     */
+    @Value("${mapping-service.download.maxSize:104857600}")
+    private long downloadMaxSize = FileUtil.DEFAULT_MAX_DOWNLOAD_SIZE;
+
+    /**
+     * Timeout in seconds for connecting to a remote resource.
+     */
+    @Value("${mapping-service.download.connectTimeout:10}")
+    private int downloadConnectTimeout = FileUtil.DEFAULT_CONNECT_TIMEOUT;
+
+    /**
+     * Maximum time in seconds without receiving data while downloading a resource.
+     */
+    @Value("${mapping-service.download.readTimeout:30}")
+    private int downloadReadTimeout = FileUtil.DEFAULT_READ_TIMEOUT;
+
+    /**
+     * Directory caching downloaded resources which are revalidated by ETag/Last-Modified (empty = no caching).
+     */
+    @Value("${mapping-service.download.cacheLocation:}")
+    private String downloadCacheLocation;
+
+    /**
+     * Maximum size in bytes of all cached downloads (0 = unlimited).
+     */
+    @Value("${mapping-service.download.cacheSize:1073741824}")
+    private long downloadCacheSize = 1073741824L;
+
+    /**
+     * Directory holding results of previous mappings (empty = no caching).
+     */
+    @Value("${mapping-service.resultCache.location:}")
+    private String resultCacheLocation;
+
+    /**
+     * Maximum size in bytes of all cached results (0 = unlimited).
+     */
+    @Value("${mapping-service.resultCache.maxSize:1073741824}")
+    private long resultCacheMaxSize = 1073741824L;
+
+    /**
+     * Time in seconds a result is kept in cache (0 = unlimited).
+     */
+    @Value("${mapping-service.resultCache.ttl:3600}")
+    private long resultCacheTtl = 3600;
+
+    /**
+     * Directory holding all temporary files, e.g. on a tmpfs (empty = system temp directory without reclaiming).
+     */
+    @Value("${mapping-service.scratch.location:}")
+    private String scratchLocation;
+
+    /**
+     * Age in seconds after which orphaned temporary files are reclaimed.
+     */
+    @Value("${mapping-service.scratch.maxAge:3600}")
+    private long scratchMaxAge = 3600;
+
+    /**
+     * Expected maximum size in bytes of all temporary files (0 = unlimited).
+     */
+    @Value("${mapping-service.scratch.quota:0}")
+    private long scratchQuota = 0;
+
+    /**
+     * Directory holding input and result files of asynchronous mapping jobs.
+     */
+    @Value("${mapping-service.jobs.location:/tmp/mapping-service/jobs}")
+    private String jobsLocation = "/tmp/mapping-service/jobs";
+
+    /**
+     * Number of workers executing asynchronous mapping jobs.
+     */
+    @Value("${mapping-service.jobs.workers:2}")
+    private int jobsWorkers = 2;
+
+    /**
+     * Maximum number of queued mapping jobs (0 = unlimited).
+     */
+    @Value("${mapping-service.jobs.maxQueued:100}")
+    private long jobsMaxQueued = 100;
+
+    /**
+     * Time in seconds finished mapping jobs are kept.
+     */
+    @Value("${mapping-service.jobs.retention:86400}")
+    private long jobsRetention = 86400;
+
+    /**
+     * Maximum number of compiled mapping documents kept in memory (0 = no caching).
+     */
+    @Value("${mapping-service.compiledMappingCacheSize:1000}")
+    private long compiledMappingCacheSize = 1000;
+
     /**
      * The absolute path where the mappings are stored.
      */
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.configuration;
+
+import edu.kit.datamanager.mappingservice.util.ScratchSpace;
+import edu.kit.datamanager.mappingservice.web.ScratchSpaceFilter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configures the scratch space holding all temporary files
+ * (mapping-service.scratch.*). Each mapping request gets a scope of its own,
+ * files left behind in a dedicated scratch space are reclaimed periodically.
+ * Usage and quota are published as metrics (e.g.
+ * /actuator/metrics/mapping.scratch.used).
+ */
+@Configuration
+public class ScratchSpaceConfiguration implements MeterBinder {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScratchSpaceConfiguration.class);
+
+    private final ScratchSpace scratchSpace;
+    private final Duration maxAge;
+    private final long quota;
+
+    public ScratchSpaceConfiguration(ApplicationProperties applicationProperties) {
+        scratchSpace = ScratchSpace.getDefault();
+        String location = applicationProperties.getScratchLocation();
+        if ((location != null) && !location.trim().isEmpty()) {
+            scratchSpace.setRoot(Paths.get(location.trim()));
+        }
+        maxAge = Duration.ofSeconds(Math.max(0, applicationProperties.getScratchMaxAge()));
+        quota = Math.max(0, applicationProperties.getScratchQuota());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ScratchSpaceFilter> scratchSpaceFilter() {
+        FilterRegistrationBean<ScratchSpaceFilter> registration = new FilterRegistrationBean<>();
+        registration.setFilter(new ScratchSpaceFilter(scratchSpace));
+        registration.addUrlPatterns("/api/v1/mappingExecution/*", "/api/v1/mappingJobs/*", "/api/v1/mappingPipelines/*");
+        registration.setName("scratchSpaceFilter");
+        return registration;
+    }
+
+    /**
+     * Reclaim files and scopes left behind.
+     */
+    @Scheduled(initialDelayString = "${mapping-service.scratch.janitorInterval:300}", fixedDelayString = "${mapping-service.scratch.janitorInterval:300}", timeUnit = TimeUnit.SECONDS)
+    public void reclaimScratchSpace() {
+        if (!scratchSpace.isDedicated()) {
+            return;
+        }
+        int removed = scratchSpace.reclaim(maxAge);
+        if (removed > 0) {
+            LOGGER.info("Reclaimed {} orphaned entries from scratch space '{}'.", removed, scratchSpace.getRoot());
+        }
+        if ((quota > 0) && (scratchSpace.getUsedSpace() > quota)) {
+            LOGGER.warn("Scratch space '{}' exceeds quota: {} of {} bytes used.", scratchSpace.getRoot(), scratchSpace.getUsedSpace(), quota);
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mapping.scratch.used", scratchSpace, ScratchSpace::getUsedSpace)
+                .description("Space used by the scratch space (measured by the janitor)")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("mapping.scratch.usable", scratchSpace, ScratchSpace::getUsableSpace)
+                .description("Space available on the file system of the scratch space")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("mapping.scratch.quota", this, c -> c.quota)
+                .description("Quota of the scratch space (0 = unlimited)")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("mapping.scratch.scopes", scratchSpace, ScratchSpace::getOpenScopes)
+                .description("Number of requests holding a scratch directory")
+                .register(registry);
+        FunctionCounter.builder("mapping.scratch.reclaimed", scratchSpace, ScratchSpace::getReclaimedFiles)
+                .description("Number of orphaned files and directories reclaimed by the janitor")
+                .register(registry);
+        FunctionCounter.builder("mapping.scratch.reclaimed.size", scratchSpace, ScratchSpace::getReclaimedBytes)
+                .description("Space freed by the janitor")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+}
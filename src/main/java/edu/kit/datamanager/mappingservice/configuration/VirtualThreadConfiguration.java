@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.configuration;
+
+import edu.kit.datamanager.mappingservice.util.VirtualThreads;
+import edu.kit.datamanager.mappingservice.web.ConcurrencyLimitFilter;
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Opt-in mode (mapping-service.execution.virtualThreads) processing requests
+ * on virtual threads. Tomcat's worker pool is replaced by an executor
+ * starting a virtual thread per request, so requests blocked on downloads or
+ * mapping processes don't occupy platform threads. Instead of the size of
+ * the worker pool a semaphore limits the number of concurrent mapping
+ * requests (mapping-service.execution.maxRequests).
+ * <p>
+ * If the runtime doesn't support virtual threads (Java &lt; 21), requests are
+ * still processed by Tomcat's worker pool.
+ */
+@Configuration
+@ConditionalOnProperty(name = "mapping-service.execution.virtualThreads", havingValue = "true")
+public class VirtualThreadConfiguration {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfiguration.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+        Optional<ExecutorService> executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        if (executor.isEmpty()) {
+            LOGGER.warn("Virtual threads are not supported by this runtime ({}), requests are processed by platform threads.", Runtime.version());
+            return protocolHandler -> {
+            };
+        }
+        LOGGER.info("Requests are processed by virtual threads.");
+        return protocolHandler -> protocolHandler.setExecutor(executor.get());
+    }
+
+    @Bean
+    public FilterRegistrationBean<ConcurrencyLimitFilter> mappingRequestLimitFilter(ApplicationProperties applicationProperties) {
+        FilterRegistrationBean<ConcurrencyLimitFilter> registration = new FilterRegistrationBean<>();
+        registration.setFilter(new ConcurrencyLimitFilter(applicationProperties.getExecutionMaxRequests(),
+                TimeUnit.SECONDS.toMillis(applicationProperties.getExecutionQueueTimeout())));
+        registration.addUrlPatterns("/api/v1/mappingExecution/*");
+        registration.setName("mappingRequestLimitFilter");
+        return registration;
+    }
+}
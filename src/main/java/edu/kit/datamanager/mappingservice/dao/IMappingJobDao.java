@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.dao;
+
+import edu.kit.datamanager.mappingservice.domain.MappingJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository holding all mapping jobs.
+ */
+public interface IMappingJobDao extends JpaRepository<MappingJob, String> {
+    List<MappingJob> findByStatusInOrderByCreatedAsc(Collection<MappingJob.Status> status);
+
+    long countByStatusIn(Collection<MappingJob.Status> status);
+
+    List<MappingJob> findByStatusInAndFinishedBefore(Collection<MappingJob.Status> status, Instant finished);
+
+    /**
+     * Change status of a job if it still has the expected status.
+     *
+     * @param jobId    id of the job.
+     * @param expected expected status.
+     * @param status   new status.
+     * @param started  time of start.
+     * @return number of updated jobs (0 if job was deleted or has another
+     * status).
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("update MappingJob j set j.status = :status, j.started = :started where j.jobId = :jobId and j.status = :expected")
+    int updateStatus(@Param("jobId") String jobId, @Param("expected") MappingJob.Status expected, @Param("status") MappingJob.Status status, @Param("started") Instant started);
+
+    /**
+     * Delete a job unless it has the given status.
+     *
+     * @param jobId  id of the job.
+     * @param status status of jobs which must not be deleted.
+     * @return number of deleted jobs (0 if job doesn't exist or has the
+     * status).
+     */
+    @Transactional
+    @Modifying(clearAutomatically = true)
+    @Query("delete from MappingJob j where j.jobId = :jobId and j.status <> :status")
+    int deleteByJobIdAndStatusNot(@Param("jobId") String jobId, @Param("status") MappingJob.Status status);
+}
@@ -21,6 +21,8 @@ import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 public interface IMappingRecordDao extends JpaRepository<MappingRecord, String>, JpaSpecificationExecutor<MappingRecord> {
     Optional<MappingRecord> findByMappingIdAndMappingType(String mappingId, String mappingType);
 
+    List<MappingRecord> findByMappingIdOrderByMappingTypeAsc(String mappingId);
+
     Iterable<MappingRecord> findByMappingIdInOrMappingTypeIn(List<String> mappingId, List<String> mappingType);
 
     Page<MappingRecord> findByMappingIdInOrMappingTypeIn(List<String> mappingId, List<String> mappingType, Pageable pgbl);
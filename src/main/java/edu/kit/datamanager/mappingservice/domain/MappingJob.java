@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import java.io.Serializable;
+import java.time.Instant;
+
+/**
+ * Asynchronous execution of a mapping. Jobs are persisted, so queued jobs
+ * survive a restart of the service. Input and result are stored as files
+ * in the job directory.
+ */
+@Entity
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Data
+public class MappingJob implements Serializable {
+
+    /**
+     * States of a job.
+     */
+    public enum Status {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED;
+
+        /**
+         * Check if job is finished.
+         *
+         * @return true if job has succeeded or failed.
+         */
+        public boolean isFinished() {
+            return (this == SUCCEEDED) || (this == FAILED);
+        }
+    }
+
+    @Id
+    private String jobId;
+    private String mappingId;
+    private String mappingType;
+    @Enumerated(EnumType.STRING)
+    private Status status;
+    @Column(length = 1024)
+    private String errorMessage;
+    private Instant created;
+    private Instant started;
+    private Instant finished;
+    @JsonIgnore
+    private String inputFile;
+    @JsonIgnore
+    private String resultFile;
+}
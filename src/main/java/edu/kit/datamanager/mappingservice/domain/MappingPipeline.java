@@ -0,0 +1,57 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.domain;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Embeddable;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.OrderColumn;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Named pipeline chaining several mappings. The result of each step is
+ * passed to the next step in memory, the result of the last step is the
+ * result of the pipeline.
+ */
+@Entity
+@JsonIgnoreProperties(ignoreUnknown = true)
+@Data
+public class MappingPipeline implements Serializable {
+
+    @Id
+    private String pipelineId;
+    @ElementCollection(fetch = FetchType.EAGER)
+    @OrderColumn
+    private List<Step> steps = new ArrayList<>();
+
+    /**
+     * A single step of a pipeline referencing an existing mapping.
+     */
+    @Embeddable
+    @Data
+    public static class Step implements Serializable {
+
+        private String mappingId;
+        private String mappingType;
+    }
+}
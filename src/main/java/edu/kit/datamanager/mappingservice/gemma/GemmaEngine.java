@@ -0,0 +1,741 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.IntNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import org.apache.commons.io.FilenameUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Evaluates GEMMA mapping documents on Jackson trees. The semantics follow
+ * the python implementation 'mapping_functions.py' so both engines produce
+ * identical results.
+ */
+public class GemmaEngine {
+
+    /**
+     * Keys of the mapping document.
+     */
+    public static final String PROPERTIES = "properties";
+    public static final String PATH = "path";
+    public static final String TYPE = "type";
+    public static final String DEFAULT = "default";
+    public static final String INCLUDE = "include";
+
+    /**
+     * Supported target types.
+     */
+    public static final String TYPE_STRING = "string";
+    public static final String TYPE_INTEGER = "integer";
+    public static final String TYPE_ARRAY = "array";
+
+    /**
+     * Separator for paths inside the source document and for keys of the
+     * result.
+     */
+    public static final String PATH_SEPARATOR = ".";
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(GemmaEngine.class);
+
+    /**
+     * Mapper accepting NaN/Infinity like the python json module.
+     */
+    private static final ObjectMapper MAPPER = new ObjectMapper(JsonFactory.builder()
+            .enable(JsonReadFeature.ALLOW_NON_NUMERIC_NUMBERS)
+            .build());
+
+    /**
+     * Check if the source file is read as JSON. Like the python script only
+     * the file extension is used.
+     *
+     * @param srcFile source file.
+     * @return true if extension starts with 'json'.
+     */
+    public static boolean isJson(Path srcFile) {
+        return FilenameUtils.getExtension(srcFile.getFileName().toString()).startsWith("json");
+    }
+
+    /**
+     * Check if the source file is read as XML. Like the python script only
+     * the file extension is used.
+     *
+     * @param srcFile source file.
+     * @return true if extension starts with 'xml'.
+     */
+    public static boolean isXml(Path srcFile) {
+        return FilenameUtils.getExtension(srcFile.getFileName().toString()).startsWith("xml");
+    }
+
+    /**
+     * Read JSON file to tree.
+     *
+     * @param file JSON file.
+     * @return root node of the document.
+     * @throws IOException error reading file.
+     */
+    public static JsonNode readTree(Path file) throws IOException {
+        return MAPPER.readTree(file.toFile());
+    }
+
+    /**
+     * Read JSON document to tree.
+     *
+     * @param input stream holding the JSON document.
+     * @return root node of the document.
+     * @throws IOException error reading document.
+     */
+    public static JsonNode readTree(InputStream input) throws IOException {
+        return MAPPER.readTree(input);
+    }
+
+    /**
+     * Read JSON file with the streaming parser keeping only the values
+     * referenced by the compiled mapping. Mapping the returned document
+     * gives the same result as mapping the complete document.
+     *
+     * @param file JSON file.
+     * @param plan compiled mapping.
+     * @return root node of the pruned document.
+     * @throws IOException error reading file.
+     */
+    public static JsonNode readTree(Path file, GemmaPlan plan) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return readTree(input, plan);
+        }
+    }
+
+    /**
+     * Read JSON document with the streaming parser keeping only the values
+     * referenced by the compiled mapping.
+     *
+     * @param input stream holding the JSON document.
+     * @param plan  compiled mapping.
+     * @return root node of the pruned document.
+     * @throws IOException error reading document.
+     * @see #readTree(Path, GemmaPlan)
+     */
+    public static JsonNode readTree(InputStream input, GemmaPlan plan) throws IOException {
+        return new PrunedJsonReader(MAPPER).read(input, plan.getPathTree());
+    }
+
+    /**
+     * Read XML file to tree. The structure is the same as created by
+     * 'xmltodict' in the python implementation.
+     *
+     * @param file XML file.
+     * @return root node of the document.
+     * @throws IOException error reading file.
+     */
+    public static JsonNode readXml(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return readXml(input);
+        }
+    }
+
+    /**
+     * Read XML document to tree.
+     *
+     * @param input stream holding the XML document.
+     * @return root node of the document.
+     * @throws IOException error reading document.
+     * @see #readXml(Path)
+     */
+    public static JsonNode readXml(InputStream input) throws IOException {
+        return new PrunedXmlReader().read(input, null);
+    }
+
+    /**
+     * Read XML file with StAX keeping only the values referenced by the
+     * compiled mapping. Mapping the returned document gives the same result
+     * as mapping the complete document.
+     *
+     * @param file XML file.
+     * @param plan compiled mapping.
+     * @return root node of the pruned document.
+     * @throws IOException error reading file.
+     */
+    public static JsonNode readXml(Path file, GemmaPlan plan) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return readXml(input, plan);
+        }
+    }
+
+    /**
+     * Read XML document with StAX keeping only the values referenced by the
+     * compiled mapping.
+     *
+     * @param input stream holding the XML document.
+     * @param plan  compiled mapping.
+     * @return root node of the pruned document.
+     * @throws IOException error reading document.
+     * @see #readXml(Path, GemmaPlan)
+     */
+    public static JsonNode readXml(InputStream input, GemmaPlan plan) throws IOException {
+        return new PrunedXmlReader().read(input, plan.getPathTree());
+    }
+
+    /**
+     * Apply mapping document to source document.
+     *
+     * @param mappingDocument the GEMMA mapping document.
+     * @param source          the source document.
+     * @return the mapped document.
+     * @throws MappingException if the mapping document is invalid.
+     */
+    public static ObjectNode map(JsonNode mappingDocument, JsonNode source) {
+        return map(compile(mappingDocument, null), source);
+    }
+
+    /**
+     * Apply compiled mapping document to source document.
+     *
+     * @param plan   the compiled GEMMA mapping document.
+     * @param source the source document.
+     * @return the mapped document.
+     * @throws MappingException if the result can't be built.
+     */
+    public static ObjectNode map(GemmaPlan plan, JsonNode source) {
+        List<Map.Entry<String[], JsonNode>> flatList = new ArrayList<>();
+        for (GemmaPlan.Rule rule : plan.getRules()) {
+            JsonNode value = findPath(rule.getPath(), source);
+            if ((value == null) && (rule.getDefaultValue() != null)) {
+                value = nullToNull(rule.getDefaultValue());
+            }
+            if (value != null) {
+                flatList.add(new AbstractMap.SimpleImmutableEntry<>(rule.getKeyLevels(), cast(value, rule)));
+            }
+        }
+        return toObjectNode(flatList);
+    }
+
+    /**
+     * Compile mapping document. The plan may be applied to any number of
+     * source documents.
+     *
+     * @param mappingDocument the GEMMA mapping document.
+     * @param mappingFile     the file containing the mapping document (may
+     *                        be null).
+     * @return the compiled mapping document.
+     * @throws MappingException if the mapping document is invalid.
+     */
+    public static GemmaPlan compile(JsonNode mappingDocument, Path mappingFile) {
+        if ((mappingDocument == null) || !mappingDocument.has(PROPERTIES)) {
+            throw new MappingException("Error: Mapping document contains no '" + PROPERTIES + "'!");
+        }
+        List<GemmaPlan.Rule> rules = new ArrayList<>();
+        compile(mappingDocument.get(PROPERTIES), "", rules);
+        return new GemmaPlan(rules, mappingFile);
+    }
+
+    /**
+     * Walk through the mapping document and collect all rules.
+     *
+     * @param element  the actual element of the mapping document.
+     * @param prefix   the key of the actual element inside the result.
+     * @param appendTo list collecting all rules.
+     */
+    private static void compile(JsonNode element, String prefix, List<GemmaPlan.Rule> appendTo) {
+        if (element.isObject() && element.has(PATH) && element.has(TYPE)) {
+            JsonNode pathNode = element.get(PATH);
+            if (!pathNode.isTextual()) {
+                throw new MappingException("Error: Path '" + pathNode + "' is not a string!");
+            }
+            appendTo.add(new GemmaPlan.Rule(stripSeparator(prefix),
+                    pathNode.textValue(),
+                    GemmaPlan.TargetType.of(element.get(TYPE).asText()),
+                    element.get(DEFAULT),
+                    nullToNull(element.get(INCLUDE))));
+        } else if (element.isObject()) {
+            Iterator<Map.Entry<String, JsonNode>> fields = element.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                compile(field.getValue(), prefix + field.getKey() + PATH_SEPARATOR, appendTo);
+            }
+        } else if (element.isArray()) {
+            for (int index = 0; index < element.size(); index++) {
+                compile(element.get(index), prefix + index + PATH_SEPARATOR, appendTo);
+            }
+        }
+    }
+
+    /**
+     * Find value at given path. If the path is not available null is
+     * returned. For lists the path element is used as index (default: 0).
+     *
+     * @param path   path of the type 'TEI.teiHeader.fileDesc.titleStmt.title'
+     * @param source document to access.
+     * @return value at given path or null.
+     */
+    public static JsonNode findPath(String path, JsonNode source) {
+        return findPath(path.split("\\.", -1), source);
+    }
+
+    /**
+     * Find value at given path. If the path is not available null is
+     * returned. For lists the path element is used as index (default: 0).
+     *
+     * @param expandedPath elements of the path.
+     * @param source       document to access.
+     * @return value at given path or null.
+     */
+    static JsonNode findPath(String[] expandedPath, JsonNode source) {
+        JsonNode node = nullToNull(source);
+        for (String pos : expandedPath) {
+            if ((node == null) || (node.isTextual() && node.textValue().isEmpty())) {
+                node = null;
+                break;
+            }
+            if (node.isObject()) {
+                node = nullToNull(node.get(pos));
+            } else if (node.isArray()) {
+                node = nullToNull(selectListElement(node, pos));
+            }
+            // any other value has no attribute and is kept unchanged.
+        }
+        return node;
+    }
+
+    /**
+     * Select element of a list. If position is no valid index the first
+     * element is returned.
+     *
+     * @param list list node.
+     * @param pos  position inside list.
+     * @return selected element or null if list is empty.
+     */
+    static JsonNode selectListElement(JsonNode list, String pos) {
+        int index = parseIndex(pos, list.size());
+        if (index < 0 || index >= list.size()) {
+            index = 0;
+        }
+        return list.size() > 0 ? list.get(index) : null;
+    }
+
+    /**
+     * Parse index of a path element. Negative values address the list from
+     * its end.
+     *
+     * @param pos  path element.
+     * @param size size of the list.
+     * @return index or 0 if no index.
+     */
+    static int parseIndex(String pos, int size) {
+        int index = 0;
+        try {
+            index = Integer.parseInt(pos.trim());
+            if (index < 0) {
+                index += size;
+            }
+        } catch (NumberFormatException nfe) {
+            LOGGER.trace("No index found in '{}', using index 0.", pos);
+        }
+        return index;
+    }
+
+    /**
+     * Cast value to type defined in rule.
+     *
+     * @param value value found in source document.
+     * @param rule  the compiled mapping element.
+     * @return casted value.
+     */
+    private static JsonNode cast(JsonNode value, GemmaPlan.Rule rule) {
+        JsonNode castedValue = value;
+        switch (rule.getType()) {
+            case STRING:
+                castedValue = castToString(value);
+                break;
+            case INTEGER:
+                if (!value.isIntegralNumber() && !value.isBoolean()) {
+                    castedValue = rule.getDefaultValue() != null ? rule.getDefaultValue() : IntNode.valueOf(0);
+                }
+                break;
+            case ARRAY:
+                castedValue = value.isArray() ? transformList(value, rule.getInclude()) : TextNode.valueOf("[]");
+                break;
+            default:
+                break;
+        }
+        return castedValue;
+    }
+
+    /**
+     * Cast value to string. Elements of lists are casted separately.
+     *
+     * @param value value to cast.
+     * @return casted value.
+     */
+    private static JsonNode castToString(JsonNode value) {
+        JsonNode castedValue;
+        if (value.isArray()) {
+            ArrayNode list = JsonNodeFactory.instance.arrayNode(value.size());
+            for (JsonNode item : value) {
+                list.add(item.isTextual() ? item : TextNode.valueOf(PythonRepresentation.str(item)));
+            }
+            castedValue = list;
+        } else {
+            castedValue = value.isTextual() ? value : TextNode.valueOf(PythonRepresentation.str(value));
+        }
+        return castedValue;
+    }
+
+    /**
+     * Remove all items of dictionaries inside the list whose keys are not
+     * listed in includeList.
+     *
+     * @param list        list to transform.
+     * @param includeList keys which should be kept (null keeps all).
+     * @return transformed list.
+     */
+    private static JsonNode transformList(JsonNode list, JsonNode includeList) {
+        if (includeList == null) {
+            return list;
+        }
+        ArrayNode result = JsonNodeFactory.instance.arrayNode(list.size());
+        for (JsonNode listItem : list) {
+            if (listItem.isObject()) {
+                ObjectNode modList = JsonNodeFactory.instance.objectNode();
+                Iterator<Map.Entry<String, JsonNode>> fields = listItem.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    if (isIncluded(field.getKey(), includeList)) {
+                        modList.set(field.getKey(), field.getValue());
+                    }
+                }
+                result.add(modList);
+            } else {
+                result.add(listItem);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Test for key inside include list (python operator 'in').
+     *
+     * @param key         key of item.
+     * @param includeList list, string or dictionary.
+     * @return true if key is included.
+     */
+    private static boolean isIncluded(String key, JsonNode includeList) {
+        boolean included = false;
+        if (includeList.isTextual()) {
+            included = includeList.textValue().contains(key);
+        } else if (includeList.isObject()) {
+            included = includeList.has(key);
+        } else if (includeList.isArray()) {
+            for (JsonNode item : includeList) {
+                if (item.isTextual() && item.textValue().equals(key)) {
+                    included = true;
+                    break;
+                }
+            }
+        }
+        return included;
+    }
+
+    /**
+     * Build nested document from list of key/value pairs. Keys are split at
+     * '.', e.g. ('title.path', 'Titel') results in {"title":{"path":"Titel"}}
+     *
+     * @param flatList list of key/value pairs (keys are already split).
+     * @return the document.
+     */
+    private static ObjectNode toObjectNode(List<Map.Entry<String[], JsonNode>> flatList) {
+        ObjectNode outputDict = JsonNodeFactory.instance.objectNode();
+        for (Map.Entry<String[], JsonNode> entry : flatList) {
+            String[] keyLevels = entry.getKey();
+            JsonNode value = entry.getValue() == null ? NullNode.getInstance() : entry.getValue();
+            if (keyLevels.length == 1) {
+                if (!outputDict.has(keyLevels[0])) {
+                    outputDict.set(keyLevels[0], value);
+                }
+            } else {
+                ObjectNode currentDict = outputDict;
+                for (int level = 0; level < keyLevels.length - 1; level++) {
+                    JsonNode next = currentDict.get(keyLevels[level]);
+                    if (next == null) {
+                        next = currentDict.putObject(keyLevels[level]);
+                    } else if (!next.isObject()) {
+                        throw new MappingException("Error: Can't add '" + String.join(PATH_SEPARATOR, keyLevels) + "' as '" + keyLevels[level] + "' is already a value!");
+                    }
+                    currentDict = (ObjectNode) next;
+                }
+                currentDict.set(keyLevels[keyLevels.length - 1], value);
+            }
+        }
+        return outputDict;
+    }
+
+    /**
+     * Write document to file using the same layout as the python script.
+     *
+     * @param document   document to write.
+     * @param resultFile target file.
+     * @throws IOException error writing file.
+     */
+    public static void write(JsonNode document, Path resultFile) throws IOException {
+        try (OutputStream os = Files.newOutputStream(resultFile)) {
+            write(document, os);
+        }
+    }
+
+    /**
+     * Write document to stream using the same layout as the python script.
+     *
+     * @param document document to write.
+     * @param output   target stream (will not be closed).
+     * @throws IOException error writing document.
+     */
+    public static void write(JsonNode document, OutputStream output) throws IOException {
+        try (JsonGenerator generator = MAPPER.getFactory().createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new GemmaPrettyPrinter());
+            writeNode(generator, document);
+        }
+    }
+
+    /**
+     * Write node recursively. Floating point numbers are written like
+     * python does.
+     *
+     * @param generator generator to use.
+     * @param node      node to write.
+     * @throws IOException error writing node.
+     */
+    private static void writeNode(JsonGenerator generator, JsonNode node) throws IOException {
+        if (node.isObject()) {
+            generator.writeStartObject();
+            Iterator<Map.Entry<String, JsonNode>> fields = node.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName(field.getKey());
+                writeNode(generator, field.getValue());
+            }
+            generator.writeEndObject();
+        } else if (node.isArray()) {
+            generator.writeStartArray();
+            for (JsonNode item : node) {
+                writeNode(generator, item);
+            }
+            generator.writeEndArray();
+        } else if (node.isFloatingPointNumber()) {
+            generator.writeNumber(PythonRepresentation.jsonFloat(node.doubleValue()));
+        } else if (node.isBigDecimal()) {
+            generator.writeNumber(PythonRepresentation.jsonFloat(node.decimalValue().doubleValue()));
+        } else {
+            MAPPER.writeTree(generator, node);
+        }
+    }
+
+    /**
+     * Map JSON null to null.
+     *
+     * @param node node or null.
+     * @return node or null if node represents null.
+     */
+    private static JsonNode nullToNull(JsonNode node) {
+        return ((node == null) || node.isNull() || node.isMissingNode()) ? null : node;
+    }
+
+    /**
+     * Strip all leading/trailing separators.
+     *
+     * @param prefix prefix.
+     * @return stripped prefix.
+     */
+    private static String stripSeparator(String prefix) {
+        int start = 0;
+        int end = prefix.length();
+        while ((start < end) && (prefix.charAt(start) == '.')) {
+            start++;
+        }
+        while ((end > start) && (prefix.charAt(end - 1) == '.')) {
+            end--;
+        }
+        return prefix.substring(start, end);
+    }
+
+    /**
+     * String representations of values as created by python.
+     */
+    static class PythonRepresentation {
+
+        /**
+         * Equivalent of python 'str()'.
+         *
+         * @param value value.
+         * @return string representation.
+         */
+        static String str(JsonNode value) {
+            return ((value != null) && value.isTextual()) ? value.textValue() : repr(value);
+        }
+
+        /**
+         * Equivalent of python 'repr()'.
+         *
+         * @param value value.
+         * @return string representation.
+         */
+        static String repr(JsonNode value) {
+            StringBuilder sb = new StringBuilder();
+            if ((value == null) || value.isNull()) {
+                sb.append("None");
+            } else if (value.isBoolean()) {
+                sb.append(value.booleanValue() ? "True" : "False");
+            } else if (value.isTextual()) {
+                appendString(sb, value.textValue());
+            } else if (value.isIntegralNumber()) {
+                sb.append(value.bigIntegerValue());
+            } else if (value.isNumber()) {
+                sb.append(pythonFloat(value.doubleValue()));
+            } else if (value.isObject()) {
+                sb.append('{');
+                Iterator<Map.Entry<String, JsonNode>> fields = value.fields();
+                while (fields.hasNext()) {
+                    Map.Entry<String, JsonNode> field = fields.next();
+                    appendString(sb, field.getKey());
+                    sb.append(": ").append(repr(field.getValue()));
+                    if (fields.hasNext()) {
+                        sb.append(", ");
+                    }
+                }
+                sb.append('}');
+            } else if (value.isArray()) {
+                sb.append('[');
+                for (int index = 0; index < value.size(); index++) {
+                    if (index > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(repr(value.get(index)));
+                }
+                sb.append(']');
+            } else {
+                sb.append(value.asText());
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Floating point number as written by python's json module.
+         *
+         * @param value number.
+         * @return representation.
+         */
+        static String jsonFloat(double value) {
+            if (Double.isNaN(value)) {
+                return "NaN";
+            }
+            if (Double.isInfinite(value)) {
+                return value > 0 ? "Infinity" : "-Infinity";
+            }
+            return pythonFloat(value);
+        }
+
+        /**
+         * Equivalent of python 'repr()' for floats.
+         *
+         * @param value number.
+         * @return representation.
+         */
+        static String pythonFloat(double value) {
+            if (Double.isNaN(value)) {
+                return "nan";
+            }
+            if (Double.isInfinite(value)) {
+                return value > 0 ? "inf" : "-inf";
+            }
+            if (value == 0.0) {
+                return (1.0 / value < 0) ? "-0.0" : "0.0";
+            }
+            BigDecimal decimal = new BigDecimal(Double.toString(value)).stripTrailingZeros();
+            String sign = decimal.signum() < 0 ? "-" : "";
+            int exponent = decimal.precision() - decimal.scale() - 1;
+            String representation;
+            if ((exponent < -4) || (exponent >= 16)) {
+                String digits = decimal.unscaledValue().abs().toString();
+                StringBuilder sb = new StringBuilder(sign).append(digits.charAt(0));
+                if (digits.length() > 1) {
+                    sb.append('.').append(digits, 1, digits.length());
+                }
+                sb.append('e').append(exponent < 0 ? '-' : '+');
+                sb.append(String.format("%02d", Math.abs(exponent)));
+                representation = sb.toString();
+            } else {
+                representation = decimal.toPlainString();
+                if (representation.indexOf('.') < 0) {
+                    representation += ".0";
+                }
+            }
+            return representation;
+        }
+
+        /**
+         * Append quoted string like python's 'repr()'.
+         *
+         * @param sb    target.
+         * @param value string.
+         */
+        private static void appendString(StringBuilder sb, String value) {
+            char quote = ((value.indexOf('\'') >= 0) && (value.indexOf('"') < 0)) ? '"' : '\'';
+            sb.append(quote);
+            for (int index = 0; index < value.length(); index++) {
+                char c = value.charAt(index);
+                if ((c == quote) || (c == '\\')) {
+                    sb.append('\\').append(c);
+                } else if (c == '\n') {
+                    sb.append("\\n");
+                } else if (c == '\r') {
+                    sb.append("\\r");
+                } else if (c == '\t') {
+                    sb.append("\\t");
+                } else if ((c < 0x20) || ((c >= 0x7f) && (c <= 0xa0))) {
+                    sb.append(String.format("\\x%02x", (int) c));
+                } else {
+                    sb.append(c);
+                }
+            }
+            sb.append(quote);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.mapping.IMappingTool;
+import edu.kit.datamanager.mappingservice.mapping.IMappingToolProvider;
+import edu.kit.datamanager.mappingservice.mapping.Mapping;
+import edu.kit.datamanager.mappingservice.python.gemma.GemmaMapping;
+
+import java.net.MalformedURLException;
+
+/**
+ * Provider for GEMMA mappings. Depending on 'mapping-service.gemma.inProcess'
+ * mappings are evaluated inside the JVM or by the python script.
+ */
+public class GemmaMappingToolProvider implements IMappingToolProvider {
+
+    @Override
+    public String getMappingType() {
+        return Mapping.GEMMA.name();
+    }
+
+    @Override
+    public IMappingTool createMappingTool(ApplicationProperties configuration) {
+        if (configuration.isGemmaInProcess()) {
+            return new InProcessGemmaMapping(configuration);
+        }
+        try {
+            return new GemmaMapping(configuration);
+        } catch (MalformedURLException ex) {
+            throw new MappingException("Error: Can't initialize python based GEMMA mapping!", ex);
+        }
+    }
+}
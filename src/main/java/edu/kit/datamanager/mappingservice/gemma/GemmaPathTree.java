@@ -0,0 +1,199 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tree of all paths referenced by a mapping document. It is used to read only
+ * those parts of a source document which are accessed while mapping.
+ * <p>
+ * Paths are evaluated like {@link GemmaEngine#findPath(String, com.fasterxml.jackson.databind.JsonNode)}:
+ * path elements select a key of an object or an index of a list. Invalid or
+ * out of range indices select the first element, so the first element of a
+ * list has to be read for all path elements. Negative indices depend on the
+ * size of the list, in this case all elements are read.
+ */
+final class GemmaPathTree {
+
+    /**
+     * Children by path element.
+     */
+    private final Map<String, GemmaPathTree> children = new LinkedHashMap<>();
+
+    /**
+     * Whole value is needed.
+     */
+    private boolean complete = false;
+
+    /**
+     * Trees for elements of a list (built by freeze()).
+     */
+    private Map<Integer, GemmaPathTree> elements;
+    private GemmaPathTree firstElement;
+    private int maxIndex;
+    private boolean allElements;
+    private boolean frozen = false;
+
+    /**
+     * Tree for a value which may be a single value or the first element of
+     * a list (created on demand).
+     */
+    private volatile GemmaPathTree firstOccurrence;
+
+    private GemmaPathTree() {
+    }
+
+    /**
+     * Build tree for all rules.
+     *
+     * @param rules rules of a compiled mapping.
+     * @return tree of all paths.
+     */
+    static GemmaPathTree of(List<GemmaPlan.Rule> rules) {
+        GemmaPathTree root = new GemmaPathTree();
+        for (GemmaPlan.Rule rule : rules) {
+            GemmaPathTree node = root;
+            for (String pos : rule.getPath()) {
+                node = node.children.computeIfAbsent(pos, key -> new GemmaPathTree());
+            }
+            node.complete = true;
+        }
+        root.freeze();
+        return root;
+    }
+
+    /**
+     * Check if the whole value is needed.
+     *
+     * @return true if value has to be read completely.
+     */
+    boolean isComplete() {
+        return complete;
+    }
+
+    /**
+     * Get tree for a key of an object.
+     *
+     * @param key key.
+     * @return tree or null if key is not needed.
+     */
+    GemmaPathTree getChild(String key) {
+        return children.get(key);
+    }
+
+    /**
+     * Get tree for an element of a list.
+     *
+     * @param index index of the element.
+     * @return tree or null if element is not needed.
+     */
+    GemmaPathTree getElement(int index) {
+        if ((index == 0) || allElements) {
+            return firstElement;
+        }
+        return elements.get(index);
+    }
+
+    /**
+     * Get tree for a value which is either accessed directly or as first
+     * element of a list. This is the case for repeated XML elements as the
+     * first occurrence becomes a list only if a second one follows.
+     *
+     * @return merged tree.
+     */
+    GemmaPathTree getFirstOccurrence() {
+        GemmaPathTree tree = firstOccurrence;
+        if (tree == null) {
+            tree = merge(this, firstElement);
+            firstOccurrence = tree;
+        }
+        return tree;
+    }
+
+    /**
+     * Check if a skipped element has to be kept as placeholder to preserve
+     * the indices (and the size) of a list.
+     *
+     * @param index index of the element.
+     * @return true if a placeholder is needed.
+     */
+    boolean needsPlaceholder(int index) {
+        return index <= maxIndex;
+    }
+
+    /**
+     * Calculate the trees for the elements of lists. The tree is immutable
+     * afterwards.
+     */
+    private void freeze() {
+        if (frozen) {
+            return;
+        }
+        frozen = true;
+        elements = new HashMap<>();
+        maxIndex = 0;
+        allElements = false;
+        for (Map.Entry<String, GemmaPathTree> child : children.entrySet()) {
+            child.getValue().freeze();
+            int index;
+            try {
+                index = Integer.parseInt(child.getKey().trim());
+            } catch (NumberFormatException nfe) {
+                index = 0;
+            }
+            if (index < 0) {
+                allElements = true;
+            } else if (index > 0) {
+                elements.merge(index, child.getValue(), GemmaPathTree::merge);
+                maxIndex = Math.max(maxIndex, index);
+            }
+        }
+        if (allElements) {
+            maxIndex = Integer.MAX_VALUE;
+        }
+        // The first element is selected by all invalid indices.
+        GemmaPathTree first = null;
+        for (GemmaPathTree child : children.values()) {
+            first = merge(first, child);
+        }
+        firstElement = first;
+    }
+
+    /**
+     * Merge two trees.
+     *
+     * @param first  first tree (may be null).
+     * @param second second tree.
+     * @return merged tree.
+     */
+    private static GemmaPathTree merge(GemmaPathTree first, GemmaPathTree second) {
+        GemmaPathTree merged = new GemmaPathTree();
+        for (GemmaPathTree tree : new GemmaPathTree[]{first, second}) {
+            if (tree != null) {
+                merged.complete |= tree.complete;
+                for (Map.Entry<String, GemmaPathTree> child : tree.children.entrySet()) {
+                    merged.children.merge(child.getKey(), child.getValue(), GemmaPathTree::merge);
+                }
+            }
+        }
+        merged.freeze();
+        return merged;
+    }
+}
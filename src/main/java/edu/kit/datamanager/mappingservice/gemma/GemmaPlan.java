@@ -0,0 +1,187 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Compiled GEMMA mapping document. All paths are split and all target types
+ * are resolved while compiling, so a plan may be applied to any number of
+ * source documents. Instances are immutable and thread safe.
+ *
+ * @see GemmaEngine#compile(JsonNode, Path)
+ */
+public final class GemmaPlan {
+
+    /**
+     * Target types of a rule.
+     */
+    public enum TargetType {
+        STRING,
+        INTEGER,
+        ARRAY,
+        /**
+         * Any other type: value is kept unchanged.
+         */
+        UNCHANGED;
+
+        /**
+         * Resolve type of the mapping document.
+         *
+         * @param type type as defined in mapping document.
+         * @return target type.
+         */
+        static TargetType of(String type) {
+            TargetType targetType;
+            switch (type) {
+                case GemmaEngine.TYPE_STRING:
+                    targetType = STRING;
+                    break;
+                case GemmaEngine.TYPE_INTEGER:
+                    targetType = INTEGER;
+                    break;
+                case GemmaEngine.TYPE_ARRAY:
+                    targetType = ARRAY;
+                    break;
+                default:
+                    targetType = UNCHANGED;
+                    break;
+            }
+            return targetType;
+        }
+    }
+
+    private final List<Rule> rules;
+
+    private final Path mappingFile;
+
+    private final GemmaPathTree pathTree;
+
+    GemmaPlan(List<Rule> rules, Path mappingFile) {
+        this.rules = Collections.unmodifiableList(rules);
+        this.mappingFile = mappingFile;
+        this.pathTree = GemmaPathTree.of(rules);
+    }
+
+    /**
+     * Get all rules in order of the mapping document.
+     *
+     * @return list of rules.
+     */
+    public List<Rule> getRules() {
+        return rules;
+    }
+
+    /**
+     * Get the mapping document the plan was compiled from.
+     *
+     * @return path of the mapping document (may be null).
+     */
+    public Path getMappingFile() {
+        return mappingFile;
+    }
+
+    /**
+     * Get tree of all paths referenced by the rules.
+     *
+     * @return path tree.
+     */
+    GemmaPathTree getPathTree() {
+        return pathTree;
+    }
+
+    /**
+     * A single element of the mapping document, e.g.
+     * {"path":"a.b","type":"string"} located at 'title.value'.
+     */
+    public static final class Rule {
+
+        private final String key;
+        private final String[] keyLevels;
+        private final String[] path;
+        private final TargetType type;
+        private final JsonNode defaultValue;
+        private final JsonNode include;
+
+        Rule(String key, String path, TargetType type, JsonNode defaultValue, JsonNode include) {
+            this.key = key;
+            this.keyLevels = key.split("\\.", -1);
+            this.path = path.split("\\.", -1);
+            this.type = type;
+            this.defaultValue = defaultValue;
+            this.include = include;
+        }
+
+        /**
+         * Get key of the value inside the result.
+         *
+         * @return key, e.g. 'title.value'
+         */
+        public String getKey() {
+            return key;
+        }
+
+        /**
+         * Get key of the value split into its levels.
+         *
+         * @return levels of the key.
+         */
+        String[] getKeyLevels() {
+            return keyLevels;
+        }
+
+        /**
+         * Get path inside the source document split into its elements.
+         *
+         * @return elements of the path.
+         */
+        String[] getPath() {
+            return path;
+        }
+
+        /**
+         * Get target type.
+         *
+         * @return type of the value.
+         */
+        public TargetType getType() {
+            return type;
+        }
+
+        /**
+         * Get default value as defined in the mapping document.
+         *
+         * @return default value (null if not defined, JSON null if defined
+         * as null).
+         */
+        JsonNode getDefaultValue() {
+            return defaultValue;
+        }
+
+        /**
+         * Get keys which should be kept for arrays.
+         *
+         * @return include list (null keeps all).
+         */
+        JsonNode getInclude() {
+            return include;
+        }
+    }
+}
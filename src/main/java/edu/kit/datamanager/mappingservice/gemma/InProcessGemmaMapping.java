@@ -0,0 +1,186 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.mapping.ICompilableMappingTool;
+import edu.kit.datamanager.mappingservice.mapping.MappingUtil;
+import edu.kit.datamanager.mappingservice.python.gemma.GemmaMapping;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * GEMMA mapping evaluated inside the JVM. Sources which can't be read
+ * in-process are mapped by the python based {@link GemmaMapping}. Mapping
+ * documents are compiled to a {@link GemmaPlan}.
+ */
+public class InProcessGemmaMapping implements ICompilableMappingTool<GemmaPlan>, Closeable {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(InProcessGemmaMapping.class);
+
+    private final ApplicationProperties configuration;
+
+    /**
+     * Python based mapping used for all other formats (created on demand).
+     */
+    private GemmaMapping fallback;
+
+    public InProcessGemmaMapping(ApplicationProperties configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Map the source file to a new file using a given mapping tool.
+     *
+     * @param mappingFile The absolute path to mapping file.
+     * @param srcFile     The absolute path to the source file.
+     * @param resultFile  The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int mapFile(Path mappingFile, Path srcFile, Path resultFile) {
+        GemmaPlan plan;
+        try {
+            plan = compile(mappingFile);
+        } catch (MappingException mex) {
+            LOGGER.error("Failed to compile mapping '" + mappingFile + "'.", mex);
+            return MappingUtil.FAILURE;
+        }
+        return mapFile(plan, srcFile, resultFile);
+    }
+
+    /**
+     * Compile the mapping document.
+     *
+     * @param mappingFile The absolute path to mapping file.
+     * @return compiled mapping.
+     * @throws MappingException if mapping document is invalid or can't be
+     *                          read.
+     */
+    @Override
+    public GemmaPlan compile(Path mappingFile) {
+        try {
+            return GemmaEngine.compile(GemmaEngine.readTree(mappingFile), mappingFile);
+        } catch (IOException ioe) {
+            throw new MappingException("Error: Can't read mapping '" + mappingFile + "'!", ioe);
+        }
+    }
+
+    /**
+     * Map the source file to a new file using a compiled mapping.
+     *
+     * @param plan       The compiled mapping.
+     * @param srcFile    The absolute path to the source file.
+     * @param resultFile The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int mapFile(GemmaPlan plan, Path srcFile, Path resultFile) {
+        LOGGER.trace("Run in-process gemma on '{}' with mapping '{}' -> '{}'", srcFile, plan.getMappingFile(), resultFile);
+        int returnCode = MappingUtil.SUCCESS;
+        try {
+            if (GemmaEngine.isJson(srcFile)) {
+                JsonNode source = configuration.isGemmaStreaming() ? GemmaEngine.readTree(srcFile, plan) : GemmaEngine.readTree(srcFile);
+                GemmaEngine.write(GemmaEngine.map(plan, source), resultFile);
+            } else if (GemmaEngine.isXml(srcFile)) {
+                JsonNode source = configuration.isGemmaStreaming() ? GemmaEngine.readXml(srcFile, plan) : GemmaEngine.readXml(srcFile);
+                GemmaEngine.write(GemmaEngine.map(plan, source), resultFile);
+            } else {
+                LOGGER.trace("'{}' is neither a JSON nor a XML file. Using python based gemma instead.", srcFile);
+                returnCode = getFallback().mapFile(plan.getMappingFile(), srcFile, resultFile);
+            }
+        } catch (IOException | MappingException ex) {
+            LOGGER.error("Failed to map '" + srcFile + "' with mapping '" + plan.getMappingFile() + "'.", ex);
+            returnCode = MappingUtil.FAILURE;
+        }
+        return returnCode;
+    }
+
+    /**
+     * Map a JSON or XML document using a compiled mapping. The document is
+     * read from the stream and the result is written to the stream without
+     * any files. Other documents are passed to the python based gemma via
+     * temporary files.
+     *
+     * @param plan       The compiled mapping.
+     * @param source     Stream holding the source document.
+     * @param sourceType Type of the source document (null if unknown).
+     * @param result     Stream receiving the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     * @throws IOException error reading the source or writing the result.
+     */
+    @Override
+    public int map(GemmaPlan plan, InputStream source, ContentTypeDetector.ContentType sourceType, OutputStream result) throws IOException {
+        if ((sourceType != ContentTypeDetector.ContentType.JSON) && (sourceType != ContentTypeDetector.ContentType.XML)) {
+            return ICompilableMappingTool.super.map(plan, source, sourceType, result);
+        }
+        LOGGER.trace("Run in-process gemma on {} stream with mapping '{}'", sourceType, plan.getMappingFile());
+        int returnCode = MappingUtil.SUCCESS;
+        try {
+            JsonNode document;
+            if (sourceType == ContentTypeDetector.ContentType.JSON) {
+                document = configuration.isGemmaStreaming() ? GemmaEngine.readTree(source, plan) : GemmaEngine.readTree(source);
+            } else {
+                document = configuration.isGemmaStreaming() ? GemmaEngine.readXml(source, plan) : GemmaEngine.readXml(source);
+            }
+            GemmaEngine.write(GemmaEngine.map(plan, document), result);
+        } catch (IOException | MappingException ex) {
+            LOGGER.error("Failed to map stream with mapping '" + plan.getMappingFile() + "'.", ex);
+            returnCode = MappingUtil.FAILURE;
+        }
+        return returnCode;
+    }
+
+    /**
+     * Stop the python based gemma mapping (if it was created).
+     */
+    @Override
+    public synchronized void close() {
+        if (fallback != null) {
+            fallback.close();
+            fallback = null;
+        }
+    }
+
+    /**
+     * Get python based gemma mapping.
+     *
+     * @return instance of GemmaMapping.
+     * @throws MappingException if python based gemma is not configured.
+     */
+    private synchronized GemmaMapping getFallback() {
+        if (fallback == null) {
+            try {
+                fallback = new GemmaMapping(configuration);
+            } catch (Exception ex) {
+                throw new MappingException("Error: Python based gemma is not available!", ex);
+            }
+        }
+        return fallback;
+    }
+}
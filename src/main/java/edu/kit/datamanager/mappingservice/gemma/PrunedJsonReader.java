@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.MissingNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads a JSON document with the streaming parser and keeps only the values
+ * referenced by a mapping document. All other subtrees are skipped without
+ * building nodes. Evaluating the paths of the mapping on the pruned document
+ * returns the same values as on the complete document.
+ *
+ * @see GemmaPathTree
+ */
+final class PrunedJsonReader {
+
+    private final ObjectMapper mapper;
+
+    /**
+     * Create reader.
+     *
+     * @param mapper mapper used for parsing.
+     */
+    PrunedJsonReader(ObjectMapper mapper) {
+        this.mapper = mapper;
+    }
+
+    /**
+     * Read document.
+     *
+     * @param input    stream holding the JSON document.
+     * @param pathTree all paths which should be kept.
+     * @return pruned document (MissingNode if document is empty).
+     * @throws IOException error reading the document.
+     */
+    JsonNode read(InputStream input, GemmaPathTree pathTree) throws IOException {
+        try (JsonParser parser = mapper.getFactory().createParser(input)) {
+            if (parser.nextToken() == null) {
+                return MissingNode.getInstance();
+            }
+            return readValue(parser, pathTree);
+        }
+    }
+
+    /**
+     * Read value at the actual position of the parser.
+     *
+     * @param parser   parser positioned at the first token of the value.
+     * @param pathTree paths which should be kept.
+     * @return the (pruned) value.
+     * @throws IOException error reading the document.
+     */
+    private JsonNode readValue(JsonParser parser, GemmaPathTree pathTree) throws IOException {
+        JsonNode value;
+        if (pathTree.isComplete()) {
+            value = readComplete(parser);
+        } else if (parser.currentToken() == JsonToken.START_OBJECT) {
+            value = readObject(parser, pathTree);
+        } else if (parser.currentToken() == JsonToken.START_ARRAY) {
+            value = readArray(parser, pathTree);
+        } else {
+            // scalar values are returned by any further path element.
+            value = readComplete(parser);
+        }
+        return value;
+    }
+
+    /**
+     * Read all keys of an object referenced by the path tree.
+     *
+     * @param parser   parser positioned at START_OBJECT.
+     * @param pathTree paths which should be kept.
+     * @return the pruned object.
+     * @throws IOException error reading the document.
+     */
+    private ObjectNode readObject(JsonParser parser, GemmaPathTree pathTree) throws IOException {
+        ObjectNode object = JsonNodeFactory.instance.objectNode();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String key = parser.getCurrentName();
+            parser.nextToken();
+            GemmaPathTree child = pathTree.getChild(key);
+            if (child != null) {
+                object.set(key, readValue(parser, child));
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return object;
+    }
+
+    /**
+     * Read all elements of a list referenced by the path tree. Skipped
+     * elements are replaced by null as long as the indices of later elements
+     * are needed.
+     *
+     * @param parser   parser positioned at START_ARRAY.
+     * @param pathTree paths which should be kept.
+     * @return the pruned list.
+     * @throws IOException error reading the document.
+     */
+    private ArrayNode readArray(JsonParser parser, GemmaPathTree pathTree) throws IOException {
+        ArrayNode list = JsonNodeFactory.instance.arrayNode();
+        int index = 0;
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            GemmaPathTree element = pathTree.getElement(index);
+            if (element != null) {
+                list.add(readValue(parser, element));
+            } else {
+                parser.skipChildren();
+                if (pathTree.needsPlaceholder(index)) {
+                    list.add(NullNode.getInstance());
+                }
+            }
+            index++;
+        }
+        return list;
+    }
+
+    /**
+     * Read complete value.
+     *
+     * @param parser parser positioned at the first token of the value.
+     * @return the value.
+     * @throws IOException error reading the document.
+     */
+    private JsonNode readComplete(JsonParser parser) throws IOException {
+        JsonNode value = mapper.readTree(parser);
+        return value != null ? value : NullNode.getInstance();
+    }
+}
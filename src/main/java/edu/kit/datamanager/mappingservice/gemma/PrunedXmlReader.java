@@ -0,0 +1,292 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.node.TextNode;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads a XML document with StAX and builds the same structure as
+ * 'xmltodict.parse' used by the python implementation:
+ * <ul>
+ * <li>attributes are stored as '@name', text as '#text'</li>
+ * <li>elements containing only text are stored as string, empty elements as
+ * null</li>
+ * <li>repeated elements are stored as list</li>
+ * <li>text is stripped, namespaces are not processed ('prefix:name')</li>
+ * </ul>
+ * If a path tree is given only the values referenced by the mapping are
+ * kept. Skipped elements still turn their parent into an object and repeated
+ * elements still become a list, so all paths evaluate to the same values as
+ * on the complete document. DTDs are not supported.
+ *
+ * @see GemmaPathTree
+ */
+final class PrunedXmlReader {
+
+    private static final String ATTRIBUTE_PREFIX = "@";
+    private static final String TEXT_KEY = "#text";
+
+    private final XMLInputFactory factory;
+
+    /**
+     * Create reader.
+     */
+    PrunedXmlReader() {
+        factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    /**
+     * Read document.
+     *
+     * @param input    stream holding the XML document.
+     * @param pathTree all paths which should be kept (null reads complete
+     *                 document).
+     * @return (pruned) document.
+     * @throws IOException error reading the document.
+     */
+    JsonNode read(InputStream input, GemmaPathTree pathTree) throws IOException {
+        ObjectNode document = JsonNodeFactory.instance.objectNode();
+        XMLStreamReader reader = null;
+        try {
+            reader = factory.createXMLStreamReader(input);
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                    String name = getName(reader);
+                    GemmaPathTree rootTree = pathTree != null ? pathTree.getChild(name) : null;
+                    if ((pathTree == null) || (rootTree != null)) {
+                        document.set(name, readElement(reader, rootTree));
+                    } else {
+                        skipElement(reader);
+                    }
+                }
+            }
+        } catch (XMLStreamException ex) {
+            throw new IOException("Error parsing XML document!", ex);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ex) {
+                    // ignore
+                }
+            }
+        }
+        return document;
+    }
+
+    /**
+     * Read element at the actual position of the reader.
+     *
+     * @param reader   reader positioned at START_ELEMENT.
+     * @param pathTree paths which should be kept (null = complete element).
+     * @return the (pruned) element.
+     * @throws XMLStreamException error reading the document.
+     */
+    private JsonNode readElement(XMLStreamReader reader, GemmaPathTree pathTree) throws XMLStreamException {
+        boolean complete = (pathTree == null) || pathTree.isComplete();
+        ObjectNode item = JsonNodeFactory.instance.objectNode();
+        boolean isObject = reader.getAttributeCount() > 0;
+        for (int index = 0; index < reader.getAttributeCount(); index++) {
+            String key = ATTRIBUTE_PREFIX + getAttributeName(reader, index);
+            if (complete || (pathTree.getChild(key) != null)) {
+                item.put(key, reader.getAttributeValue(index));
+            }
+        }
+        StringBuilder text = new StringBuilder();
+        Map<String, Integer> occurrences = new HashMap<>();
+        int event = reader.next();
+        while (event != XMLStreamConstants.END_ELEMENT) {
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    isObject = true;
+                    String name = getName(reader);
+                    if (complete) {
+                        push(item, name, readElement(reader, null));
+                    } else {
+                        readChild(reader, item, name, pathTree.getChild(name), occurrences);
+                    }
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    text.append(reader.getText());
+                    break;
+                default:
+                    // comments and processing instructions are ignored.
+                    break;
+            }
+            event = reader.next();
+        }
+        String data = strip(text);
+        JsonNode value;
+        if (isObject) {
+            if (!data.isEmpty() && (complete || (pathTree.getChild(TEXT_KEY) != null))) {
+                item.put(TEXT_KEY, data);
+            }
+            value = item;
+        } else {
+            value = data.isEmpty() ? NullNode.getInstance() : TextNode.valueOf(data);
+        }
+        return value;
+    }
+
+    /**
+     * Read child element if it is referenced by the path tree.
+     *
+     * @param reader      reader positioned at START_ELEMENT of the child.
+     * @param item        parent element.
+     * @param name        name of the child.
+     * @param childTree   paths for the child (null if not referenced).
+     * @param occurrences number of elements read per name.
+     * @throws XMLStreamException error reading the document.
+     */
+    private void readChild(XMLStreamReader reader, ObjectNode item, String name, GemmaPathTree childTree, Map<String, Integer> occurrences) throws XMLStreamException {
+        if (childTree == null) {
+            skipElement(reader);
+            return;
+        }
+        int occurrence = occurrences.merge(name, 1, Integer::sum) - 1;
+        if (childTree.isComplete()) {
+            push(item, name, readElement(reader, null));
+        } else if (occurrence == 0) {
+            push(item, name, readElement(reader, childTree.getFirstOccurrence()));
+        } else {
+            GemmaPathTree element = childTree.getElement(occurrence);
+            if (element != null) {
+                push(item, name, readElement(reader, element));
+            } else {
+                skipElement(reader);
+                // a second element turns the value into a list.
+                if ((occurrence == 1) || childTree.needsPlaceholder(occurrence)) {
+                    push(item, name, NullNode.getInstance());
+                }
+            }
+        }
+    }
+
+    /**
+     * Add value to element. Repeated keys are collected in a list.
+     *
+     * @param item  element.
+     * @param key   key of the value.
+     * @param value value.
+     */
+    private static void push(ObjectNode item, String key, JsonNode value) {
+        JsonNode existing = item.get(key);
+        if (existing == null) {
+            item.set(key, value);
+        } else if (existing.isArray()) {
+            ((ArrayNode) existing).add(value);
+        } else {
+            item.putArray(key).add(existing).add(value);
+        }
+    }
+
+    /**
+     * Skip element at the actual position of the reader.
+     *
+     * @param reader reader positioned at START_ELEMENT.
+     * @throws XMLStreamException error reading the document.
+     */
+    private static void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    /**
+     * Get qualified name of the actual element.
+     *
+     * @param reader reader positioned at START_ELEMENT.
+     * @return name including prefix.
+     */
+    private static String getName(XMLStreamReader reader) {
+        return qualifiedName(reader.getPrefix(), reader.getLocalName());
+    }
+
+    /**
+     * Get qualified name of an attribute.
+     *
+     * @param reader reader positioned at START_ELEMENT.
+     * @param index  index of the attribute.
+     * @return name including prefix.
+     */
+    private static String getAttributeName(XMLStreamReader reader, int index) {
+        return qualifiedName(reader.getAttributePrefix(index), reader.getAttributeLocalName(index));
+    }
+
+    /**
+     * Build qualified name.
+     *
+     * @param prefix    prefix (may be null or empty).
+     * @param localName local name.
+     * @return qualified name.
+     */
+    private static String qualifiedName(String prefix, String localName) {
+        return ((prefix == null) || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+    }
+
+    /**
+     * Strip whitespaces like python's 'str.strip()'.
+     *
+     * @param text text.
+     * @return stripped text.
+     */
+    static String strip(CharSequence text) {
+        int start = 0;
+        int end = text.length();
+        while ((start < end) && isPythonWhitespace(text.charAt(start))) {
+            start++;
+        }
+        while ((end > start) && isPythonWhitespace(text.charAt(end - 1))) {
+            end--;
+        }
+        return text.subSequence(start, end).toString();
+    }
+
+    /**
+     * Test for whitespace as defined by python's 'str.isspace()'.
+     *
+     * @param c character.
+     * @return true if character is a whitespace.
+     */
+    private static boolean isPythonWhitespace(char c) {
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || (c == '\u0085');
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.handlebars;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jknack.handlebars.Context;
+import com.github.jknack.handlebars.Handlebars;
+import com.github.jknack.handlebars.HandlebarsException;
+import com.github.jknack.handlebars.Template;
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.gemma.GemmaEngine;
+import edu.kit.datamanager.mappingservice.mapping.ICompilableMappingTool;
+import edu.kit.datamanager.mappingservice.mapping.MappingUtil;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Mapping tool rendering a handlebars template. The source document (JSON or
+ * XML) is available as context of the template. XML documents are converted
+ * like GEMMA does ('@attribute', '#text').
+ * <p>
+ * Additional helpers:
+ * <ul>
+ * <li>maybeStringify: writes value as JSON, e.g. strings are quoted and
+ * escaped while numbers, lists and objects are written as is.</li>
+ * </ul>
+ */
+public class HandlebarsMapping implements ICompilableMappingTool<Template> {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(HandlebarsMapping.class);
+
+    /**
+     * Name of the helper writing values as JSON.
+     */
+    public static final String MAYBE_STRINGIFY = "maybeStringify";
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Handlebars handlebars;
+
+    public HandlebarsMapping(ApplicationProperties configuration) {
+        handlebars = new Handlebars();
+        handlebars.registerHelper(MAYBE_STRINGIFY, (context, options) -> MAPPER.writeValueAsString(context));
+    }
+
+    /**
+     * Map the source file to a new file using a given mapping tool.
+     *
+     * @param mappingFile The absolute path to mapping file.
+     * @param srcFile     The absolute path to the source file.
+     * @param resultFile  The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int mapFile(Path mappingFile, Path srcFile, Path resultFile) {
+        Template template;
+        try {
+            template = compile(mappingFile);
+        } catch (MappingException mex) {
+            LOGGER.error("Failed to compile template '" + mappingFile + "'.", mex);
+            return MappingUtil.FAILURE;
+        }
+        return mapFile(template, srcFile, resultFile);
+    }
+
+    /**
+     * Compile the template.
+     *
+     * @param mappingFile The absolute path to the template.
+     * @return compiled template.
+     * @throws MappingException if template is invalid or can't be read.
+     */
+    @Override
+    public Template compile(Path mappingFile) {
+        try {
+            return handlebars.compileInline(FileUtils.readFileToString(mappingFile.toFile(), StandardCharsets.UTF_8));
+        } catch (IOException | HandlebarsException ex) {
+            throw new MappingException("Error: Can't compile template '" + mappingFile + "'!", ex);
+        }
+    }
+
+    /**
+     * Render the template with the source file as context. The result is
+     * written directly to the result file.
+     *
+     * @param template   The compiled template.
+     * @param srcFile    The absolute path to the source file.
+     * @param resultFile The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int mapFile(Template template, Path srcFile, Path resultFile) {
+        LOGGER.trace("Render template on '{}' -> '{}'", srcFile, resultFile);
+        int returnCode = MappingUtil.SUCCESS;
+        Context context = null;
+        try {
+            context = Context.newContext(readSource(srcFile));
+            try (Writer writer = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8)) {
+                template.apply(context, writer);
+            }
+        } catch (IOException | HandlebarsException | MappingException ex) {
+            LOGGER.error("Failed to render template for '" + srcFile + "'.", ex);
+            returnCode = MappingUtil.FAILURE;
+        } finally {
+            if (context != null) {
+                context.destroy();
+            }
+        }
+        return returnCode;
+    }
+
+    /**
+     * Render the template with the source document as context. The document
+     * is read from the stream and the result is written to the stream
+     * without any files.
+     *
+     * @param template   The compiled template.
+     * @param source     Stream holding the source document.
+     * @param sourceType Type of the source document (null if unknown).
+     * @param result     Stream receiving the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int map(Template template, InputStream source, ContentTypeDetector.ContentType sourceType, OutputStream result) {
+        LOGGER.trace("Render template on {} stream", sourceType);
+        int returnCode = MappingUtil.SUCCESS;
+        Context context = null;
+        try {
+            context = Context.newContext(readSource(source, sourceType));
+            Writer writer = new BufferedWriter(new OutputStreamWriter(result, StandardCharsets.UTF_8));
+            template.apply(context, writer);
+            writer.flush();
+        } catch (IOException | HandlebarsException | MappingException ex) {
+            LOGGER.error("Failed to render template for " + sourceType + " stream.", ex);
+            returnCode = MappingUtil.FAILURE;
+        } finally {
+            if (context != null) {
+                context.destroy();
+            }
+        }
+        return returnCode;
+    }
+
+    /**
+     * Read source file as plain java objects (maps, lists, strings,
+     * numbers,...).
+     *
+     * @param srcFile The absolute path to the source file.
+     * @return content of the file.
+     * @throws IOException error reading file.
+     * @throws MappingException if format of the file is not supported.
+     */
+    private static Object readSource(Path srcFile) throws IOException {
+        ContentTypeDetector.ContentType sourceType;
+        if (GemmaEngine.isJson(srcFile)) {
+            sourceType = ContentTypeDetector.ContentType.JSON;
+        } else if (GemmaEngine.isXml(srcFile)) {
+            sourceType = ContentTypeDetector.ContentType.XML;
+        } else {
+            throw new MappingException("Error: Format of '" + srcFile + "' is not supported!");
+        }
+        try (InputStream source = Files.newInputStream(srcFile)) {
+            return readSource(source, sourceType);
+        }
+    }
+
+    /**
+     * Read source document as plain java objects (maps, lists, strings,
+     * numbers,...).
+     *
+     * @param source     Stream holding the source document.
+     * @param sourceType Type of the source document.
+     * @return content of the document.
+     * @throws IOException error reading document.
+     * @throws MappingException if format of the document is not supported.
+     */
+    private static Object readSource(InputStream source, ContentTypeDetector.ContentType sourceType) throws IOException {
+        Object document;
+        if (sourceType == ContentTypeDetector.ContentType.JSON) {
+            document = MAPPER.readValue(source, Object.class);
+        } else if (sourceType == ContentTypeDetector.ContentType.XML) {
+            document = MAPPER.convertValue(GemmaEngine.readXml(source), Object.class);
+        } else {
+            throw new MappingException("Error: Format '" + sourceType + "' is not supported!");
+        }
+        return document;
+    }
+}
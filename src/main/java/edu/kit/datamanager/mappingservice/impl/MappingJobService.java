@@ -0,0 +1,328 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.impl;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.dao.IMappingJobDao;
+import edu.kit.datamanager.mappingservice.domain.MappingJob;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.exception.MappingRejectedException;
+import edu.kit.datamanager.mappingservice.util.FileUtil;
+import edu.kit.datamanager.mappingservice.util.ScratchSpace;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Service executing mappings asynchronously. Jobs are stored in the database
+ * and processed by a fixed number of workers in order of submission. Input
+ * and result of a job are stored in the job directory, so queued jobs and
+ * results survive a restart. Jobs interrupted by a shutdown are queued
+ * again on startup, jobs rejected by the execution scheduler are queued
+ * again at once. Finished jobs are removed after the retention time.
+ */
+@Service
+public class MappingJobService implements DisposableBean {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(MappingJobService.class);
+
+    private static final int MAX_ERROR_MESSAGE_LENGTH = 1024;
+
+    private static final String NO_RESULT = "There is no result for the input. The input must be invalid.";
+
+    private final IMappingJobDao jobDao;
+
+    private final MappingService mappingService;
+
+    /**
+     * Directory holding input and result files of all jobs.
+     */
+    private final Path jobsDirectory;
+
+    /**
+     * Workers processing the jobs.
+     */
+    private final ExecutorService workers;
+
+    private final long maxQueued;
+
+    /**
+     * Lock making the check of the queue size and the insert of a new job
+     * atomic, so concurrent submissions can't exceed the maximum number of
+     * queued jobs.
+     */
+    private final Object submitLock = new Object();
+
+    private final Duration retention;
+
+    @Autowired
+    public MappingJobService(ApplicationProperties applicationProperties, IMappingJobDao jobDao, MappingService mappingService) {
+        this.jobDao = jobDao;
+        this.mappingService = mappingService;
+        try {
+            jobsDirectory = Files.createDirectories(Paths.get(applicationProperties.getJobsLocation()).toAbsolutePath());
+        } catch (IOException | RuntimeException e) {
+            throw new MappingException("Could not initialize directory '" + applicationProperties.getJobsLocation() + "' for mapping jobs.", e);
+        }
+        workers = Executors.newFixedThreadPool(Math.max(1, applicationProperties.getJobsWorkers()), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "mapping-job-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        maxQueued = Math.max(0, applicationProperties.getJobsMaxQueued());
+        retention = Duration.ofSeconds(Math.max(0, applicationProperties.getJobsRetention()));
+    }
+
+    /**
+     * Check if the queue can't take further jobs.
+     *
+     * @return true if the maximum number of queued jobs is reached.
+     */
+    public boolean isQueueFull() {
+        return (maxQueued > 0) && (jobDao.countByStatusIn(EnumSet.of(MappingJob.Status.QUEUED)) >= maxQueued);
+    }
+
+    /**
+     * Submit a new job. The input file is moved to the job directory. If the
+     * queue is full, the input file is removed.
+     *
+     * @param inputFile   local file holding the document.
+     * @param mappingId   id of the mapping.
+     * @param mappingType type of the mapping.
+     * @return queued job.
+     * @throws MappingRejectedException if the maximum number of queued jobs is reached.
+     * @throws MappingException         if input file can't be stored.
+     */
+    public MappingJob submit(Path inputFile, String mappingId, String mappingType) {
+        String jobId = UUID.randomUUID().toString();
+        String extension = FilenameUtils.getExtension(inputFile.getFileName().toString());
+        Path jobInput = jobsDirectory.resolve(jobId + ".input" + (extension.isEmpty() ? "" : "." + extension));
+        MappingJob job = new MappingJob();
+        synchronized (submitLock) {
+            if (isQueueFull()) {
+                FileUtil.removeFile(inputFile);
+                throw new MappingRejectedException("Error: Too many queued jobs!");
+            }
+            try {
+                Files.move(inputFile, jobInput, StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e) {
+                throw new MappingException("Error storing input of job '" + jobId + "'!", e);
+            }
+            job.setJobId(jobId);
+            job.setMappingId(mappingId);
+            job.setMappingType(mappingType);
+            job.setStatus(MappingJob.Status.QUEUED);
+            job.setCreated(Instant.now());
+            job.setInputFile(jobInput.toString());
+            job = jobDao.save(job);
+        }
+        LOGGER.trace("Submitted job '{}' for mapping '{}/{}'.", jobId, mappingId, mappingType);
+        workers.execute(() -> run(jobId));
+        return job;
+    }
+
+    /**
+     * Get job.
+     *
+     * @param jobId id of the job.
+     * @return job or empty if not found.
+     */
+    public Optional<MappingJob> getJob(String jobId) {
+        return jobDao.findById(jobId);
+    }
+
+    /**
+     * Get result of a succeeded job.
+     *
+     * @param job job.
+     * @return result file or empty if not available.
+     */
+    public Optional<Path> getResult(MappingJob job) {
+        if ((job.getStatus() != MappingJob.Status.SUCCEEDED) || (job.getResultFile() == null)) {
+            return Optional.empty();
+        }
+        Path resultFile = Paths.get(job.getResultFile());
+        return Files.isRegularFile(resultFile) ? Optional.of(resultFile) : Optional.empty();
+    }
+
+    /**
+     * Remove job with its input and result.
+     *
+     * @param job job.
+     * @throws MappingException if job is running.
+     */
+    public void deleteJob(MappingJob job) {
+        // a queued job may have been started in the meantime.
+        if (jobDao.deleteByJobIdAndStatusNot(job.getJobId(), MappingJob.Status.RUNNING) == 0) {
+            if (jobDao.existsById(job.getJobId())) {
+                throw new MappingException("Error: Job '" + job.getJobId() + "' is running!");
+            }
+            return;
+        }
+        removeFiles(job);
+    }
+
+    /**
+     * Queue all jobs which were queued or running before the last shutdown.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeJobs() {
+        for (MappingJob job : jobDao.findByStatusInOrderByCreatedAsc(EnumSet.of(MappingJob.Status.QUEUED, MappingJob.Status.RUNNING))) {
+            if (job.getStatus() == MappingJob.Status.RUNNING) {
+                job.setStatus(MappingJob.Status.QUEUED);
+                job.setStarted(null);
+                jobDao.save(job);
+            }
+            LOGGER.debug("Resume job '{}'.", job.getJobId());
+            String jobId = job.getJobId();
+            workers.execute(() -> run(jobId));
+        }
+    }
+
+    /**
+     * Remove finished jobs older than the retention time.
+     */
+    @Scheduled(initialDelay = 1, fixedDelay = 1, timeUnit = TimeUnit.HOURS)
+    public void removeExpiredJobs() {
+        Instant threshold = Instant.now().minus(retention);
+        for (MappingJob job : jobDao.findByStatusInAndFinishedBefore(EnumSet.of(MappingJob.Status.SUCCEEDED, MappingJob.Status.FAILED), threshold)) {
+            LOGGER.debug("Remove expired job '{}'.", job.getJobId());
+            jobDao.deleteById(job.getJobId());
+            removeFiles(job);
+        }
+    }
+
+    /**
+     * Execute a queued job. The result is moved to the job directory.
+     *
+     * @param jobId id of the job.
+     */
+    private void run(String jobId) {
+        // only one of concurrent start and delete succeeds.
+        if (jobDao.updateStatus(jobId, MappingJob.Status.QUEUED, MappingJob.Status.RUNNING, Instant.now()) == 0) {
+            // deleted or already processed
+            return;
+        }
+        Optional<MappingJob> optionalJob = jobDao.findById(jobId);
+        if (!optionalJob.isPresent()) {
+            return;
+        }
+        MappingJob job = optionalJob.get();
+        LOGGER.trace("Execute job '{}' for mapping '{}/{}'.", jobId, job.getMappingId(), job.getMappingType());
+        MappingJob.Status status = MappingJob.Status.FAILED;
+        String errorMessage = null;
+        try (ScratchSpace.Scope scope = ScratchSpace.getDefault().openScope()) {
+            Optional<Path> result = mappingService.executeMapping(Paths.get(job.getInputFile()), job.getMappingId(), job.getMappingType());
+            if (result.isPresent()) {
+                Path resultFile = jobsDirectory.resolve(jobId + ".result");
+                Files.move(result.get(), resultFile, StandardCopyOption.REPLACE_EXISTING);
+                job.setResultFile(resultFile.toString());
+                status = MappingJob.Status.SUCCEEDED;
+            } else {
+                errorMessage = NO_RESULT;
+            }
+        } catch (MappingRejectedException e) {
+            requeue(jobId, e);
+            return;
+        } catch (MappingException e) {
+            LOGGER.error("Job '" + jobId + "' failed.", e);
+            errorMessage = e.getMessage();
+        } catch (IOException | RuntimeException e) {
+            LOGGER.error("Job '" + jobId + "' failed.", e);
+            errorMessage = "Internal error while executing mapping.";
+        }
+        if (workers.isShutdown() && (status == MappingJob.Status.FAILED)) {
+            // interrupted by shutdown, job is resumed on next startup.
+            return;
+        }
+        FileUtil.removeFile(Paths.get(job.getInputFile()));
+        job.setStatus(status);
+        job.setErrorMessage(errorMessage != null ? StringUtils.abbreviate(errorMessage, MAX_ERROR_MESSAGE_LENGTH) : null);
+        job.setFinished(Instant.now());
+        jobDao.save(job);
+    }
+
+    /**
+     * Queue a job again which was rejected by the execution scheduler. The
+     * input is kept. If the workers are shut down, the job is resumed on
+     * next startup.
+     *
+     * @param jobId id of the job.
+     * @param e     rejection.
+     */
+    private void requeue(String jobId, MappingRejectedException e) {
+        if (workers.isShutdown()) {
+            return;
+        }
+        LOGGER.debug("Job '{}' rejected, queue it again: {}", jobId, e.getMessage());
+        jobDao.updateStatus(jobId, MappingJob.Status.RUNNING, MappingJob.Status.QUEUED, null);
+        try {
+            workers.execute(() -> run(jobId));
+        } catch (RejectedExecutionException ex) {
+            LOGGER.debug("Workers shut down, job '{}' is resumed on next startup.", jobId);
+        }
+    }
+
+    /**
+     * Remove input and result of a job.
+     *
+     * @param job job.
+     */
+    private static void removeFiles(MappingJob job) {
+        for (String file : new String[]{job.getInputFile(), job.getResultFile()}) {
+            if (file != null) {
+                FileUtil.removeFile(Paths.get(file));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        workers.shutdownNow();
+    }
+}
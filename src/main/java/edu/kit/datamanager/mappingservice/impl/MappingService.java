@@ -16,21 +16,35 @@
 package edu.kit.datamanager.mappingservice.impl;
 
 import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.dao.IMappingPipelineDao;
 import edu.kit.datamanager.mappingservice.dao.IMappingRecordDao;
+import edu.kit.datamanager.mappingservice.domain.MappingPipeline;
 import edu.kit.datamanager.mappingservice.domain.MappingRecord;
 import edu.kit.datamanager.mappingservice.exception.MappingException;
-import edu.kit.datamanager.mappingservice.mapping.Mapping;
+import edu.kit.datamanager.mappingservice.mapping.MappingExecutionScheduler;
+import edu.kit.datamanager.mappingservice.mapping.MappingResultCache;
+import edu.kit.datamanager.mappingservice.mapping.MappingToolRegistry;
 import edu.kit.datamanager.mappingservice.mapping.MappingUtil;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
 import edu.kit.datamanager.mappingservice.util.FileUtil;
+import edu.kit.datamanager.mappingservice.util.ResourceDownloader;
+import edu.kit.datamanager.mappingservice.util.ScratchSpace;
 import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
@@ -41,17 +55,30 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 /**
  * Service for managing mappings.
  */
 @Service
-public class MappingService {
+public class MappingService implements DisposableBean {
     /**
      * Repo holding all MappingRecords.
      */
     @Autowired
     private IMappingRecordDao mappingRepo;
+    /**
+     * Repo holding all MappingPipelines.
+     */
+    @Autowired
+    private IMappingPipelineDao pipelineRepo;
     /**
      * Path to directory holding all mapping files.
      */
@@ -62,14 +89,82 @@ public class MappingService {
      */
     private MappingUtil mappingUtil;
 
+    /**
+     * Downloader for the content (optionally caching).
+     */
+    private ResourceDownloader downloader;
+
+    /**
+     * Cache for mapping results (null if disabled).
+     */
+    private MappingResultCache resultCache;
+
+    /**
+     * Threads downloading documents in advance.
+     */
+    private static final ExecutorService PREFETCH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "mapping-prefetch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Number of documents downloaded in advance.
+     */
+    private int prefetch;
+
+    /**
+     * Threads mapping the documents of a batch.
+     */
+    private static final ExecutorService BATCH_EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "mapping-batch-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    /**
+     * Number of documents of a batch mapped in parallel.
+     */
+    private int batchParallelism;
+
+    /**
+     * Maximum size of an intermediate result of a pipeline (0 = unlimited).
+     */
+    private long stepMaxSize;
+
     /**
      * Logger for this class.
      */
     private final static Logger LOGGER = LoggerFactory.getLogger(MappingService.class);
 
-    @Autowired
+    /**
+     * Error of documents not mapped because the batch was interrupted.
+     */
+    private static final String INTERRUPTED = "Error: Interrupted while mapping batch!";
+
+    /**
+     * Create service with its own registry of mapping tools and scheduler.
+     * The service has to be destroyed after use to release the mapping tools.
+     *
+     * @param applicationProperties configuration.
+     */
     public MappingService(ApplicationProperties applicationProperties) throws URISyntaxException {
-        init(applicationProperties);
+        this(applicationProperties, null, null);
+    }
+
+    @Autowired
+    public MappingService(ApplicationProperties applicationProperties, MappingToolRegistry mappingToolRegistry, MappingExecutionScheduler mappingExecutionScheduler) throws URISyntaxException {
+        init(applicationProperties, mappingToolRegistry, mappingExecutionScheduler);
     }
 
     /**
@@ -79,11 +174,9 @@ public class MappingService {
      * @param mappingRecord record of the mapping
      */
     public void createMapping(String content, MappingRecord mappingRecord) throws IOException {
-        // Right now only one mapping per mappingID is allowed. May change in future.
-        //   Optional<MappingRecord> findMapping = mappingRepo.findByMappingIdAndMappingType(mappingRecord.getMappingId(), mappingRecord.getMappingType());
-        Iterable<MappingRecord> findMapping = mappingRepo.findByMappingIdInOrMappingTypeIn(Arrays.asList(mappingRecord.getMappingId()), Arrays.asList((String) null));
-        if (findMapping.iterator().hasNext()) {
-            mappingRecord = findMapping.iterator().next();
+        // A mappingID may be registered for several mapping types.
+        Optional<MappingRecord> findMapping = mappingRepo.findByMappingIdAndMappingType(mappingRecord.getMappingId(), mappingRecord.getMappingType());
+        if (findMapping.isPresent()) {
             throw new MappingException("Error: Mapping '" + mappingRecord.getMappingId() + "/" + mappingRecord.getMappingType() + "' already exists!");
         }
         saveMappingFile(content, mappingRecord);
@@ -104,6 +197,7 @@ public class MappingService {
         mappingRecord.setMappingDocumentUri(findMapping.get().getMappingDocumentUri());
         saveMappingFile(content, mappingRecord);
         mappingRepo.save(mappingRecord);
+        mappingUtil.invalidate(mappingRecord);
     }
 
     /**
@@ -119,6 +213,40 @@ public class MappingService {
         mappingRecord = findMapping.get();
         deleteMappingFile(mappingRecord);
         mappingRepo.delete(mappingRecord);
+        mappingUtil.invalidate(mappingRecord);
+    }
+
+    /**
+     * Create a pipeline. All steps have to reference existing mappings.
+     *
+     * @param pipeline the pipeline.
+     * @throws MappingException if pipeline already exists or is invalid.
+     */
+    public void createPipeline(MappingPipeline pipeline) {
+        if ((pipeline.getPipelineId() == null) || pipeline.getPipelineId().isBlank()) {
+            throw new MappingException("Error: Mandatory attribute pipelineId is missing!");
+        }
+        if ((pipeline.getSteps() == null) || pipeline.getSteps().isEmpty()) {
+            throw new MappingException("Error: Pipeline '" + pipeline.getPipelineId() + "' has no steps!");
+        }
+        if (pipelineRepo.existsById(pipeline.getPipelineId())) {
+            throw new MappingException("Error: Pipeline '" + pipeline.getPipelineId() + "' already exists!");
+        }
+        getStepRecords(pipeline);
+        pipelineRepo.save(pipeline);
+    }
+
+    /**
+     * Delete a pipeline. The referenced mappings are kept.
+     *
+     * @param pipelineId id of the pipeline.
+     * @throws MappingException if pipeline doesn't exist.
+     */
+    public void deletePipeline(String pipelineId) {
+        if (!pipelineRepo.existsById(pipelineId)) {
+            throw new MappingException("Error: Pipeline '" + pipelineId + "' doesn't exist!");
+        }
+        pipelineRepo.deleteById(pipelineId);
     }
 
     /**
@@ -132,7 +260,7 @@ public class MappingService {
      */
     public Optional<Path> executeMapping(URI contentUrl, String mappingId, String mappingType) {
         Optional<Path> returnValue = Optional.empty();
-        Optional<Path> download = FileUtil.downloadResource(contentUrl);
+        Optional<Path> download = FileUtil.downloadResource(contentUrl, downloader);
         MappingRecord mappingRecord = null;
 
         if (download.isPresent()) {
@@ -142,10 +270,8 @@ public class MappingService {
             Optional<MappingRecord> optionalMappingRecord = mappingRepo.findByMappingIdAndMappingType(mappingId, mappingType);
             if (optionalMappingRecord.isPresent()) {
                 mappingRecord = optionalMappingRecord.get();
-                //   mappingRecord.getMappingDocumentUri();
-                Path mappingFile = Paths.get(mappingRecord.getMappingDocumentUri());
-                // execute mapping
-                returnValue = mappingUtil.mapFile(mappingFile, srcFile, mappingType);
+                // execute mapping (compiled mapping document is cached)
+                returnValue = mapFile(mappingRecord, srcFile);
                 // remove downloaded file
                 FileUtil.removeFile(srcFile);
             } else {
@@ -159,47 +285,591 @@ public class MappingService {
     }
 
     /**
-     * Execute mapping(s) and get the location of result file.
+     * Execute mapping on a local file and get the location of result file.
+     * The source file is passed to the mapping tool as is, it is neither
+     * copied nor renamed. The caller is responsible for removing it.
+     *
+     * @param srcFile     local file holding the content.
+     * @param mappingId   filename of the mapping
+     * @param mappingType type of the mapping.
+     * @return Path to result file.
+     * @throws MappingException if file or mapping doesn't exist.
+     */
+    public Optional<Path> executeMapping(Path srcFile, String mappingId, String mappingType) {
+        if ((srcFile == null) || !Files.isRegularFile(srcFile)) {
+            throw new MappingException("Error: Source file '" + srcFile + "' doesn't exist!");
+        }
+        LOGGER.trace("Execute Mapping for '{}', and mapping '{}/{}'.", srcFile, mappingId, mappingType);
+        Optional<MappingRecord> optionalMappingRecord = mappingRepo.findByMappingIdAndMappingType(mappingId, mappingType);
+        if (!optionalMappingRecord.isPresent()) {
+            throw new MappingException("Error: Mapping '" + mappingId + "/" + mappingType + "' doesn't exist!");
+        }
+        return mapFile(optionalMappingRecord.get(), srcFile);
+    }
+
+    /**
+     * Execute a pipeline on a local file and get the location of the result
+     * file. Each step reads the result of the previous step from memory,
+     * only the result of the last step is written to a file. Intermediate
+     * results are limited to the maximum download size. The type of each
+     * intermediate result is detected by its content. The caller is
+     * responsible for removing the source file.
+     *
+     * @param srcFile    local file holding the content.
+     * @param pipelineId id of the pipeline.
+     * @return Path to result file.
+     * @throws MappingException if file, pipeline or a mapping doesn't exist
+     *                          or a step fails.
+     */
+    public Path executePipeline(Path srcFile, String pipelineId) {
+        if ((srcFile == null) || !Files.isRegularFile(srcFile)) {
+            throw new MappingException("Error: Source file '" + srcFile + "' doesn't exist!");
+        }
+        Optional<MappingPipeline> pipeline = pipelineRepo.findById(pipelineId);
+        if (!pipeline.isPresent()) {
+            throw new MappingException("Error: Pipeline '" + pipelineId + "' doesn't exist!");
+        }
+        List<MappingRecord> steps = getStepRecords(pipeline.get());
+        LOGGER.trace("Execute pipeline '{}' with {} steps for '{}'.", pipelineId, steps.size(), srcFile);
+        Path resultFile = FileUtil.createTempFile("pipeline_", ".mapping");
+        boolean success = false;
+        try {
+            StepBuffer previous = null;
+            for (int index = 0; index < steps.size(); index++) {
+                MappingRecord step = steps.get(index);
+                StepBuffer buffer = (index < steps.size() - 1) ? new StepBuffer(stepMaxSize) : null;
+                ContentTypeDetector.ContentType sourceType = ((previous == null) ? ContentTypeDetector.detect(srcFile) : previous.detectType()).orElse(null);
+                String stepName = "Step " + (index + 1) + " ('" + step.getMappingId() + "/" + step.getMappingType() + "') of pipeline '" + pipelineId + "'";
+                boolean mapped;
+                try (InputStream source = (previous == null) ? Files.newInputStream(srcFile) : previous.toInputStream();
+                     OutputStream result = (buffer == null) ? Files.newOutputStream(resultFile) : buffer) {
+                    mapped = mappingUtil.map(step, source, sourceType, result);
+                } catch (RuntimeException ex) {
+                    if ((buffer == null) || !buffer.isExceeded()) {
+                        throw ex;
+                    }
+                    mapped = false;
+                }
+                if ((buffer != null) && buffer.isExceeded()) {
+                    throw new MappingException("Error: Result of " + stepName + " exceeds maximum size of " + stepMaxSize + " bytes!");
+                }
+                if (!mapped) {
+                    throw new MappingException("Error: " + stepName + " failed!");
+                }
+                previous = buffer;
+            }
+            success = true;
+        } catch (IOException ioe) {
+            throw new MappingException("Error: Executing pipeline '" + pipelineId + "' failed!", ioe);
+        } finally {
+            if (!success) {
+                FileUtil.removeFile(resultFile);
+            }
+        }
+        return resultFile;
+    }
+
+    /**
+     * Get the mapping records of all steps of a pipeline.
+     *
+     * @param pipeline the pipeline.
+     * @return records in order of the steps.
+     * @throws MappingException if a mapping doesn't exist.
+     */
+    private List<MappingRecord> getStepRecords(MappingPipeline pipeline) {
+        List<MappingRecord> records = new ArrayList<>();
+        for (MappingPipeline.Step step : pipeline.getSteps()) {
+            Optional<MappingRecord> mappingRecord = mappingRepo.findByMappingIdAndMappingType(step.getMappingId(), step.getMappingType());
+            if (!mappingRecord.isPresent()) {
+                throw new MappingException("Error: Mapping '" + step.getMappingId() + "/" + step.getMappingType() + "' of pipeline '"
+                        + pipeline.getPipelineId() + "' doesn't exist!");
+            }
+            records.add(mappingRecord.get());
+        }
+        return records;
+    }
+
+    /**
+     * Execute mapping for a list of documents and get the locations of the
+     * result files. While a document is mapped the following documents are
+     * already downloaded, so network and mapping overlap. Results are
+     * returned in the order of the URLs. If one document fails, all pending
+     * downloads are cancelled and all files created so far are removed.
+     *
+     * @param contentUrls URLs of the src files.
+     * @param mappingId   filename of the mapping
+     * @param mappingType type of the mapping.
+     * @return Paths to result files.
+     * @throws MappingException if mapping doesn't exist or a document can't
+     *                          be downloaded or mapped.
+     */
+    public List<Path> executeMapping(List<URI> contentUrls, String mappingId, String mappingType) {
+        Optional<MappingRecord> optionalMappingRecord = mappingRepo.findByMappingIdAndMappingType(mappingId, mappingType);
+        if (!optionalMappingRecord.isPresent()) {
+            throw new MappingException("Error: Mapping '" + mappingId + "/" + mappingType + "' doesn't exist!");
+        }
+        MappingRecord mappingRecord = optionalMappingRecord.get();
+        List<Future<Optional<Path>>> downloads = new ArrayList<>();
+        List<Path> results = new ArrayList<>();
+        boolean success = false;
+        try {
+            for (int index = 0; index < contentUrls.size(); index++) {
+                // keep 'prefetch' downloads ahead of the current document.
+                while ((downloads.size() < contentUrls.size()) && (downloads.size() <= index + prefetch)) {
+                    URI contentUrl = contentUrls.get(downloads.size());
+                    downloads.add(PREFETCH_EXECUTOR.submit(ScratchSpace.getDefault().inCurrentScope(() -> downloadInAdvance(contentUrl))));
+                }
+                URI contentUrl = contentUrls.get(index);
+                Path srcFile = awaitDownload(downloads.get(index), contentUrl);
+                try {
+                    LOGGER.trace("Execute Mapping for '{}', and mapping '{}/{}'.", contentUrl, mappingId, mappingType);
+                    Optional<Path> result = mapFile(mappingRecord, srcFile);
+                    if (!result.isPresent()) {
+                        throw new MappingException("Error: Mapping '" + contentUrl + "' with '" + mappingId + "/" + mappingType + "' failed!");
+                    }
+                    results.add(result.get());
+                } finally {
+                    FileUtil.removeFile(srcFile);
+                }
+            }
+            success = true;
+        } finally {
+            if (!success) {
+                cleanUp(downloads, results);
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Execute mapping for a batch of local files. The mapping record is
+     * resolved once for the whole batch. Up to 'batchParallelism' documents
+     * are mapped in parallel, results are passed to the consumer in the order
+     * of the source files as soon as they are available. A failing document
+     * doesn't stop the batch, its error is passed to the consumer instead.
+     * The consumer takes ownership of the result files; the caller remains
+     * responsible for the source files.
+     *
+     * @param srcFiles    local files holding the documents.
+     * @param mappingId   filename of the mapping
+     * @param mappingType type of the mapping.
+     * @param consumer    consumer of the results.
+     * @throws MappingException if mapping doesn't exist.
+     */
+    public void executeBatch(List<Path> srcFiles, String mappingId, String mappingType, Consumer<BatchResult> consumer) {
+        Optional<MappingRecord> optionalMappingRecord = mappingRepo.findByMappingIdAndMappingType(mappingId, mappingType);
+        if (!optionalMappingRecord.isPresent()) {
+            throw new MappingException("Error: Mapping '" + mappingId + "/" + mappingType + "' doesn't exist!");
+        }
+        executeBatch(srcFiles, optionalMappingRecord.get(), consumer);
+    }
+
+    /**
+     * Execute mapping for a batch of local files with an already resolved
+     * mapping record. Behaves like
+     * {@link #executeBatch(List, String, String, Consumer)}, but doesn't fail
+     * once started: if the batch is interrupted, all remaining documents are
+     * passed to the consumer with an error.
+     *
+     * @param srcFiles      local files holding the documents.
+     * @param mappingRecord record of the mapping.
+     * @param consumer      consumer of the results.
+     */
+    public void executeBatch(List<Path> srcFiles, MappingRecord mappingRecord, Consumer<BatchResult> consumer) {
+        LOGGER.trace("Execute Mapping for {} documents, and mapping '{}/{}'.", srcFiles.size(), mappingRecord.getMappingId(), mappingRecord.getMappingType());
+        List<Callable<Optional<Path>>> mappings = new ArrayList<>();
+        for (Path srcFile : srcFiles) {
+            mappings.add(() -> mapFile(mappingRecord, srcFile));
+        }
+        executeBounded(mappings, consumer);
+    }
+
+    /**
+     * Execute mappings in parallel. Up to 'batchParallelism' mappings are
+     * executed at once, results are passed to the consumer in the order of
+     * the mappings as soon as they are available. Pending mappings are
+     * cancelled if the consumer fails. If interrupted, pending mappings are
+     * cancelled and all remaining mappings are passed to the consumer with
+     * an error.
+     *
+     * @param mappings mappings to execute.
+     * @param consumer consumer of the results.
+     */
+    private void executeBounded(List<Callable<Optional<Path>>> mappings, Consumer<BatchResult> consumer) {
+        Deque<Future<Optional<Path>>> pending = new ArrayDeque<>();
+        int submitted = 0;
+        try {
+            for (int index = 0; index < mappings.size(); index++) {
+                if (Thread.currentThread().isInterrupted()) {
+                    consumer.accept(new BatchResult(index, null, INTERRUPTED));
+                    continue;
+                }
+                while ((submitted < mappings.size()) && (submitted < index + batchParallelism)) {
+                    pending.add(BATCH_EXECUTOR.submit(ScratchSpace.getDefault().inCurrentScope(mappings.get(submitted++))));
+                }
+                consumer.accept(awaitResult(pending.poll(), index));
+            }
+        } finally {
+            cleanUp(new ArrayList<>(pending), Collections.emptyList());
+        }
+    }
+
+    /**
+     * Wait for the result of a document of a batch.
+     *
+     * @param mapping pending mapping.
+     * @param index   index of the document.
+     * @return result.
+     */
+    private static BatchResult awaitResult(Future<Optional<Path>> mapping, int index) {
+        try {
+            Optional<Path> result = mapping.get();
+            return result.map(path -> new BatchResult(index, path, null))
+                    .orElseGet(() -> new BatchResult(index, null, "There is no result for the input. The input must be invalid."));
+        } catch (InterruptedException ie) {
+            // keep the interrupt, remaining documents are skipped.
+            Thread.currentThread().interrupt();
+            return new BatchResult(index, null, INTERRUPTED);
+        } catch (ExecutionException ee) {
+            LOGGER.debug("Mapping document {} of batch failed.", index, ee.getCause());
+            String message = (ee.getCause() instanceof MappingException) ? ee.getCause().getMessage() : "Internal error while executing mapping.";
+            return new BatchResult(index, null, message);
+        }
+    }
+
+    /**
+     * In memory result of a pipeline step which is read by the next step
+     * without copying it.
+     */
+    private static final class StepBuffer extends ByteArrayOutputStream {
+
+        private final long maxSize;
+        private boolean exceeded = false;
+
+        /**
+         * Create buffer.
+         *
+         * @param maxSize maximum number of bytes (0 = unlimited).
+         */
+        StepBuffer(long maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public synchronized void write(int b) {
+            checkSize(1);
+            super.write(b);
+        }
+
+        @Override
+        public synchronized void write(byte[] b, int off, int len) {
+            checkSize(len);
+            super.write(b, off, len);
+        }
+
+        /**
+         * Check if the buffer has been exceeded by a write.
+         *
+         * @return true if the result was too large.
+         */
+        boolean isExceeded() {
+            return exceeded;
+        }
+
+        /**
+         * Fail write exceeding the maximum size.
+         *
+         * @param len number of bytes to write.
+         * @throws UncheckedIOException if the maximum size is exceeded.
+         */
+        private void checkSize(int len) {
+            if ((maxSize > 0) && (count + (long) len > maxSize)) {
+                exceeded = true;
+                throw new UncheckedIOException(new IOException("Result exceeds maximum size of " + maxSize + " bytes."));
+            }
+        }
+
+        /**
+         * Get stream reading the buffered result.
+         *
+         * @return stream holding the result.
+         */
+        InputStream toInputStream() {
+            return new ByteArrayInputStream(buf, 0, count);
+        }
+
+        /**
+         * Detect type of the buffered result.
+         *
+         * @return type of the result or empty if unknown.
+         */
+        Optional<ContentTypeDetector.ContentType> detectType() {
+            return ContentTypeDetector.detect(buf, Math.min(count, ContentTypeDetector.HEADER_SIZE), count <= ContentTypeDetector.HEADER_SIZE);
+        }
+    }
+
+    /**
+     * Result of a single mapping of a batch (one per document) or of a
+     * fan-out (one per mapping type).
+     */
+    public static final class BatchResult {
+
+        private final int index;
+        private final Path result;
+        private final String errorMessage;
+
+        BatchResult(int index, Path result, String errorMessage) {
+            this.index = index;
+            this.result = result;
+            this.errorMessage = errorMessage;
+        }
+
+        /**
+         * Get index of the document (or mapping type) inside the batch.
+         *
+         * @return index (starting with 0).
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * Get result file.
+         *
+         * @return result file or empty if mapping failed.
+         */
+        public Optional<Path> getResult() {
+            return Optional.ofNullable(result);
+        }
+
+        /**
+         * Get reason why the mapping failed.
+         *
+         * @return error message or null if mapping succeeded.
+         */
+        public String getErrorMessage() {
+            return errorMessage;
+        }
+    }
+
+    /**
+     * Map a single file. If the same document was already mapped with the
+     * same mapping document and type, a copy of the cached result is
+     * returned without invoking the mapping tool.
+     *
+     * @param mappingRecord record of the mapping.
+     * @param srcFile       local file holding the content.
+     * @return Path to result file.
+     */
+    private Optional<Path> mapFile(MappingRecord mappingRecord, Path srcFile) {
+        if ((resultCache == null) || (mappingRecord.getDocumentHash() == null)) {
+            return mappingUtil.mapFile(mappingRecord, srcFile);
+        }
+        String inputHash;
+        try (InputStream input = Files.newInputStream(srcFile)) {
+            inputHash = DigestUtils.sha256Hex(input);
+        } catch (IOException e) {
+            LOGGER.warn("Can't hash '{}', result is not cached.", srcFile, e);
+            return mappingUtil.mapFile(mappingRecord, srcFile);
+        }
+        Optional<Path> cachedResult = resultCache.get(inputHash, mappingRecord.getDocumentHash(), mappingRecord.getMappingType());
+        if (cachedResult.isPresent()) {
+            LOGGER.trace("Use cached result for '{}' and mapping '{}/{}'.", srcFile, mappingRecord.getMappingId(), mappingRecord.getMappingType());
+            return cachedResult;
+        }
+        Optional<Path> result = mappingUtil.mapFile(mappingRecord, srcFile);
+        result.ifPresent(resultFile -> resultCache.put(inputHash, mappingRecord.getDocumentHash(), mappingRecord.getMappingType(), resultFile));
+        return result;
+    }
+
+    /**
+     * Download document in advance.
+     *
+     * @param contentUrl URL of the document.
+     * @return path of the downloaded file.
+     */
+    private Optional<Path> downloadInAdvance(URI contentUrl) {
+        Optional<Path> download = FileUtil.downloadResource(contentUrl, downloader);
+        if (Thread.currentThread().isInterrupted()) {
+            // download was cancelled
+            download.ifPresent(FileUtil::removeFile);
+            return Optional.empty();
+        }
+        return download;
+    }
+
+    /**
+     * Wait for a downloaded document.
+     *
+     * @param download   pending download.
+     * @param contentUrl URL of the document.
+     * @return path of the downloaded file.
+     * @throws MappingException if download failed.
+     */
+    private static Path awaitDownload(Future<Optional<Path>> download, URI contentUrl) {
+        try {
+            return download.get().orElseThrow(() -> new MappingException("Error: Downloading content from '" + contentUrl + "'!"));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new MappingException("Error: Interrupted while downloading '" + contentUrl + "'!", ie);
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof MappingException) {
+                throw (MappingException) ee.getCause();
+            }
+            throw new MappingException("Error: Downloading content from '" + contentUrl + "'!", ee.getCause());
+        }
+    }
+
+    /**
+     * Cancel pending downloads and remove all downloaded and result files.
+     *
+     * @param downloads all downloads.
+     * @param results   all result files.
+     */
+    private static void cleanUp(List<Future<Optional<Path>>> downloads, List<Path> results) {
+        for (Future<Optional<Path>> download : downloads) {
+            if (!download.cancel(true) && !download.isCancelled()) {
+                try {
+                    download.get().ifPresent(FileUtil::removeFile);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException | MappingException ex) {
+                    // already removed or never created.
+                }
+            }
+        }
+        results.forEach(FileUtil::removeFile);
+    }
+
+    /**
+     * Execute all mappings registered for a mappingId and get the results
+     * by mapping type. The content is downloaded once and mapped with all
+     * mapping types concurrently. A failing mapping type doesn't affect the
+     * others, its error is part of the results instead. The caller takes
+     * ownership of all result files.
      *
      * @param contentUrl Content of the src file.
      * @param mappingId  filename of the mapping
-     * @return List of paths to all result files.
+     * @return results by mapping type (ordered by mapping type).
+     * @throws MappingException if download fails or no mapping exists.
      */
-    public List<Path> executeMapping(URI contentUrl, String mappingId) {
-        List<Path> returnValue = new ArrayList<>();
-        String noMappingType = null;
-
-        Iterator<MappingRecord> findMapping = mappingRepo.findByMappingIdInOrMappingTypeIn(Arrays.asList(mappingId), Arrays.asList(noMappingType)).iterator();
-        String mappingType = null;
-        if (findMapping.hasNext()) {
-            mappingType = findMapping.next().getMappingType();
+    public Map<String, BatchResult> executeMapping(URI contentUrl, String mappingId) {
+        Optional<Path> download = FileUtil.downloadResource(contentUrl, downloader);
+        if (!download.isPresent()) {
+            String message = contentUrl != null ? "Error: Downloading content from '" + contentUrl.toString() + "'!" : "Error: No URL provided!";
+            throw new MappingException(message);
         }
-        Optional<Path> executeMapping = executeMapping(contentUrl, mappingId, mappingType);
-        if (executeMapping.isPresent()) {
-            returnValue.add(executeMapping.get());
+        try {
+            return executeMapping(download.get(), mappingId);
+        } finally {
+            FileUtil.removeFile(download.get());
         }
+    }
 
-        return returnValue;
+    /**
+     * Execute all mappings registered for a mappingId on a local file. Up to
+     * 'batchParallelism' mapping types are executed concurrently, a failing
+     * mapping type doesn't affect the others. The caller is responsible for
+     * removing the source file and takes ownership of all result files.
+     *
+     * @param srcFile   local file holding the content.
+     * @param mappingId filename of the mapping
+     * @return results by mapping type (ordered by mapping type).
+     * @throws MappingException if no mapping exists.
+     */
+    public Map<String, BatchResult> executeMapping(Path srcFile, String mappingId) {
+        List<MappingRecord> mappingRecords = mappingRepo.findByMappingIdOrderByMappingTypeAsc(mappingId);
+        if (mappingRecords.isEmpty()) {
+            throw new MappingException("Error: Mapping '" + mappingId + "' doesn't exist!");
+        }
+        LOGGER.trace("Execute Mapping for '{}', and all {} mapping types of '{}'.", srcFile, mappingRecords.size(), mappingId);
+        List<Callable<Optional<Path>>> mappings = new ArrayList<>();
+        for (MappingRecord mappingRecord : mappingRecords) {
+            mappings.add(() -> mapFile(mappingRecord, srcFile));
+        }
+        Map<String, BatchResult> results = new LinkedHashMap<>();
+        boolean success = false;
+        try {
+            executeBounded(mappings, result -> results.put(mappingRecords.get(result.getIndex()).getMappingType(), result));
+            success = true;
+        } finally {
+            if (!success) {
+                List<Path> resultFiles = new ArrayList<>();
+                results.values().forEach(result -> result.getResult().ifPresent(resultFiles::add));
+                cleanUp(Collections.emptyList(), resultFiles);
+            }
+        }
+        return results;
     }
 
     /**
      * Initalize mappings directory and mappingUtil instance.
      *
-     * @param applicationProperties Properties holding mapping directory setting.
+     * @param applicationProperties     Properties holding mapping directory setting.
+     * @param mappingToolRegistry       Registry holding all mapping tools (null
+     *                                  creates a new one).
+     * @param mappingExecutionScheduler Scheduler limiting concurrent mappings
+     *                                  (null creates a new one).
      */
-    private void init(ApplicationProperties applicationProperties) throws URISyntaxException {
+    private void init(ApplicationProperties applicationProperties, MappingToolRegistry mappingToolRegistry, MappingExecutionScheduler mappingExecutionScheduler) throws URISyntaxException {
         if ((applicationProperties != null) && (applicationProperties.getMappingsLocation() != null)) {
-            mappingUtil = new MappingUtil(applicationProperties);
+            downloader = createDownloader(applicationProperties);
+            resultCache = createResultCache(applicationProperties);
+            prefetch = Math.max(0, applicationProperties.getExecutionPrefetch());
+            int parallelism = applicationProperties.getExecutionBatchParallelism();
+            batchParallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+            stepMaxSize = Math.max(0, applicationProperties.getDownloadMaxSize());
             try {
                 mappingsDirectory = Files.createDirectories(new File(applicationProperties.getMappingsLocation().getPath()).getAbsoluteFile().toPath());
             } catch (IOException e) {
                 throw new MappingException("Could not initialize directory '" + applicationProperties.getMappingsLocation() + "' for mapping.", e);
             }
+            // created last, an own registry isn't leaked if initialization fails.
+            if ((mappingToolRegistry != null) && (mappingExecutionScheduler != null)) {
+                mappingUtil = new MappingUtil(applicationProperties, mappingToolRegistry, mappingExecutionScheduler);
+            } else {
+                mappingUtil = new MappingUtil(applicationProperties);
+            }
         } else {
             throw new MappingException("Could not initialize mapping directory due to missing location!");
         }
     }
 
+    /**
+     * Create downloader for the content.
+     *
+     * @param applicationProperties Properties holding download settings.
+     * @return downloader (caching if a cache location is configured).
+     */
+    private ResourceDownloader createDownloader(ApplicationProperties applicationProperties) {
+        long maxSize = applicationProperties.getDownloadMaxSize();
+        int connectTimeout = applicationProperties.getDownloadConnectTimeout();
+        int readTimeout = applicationProperties.getDownloadReadTimeout();
+        String cacheLocation = applicationProperties.getDownloadCacheLocation();
+        if ((cacheLocation == null) || cacheLocation.trim().isEmpty()) {
+            return new ResourceDownloader(maxSize, connectTimeout, readTimeout);
+        }
+        try {
+            return new ResourceDownloader(maxSize, connectTimeout, readTimeout, Paths.get(cacheLocation.trim()), applicationProperties.getDownloadCacheSize());
+        } catch (IOException e) {
+            throw new MappingException("Could not initialize download cache '" + cacheLocation + "'.", e);
+        }
+    }
+
+    /**
+     * Create cache for mapping results.
+     *
+     * @param applicationProperties Properties holding result cache settings.
+     * @return cache or null if no cache location is configured.
+     */
+    private MappingResultCache createResultCache(ApplicationProperties applicationProperties) {
+        String cacheLocation = applicationProperties.getResultCacheLocation();
+        if ((cacheLocation == null) || cacheLocation.trim().isEmpty()) {
+            return null;
+        }
+        return new MappingResultCache(Paths.get(cacheLocation.trim()), applicationProperties.getResultCacheMaxSize(), applicationProperties.getResultCacheTtl());
+    }
+
     /**
      * Save mapping file to mapping directory.
      *
@@ -213,7 +883,9 @@ public class MappingService {
             LOGGER.debug("Storing mapping file with id '{}' and type '{}'", mapping.getMappingId(), mapping.getMappingType());
             LOGGER.trace("Content of mapping: '{}'", content);
             try {
-                Mapping.valueOf(mapping.getMappingType());
+                if (!mappingUtil.isSupported(mapping.getMappingType())) {
+                    throw new IllegalArgumentException("No mapping tool available for '" + mapping.getMappingType() + "'.");
+                }
                 // 'delete' old file
                 deleteMappingFile(mapping);
                 newMappingFile = Paths.get(mappingsDirectory.toString(), mapping.getMappingId() + "_" + mapping.getMappingType() + ".mapping");
@@ -268,4 +940,14 @@ public class MappingService {
         SimpleDateFormat sdf = new SimpleDateFormat("_yyyyMMdd_HHmmss");
         return sdf.format(new Date());
     }
+
+    /**
+     * Release the mapping tools if the registry was created by this service.
+     */
+    @Override
+    public void destroy() {
+        if (mappingUtil != null) {
+            mappingUtil.close();
+        }
+    }
 }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import edu.kit.datamanager.mappingservice.domain.MappingRecord;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Paths;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * Bounded cache for compiled mappings. Entries are identified by
+ * mappingId/mappingType/documentHash, so a changed mapping document never
+ * hits an outdated entry. Nevertheless, entries should be invalidated if a
+ * mapping is updated or deleted to free memory.
+ */
+public class CompiledMappingCache {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(CompiledMappingCache.class);
+
+    private final Cache<Key, Object> cache;
+
+    /**
+     * Create cache.
+     *
+     * @param maximumSize maximum number of compiled mappings (0 = disable
+     *                    caching).
+     */
+    public CompiledMappingCache(long maximumSize) {
+        cache = CacheBuilder.newBuilder().maximumSize(Math.max(0, maximumSize)).build();
+    }
+
+    /**
+     * Get compiled mapping. The mapping is compiled if not cached yet.
+     *
+     * @param <T>           type of the compiled mapping.
+     * @param mappingRecord record of the mapping.
+     * @param mappingTool   tool compiling the mapping.
+     * @return compiled mapping.
+     * @throws MappingException if mapping can't be compiled.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(MappingRecord mappingRecord, ICompilableMappingTool<T> mappingTool) {
+        Key key = new Key(mappingRecord.getMappingId(), mappingRecord.getMappingType(), mappingRecord.getDocumentHash());
+        try {
+            return (T) cache.get(key, () -> {
+                LOGGER.trace("Compile mapping '{}/{}' ({}).", key.mappingId, key.mappingType, key.documentHash);
+                return mappingTool.compile(Paths.get(mappingRecord.getMappingDocumentUri()));
+            });
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof MappingException) {
+                throw (MappingException) ex.getCause();
+            }
+            throw new MappingException("Error: Can't compile mapping '" + key.mappingId + "/" + key.mappingType + "'!", ex.getCause());
+        }
+    }
+
+    /**
+     * Remove all compiled versions of a mapping.
+     *
+     * @param mappingId   id of the mapping.
+     * @param mappingType type of the mapping.
+     */
+    public void invalidate(String mappingId, String mappingType) {
+        LOGGER.trace("Invalidate compiled mapping '{}/{}'.", mappingId, mappingType);
+        cache.asMap().keySet().removeIf(key -> Objects.equals(key.mappingId, mappingId) && Objects.equals(key.mappingType, mappingType));
+    }
+
+    /**
+     * Get number of cached mappings.
+     *
+     * @return number of cached mappings.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Key of cache entries.
+     */
+    private static final class Key {
+
+        private final String mappingId;
+        private final String mappingType;
+        private final String documentHash;
+
+        Key(String mappingId, String mappingType, String documentHash) {
+            this.mappingId = mappingId;
+            this.mappingType = mappingType;
+            this.documentHash = documentHash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return Objects.equals(mappingId, key.mappingId)
+                    && Objects.equals(mappingType, key.mappingType)
+                    && Objects.equals(documentHash, key.documentHash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(mappingId, mappingType, documentHash);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+
+/**
+ * Interface for mapping tools which are able to compile a mapping document
+ * once and apply it to any number of source files. Compiled mappings are
+ * cached by {@link CompiledMappingCache}.
+ *
+ * @param <T> type of the compiled mapping. Instances have to be immutable
+ *            and thread safe.
+ */
+public interface ICompilableMappingTool<T> extends IMappingTool {
+
+    /**
+     * Compile the mapping document.
+     *
+     * @param mappingFile The absolute path to mapping file.
+     * @return compiled mapping.
+     * @throws MappingException if mapping document is invalid or can't be
+     *                          read.
+     */
+    T compile(Path mappingFile);
+
+    /**
+     * Map the source file to a new file using a compiled mapping.
+     *
+     * @param compiledMapping The compiled mapping.
+     * @param srcFile         The absolute path to the source file.
+     * @param resultFile      The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    int mapFile(T compiledMapping, Path srcFile, Path resultFile);
+
+    /**
+     * Map a source document using a compiled mapping. Source and result are
+     * passed as streams, so mappings may be chained without intermediate
+     * files. Both streams are closed by the caller. The default
+     * implementation stores the source in a temporary file and calls
+     * {@link #mapFile(Object, Path, Path)} via
+     * {@link MappingUtil#mapViaFiles(InputStream, ContentTypeDetector.ContentType, OutputStream, java.util.function.ToIntBiFunction)}.
+     *
+     * @param compiledMapping The compiled mapping.
+     * @param source          Stream holding the source document.
+     * @param sourceType      Type of the source document (null if unknown).
+     * @param result          Stream receiving the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     * @throws IOException error reading the source or writing the result.
+     */
+    default int map(T compiledMapping, InputStream source, ContentTypeDetector.ContentType sourceType, OutputStream result) throws IOException {
+        return MappingUtil.mapViaFiles(source, sourceType, result, (srcFile, resultFile) -> mapFile(compiledMapping, srcFile, resultFile));
+    }
+}
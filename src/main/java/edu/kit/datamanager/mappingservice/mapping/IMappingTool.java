@@ -15,53 +15,16 @@
  */
 package edu.kit.datamanager.mappingservice.mapping;
 
-import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
-import edu.kit.datamanager.mappingservice.exception.MappingException;
-import edu.kit.datamanager.mappingservice.python.gemma.GemmaMapping;
-
 import java.nio.file.Path;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
- * Interface for mapping tools. All available mapping tools have to be
- * 'registered' here.
+ * Interface for mapping tools. Mapping tools are made available by an
+ * {@link IMappingToolProvider}.
+ *
+ * @see MappingToolRegistry
  */
 public interface IMappingTool {
 
-    /**
-     * Map holding all mapping tools.
-     */
-    Map<Mapping, IMappingTool> toolMapper = new HashMap<>();
-
-    /**
-     * Get mapping tool for give mapping.
-     *
-     * @param applicationProperties instance holding all properties for all
-     *                              mapping tools.
-     * @param mapping               mapping which should be used.
-     * @return instance for mapping file
-     * @throws MappingException if not a valid mapping.
-     */
-    static IMappingTool getMappingTool(ApplicationProperties applicationProperties, String mapping) {
-        Mapping map;
-        try {
-            map = Mapping.valueOf(mapping);
-            if (!toolMapper.containsKey(map)) {
-                switch (map) {
-                    case GEMMA:
-                        toolMapper.put(map, new GemmaMapping(applicationProperties));
-                        break;
-                    default:
-                        throw new MappingException("Error: Mapping '" + mapping + "' is not registered yet!");
-                }
-            }
-        } catch (Exception ex) {
-            throw new MappingException("Error: '" + mapping + "' is not a valid mapping!", ex);
-        }
-        return toolMapper.get(map);
-    }
-
     /**
      * Map the source file to a new file using a given mapping tool.
      *
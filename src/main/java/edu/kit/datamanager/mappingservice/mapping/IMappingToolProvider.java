@@ -0,0 +1,47 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+
+/**
+ * Provider creating a mapping tool for one mapping type. Providers are
+ * discovered via ServiceLoader (META-INF/services) or registered as Spring
+ * beans.
+ *
+ * @see MappingToolRegistry
+ */
+public interface IMappingToolProvider {
+
+    /**
+     * Get the mapping type supported by the tool, e.g. 'GEMMA'.
+     *
+     * @return mapping type.
+     */
+    String getMappingType();
+
+    /**
+     * Create mapping tool. The tool is created only once per registry and
+     * has to be thread safe.
+     *
+     * @param configuration instance holding all properties for all mapping
+     *                      tools.
+     * @return mapping tool.
+     * @throws MappingException if tool can't be initialized.
+     */
+    IMappingTool createMappingTool(ApplicationProperties configuration);
+}
@@ -19,5 +19,7 @@ package edu.kit.datamanager.mappingservice.mapping;
  *
  */
 public enum Mapping {
-    GEMMA
+    GEMMA,
+    HANDLEBARS,
+    XSLT
 }
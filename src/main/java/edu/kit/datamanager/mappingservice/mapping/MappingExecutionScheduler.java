@@ -0,0 +1,289 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.exception.MappingRejectedException;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.FunctionTimer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Limits the number of mappings executed concurrently. There is a global
+ * limit for all mappings and optional limits per mapping type. Mappings are
+ * executed in the calling thread as soon as permits are available; if no
+ * permits are available within the queue timeout the mapping is rejected.
+ * The time spent waiting for permits is published as metric.
+ */
+@Component
+public class MappingExecutionScheduler implements MeterBinder {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(MappingExecutionScheduler.class);
+
+    /**
+     * Global permits (null = unlimited).
+     */
+    private final Semaphore globalPermits;
+
+    /**
+     * Permits by mapping type.
+     */
+    private final Map<String, Semaphore> typePermits;
+
+    private final long queueTimeoutNanos;
+
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final AtomicLong executed = new AtomicLong();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+    private final LongAccumulator maxQueueWaitNanos = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Create scheduler configured by the application properties.
+     *
+     * @param configuration properties holding all limits.
+     */
+    @Autowired
+    public MappingExecutionScheduler(ApplicationProperties configuration) {
+        this(configuration.getExecutionMaxConcurrent(), parseTypeLimits(configuration.getExecutionTypeLimits()), TimeUnit.SECONDS.toMillis(configuration.getExecutionQueueTimeout()));
+    }
+
+    /**
+     * Create scheduler.
+     *
+     * @param maxConcurrent      maximum number of mappings executed
+     *                           concurrently (0 = unlimited).
+     * @param typeLimits         maximum number of concurrent mappings by
+     *                           mapping type.
+     * @param queueTimeoutMillis maximum time in milliseconds waiting for
+     *                           execution (0 = wait forever).
+     */
+    public MappingExecutionScheduler(int maxConcurrent, Map<String, Integer> typeLimits, long queueTimeoutMillis) {
+        globalPermits = (maxConcurrent > 0) ? new Semaphore(maxConcurrent, true) : null;
+        Map<String, Semaphore> permits = new HashMap<>();
+        if (typeLimits != null) {
+            typeLimits.forEach((mappingType, limit) -> {
+                if ((limit != null) && (limit > 0)) {
+                    permits.put(mappingType, new Semaphore(limit, true));
+                }
+            });
+        }
+        typePermits = Collections.unmodifiableMap(permits);
+        queueTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, queueTimeoutMillis));
+        LOGGER.debug("Execute at most {} mappings concurrently (limits by type: {}).", maxConcurrent > 0 ? maxConcurrent : "unlimited", typeLimits);
+    }
+
+    /**
+     * Execute a mapping task as soon as permits are available.
+     *
+     * @param <T>         type of the result.
+     * @param mappingType type of the mapping.
+     * @param task        task executing the mapping.
+     * @return result of the task.
+     * @throws MappingRejectedException if mapping is rejected because no
+     *                                   permits are available within the
+     *                                   queue timeout or waiting is
+     *                                   interrupted.
+     * @throws MappingException         if the task fails.
+     */
+    public <T> T execute(String mappingType, Callable<T> task) {
+        long start = System.nanoTime();
+        Semaphore typeLimit = (mappingType != null) ? typePermits.get(mappingType) : null;
+        boolean typeAcquired = false;
+        boolean globalAcquired = false;
+        waiting.incrementAndGet();
+        try {
+            try {
+                typeAcquired = acquire(typeLimit, start);
+                globalAcquired = typeAcquired && acquire(globalPermits, start);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                throw new MappingRejectedException("Error: Interrupted while waiting for execution of mapping '" + mappingType + "'!", ie);
+            } finally {
+                waiting.decrementAndGet();
+            }
+            if (!globalAcquired) {
+                rejected.increment();
+                throw new MappingRejectedException("Error: Mapping '" + mappingType + "' not started within "
+                        + TimeUnit.NANOSECONDS.toSeconds(queueTimeoutNanos) + " seconds (too many concurrent mappings)!");
+            }
+            long waitNanos = System.nanoTime() - start;
+            queueWaitNanos.add(waitNanos);
+            maxQueueWaitNanos.accumulate(waitNanos);
+            executed.incrementAndGet();
+            LOGGER.trace("Mapping '{}' waited {} ms for execution.", mappingType, TimeUnit.NANOSECONDS.toMillis(waitNanos));
+            active.incrementAndGet();
+            try {
+                return task.call();
+            } catch (RuntimeException rex) {
+                throw rex;
+            } catch (Exception ex) {
+                throw new MappingException("Error executing mapping '" + mappingType + "'!", ex);
+            } finally {
+                active.decrementAndGet();
+            }
+        } finally {
+            if (globalAcquired && (globalPermits != null)) {
+                globalPermits.release();
+            }
+            if (typeAcquired && (typeLimit != null)) {
+                typeLimit.release();
+            }
+        }
+    }
+
+    /**
+     * Acquire a permit.
+     *
+     * @param permits permits (null = unlimited).
+     * @param start   start of waiting (System.nanoTime()).
+     * @return true if permit was acquired in time.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    private boolean acquire(Semaphore permits, long start) throws InterruptedException {
+        if (permits == null) {
+            return true;
+        }
+        if (queueTimeoutNanos == 0) {
+            permits.acquire();
+            return true;
+        }
+        return permits.tryAcquire(Math.max(0, start + queueTimeoutNanos - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get number of mappings executed right now.
+     *
+     * @return number of running mappings.
+     */
+    public int getActive() {
+        return active.get();
+    }
+
+    /**
+     * Get number of mappings waiting for execution.
+     *
+     * @return number of waiting mappings.
+     */
+    public int getWaiting() {
+        return waiting.get();
+    }
+
+    /**
+     * Get number of started mappings.
+     *
+     * @return number of started mappings.
+     */
+    public long getExecuted() {
+        return executed.get();
+    }
+
+    /**
+     * Get number of mappings rejected due to queue timeout.
+     *
+     * @return number of rejected mappings.
+     */
+    public long getRejected() {
+        return rejected.sum();
+    }
+
+    /**
+     * Get total time all started mappings waited for execution.
+     *
+     * @param unit unit of the result.
+     * @return total waiting time.
+     */
+    public double getTotalQueueWait(TimeUnit unit) {
+        return queueWaitNanos.sum() / (double) unit.toNanos(1);
+    }
+
+    /**
+     * Get the maximum time a mapping waited for execution.
+     *
+     * @param unit unit of the result.
+     * @return maximum waiting time.
+     */
+    public double getMaxQueueWait(TimeUnit unit) {
+        return maxQueueWaitNanos.get() / (double) unit.toNanos(1);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mapping.execution.active", this, MappingExecutionScheduler::getActive)
+                .description("Number of mappings executed right now")
+                .register(registry);
+        Gauge.builder("mapping.execution.waiting", this, MappingExecutionScheduler::getWaiting)
+                .description("Number of mappings waiting for execution")
+                .register(registry);
+        FunctionCounter.builder("mapping.execution.rejected", this, MappingExecutionScheduler::getRejected)
+                .description("Number of mappings rejected due to queue timeout")
+                .register(registry);
+        FunctionTimer.builder("mapping.execution.queue.wait", this, MappingExecutionScheduler::getExecuted, s -> s.getTotalQueueWait(TimeUnit.NANOSECONDS), TimeUnit.NANOSECONDS)
+                .description("Time mappings waited for execution")
+                .register(registry);
+        Gauge.builder("mapping.execution.queue.wait.max", this, s -> s.getMaxQueueWait(TimeUnit.SECONDS))
+                .description("Maximum time a mapping waited for execution")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    /**
+     * Parse limits by mapping type, e.g. 'GEMMA:4,XSLT:8'.
+     *
+     * @param typeLimits limits by mapping type (may be null or empty).
+     * @return map holding limit for each mapping type.
+     * @throws MappingException if limits are invalid.
+     */
+    static Map<String, Integer> parseTypeLimits(String typeLimits) {
+        Map<String, Integer> limits = new HashMap<>();
+        if ((typeLimits != null) && !typeLimits.isBlank()) {
+            for (String entry : typeLimits.split(",")) {
+                String[] typeAndLimit = entry.split(":");
+                try {
+                    if (typeAndLimit.length != 2) {
+                        throw new IllegalArgumentException();
+                    }
+                    limits.put(typeAndLimit[0].trim(), Integer.parseInt(typeAndLimit[1].trim()));
+                } catch (IllegalArgumentException iae) {
+                    throw new MappingException("Error: Invalid limit for mapping type '" + entry.trim() + "' (expected '<type>:<limit>')!", iae);
+                }
+            }
+        }
+        return limits;
+    }
+}
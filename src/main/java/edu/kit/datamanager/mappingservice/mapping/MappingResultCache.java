@@ -0,0 +1,243 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalNotification;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.util.FileUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Content addressed cache for mapping results. Entries are identified by
+ * the SHA-256 of the source document, the documentHash of the mapping and
+ * the mapping type, so a changed mapping document never hits an outdated
+ * entry. Results are stored on disk, the index is kept in memory only and
+ * files of previous runs are removed on startup.
+ * <p>
+ * The total size of all results and the time to live are bounded, least
+ * recently used entries are evicted first. Cached results are handed out as
+ * hard links (or copies), so callers may remove them as usual.
+ */
+public class MappingResultCache {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(MappingResultCache.class);
+
+    private static final String RESULT_SUFFIX = ".result";
+
+    private final Path directory;
+    private final Cache<Key, Path> cache;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Create cache.
+     *
+     * @param directory  directory holding the results (created if missing).
+     * @param maxSize    maximum size of all results in bytes (0 = unlimited).
+     * @param ttlSeconds time to live of an entry in seconds (0 = unlimited).
+     * @throws MappingException if directory can't be initialized.
+     */
+    public MappingResultCache(Path directory, long maxSize, long ttlSeconds) {
+        try {
+            this.directory = Files.createDirectories(directory);
+            removeResults(this.directory);
+        } catch (IOException ex) {
+            throw new MappingException("Could not initialize result cache '" + directory + "'.", ex);
+        }
+        CacheBuilder<Object, Object> builder = CacheBuilder.newBuilder();
+        if (maxSize > 0) {
+            // the weight is limited per segment, a single segment keeps large
+            // results cacheable (reads don't lock anyway).
+            builder.concurrencyLevel(1).maximumWeight(maxSize).weigher((Key key, Path result) -> weigh(result));
+        }
+        if (ttlSeconds > 0) {
+            builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+        }
+        cache = builder.removalListener((RemovalNotification<Key, Path> notification) -> {
+            LOGGER.trace("Remove cached result '{}' ({}).", notification.getValue(), notification.getCause());
+            FileUtil.removeFile(notification.getValue());
+        }).build();
+    }
+
+    /**
+     * Get cached result.
+     *
+     * @param inputHash    SHA-256 of the source document.
+     * @param documentHash hash of the mapping document.
+     * @param mappingType  type of the mapping.
+     * @return new file holding the result or empty if not cached.
+     */
+    public Optional<Path> get(String inputHash, String documentHash, String mappingType) {
+        Path cachedResult = cache.getIfPresent(new Key(inputHash, documentHash, mappingType));
+        if (cachedResult != null) {
+            Path result = FileUtil.createTempFile(mappingType + "_", ".mapping");
+            try {
+                linkOrCopy(cachedResult, result);
+                hits.incrementAndGet();
+                LOGGER.trace("Found cached result for '{}' and mapping '{}/{}'.", inputHash, documentHash, mappingType);
+                return Optional.of(result);
+            } catch (NoSuchFileException ex) {
+                // evicted concurrently
+                FileUtil.removeFile(result);
+            } catch (IOException ex) {
+                LOGGER.warn("Can't read cached result '{}'.", cachedResult, ex);
+                FileUtil.removeFile(result);
+            }
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Store result. The result file itself stays untouched.
+     *
+     * @param inputHash    SHA-256 of the source document.
+     * @param documentHash hash of the mapping document.
+     * @param mappingType  type of the mapping.
+     * @param result       result of the mapping.
+     */
+    public void put(String inputHash, String documentHash, String mappingType, Path result) {
+        Path cachedResult = directory.resolve(UUID.randomUUID() + RESULT_SUFFIX);
+        try {
+            linkOrCopy(result, cachedResult);
+        } catch (IOException ex) {
+            LOGGER.warn("Can't cache result '{}'.", result, ex);
+            FileUtil.removeFile(cachedResult);
+            return;
+        }
+        cache.put(new Key(inputHash, documentHash, mappingType), cachedResult);
+    }
+
+    /**
+     * Remove all cached results.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    /**
+     * Get number of cached results.
+     *
+     * @return number of cached results.
+     */
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Get number of requests answered from cache.
+     *
+     * @return number of hits.
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * Get number of requests not found in cache.
+     *
+     * @return number of misses.
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Create hard link to source. If not possible (e.g. different file
+     * systems) the source is copied.
+     *
+     * @param source existing file.
+     * @param target new file (replaced if existing).
+     * @throws IOException error linking or copying file.
+     */
+    private static void linkOrCopy(Path source, Path target) throws IOException {
+        Files.deleteIfExists(target);
+        try {
+            Files.createLink(target, source);
+        } catch (NoSuchFileException ex) {
+            throw ex;
+        } catch (IOException | UnsupportedOperationException ex) {
+            Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static int weigh(Path result) {
+        try {
+            return (int) Math.min(Integer.MAX_VALUE, Files.size(result));
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private static void removeResults(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(RESULT_SUFFIX)).forEach(FileUtil::removeFile);
+        }
+    }
+
+    /**
+     * Key of cache entries.
+     */
+    private static final class Key {
+
+        private final String inputHash;
+        private final String documentHash;
+        private final String mappingType;
+
+        Key(String inputHash, String documentHash, String mappingType) {
+            this.inputHash = inputHash;
+            this.documentHash = documentHash;
+            this.mappingType = mappingType;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) other;
+            return Objects.equals(inputHash, key.inputHash)
+                    && Objects.equals(documentHash, key.documentHash)
+                    && Objects.equals(mappingType, key.mappingType);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(inputHash, documentHash, mappingType);
+        }
+    }
+}
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registry holding all mapping tools. Tools are provided by
+ * {@link IMappingToolProvider}s found via ServiceLoader or registered as
+ * Spring beans (beans replace providers of the same mapping type). Each tool
+ * is created only once, lookups are lock free afterwards. Tools implementing
+ * {@link AutoCloseable} are closed together with the registry.
+ */
+@Component
+public class MappingToolRegistry implements DisposableBean {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(MappingToolRegistry.class);
+
+    private final ApplicationProperties configuration;
+
+    /**
+     * Providers by mapping type.
+     */
+    private final Map<String, IMappingToolProvider> providers = new ConcurrentHashMap<>();
+
+    /**
+     * Tools already created by mapping type.
+     */
+    private final Map<String, IMappingTool> tools = new ConcurrentHashMap<>();
+
+    /**
+     * Create registry holding all providers found via ServiceLoader.
+     *
+     * @param configuration instance holding all properties for all mapping
+     *                      tools.
+     */
+    public MappingToolRegistry(ApplicationProperties configuration) {
+        this.configuration = configuration;
+        for (IMappingToolProvider provider : ServiceLoader.load(IMappingToolProvider.class)) {
+            register(provider);
+        }
+    }
+
+    /**
+     * Create registry holding all providers found via ServiceLoader and all
+     * providers registered as beans.
+     *
+     * @param configuration instance holding all properties for all mapping
+     *                      tools.
+     * @param beans         providers registered as beans.
+     */
+    @Autowired
+    public MappingToolRegistry(ApplicationProperties configuration, ObjectProvider<IMappingToolProvider> beans) {
+        this(configuration);
+        beans.orderedStream().forEach(this::register);
+    }
+
+    /**
+     * Register provider. An already registered provider for the same mapping
+     * type is replaced.
+     *
+     * @param provider provider of a mapping tool.
+     */
+    public final void register(IMappingToolProvider provider) {
+        String mappingType = provider.getMappingType();
+        IMappingToolProvider previous = providers.put(mappingType, provider);
+        if (previous != null) {
+            LOGGER.info("Provider '{}' replaces '{}' for mapping '{}'.", provider.getClass().getName(), previous.getClass().getName(), mappingType);
+            close(mappingType, tools.remove(mappingType));
+        } else {
+            LOGGER.trace("Register provider '{}' for mapping '{}'.", provider.getClass().getName(), mappingType);
+        }
+    }
+
+    /**
+     * Get mapping tool for given mapping type. The tool is created on first
+     * access.
+     *
+     * @param mappingType mapping which should be used.
+     * @return instance for mapping file.
+     * @throws MappingException if not a valid mapping or tool can't be
+     *                          initialized.
+     */
+    public IMappingTool getMappingTool(String mappingType) {
+        IMappingTool mappingTool = (mappingType != null) ? tools.get(mappingType) : null;
+        if (mappingTool == null) {
+            IMappingToolProvider provider = (mappingType != null) ? providers.get(mappingType) : null;
+            if (provider == null) {
+                throw new MappingException("Error: '" + mappingType + "' is not a valid mapping!");
+            }
+            mappingTool = tools.computeIfAbsent(mappingType, key -> {
+                LOGGER.debug("Create mapping tool for mapping '{}'.", key);
+                try {
+                    return provider.createMappingTool(configuration);
+                } catch (MappingException mex) {
+                    throw mex;
+                } catch (RuntimeException ex) {
+                    throw new MappingException("Error: Can't initialize mapping tool for '" + key + "'!", ex);
+                }
+            });
+        }
+        return mappingTool;
+    }
+
+    /**
+     * Check if mapping type is supported.
+     *
+     * @param mappingType mapping type.
+     * @return true if a provider is registered for the mapping type.
+     */
+    public boolean isRegistered(String mappingType) {
+        return (mappingType != null) && providers.containsKey(mappingType);
+    }
+
+    /**
+     * Get all supported mapping types.
+     *
+     * @return sorted set of mapping types.
+     */
+    public Set<String> getMappingTypes() {
+        return new TreeSet<>(providers.keySet());
+    }
+
+    /**
+     * Create all mapping tools, so the first mappings don't have to wait for
+     * initialization. Tools which can't be initialized are logged and
+     * retried on first access.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        for (String mappingType : getMappingTypes()) {
+            try {
+                getMappingTool(mappingType);
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Failed to initialize mapping tool for mapping '" + mappingType + "'.", ex);
+            }
+        }
+    }
+
+    /**
+     * Close all mapping tools holding resources (e.g. python workers).
+     */
+    @Override
+    public void destroy() {
+        for (String mappingType : tools.keySet()) {
+            close(mappingType, tools.remove(mappingType));
+        }
+    }
+
+    /**
+     * Close mapping tool if it holds resources.
+     *
+     * @param mappingType mapping type of the tool.
+     * @param mappingTool mapping tool (may be null).
+     */
+    private static void close(String mappingType, IMappingTool mappingTool) {
+        if (mappingTool instanceof AutoCloseable) {
+            LOGGER.debug("Close mapping tool for mapping '{}'.", mappingType);
+            try {
+                ((AutoCloseable) mappingTool).close();
+            } catch (Exception ex) {
+                LOGGER.warn("Failed to close mapping tool for mapping '" + mappingType + "'.", ex);
+            }
+        }
+    }
+}
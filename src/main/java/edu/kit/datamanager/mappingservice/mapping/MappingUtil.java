@@ -17,7 +17,9 @@ package edu.kit.datamanager.mappingservice.mapping;
 
 import edu.kit.datamanager.clients.SimpleServiceClient;
 import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.domain.MappingRecord;
 import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
 import edu.kit.datamanager.mappingservice.util.FileUtil;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
@@ -28,19 +30,24 @@ import org.springframework.http.MediaType;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.Optional;
+import java.util.function.ToIntBiFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Utilities class for mapping files.
+ * Utilities class for mapping files. An instance creating its own registry
+ * of mapping tools has to be closed to release the mapping tools.
  */
-public class MappingUtil {
+public class MappingUtil implements AutoCloseable {
 
     /**
      * Return codes.
@@ -53,11 +60,165 @@ public class MappingUtil {
      */
     private final static Logger LOG = LoggerFactory.getLogger(MappingUtil.class);
 
-    private final ApplicationProperties configuration;
+    /**
+     * All available mapping tools.
+     */
+    private final MappingToolRegistry mappingTools;
 
-    @Autowired
+    /**
+     * Limits concurrent execution of mappings.
+     */
+    private final MappingExecutionScheduler scheduler;
+
+    /**
+     * True if the registry of mapping tools was created by this instance.
+     */
+    private final boolean ownsMappingTools;
+
+    /**
+     * Compiled mapping documents.
+     */
+    private final CompiledMappingCache compiledMappings;
+
+    /**
+     * Create instance with its own registry of mapping tools and scheduler.
+     * The instance has to be closed after use.
+     *
+     * @param configuration configuration.
+     */
     public MappingUtil(ApplicationProperties configuration) {
-        this.configuration = configuration;
+        this(configuration, new MappingToolRegistry(configuration), new MappingExecutionScheduler(configuration), true);
+    }
+
+    @Autowired
+    public MappingUtil(ApplicationProperties configuration, MappingToolRegistry mappingTools, MappingExecutionScheduler scheduler) {
+        this(configuration, mappingTools, scheduler, false);
+    }
+
+    private MappingUtil(ApplicationProperties configuration, MappingToolRegistry mappingTools, MappingExecutionScheduler scheduler, boolean ownsMappingTools) {
+        this.mappingTools = mappingTools;
+        this.scheduler = scheduler;
+        this.ownsMappingTools = ownsMappingTools;
+        compiledMappings = new CompiledMappingCache(configuration.getCompiledMappingCacheSize());
+    }
+
+    /**
+     * Close the registry of mapping tools if it was created by this
+     * instance. A shared registry is left open.
+     */
+    @Override
+    public void close() {
+        if (ownsMappingTools) {
+            mappingTools.destroy();
+        }
+    }
+
+    /**
+     * Map the source file to a new file using the mapping of the given
+     * record. If the mapping tool supports compiling mappings, the compiled
+     * mapping document is cached.
+     *
+     * @param mappingRecord The record of the mapping.
+     * @param srcFile       The absolute path to the source file.
+     * @return Path to the result file if mapping was successful.
+     * @throws MappingException if an error occurs.
+     */
+    public Optional<Path> mapFile(MappingRecord mappingRecord, Path srcFile) {
+        Path resultFile;
+        int returnCode = FAILURE;
+        String mapping = mappingRecord.getMappingType();
+        IMappingTool mappingTool = mappingTools.getMappingTool(mapping);
+        resultFile = FileUtil.createTempFile(mapping + "_", ".mapping");
+        try {
+            Path target = resultFile;
+            returnCode = scheduler.execute(mapping, () -> {
+                if (mappingTool instanceof ICompilableMappingTool) {
+                    return mapFile((ICompilableMappingTool<?>) mappingTool, mappingRecord, srcFile, target);
+                }
+                return mappingTool.mapFile(Paths.get(mappingRecord.getMappingDocumentUri()), srcFile, target);
+            });
+        } finally {
+            if (returnCode != SUCCESS) {
+                FileUtil.removeFile(resultFile);
+                resultFile = null;
+            }
+        }
+
+        return Optional.ofNullable(resultFile);
+    }
+
+    /**
+     * Map a source document using the mapping of the given record. Source
+     * and result are streamed, so mappings may be chained without
+     * intermediate files. Mapping tools which can't compile mappings are
+     * called via temporary files.
+     *
+     * @param mappingRecord The record of the mapping.
+     * @param source        Stream holding the source document.
+     * @param sourceType    Type of the source document (null if unknown).
+     * @param result        Stream receiving the created mapping.
+     * @return true if mapping was successful.
+     * @throws MappingException if an error occurs.
+     */
+    public boolean map(MappingRecord mappingRecord, InputStream source, ContentTypeDetector.ContentType sourceType, OutputStream result) {
+        String mapping = mappingRecord.getMappingType();
+        IMappingTool mappingTool = mappingTools.getMappingTool(mapping);
+        int returnCode = scheduler.execute(mapping, () -> {
+            if (mappingTool instanceof ICompilableMappingTool) {
+                return map((ICompilableMappingTool<?>) mappingTool, mappingRecord, source, sourceType, result);
+            }
+            Path mappingFile = Paths.get(mappingRecord.getMappingDocumentUri());
+            return mapViaFiles(source, sourceType, result, (srcFile, resultFile) -> mappingTool.mapFile(mappingFile, srcFile, resultFile));
+        });
+        return returnCode == SUCCESS;
+    }
+
+    /**
+     * Map a source document with a file based mapping. The source is stored
+     * in a temporary file, the result file is copied to the result stream
+     * if the mapping succeeds. Both temporary files are removed afterwards.
+     *
+     * @param source     Stream holding the source document.
+     * @param sourceType Type of the source document (null if unknown).
+     * @param result     Stream receiving the created mapping.
+     * @param mapping    Mapping of source file to result file returning an
+     *                   error code (0 = SUCCESS).
+     * @return Errorcode (0 = SUCCESS)
+     * @throws IOException error reading the source or writing the result.
+     */
+    public static int mapViaFiles(InputStream source, ContentTypeDetector.ContentType sourceType, OutputStream result, ToIntBiFunction<Path, Path> mapping) throws IOException {
+        Path srcFile = FileUtil.createTempFile("source_", (sourceType != null) ? sourceType.getExtension() : null);
+        Path resultFile = FileUtil.createTempFile("result_", null);
+        try {
+            Files.copy(source, srcFile, StandardCopyOption.REPLACE_EXISTING);
+            int returnCode = mapping.applyAsInt(srcFile, resultFile);
+            if (returnCode == SUCCESS) {
+                Files.copy(resultFile, result);
+            }
+            return returnCode;
+        } finally {
+            FileUtil.removeFile(srcFile);
+            FileUtil.removeFile(resultFile);
+        }
+    }
+
+    /**
+     * Check if mapping type is supported.
+     *
+     * @param mapping mapping type.
+     * @return true if a mapping tool is available for the mapping type.
+     */
+    public boolean isSupported(String mapping) {
+        return mappingTools.isRegistered(mapping);
+    }
+
+    /**
+     * Remove compiled mapping document from cache.
+     *
+     * @param mappingRecord The record of the mapping.
+     */
+    public void invalidate(MappingRecord mappingRecord) {
+        compiledMappings.invalidate(mappingRecord.getMappingId(), mappingRecord.getMappingType());
     }
 
     /**
@@ -96,12 +257,56 @@ public class MappingUtil {
     public int mapFile(Path mappingFile, Path srcFile, Path resultFile, String mapping) {
         int returnValue;
 
-        IMappingTool mappingTool = IMappingTool.getMappingTool(configuration, mapping);
+        IMappingTool mappingTool = mappingTools.getMappingTool(mapping);
         if (resultFile.toFile().exists() && ((resultFile.toFile().length() > 0) || !resultFile.toFile().canWrite())) {
             throw new MappingException("Overwriting file '" + resultFile + "' is not allowed!");
         }
-        returnValue = mappingTool.mapFile(mappingFile, srcFile, resultFile);
+        returnValue = scheduler.execute(mapping, () -> mappingTool.mapFile(mappingFile, srcFile, resultFile));
 
         return returnValue;
     }
+
+    /**
+     * Map the source file using the cached compiled mapping.
+     *
+     * @param <T>           type of the compiled mapping.
+     * @param mappingTool   tool compiling the mapping.
+     * @param mappingRecord The record of the mapping.
+     * @param srcFile       The absolute path to the source file.
+     * @param resultFile    The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    private <T> int mapFile(ICompilableMappingTool<T> mappingTool, MappingRecord mappingRecord, Path srcFile, Path resultFile) {
+        T compiledMapping;
+        try {
+            compiledMapping = compiledMappings.get(mappingRecord, mappingTool);
+        } catch (MappingException mex) {
+            LOG.error("Failed to compile mapping '" + mappingRecord.getMappingDocumentUri() + "'.", mex);
+            return FAILURE;
+        }
+        return mappingTool.mapFile(compiledMapping, srcFile, resultFile);
+    }
+
+    /**
+     * Map the source document using the cached compiled mapping.
+     *
+     * @param <T>           type of the compiled mapping.
+     * @param mappingTool   tool compiling the mapping.
+     * @param mappingRecord The record of the mapping.
+     * @param source        Stream holding the source document.
+     * @param sourceType    Type of the source document (null if unknown).
+     * @param result        Stream receiving the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     * @throws IOException error reading the source or writing the result.
+     */
+    private <T> int map(ICompilableMappingTool<T> mappingTool, MappingRecord mappingRecord, InputStream source, ContentTypeDetector.ContentType sourceType, OutputStream result) throws IOException {
+        T compiledMapping;
+        try {
+            compiledMapping = compiledMappings.get(mappingRecord, mappingTool);
+        } catch (MappingException mex) {
+            LOG.error("Failed to compile mapping '" + mappingRecord.getMappingDocumentUri() + "'.", mex);
+            return FAILURE;
+        }
+        return mappingTool.map(compiledMapping, source, sourceType, result);
+    }
 }
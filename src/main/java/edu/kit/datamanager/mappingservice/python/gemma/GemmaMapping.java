@@ -16,34 +16,75 @@
 package edu.kit.datamanager.mappingservice.python.gemma;
 
 import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
 import edu.kit.datamanager.mappingservice.mapping.IMappingTool;
+import edu.kit.datamanager.mappingservice.python.util.ProcessIoPump;
+import edu.kit.datamanager.mappingservice.python.util.ProcessSupervisor;
 import edu.kit.datamanager.mappingservice.python.util.PythonUtils;
+import edu.kit.datamanager.mappingservice.python.util.PythonWorkerPool;
+import edu.kit.datamanager.mappingservice.util.FileUtil;
+import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.MalformedURLException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 /**
  * Utilities class for GEMMA.
  */
-public class GemmaMapping implements IMappingTool {
+public class GemmaMapping implements IMappingTool, Closeable {
 
     /**
      * Logger for this class.
      */
     private final static Logger LOGGER = LoggerFactory.getLogger(GemmaMapping.class);
 
+    /**
+     * Script running gemma as long running worker.
+     */
+    private static final String WORKER_SCRIPT = "/python/gemma_worker.py";
 
     GemmaConfiguration gemmaConfiguration;
 
+    /**
+     * Pool of python workers (null if python is started for each mapping).
+     */
+    private PythonWorkerPool workerPool;
+
+    /**
+     * Handling of the output of the python script.
+     */
+    private final ProcessIoPump.Mode outputMode;
+    private final int outputLines;
+
+    /**
+     * Resource limits of the python script.
+     */
+    private final ProcessSupervisor.Limits limits;
+
     public GemmaMapping(ApplicationProperties configuration) throws MalformedURLException {
         gemmaConfiguration = new GemmaConfiguration();
+        outputMode = configuration.getPythonOutputMode();
+        outputLines = configuration.getPythonOutputLines();
+        limits = new ProcessSupervisor.Limits(configuration.getPythonCpuLimit(), configuration.getPythonMemoryLimit() * 1024 * 1024);
         File gemmaFile = new File(configuration.getGemmaLocation().getPath());
         File pythonExecutable = new File(configuration.getPythonLocation().getPath());
         gemmaConfiguration.setGemmaLocation(gemmaFile.toURI().toURL());
         gemmaConfiguration.setPythonLocation(pythonExecutable.toURI().toURL());
+        if (configuration.getGemmaWorkers() > 0) {
+            workerPool = new PythonWorkerPool(pythonExecutable.getPath(),
+                    extractWorkerScript().toString(),
+                    configuration.getGemmaWorkers(),
+                    configuration.getGemmaWorkerMaxJobs(),
+                    configuration.getGemmaWorkerHealthCheckInterval(),
+                    gemmaFile.getAbsolutePath());
+        }
     }
 
     /**
@@ -57,6 +98,47 @@ public class GemmaMapping implements IMappingTool {
      */
     public int mapFile(Path mappingFile, Path srcFile, Path resultFile) {
         LOGGER.trace("Run gemma on '{}' with mapping '{}' -> '{}'", srcFile, mappingFile, resultFile);
-        return PythonUtils.run(gemmaConfiguration.getPythonLocation().getPath(), gemmaConfiguration.getGemmaLocation().getPath(), mappingFile.toAbsolutePath().toString(), srcFile.toAbsolutePath().toString(), resultFile.toAbsolutePath().toString());
+        if (workerPool != null) {
+            return workerPool.run(mappingFile.toAbsolutePath().toString(), srcFile.toAbsolutePath().toString(), resultFile.toAbsolutePath().toString());
+        }
+        return PythonUtils.run(gemmaConfiguration.getPythonLocation().getPath(), gemmaConfiguration.getGemmaLocation().getPath(),
+                System.out, System.err, PythonUtils.TIME_OUT_DEFAULT, outputMode, outputLines, limits,
+                mappingFile.toAbsolutePath().toString(), srcFile.toAbsolutePath().toString(), resultFile.toAbsolutePath().toString());
+    }
+
+    /**
+     * Stop the python workers (if any).
+     */
+    @Override
+    public void close() {
+        if (workerPool != null) {
+            workerPool.close();
+        }
+    }
+
+    /**
+     * Copy worker script to a temporary file.
+     *
+     * @return path of the script.
+     */
+    private static Path extractWorkerScript() {
+        // the script lives as long as the workers, so it's not placed in the scratch space.
+        Path workerScript;
+        try {
+            workerScript = Files.createTempFile("gemma_worker_", ".py");
+        } catch (IOException ioe) {
+            throw new MappingException("Error: Can't provide gemma worker script!", ioe);
+        }
+        try (InputStream script = GemmaMapping.class.getResourceAsStream(WORKER_SCRIPT)) {
+            if (script == null) {
+                throw new IOException("Resource '" + WORKER_SCRIPT + "' not found!");
+            }
+            FileUtils.copyInputStreamToFile(script, workerScript.toFile());
+        } catch (IOException ioe) {
+            FileUtil.removeFile(workerScript);
+            throw new MappingException("Error: Can't provide gemma worker script!", ioe);
+        }
+        workerScript.toFile().deleteOnExit();
+        return workerScript;
     }
 }
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains stdout and stderr of a process concurrently, so a process writing a
+ * lot to one stream never blocks because the other one is not read. Only the
+ * last lines of each stream are kept in memory (e.g. for error messages),
+ * all other lines are forwarded, sampled or discarded depending on the
+ * {@link Mode}.
+ */
+public class ProcessIoPump {
+
+    /**
+     * Handling of the output.
+     */
+    public enum Mode {
+        /**
+         * Forward all lines to the target stream.
+         */
+        FORWARD,
+        /**
+         * Forward the first and the last lines to the target stream, all
+         * lines in between are skipped.
+         */
+        SAMPLE,
+        /**
+         * Forward nothing. Only the last lines are kept.
+         */
+        DISCARD
+    }
+
+    /**
+     * Default number of lines kept per stream.
+     */
+    public static final int DEFAULT_MAX_LINES = 100;
+
+    /**
+     * Longer lines are truncated.
+     */
+    static final int MAX_LINE_LENGTH = 8192;
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ProcessIoPump.class);
+
+    /**
+     * Threads reading the streams of all processes.
+     */
+    private static final ExecutorService PUMPS = Executors.newCachedThreadPool(new PumpThreadFactory());
+
+    private final StreamPump outputPump;
+    private final StreamPump errorPump;
+    private final Future<?> outputFuture;
+    private final Future<?> errorFuture;
+
+    /**
+     * Start draining stdout and stderr of the process.
+     *
+     * @param process  process.
+     * @param output   stream receiving stdout (may be null).
+     * @param error    stream receiving stderr (may be null or equal to
+     *                 'output').
+     * @param mode     handling of the output.
+     * @param maxLines number of lines kept (and forwarded at the beginning
+     *                 and the end in SAMPLE mode) per stream.
+     */
+    public ProcessIoPump(Process process, OutputStream output, OutputStream error, Mode mode, int maxLines) {
+        outputPump = new StreamPump("[OUT]", process.getInputStream(), output, mode, Math.max(1, maxLines));
+        errorPump = new StreamPump("[ERR]", process.getErrorStream(), error, mode, Math.max(1, maxLines));
+        outputFuture = PUMPS.submit(outputPump);
+        errorFuture = PUMPS.submit(errorPump);
+    }
+
+    /**
+     * Wait until both streams are closed.
+     *
+     * @param timeout maximum time to wait for both streams.
+     * @param unit    unit of the timeout.
+     * @throws InterruptedException if interrupted while waiting.
+     * @throws ExecutionException   if reading a stream failed.
+     * @throws TimeoutException     if streams are not closed in time.
+     */
+    public void await(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        outputFuture.get(timeout, unit);
+        errorFuture.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Get the last lines written to stdout.
+     *
+     * @return last lines (at most 'maxLines').
+     */
+    public List<String> getOutputTail() {
+        return outputPump.getTail();
+    }
+
+    /**
+     * Get the last lines written to stderr.
+     *
+     * @return last lines (at most 'maxLines').
+     */
+    public List<String> getErrorTail() {
+        return errorPump.getTail();
+    }
+
+    /**
+     * Get number of lines written to stdout.
+     *
+     * @return number of lines.
+     */
+    public long getOutputLines() {
+        return outputPump.getLines();
+    }
+
+    /**
+     * Get number of lines written to stderr.
+     *
+     * @return number of lines.
+     */
+    public long getErrorLines() {
+        return errorPump.getLines();
+    }
+
+    /**
+     * Reads a single stream line by line.
+     */
+    private static final class StreamPump implements Runnable {
+
+        private final String prefix;
+        private final InputStream inputStream;
+        private final OutputStream target;
+        private final Mode mode;
+        private final int maxLines;
+        private final Deque<String> tail = new ArrayDeque<>();
+        private volatile long lines = 0;
+        /**
+         * False if the target stream failed, the stream is still drained.
+         */
+        private boolean forwarding;
+
+        StreamPump(String prefix, InputStream inputStream, OutputStream target, Mode mode, int maxLines) {
+            this.prefix = prefix;
+            this.inputStream = inputStream;
+            this.target = (mode != Mode.DISCARD) ? target : null;
+            this.forwarding = this.target != null;
+            this.mode = mode;
+            this.maxLines = maxLines;
+        }
+
+        @Override
+        public void run() {
+            try (Reader reader = new BufferedReader(new InputStreamReader(inputStream, Charset.defaultCharset()))) {
+                StringBuilder line = new StringBuilder();
+                String text;
+                while ((text = readLine(reader, line)) != null) {
+                    long lineNo = lines++;
+                    boolean forward = (mode == Mode.FORWARD) || ((mode == Mode.SAMPLE) && (lineNo < maxLines));
+                    if (forward) {
+                        write(text);
+                    }
+                    synchronized (tail) {
+                        if (tail.size() >= maxLines) {
+                            tail.removeFirst();
+                        }
+                        tail.addLast(text);
+                    }
+                }
+            } catch (IOException ioe) {
+                throw new ProcessIoException("Error reading " + prefix + " of process.", ioe);
+            }
+            if ((mode == Mode.SAMPLE) && (lines > maxLines)) {
+                // the first 'maxLines' lines are already written.
+                List<String> lastLines = getTail();
+                long skipped = lines - maxLines - lastLines.size();
+                if (skipped > 0) {
+                    write("... " + skipped + " lines skipped ...");
+                }
+                int alreadyWritten = (int) Math.max(0, -skipped);
+                for (String text : lastLines.subList(alreadyWritten, lastLines.size())) {
+                    write(text);
+                }
+            }
+        }
+
+        /**
+         * Read next line. Lines longer than MAX_LINE_LENGTH are truncated.
+         *
+         * @param reader reader.
+         * @param line   buffer reused for all lines.
+         * @return line without line separator or null at end of stream.
+         * @throws IOException error reading stream.
+         */
+        private static String readLine(Reader reader, StringBuilder line) throws IOException {
+            line.setLength(0);
+            int c = reader.read();
+            if (c < 0) {
+                return null;
+            }
+            while ((c >= 0) && (c != '\n')) {
+                if ((c != '\r') && (line.length() < MAX_LINE_LENGTH)) {
+                    line.append((char) c);
+                }
+                c = reader.read();
+            }
+            return line.toString();
+        }
+
+        /**
+         * Write line to target stream. If the target stream fails, forwarding
+         * is stopped, but the lines are still collected in the tail.
+         *
+         * @param text line.
+         */
+        private void write(String text) {
+            LOGGER.trace("{} {}", prefix, text);
+            if (forwarding) {
+                byte[] data = (text + "\n").getBytes(Charset.defaultCharset());
+                // stdout and stderr may share the same target.
+                synchronized (target) {
+                    try {
+                        target.write(data);
+                    } catch (IOException ioe) {
+                        LOGGER.warn("Error writing " + prefix + " of process, stop forwarding.", ioe);
+                        forwarding = false;
+                    }
+                }
+            }
+        }
+
+        List<String> getTail() {
+            synchronized (tail) {
+                return new ArrayList<>(tail);
+            }
+        }
+
+        long getLines() {
+            return lines;
+        }
+    }
+
+    /**
+     * Error while reading a stream.
+     */
+    private static final class ProcessIoException extends RuntimeException {
+
+        ProcessIoException(String message, IOException cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * Creates daemon threads, so pumps of hanging processes never prevent
+     * the JVM from exiting.
+     */
+    private static final class PumpThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "process-io-pump-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
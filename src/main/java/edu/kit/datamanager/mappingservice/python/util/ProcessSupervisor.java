@@ -0,0 +1,387 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Starts and tracks all child processes (e.g. python scripts). On timeout
+ * the whole process tree is killed, so runaway scripts don't keep consuming
+ * resources. On Linux CPU time and memory (address space) of a process may
+ * be limited via 'prlimit'.
+ * <p>
+ * The CPU time of terminated processes is read from '/proc/self/stat'
+ * (cutime/cstime) on Linux. On other systems the CPU time of a process can't
+ * be determined after it has terminated, so only samples taken while it was
+ * running are counted and the total CPU time is a lower bound.
+ */
+public class ProcessSupervisor {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ProcessSupervisor.class);
+
+    /**
+     * Time granted to processes for terminating regularly.
+     */
+    private static final long GRACE_PERIOD_MILLIS = 1000;
+
+    /**
+     * Clock ticks per second used by '/proc' (USER_HZ).
+     */
+    private static final long USER_HZ = 100;
+
+    private static final Path PROC_SELF_STAT = Paths.get("/proc/self/stat");
+
+    /**
+     * Instance used by PythonUtils and PythonWorker.
+     */
+    private static final ProcessSupervisor DEFAULT = new ProcessSupervisor(findPrlimit());
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(DEFAULT::destroyAll, "process-supervisor-shutdown"));
+    }
+
+    private final String prlimit;
+    private final Map<Long, Child> children = new ConcurrentHashMap<>();
+    private final AtomicLong finishedCpuNanos = new AtomicLong();
+    private final AtomicLong startedProcesses = new AtomicLong();
+    private final AtomicLong killedProcesses = new AtomicLong();
+    private final AtomicBoolean limitWarning = new AtomicBoolean();
+
+    /**
+     * Create supervisor.
+     *
+     * @param prlimit path of the 'prlimit' executable (null = limits are not
+     *                supported).
+     */
+    ProcessSupervisor(String prlimit) {
+        this.prlimit = prlimit;
+    }
+
+    /**
+     * Get the supervisor tracking all processes of the mapping service.
+     *
+     * @return supervisor.
+     */
+    public static ProcessSupervisor getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Start process.
+     *
+     * @param command command and its arguments.
+     * @param limits  resource limits of the process.
+     * @return started process.
+     * @throws IOException if process couldn't be started.
+     */
+    public Process start(List<String> command, Limits limits) throws IOException {
+        Process process = new ProcessBuilder(applyLimits(command, limits)).start();
+        Child child = new Child(process.toHandle());
+        children.put(process.pid(), child);
+        startedProcesses.incrementAndGet();
+        process.onExit().thenRun(() -> {
+            children.remove(process.pid());
+            finishedCpuNanos.addAndGet(child.cpuNanos);
+        });
+        LOGGER.trace("Started process (pid {}): {}", process.pid(), command);
+        return process;
+    }
+
+    /**
+     * Wait for the process until the deadline. If the process doesn't
+     * terminate in time the whole process tree is killed.
+     *
+     * @param process  process.
+     * @param deadline deadline as returned by System.nanoTime().
+     * @return exit status of the process.
+     * @throws InterruptedException if interrupted while waiting (the process
+     *                              tree is killed).
+     * @throws TimeoutException     if process didn't terminate in time.
+     */
+    public int waitFor(Process process, long deadline) throws InterruptedException, TimeoutException {
+        try {
+            if (!process.waitFor(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                destroy(process);
+                throw new TimeoutException("Process (pid " + process.pid() + ") did not terminate in time.");
+            }
+        } catch (InterruptedException ie) {
+            destroy(process);
+            throw ie;
+        }
+        return process.exitValue();
+    }
+
+    /**
+     * Kill process and all its descendants. The processes are asked to
+     * terminate first and killed forcibly after a grace period.
+     *
+     * @param process process.
+     */
+    public void destroy(Process process) {
+        ProcessHandle handle = process.toHandle();
+        Child child = children.get(process.pid());
+        if (child != null) {
+            child.sample();
+        }
+        // collect descendants first, they are re-parented if the parent dies.
+        List<ProcessHandle> tree = new ArrayList<>(handle.descendants().collect(Collectors.toList()));
+        tree.add(0, handle);
+        if (tree.stream().noneMatch(ProcessHandle::isAlive)) {
+            return;
+        }
+        LOGGER.warn("Kill process tree (pid {}, {} descendants).", process.pid(), tree.size() - 1);
+        killedProcesses.incrementAndGet();
+        tree.forEach(ProcessHandle::destroy);
+        try {
+            process.onExit().get(GRACE_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException ex) {
+            LOGGER.trace("Process (pid {}) did not terminate in grace period.", process.pid());
+        }
+        tree.stream().filter(ProcessHandle::isAlive).forEach(ProcessHandle::destroyForcibly);
+    }
+
+    /**
+     * Kill all running processes.
+     */
+    public void destroyAll() {
+        for (Child child : new ArrayList<>(children.values())) {
+            child.handle.descendants().forEach(ProcessHandle::destroyForcibly);
+            child.handle.destroyForcibly();
+        }
+    }
+
+    /**
+     * Get number of running processes.
+     *
+     * @return number of running processes.
+     */
+    public int getActiveProcesses() {
+        return children.size();
+    }
+
+    /**
+     * Get number of started processes.
+     *
+     * @return number of started processes.
+     */
+    public long getStartedProcesses() {
+        return startedProcesses.get();
+    }
+
+    /**
+     * Get number of processes killed by the supervisor.
+     *
+     * @return number of killed process trees.
+     */
+    public long getKilledProcesses() {
+        return killedProcesses.get();
+    }
+
+    /**
+     * Get CPU time used by all processes (including their descendants)
+     * started by the supervisor.
+     *
+     * @return total CPU time.
+     */
+    public Duration getTotalCpuTime() {
+        long nanos = readTerminatedChildrenCpuNanos();
+        if (nanos < 0) {
+            nanos = finishedCpuNanos.get();
+        }
+        for (Child child : children.values()) {
+            nanos += child.sample();
+        }
+        return Duration.ofNanos(nanos);
+    }
+
+    /**
+     * Read CPU time of all terminated (and waited for) child processes of
+     * the JVM.
+     *
+     * @return CPU time in nanoseconds or -1 if not available.
+     */
+    private static long readTerminatedChildrenCpuNanos() {
+        if (!Files.isReadable(PROC_SELF_STAT)) {
+            return -1;
+        }
+        try {
+            String stat = new String(Files.readAllBytes(PROC_SELF_STAT), StandardCharsets.US_ASCII);
+            // fields after the command name start with field 3 (state).
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).trim().split(" ");
+            long ticks = Long.parseLong(fields[16 - 3]) + Long.parseLong(fields[17 - 3]);
+            return TimeUnit.SECONDS.toNanos(ticks) / USER_HZ;
+        } catch (IOException | RuntimeException ex) {
+            LOGGER.trace("Failed to read CPU time of child processes.", ex);
+            return -1;
+        }
+    }
+
+    /**
+     * Check if resource limits are supported.
+     *
+     * @return true if 'prlimit' is available.
+     */
+    public boolean isLimitSupported() {
+        return prlimit != null;
+    }
+
+    /**
+     * Prefix command with 'prlimit' if limits are defined.
+     *
+     * @param command command.
+     * @param limits  limits.
+     * @return command with limits.
+     */
+    List<String> applyLimits(List<String> command, Limits limits) {
+        if ((limits == null) || limits.isUnlimited()) {
+            return command;
+        }
+        if (prlimit == null) {
+            if (!limitWarning.getAndSet(true)) {
+                LOGGER.warn("Resource limits for processes are not supported on this system ('prlimit' not found).");
+            }
+            return command;
+        }
+        List<String> limitedCommand = new ArrayList<>();
+        limitedCommand.add(prlimit);
+        if (limits.getCpuSeconds() > 0) {
+            limitedCommand.add("--cpu=" + limits.getCpuSeconds());
+        }
+        if (limits.getMemoryBytes() > 0) {
+            limitedCommand.add("--as=" + limits.getMemoryBytes());
+        }
+        limitedCommand.add("--");
+        limitedCommand.addAll(command);
+        return limitedCommand;
+    }
+
+    /**
+     * Find 'prlimit' executable (Linux only).
+     *
+     * @return path of prlimit or null if not available.
+     */
+    private static String findPrlimit() {
+        if (!System.getProperty("os.name", "").toLowerCase(Locale.ROOT).contains("linux")) {
+            return null;
+        }
+        String path = System.getenv("PATH");
+        if (path != null) {
+            for (String directory : path.split(File.pathSeparator)) {
+                File executable = new File(directory, "prlimit");
+                if (executable.canExecute()) {
+                    return executable.getAbsolutePath();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Resource limits of a process.
+     */
+    public static final class Limits {
+
+        /**
+         * No limits.
+         */
+        public static final Limits NONE = new Limits(0, 0);
+
+        private final long cpuSeconds;
+        private final long memoryBytes;
+
+        /**
+         * Create limits.
+         *
+         * @param cpuSeconds  maximum CPU time in seconds (0 = unlimited).
+         * @param memoryBytes maximum address space in bytes (0 = unlimited).
+         */
+        public Limits(long cpuSeconds, long memoryBytes) {
+            this.cpuSeconds = Math.max(0, cpuSeconds);
+            this.memoryBytes = Math.max(0, memoryBytes);
+        }
+
+        public long getCpuSeconds() {
+            return cpuSeconds;
+        }
+
+        public long getMemoryBytes() {
+            return memoryBytes;
+        }
+
+        public boolean isUnlimited() {
+            return (cpuSeconds == 0) && (memoryBytes == 0);
+        }
+    }
+
+    /**
+     * Running child process.
+     */
+    private static final class Child {
+
+        private final ProcessHandle handle;
+        /**
+         * Last known CPU time of the process and its descendants.
+         */
+        private volatile long cpuNanos = 0;
+
+        Child(ProcessHandle handle) {
+            this.handle = handle;
+        }
+
+        /**
+         * Update CPU time.
+         *
+         * @return last known CPU time in nanoseconds.
+         */
+        synchronized long sample() {
+            long nanos = cpuNanos(handle);
+            for (ProcessHandle descendant : handle.descendants().collect(Collectors.toList())) {
+                nanos += cpuNanos(descendant);
+            }
+            cpuNanos = Math.max(cpuNanos, nanos);
+            return cpuNanos;
+        }
+
+        private static long cpuNanos(ProcessHandle handle) {
+            return handle.info().totalCpuDuration().map(Duration::toNanos).orElse(0L);
+        }
+    }
+}
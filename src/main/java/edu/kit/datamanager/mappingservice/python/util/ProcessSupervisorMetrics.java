@@ -0,0 +1,59 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes the state of the {@link ProcessSupervisor} as metrics
+ * (e.g. /actuator/metrics/mapping.processes.active).
+ */
+@Component
+public class ProcessSupervisorMetrics implements MeterBinder {
+
+    private final ProcessSupervisor supervisor;
+
+    public ProcessSupervisorMetrics() {
+        this(ProcessSupervisor.getDefault());
+    }
+
+    ProcessSupervisorMetrics(ProcessSupervisor supervisor) {
+        this.supervisor = supervisor;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("mapping.processes.active", supervisor, ProcessSupervisor::getActiveProcesses)
+                .description("Number of running child processes")
+                .register(registry);
+        FunctionCounter.builder("mapping.processes.started", supervisor, ProcessSupervisor::getStartedProcesses)
+                .description("Number of started child processes")
+                .register(registry);
+        FunctionCounter.builder("mapping.processes.killed", supervisor, ProcessSupervisor::getKilledProcesses)
+                .description("Number of child processes killed after timeout")
+                .register(registry);
+        FunctionCounter.builder("mapping.processes.cpu.time", supervisor, s -> s.getTotalCpuTime().toNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+                .description("CPU time used by all child processes")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+}
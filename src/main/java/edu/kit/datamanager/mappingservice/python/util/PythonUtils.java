@@ -18,12 +18,14 @@ package edu.kit.datamanager.mappingservice.python.util;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.*;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Utilities class for python.
@@ -120,6 +122,58 @@ public class PythonUtils {
      * PYTHON_NOT_FOUND, TIMEOUT_ERROR or EXECUTION_ERROR.
      */
     public static int run(String pythonLocation, String scriptLocation, OutputStream output, OutputStream error, int timeOutInSeconds, String... arguments) {
+        return run(pythonLocation, scriptLocation, output, error, timeOutInSeconds, ProcessIoPump.Mode.FORWARD, ProcessIoPump.DEFAULT_MAX_LINES, arguments);
+    }
+
+    /**
+     * Run the script at 'scriptLocation' with 'arguments' using the Python
+     * executable at 'pythonLocation'. Output and errors are drained
+     * concurrently and handled depending on 'outputMode'. Only the last
+     * 'outputLines' lines of each stream are kept in memory.
+     *
+     * @param pythonLocation   The absolute path to a local python executable.
+     * @param scriptLocation   The absolute path to the python script which should
+     *                         be executed.
+     * @param output           The stream receiving all process output.
+     * @param error            The stream receiving all process error output (can be equal to
+     *                         'output').
+     * @param timeOutInSeconds Duration in seconds when a timeout should be
+     *                         thrown.
+     * @param outputMode       Forward, sample or discard the output.
+     * @param outputLines      Number of lines kept per stream.
+     * @param arguments        Variable number of arguments, which can also be omitted.
+     * @return The exit status of the python process or one of the internal codes
+     * PYTHON_NOT_FOUND, TIMEOUT_ERROR or EXECUTION_ERROR.
+     * @see ProcessIoPump
+     */
+    public static int run(String pythonLocation, String scriptLocation, OutputStream output, OutputStream error, int timeOutInSeconds, ProcessIoPump.Mode outputMode, int outputLines, String... arguments) {
+        return run(pythonLocation, scriptLocation, output, error, timeOutInSeconds, outputMode, outputLines, ProcessSupervisor.Limits.NONE, arguments);
+    }
+
+    /**
+     * Run the script at 'scriptLocation' with 'arguments' using the Python
+     * executable at 'pythonLocation' with limited resources. If the script
+     * doesn't terminate in time, the process and all its descendants are
+     * killed.
+     *
+     * @param pythonLocation   The absolute path to a local python executable.
+     * @param scriptLocation   The absolute path to the python script which should
+     *                         be executed.
+     * @param output           The stream receiving all process output.
+     * @param error            The stream receiving all process error output (can be equal to
+     *                         'output').
+     * @param timeOutInSeconds Duration in seconds when a timeout should be
+     *                         thrown.
+     * @param outputMode       Forward, sample or discard the output.
+     * @param outputLines      Number of lines kept per stream.
+     * @param limits           CPU and memory limits of the process.
+     * @param arguments        Variable number of arguments, which can also be omitted.
+     * @return The exit status of the python process or one of the internal codes
+     * PYTHON_NOT_FOUND, TIMEOUT_ERROR or EXECUTION_ERROR.
+     * @see ProcessIoPump
+     * @see ProcessSupervisor
+     */
+    public static int run(String pythonLocation, String scriptLocation, OutputStream output, OutputStream error, int timeOutInSeconds, ProcessIoPump.Mode outputMode, int outputLines, ProcessSupervisor.Limits limits, String... arguments) {
         List<String> command = new ArrayList<>();
         command.add(pythonLocation);
         command.add(scriptLocation);
@@ -128,67 +182,39 @@ public class PythonUtils {
             Collections.addAll(command, arguments);
         }
 
-        ExecutorService pool = Executors.newSingleThreadExecutor();
-
+        ProcessSupervisor supervisor = ProcessSupervisor.getDefault();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeOutInSeconds);
+        Process p = null;
         int result;
         try {
+            p = supervisor.start(command, limits);
 
-            ProcessBuilder pb = new ProcessBuilder(command.toArray(new String[]{}));
-            Process p = pb.start();
-
-            Future<List<String>> errorFuture = pool.submit(new ProcessReadTask(p.getErrorStream()));
-            Future<List<String>> inputFuture = pool.submit(new ProcessReadTask(p.getInputStream()));
-
-            List<String> stdErr = errorFuture.get(timeOutInSeconds, TimeUnit.SECONDS);
-            List<String> stdOut = inputFuture.get(timeOutInSeconds, TimeUnit.SECONDS);
-
-            for (String line : stdOut) {
-                LOGGER.trace("[OUT] {}", line);
-                if (output != null) {
-                    output.write((line + "\n").getBytes());
-                }
-            }
+            ProcessIoPump pump = new ProcessIoPump(p, output, error, outputMode, outputLines);
+            pump.await(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
 
-            for (String line : stdErr) {
-                LOGGER.trace("[ERR] {}", line);
-                if (error != null) {
-                    error.write((line + "\n").getBytes());
-                }
-            }
-
-            result = p.waitFor();
+            result = supervisor.waitFor(p, deadline);
             if (result != 0) {
-                throw new ExecutionException(new Throwable());
+                throw new ExecutionException("Python script exited with status " + result + ". Last lines of stderr:\n"
+                        + String.join("\n", pump.getErrorTail()), null);
             }
         } catch (IOException ioe) {
             LOGGER.error("Failed to execute python.", ioe);
             result = PYTHON_NOT_FOUND_ERROR;
         } catch (TimeoutException te) {
-            LOGGER.error("Python script did not return in expected timeframe of " + TIME_OUT_DEFAULT + " seconds", te);
+            LOGGER.error("Python script did not return in expected timeframe of " + timeOutInSeconds + " seconds", te);
             result = TIMEOUT_ERROR;
         } catch (InterruptedException | ExecutionException e) {
             LOGGER.error("Failed to execute python script due to an unknown Exception.", e);
             result = EXECUTION_ERROR;
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
         } finally {
-            pool.shutdown();
+            if (p != null) {
+                // kills the process tree only if still alive (e.g. timeout).
+                supervisor.destroy(p);
+            }
         }
         return result;
     }
-
-    private static class ProcessReadTask implements Callable<List<String>> {
-
-        private final InputStream inputStream;
-
-        public ProcessReadTask(InputStream inputStream) {
-            this.inputStream = inputStream;
-        }
-
-        @Override
-        public List<String> call() {
-            return new BufferedReader(new InputStreamReader(inputStream))
-                    .lines()
-                    .collect(Collectors.toList());
-        }
-    }
-
 }
@@ -0,0 +1,249 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A long running python process receiving jobs via stdin and answering via
+ * stdout. Each message is a frame consisting of a 4 byte length followed by
+ * an UTF-8 encoded JSON document. A worker is not thread safe.
+ *
+ * @see PythonWorkerPool
+ */
+public class PythonWorker {
+
+    /**
+     * Maximum size of a response frame.
+     */
+    private static final int MAX_FRAME_SIZE = 1024 * 1024;
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(PythonWorker.class);
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Process process;
+    private final DataOutputStream toWorker;
+    private final DataInputStream fromWorker;
+    private final ScheduledExecutorService watchdog;
+    private int jobs = 0;
+    private volatile boolean killed = false;
+
+    /**
+     * Start a new worker and wait until it is ready.
+     *
+     * @param pythonLocation   The absolute path to a local python executable.
+     * @param scriptLocation   The absolute path to the worker script.
+     * @param arguments        Arguments of the worker script.
+     * @param timeOutInSeconds Maximum time for starting the worker.
+     * @param watchdog         Executor used for timeouts.
+     * @throws IOException if the worker could not be started.
+     */
+    PythonWorker(String pythonLocation, String scriptLocation, List<String> arguments, int timeOutInSeconds, ScheduledExecutorService watchdog) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(pythonLocation);
+        command.add(scriptLocation);
+        command.addAll(arguments);
+        this.watchdog = watchdog;
+        process = ProcessSupervisor.getDefault().start(command, ProcessSupervisor.Limits.NONE);
+        toWorker = new DataOutputStream(new BufferedOutputStream(process.getOutputStream()));
+        fromWorker = new DataInputStream(new BufferedInputStream(process.getInputStream()));
+        Thread errorReader = new Thread(this::logErrorStream, "python-worker-" + process.pid());
+        errorReader.setDaemon(true);
+        errorReader.start();
+        try {
+            if (awaitResponse(timeOutInSeconds).path("status").asInt(-1) != PythonUtils.SUCCESS) {
+                throw new IOException("Python worker did not start properly.");
+            }
+        } catch (IOException ioe) {
+            destroy();
+            throw ioe;
+        }
+        LOGGER.debug("Started python worker (pid {}).", process.pid());
+    }
+
+    /**
+     * Execute a job.
+     *
+     * @param timeOutInSeconds Duration in seconds when a timeout should be
+     *                         thrown.
+     * @param arguments        Arguments of the job.
+     * @return SUCCESS, TIMEOUT_ERROR or EXECUTION_ERROR.
+     * @throws IOException if the communication with the worker failed. The
+     *                     worker is not usable afterwards.
+     */
+    int execute(int timeOutInSeconds, String... arguments) throws IOException {
+        ObjectNode request = MAPPER.createObjectNode();
+        request.put("id", ++jobs);
+        request.put("command", "map");
+        for (String argument : arguments) {
+            request.withArray("arguments").add(argument);
+        }
+        int result;
+        try {
+            writeFrame(request);
+            JsonNode response = awaitResponse(timeOutInSeconds);
+            result = response.path("status").asInt(-1) == 0 ? PythonUtils.SUCCESS : PythonUtils.EXECUTION_ERROR;
+            if (result != PythonUtils.SUCCESS) {
+                LOGGER.error("Python worker (pid {}) failed to execute job: {}", process.pid(), response.path("error").asText());
+            }
+        } catch (IOException ioe) {
+            if (!killed) {
+                throw ioe;
+            }
+            LOGGER.error("Python worker (pid {}) did not return in expected timeframe of {} seconds", process.pid(), timeOutInSeconds);
+            result = PythonUtils.TIMEOUT_ERROR;
+        }
+        return result;
+    }
+
+    /**
+     * Check if worker is still responding.
+     *
+     * @param timeOutInSeconds Maximum time for the answer.
+     * @return true if worker answered.
+     */
+    boolean ping(int timeOutInSeconds) {
+        boolean healthy = false;
+        try {
+            ObjectNode request = MAPPER.createObjectNode();
+            request.put("id", 0);
+            request.put("command", "ping");
+            writeFrame(request);
+            healthy = awaitResponse(timeOutInSeconds).path("status").asInt(-1) == PythonUtils.SUCCESS;
+        } catch (IOException ioe) {
+            LOGGER.warn("Python worker (pid {}) is not responding.", process.pid());
+        }
+        return healthy;
+    }
+
+    /**
+     * Get number of executed jobs.
+     *
+     * @return number of jobs.
+     */
+    int getJobs() {
+        return jobs;
+    }
+
+    /**
+     * Check if the process is still alive.
+     *
+     * @return true if process is alive.
+     */
+    boolean isAlive() {
+        return !killed && process.isAlive();
+    }
+
+    /**
+     * Stop worker. Closing stdin allows the worker to terminate regularly.
+     */
+    void destroy() {
+        try {
+            toWorker.close();
+        } catch (IOException ioe) {
+            LOGGER.trace("Error closing stdin of python worker.", ioe);
+        }
+        try {
+            if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        } catch (InterruptedException ie) {
+            process.destroyForcibly();
+            Thread.currentThread().interrupt();
+        }
+        LOGGER.debug("Stopped python worker (pid {}).", process.pid());
+    }
+
+    /**
+     * Read response. The process is killed if it doesn't answer in time.
+     *
+     * @param timeOutInSeconds Maximum time for the answer.
+     * @return response.
+     * @throws IOException if reading response failed.
+     */
+    private JsonNode awaitResponse(int timeOutInSeconds) throws IOException {
+        ScheduledFuture<?> timeout = watchdog.schedule(this::kill, timeOutInSeconds, TimeUnit.SECONDS);
+        try {
+            int length = fromWorker.readInt();
+            if (length < 0 || length > MAX_FRAME_SIZE) {
+                throw new IOException("Invalid frame size (" + length + " bytes) received from python worker.");
+            }
+            byte[] payload = new byte[length];
+            fromWorker.readFully(payload);
+            return MAPPER.readTree(payload);
+        } finally {
+            timeout.cancel(false);
+        }
+    }
+
+    /**
+     * Write request.
+     *
+     * @param request request.
+     * @throws IOException if writing request failed.
+     */
+    private void writeFrame(JsonNode request) throws IOException {
+        byte[] payload = MAPPER.writeValueAsBytes(request);
+        toWorker.writeInt(payload.length);
+        toWorker.write(payload);
+        toWorker.flush();
+    }
+
+    /**
+     * Kill process after timeout.
+     */
+    private void kill() {
+        killed = true;
+        process.descendants().forEach(ProcessHandle::destroyForcibly);
+        process.destroyForcibly();
+    }
+
+    /**
+     * Redirect stderr of process to logger.
+     */
+    private void logErrorStream() {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getErrorStream(), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                LOGGER.trace("[ERR] {}", line);
+            }
+        } catch (IOException ioe) {
+            LOGGER.trace("Error stream of python worker closed.", ioe);
+        }
+    }
+}
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pool of long running python workers. Each worker is started once and
+ * executes jobs until it has reached the maximum number of jobs. Crashed or
+ * unresponsive workers are replaced.
+ *
+ * @see PythonWorker
+ */
+public class PythonWorkerPool implements Closeable {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(PythonWorkerPool.class);
+
+    private final String pythonLocation;
+    private final String scriptLocation;
+    private final List<String> arguments;
+    private final int maxJobsPerWorker;
+    private final BlockingQueue<PythonWorker> idleWorkers = new LinkedBlockingQueue<>();
+    private final Semaphore permits;
+    private final ScheduledExecutorService scheduler;
+    private final Thread shutdownHook = new Thread(this::close, "python-worker-pool-shutdown");
+    private volatile boolean closed = false;
+
+    /**
+     * Create a pool and start all workers.
+     *
+     * @param pythonLocation      The absolute path to a local python
+     *                            executable.
+     * @param scriptLocation      The absolute path to the worker script.
+     * @param size                Number of workers.
+     * @param maxJobsPerWorker    Number of jobs after which a worker is
+     *                            restarted.
+     * @param healthCheckInterval Interval in seconds for checking idle
+     *                            workers (0 = no health check).
+     * @param arguments           Arguments of the worker script.
+     */
+    public PythonWorkerPool(String pythonLocation, String scriptLocation, int size, int maxJobsPerWorker, int healthCheckInterval, String... arguments) {
+        this.pythonLocation = pythonLocation;
+        this.scriptLocation = scriptLocation;
+        this.arguments = arguments != null ? Arrays.asList(arguments) : new ArrayList<>();
+        this.maxJobsPerWorker = maxJobsPerWorker;
+        permits = new Semaphore(size, true);
+        // two threads: the health check itself needs the watchdog.
+        scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "python-worker-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int index = 0; index < size; index++) {
+            try {
+                idleWorkers.add(startWorker());
+            } catch (IOException ioe) {
+                LOGGER.error("Failed to start python worker.", ioe);
+            }
+        }
+        if (healthCheckInterval > 0) {
+            scheduler.scheduleWithFixedDelay(this::checkHealth, healthCheckInterval, healthCheckInterval, TimeUnit.SECONDS);
+        }
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Execute a job on the next free worker.
+     *
+     * @param arguments Arguments of the job.
+     * @return SUCCESS or one of the internal codes PYTHON_NOT_FOUND,
+     * TIMEOUT_ERROR or EXECUTION_ERROR.
+     */
+    public int run(String... arguments) {
+        return run(PythonUtils.TIME_OUT_DEFAULT, arguments);
+    }
+
+    /**
+     * Execute a job on the next free worker.
+     *
+     * @param timeOutInSeconds Duration in seconds when a timeout should be
+     *                         thrown.
+     * @param arguments        Arguments of the job.
+     * @return SUCCESS or one of the internal codes PYTHON_NOT_FOUND,
+     * TIMEOUT_ERROR or EXECUTION_ERROR.
+     */
+    public int run(int timeOutInSeconds, String... arguments) {
+        int result;
+        try {
+            if (!permits.tryAcquire(timeOutInSeconds, TimeUnit.SECONDS)) {
+                LOGGER.error("No python worker available within {} seconds.", timeOutInSeconds);
+                return PythonUtils.TIMEOUT_ERROR;
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            return PythonUtils.EXECUTION_ERROR;
+        }
+        PythonWorker worker = null;
+        try {
+            worker = idleWorkers.poll();
+            if ((worker == null) || !worker.isAlive() || (worker.getJobs() >= maxJobsPerWorker)) {
+                if (worker != null) {
+                    LOGGER.debug("Replacing python worker after {} jobs.", worker.getJobs());
+                    worker.destroy();
+                    worker = null;
+                }
+                worker = startWorker();
+            }
+            result = worker.execute(timeOutInSeconds, arguments);
+        } catch (IOException ioe) {
+            LOGGER.error("Failed to execute job on python worker.", ioe);
+            result = worker == null ? PythonUtils.PYTHON_NOT_FOUND_ERROR : PythonUtils.EXECUTION_ERROR;
+            if (worker != null) {
+                worker.destroy();
+                worker = null;
+            }
+        } finally {
+            release(worker);
+            permits.release();
+        }
+        return result;
+    }
+
+    /**
+     * Get the number of workers waiting for jobs.
+     *
+     * @return number of idle workers.
+     */
+    public int getIdleWorkers() {
+        return idleWorkers.size();
+    }
+
+    /**
+     * Stop all workers and remove the shutdown hook of the pool.
+     */
+    @Override
+    public void close() {
+        if (Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException ise) {
+                // JVM is already shutting down, hook runs anyway.
+            }
+        }
+        closed = true;
+        scheduler.shutdownNow();
+        PythonWorker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            worker.destroy();
+        }
+    }
+
+    /**
+     * Return worker to pool.
+     *
+     * @param worker worker (may be null).
+     */
+    private void release(PythonWorker worker) {
+        if (worker != null) {
+            if (closed || !worker.isAlive()) {
+                worker.destroy();
+            } else {
+                idleWorkers.add(worker);
+            }
+        }
+    }
+
+    /**
+     * Ping all idle workers and replace the ones not responding.
+     */
+    private void checkHealth() {
+        int noOfWorkers = idleWorkers.size();
+        for (int index = 0; index < noOfWorkers && permits.tryAcquire(); index++) {
+            PythonWorker worker = idleWorkers.poll();
+            try {
+                if ((worker != null) && !worker.ping(PythonUtils.TIME_OUT_DEFAULT)) {
+                    worker.destroy();
+                    worker = startWorker();
+                }
+            } catch (IOException ioe) {
+                LOGGER.error("Failed to restart python worker.", ioe);
+                worker = null;
+            } finally {
+                release(worker);
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * Start a new worker.
+     *
+     * @return worker.
+     * @throws IOException if worker couldn't be started.
+     */
+    private PythonWorker startWorker() throws IOException {
+        return new PythonWorker(pythonLocation, scriptLocation, arguments, PythonUtils.TIME_OUT_DEFAULT, scheduler);
+    }
+}
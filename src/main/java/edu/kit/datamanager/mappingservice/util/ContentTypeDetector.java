@@ -0,0 +1,392 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+
+/**
+ * Guesses the type of a document by looking at its first bytes only. The
+ * header is read via a file channel and scanned once without regular
+ * expressions, so the costs do not depend on the size of the document.
+ * Detected types are JSON, NDJSON (one JSON object per line), XML, CSV and
+ * gzip compressed content.
+ */
+public final class ContentTypeDetector {
+
+    /**
+     * Number of bytes read from the beginning of a file.
+     */
+    public static final int HEADER_SIZE = 8 * 1024;
+
+    /**
+     * Maximum number of records compared while looking for CSV.
+     */
+    private static final int MAX_CSV_RECORDS = 10;
+
+    private static final char[] CSV_DELIMITERS = {',', ';', '\t'};
+
+    /**
+     * Detectable content types.
+     */
+    public enum ContentType {
+        JSON(".json", "application/json"),
+        NDJSON(".ndjson", "application/x-ndjson"),
+        XML(".xml", "application/xml"),
+        CSV(".csv", "text/csv"),
+        GZIP(".gz", "application/gzip");
+
+        private final String extension;
+        private final String mediaType;
+
+        ContentType(String extension, String mediaType) {
+            this.extension = extension;
+            this.mediaType = mediaType;
+        }
+
+        /**
+         * Get file extension of the type.
+         *
+         * @return extension including leading dot, e.g. '.json'
+         */
+        public String getExtension() {
+            return extension;
+        }
+
+        /**
+         * Get media type of the type.
+         *
+         * @return media type, e.g. 'application/json'
+         */
+        public String getMediaType() {
+            return mediaType;
+        }
+    }
+
+    private ContentTypeDetector() {
+    }
+
+    /**
+     * Detect type of a file. Only the first {@link #HEADER_SIZE} bytes are
+     * read.
+     *
+     * @param file path to the file.
+     * @return type of the content or empty if unknown.
+     * @throws IOException error reading the file.
+     */
+    public static Optional<ContentType> detect(Path file) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE);
+        boolean endOfFile = false;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining() && !endOfFile) {
+                endOfFile = channel.read(buffer) < 0;
+            }
+            endOfFile |= channel.position() >= channel.size();
+        }
+        return detect(buffer.array(), buffer.position(), endOfFile);
+    }
+
+    /**
+     * Detect type of a stream. Only the first {@link #HEADER_SIZE} bytes are
+     * read, the stream is not closed.
+     *
+     * @param input stream holding the document.
+     * @return type of the content or empty if unknown.
+     * @throws IOException error reading the stream.
+     */
+    public static Optional<ContentType> detect(InputStream input) throws IOException {
+        byte[] header = new byte[HEADER_SIZE];
+        int length = input.readNBytes(header, 0, HEADER_SIZE);
+        boolean endOfFile = (length < HEADER_SIZE) || (input.read() < 0);
+        return detect(header, length, endOfFile);
+    }
+
+    /**
+     * Detect type of a document by its header.
+     *
+     * @param header    first bytes of the document.
+     * @param length    number of valid bytes in header.
+     * @param endOfFile true if header contains the whole document.
+     * @return type of the content or empty if unknown.
+     */
+    public static Optional<ContentType> detect(byte[] header, int length, boolean endOfFile) {
+        if ((length >= 2) && ((header[0] & 0xff) == 0x1f) && ((header[1] & 0xff) == 0x8b)) {
+            return Optional.of(ContentType.GZIP);
+        }
+        int start = 0;
+        // skip UTF-8 byte order mark
+        if ((length >= 3) && ((header[0] & 0xff) == 0xef) && ((header[1] & 0xff) == 0xbb) && ((header[2] & 0xff) == 0xbf)) {
+            start = 3;
+        }
+        int index = skipWhitespaces(header, start, length);
+        if (index >= length) {
+            return Optional.empty();
+        }
+        ContentType type;
+        switch (header[index]) {
+            case '{':
+                type = detectJson(header, index, length);
+                break;
+            case '[':
+                type = isJsonArray(header, index, length) ? ContentType.JSON : null;
+                break;
+            case '<':
+                type = isXml(header, index, length) ? ContentType.XML : null;
+                break;
+            default:
+                type = null;
+                break;
+        }
+        if (type == null) {
+            type = isCsv(header, start, length, endOfFile) ? ContentType.CSV : null;
+        }
+        return Optional.ofNullable(type);
+    }
+
+    /**
+     * Distinguish between a single JSON object and a list of objects
+     * separated by newlines.
+     *
+     * @param header header of the document.
+     * @param start  position of the opening brace.
+     * @param length number of valid bytes.
+     * @return JSON, NDJSON or null if not an object.
+     */
+    private static ContentType detectJson(byte[] header, int start, int length) {
+        int index = skipWhitespaces(header, start + 1, length);
+        if ((index < length) && (header[index] != '"') && (header[index] != '}')) {
+            return null;
+        }
+        int end = skipValue(header, start, length);
+        if (end < 0) {
+            // first object exceeds header
+            return ContentType.JSON;
+        }
+        // NDJSON: next line starts with another object.
+        boolean newline = false;
+        for (index = end; index < length; index++) {
+            byte b = header[index];
+            if (b == '\n') {
+                newline = true;
+            } else if (!isWhitespace(b)) {
+                return (newline && (b == '{')) ? ContentType.NDJSON : ContentType.JSON;
+            }
+        }
+        return ContentType.JSON;
+    }
+
+    /**
+     * Find end of a JSON object or list.
+     *
+     * @param header header of the document.
+     * @param start  position of the opening bracket.
+     * @param length number of valid bytes.
+     * @return position behind the closing bracket or -1 if not inside header.
+     */
+    private static int skipValue(byte[] header, int start, int length) {
+        int depth = 0;
+        boolean inString = false;
+        for (int index = start; index < length; index++) {
+            byte b = header[index];
+            if (inString) {
+                if (b == '\\') {
+                    index++;
+                } else if (b == '"') {
+                    inString = false;
+                }
+            } else if (b == '"') {
+                inString = true;
+            } else if ((b == '{') || (b == '[')) {
+                depth++;
+            } else if ((b == '}') || (b == ']')) {
+                depth--;
+                if (depth == 0) {
+                    return index + 1;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Check if list contains JSON values.
+     *
+     * @param header header of the document.
+     * @param start  position of the opening bracket.
+     * @param length number of valid bytes.
+     * @return true if first element looks like a JSON value.
+     */
+    private static boolean isJsonArray(byte[] header, int start, int length) {
+        int index = skipWhitespaces(header, start + 1, length);
+        if (index >= length) {
+            return false;
+        }
+        byte b = header[index];
+        return (b == '{') || (b == '[') || (b == '"') || (b == ']') || (b == '-')
+                || ((b >= '0') && (b <= '9')) || (b == 't') || (b == 'f') || (b == 'n');
+    }
+
+    /**
+     * Check for XML. Declaration, processing instructions, comments and
+     * document type declaration are skipped, the first element has to start
+     * inside the header. HTML documents declaring their doctype are not
+     * treated as XML.
+     *
+     * @param header header of the document.
+     * @param start  position of the first '&lt;'.
+     * @param length number of valid bytes.
+     * @return true if document looks like XML.
+     */
+    private static boolean isXml(byte[] header, int start, int length) {
+        int index = start;
+        while ((index + 1 < length) && (header[index] == '<')) {
+            byte next = header[index + 1];
+            if (next == '?') {
+                index = indexOf(header, index + 2, length, "?>");
+            } else if (startsWith(header, index, length, "<!--")) {
+                index = indexOf(header, index + 4, length, "-->");
+            } else if (next == '!') {
+                if (startsWithIgnoreCase(header, skipWhitespaces(header, index + 9, length), length, "html")) {
+                    return false;
+                }
+                index = indexOf(header, index + 2, length, ">");
+            } else {
+                return isNameStart(next);
+            }
+            if (index < 0) {
+                // prolog exceeds header
+                return startsWith(header, start, length, "<?xml");
+            }
+            index = skipWhitespaces(header, index, length);
+        }
+        return false;
+    }
+
+    /**
+     * Check for CSV: at least two records containing the same (non zero)
+     * number of delimiters. Delimiters inside quoted fields are ignored, the
+     * last record is ignored if it may be truncated. Binary content is never
+     * treated as CSV.
+     *
+     * @param header    header of the document.
+     * @param start     position of the first byte.
+     * @param length    number of valid bytes.
+     * @param endOfFile true if header contains the whole document.
+     * @return true if document looks like CSV.
+     */
+    private static boolean isCsv(byte[] header, int start, int length, boolean endOfFile) {
+        int[] expected = new int[CSV_DELIMITERS.length];
+        int[] actual = new int[CSV_DELIMITERS.length];
+        boolean[] candidate = {true, true, true};
+        boolean inQuotes = false;
+        int records = 0;
+        for (int index = start; (index <= length) && (records < MAX_CSV_RECORDS); index++) {
+            boolean endOfRecord;
+            if (index == length) {
+                // last record counts only if complete.
+                endOfRecord = endOfFile && !inQuotes && (index > start) && (header[index - 1] != '\n');
+            } else {
+                byte b = header[index];
+                if ((b >= 0) && (b < 0x20) && (b != '\t') && (b != '\r') && (b != '\n')) {
+                    return false;
+                }
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (!inQuotes) {
+                    for (int d = 0; d < CSV_DELIMITERS.length; d++) {
+                        if (b == CSV_DELIMITERS[d]) {
+                            actual[d]++;
+                        }
+                    }
+                }
+                endOfRecord = !inQuotes && (b == '\n');
+            }
+            if (endOfRecord) {
+                for (int d = 0; d < CSV_DELIMITERS.length; d++) {
+                    if (records == 0) {
+                        expected[d] = actual[d];
+                        candidate[d] = actual[d] > 0;
+                    } else {
+                        candidate[d] &= actual[d] == expected[d];
+                    }
+                    actual[d] = 0;
+                }
+                records++;
+            }
+        }
+        return (records >= 2) && (candidate[0] || candidate[1] || candidate[2]);
+    }
+
+    private static int skipWhitespaces(byte[] header, int start, int length) {
+        int index = start;
+        while ((index < length) && isWhitespace(header[index])) {
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return (b == ' ') || (b == '\t') || (b == '\r') || (b == '\n');
+    }
+
+    private static boolean isNameStart(byte b) {
+        return ((b >= 'a') && (b <= 'z')) || ((b >= 'A') && (b <= 'Z')) || (b == '_') || (b == ':') || (b < 0);
+    }
+
+    private static boolean startsWith(byte[] header, int start, int length, String prefix) {
+        if ((start < 0) || (start + prefix.length() > length)) {
+            return false;
+        }
+        for (int index = 0; index < prefix.length(); index++) {
+            if (header[start + index] != prefix.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean startsWithIgnoreCase(byte[] header, int start, int length, String prefix) {
+        if ((start < 0) || (start + prefix.length() > length)) {
+            return false;
+        }
+        for (int index = 0; index < prefix.length(); index++) {
+            if (Character.toLowerCase((char) header[start + index]) != prefix.charAt(index)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Find end of a pattern.
+     *
+     * @return position behind the pattern or -1 if not found.
+     */
+    private static int indexOf(byte[] header, int start, int length, String pattern) {
+        char first = pattern.charAt(0);
+        for (int index = start; index < length; index++) {
+            if ((header[index] == first) && startsWith(header, index, length, pattern)) {
+                return index + pattern.length();
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache for downloaded resources. Entries are keyed by the SHA-256 of
+ * the URL and hold the content together with the validators (ETag,
+ * Last-Modified) of the response. The total size is tracked while entries are
+ * added or removed. If it exceeds the limit the least recently used entries
+ * are removed.
+ * <p>
+ * Content and metadata are written to temporary files and moved into place,
+ * so readers never see partial entries. Callers should hold the lock of an
+ * URL while validating and updating its entry.
+ */
+final class DownloadCache {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DownloadCache.class);
+
+    private static final String CONTENT_SUFFIX = ".content";
+    private static final String METADATA_SUFFIX = ".properties";
+    private static final String KEY_URL = "url";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+
+    private final Path directory;
+    private final long maxSize;
+    private final Striped<Lock> locks = Striped.lazyWeakLock(256);
+    /**
+     * Total size of all contents in bytes.
+     */
+    private final AtomicLong size = new AtomicLong();
+
+    /**
+     * Create cache.
+     *
+     * @param directory directory holding the entries (created if missing).
+     * @param maxSize   maximum size of all entries in bytes (0 = unlimited).
+     * @throws IOException if directory can't be created.
+     */
+    DownloadCache(Path directory, long maxSize) throws IOException {
+        this.directory = Files.createDirectories(directory);
+        this.maxSize = Math.max(0, maxSize);
+        // entries of a previous run.
+        for (Path content : listContents()) {
+            size.addAndGet(Files.size(content));
+        }
+    }
+
+    /**
+     * Get lock for an URL.
+     *
+     * @param url URL of the resource.
+     * @return lock guarding the entry.
+     */
+    Lock getLock(URI url) {
+        return locks.get(key(url));
+    }
+
+    /**
+     * Get entry of an URL.
+     *
+     * @param url URL of the resource.
+     * @return entry or empty if not cached.
+     */
+    Optional<Entry> get(URI url) {
+        String key = key(url);
+        Path metadataFile = directory.resolve(key + METADATA_SUFFIX);
+        Path contentFile = directory.resolve(key + CONTENT_SUFFIX);
+        if (!Files.isRegularFile(metadataFile) || !Files.isRegularFile(contentFile)) {
+            return Optional.empty();
+        }
+        Properties metadata = new Properties();
+        try (InputStream input = Files.newInputStream(metadataFile)) {
+            metadata.load(input);
+        } catch (IOException ex) {
+            LOGGER.warn("Can't read cache entry for '{}'.", url, ex);
+            return Optional.empty();
+        }
+        if (!url.toString().equals(metadata.getProperty(KEY_URL))) {
+            return Optional.empty();
+        }
+        return Optional.of(new Entry(contentFile, metadata.getProperty(KEY_ETAG), metadata.getProperty(KEY_LAST_MODIFIED)));
+    }
+
+    /**
+     * Store content of an URL.
+     *
+     * @param url          URL of the resource.
+     * @param content      file holding the content (copied into the cache).
+     * @param etag         ETag of the response (may be null).
+     * @param lastModified Last-Modified of the response (may be null).
+     * @throws IOException error writing the entry.
+     */
+    void put(URI url, Path content, String etag, String lastModified) throws IOException {
+        String key = key(url);
+        Properties metadata = new Properties();
+        metadata.setProperty(KEY_URL, url.toString());
+        if (etag != null) {
+            metadata.setProperty(KEY_ETAG, etag);
+        }
+        if (lastModified != null) {
+            metadata.setProperty(KEY_LAST_MODIFIED, lastModified);
+        }
+        Path contentFile = Files.createTempFile(directory, key, ".tmp");
+        Path metadataFile = Files.createTempFile(directory, key, ".tmp");
+        try {
+            Files.copy(content, contentFile, StandardCopyOption.REPLACE_EXISTING);
+            long contentSize = Files.size(contentFile);
+            try (OutputStream output = Files.newOutputStream(metadataFile)) {
+                metadata.store(output, null);
+            }
+            Path target = directory.resolve(key + CONTENT_SUFFIX);
+            long previousSize = sizeOf(target);
+            Files.move(contentFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            size.addAndGet(contentSize - previousSize);
+            Files.move(metadataFile, directory.resolve(key + METADATA_SUFFIX), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(contentFile);
+            Files.deleteIfExists(metadataFile);
+        }
+        evict();
+    }
+
+    /**
+     * Mark entry as recently used.
+     *
+     * @param entry entry.
+     */
+    void touch(Entry entry) {
+        try {
+            Files.setLastModifiedTime(entry.getContent(), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ex) {
+            LOGGER.trace("Can't touch cache entry '{}'.", entry.getContent(), ex);
+        }
+    }
+
+    /**
+     * Remove entry of an URL.
+     *
+     * @param url URL of the resource.
+     * @throws IOException error removing the entry.
+     */
+    void remove(URI url) throws IOException {
+        String key = key(url);
+        Files.deleteIfExists(directory.resolve(key + METADATA_SUFFIX));
+        removeContent(directory.resolve(key + CONTENT_SUFFIX));
+    }
+
+    /**
+     * Get total size of all cached contents.
+     *
+     * @return size in bytes.
+     */
+    long size() {
+        return size.get();
+    }
+
+    /**
+     * Remove least recently used entries until the total size fits the
+     * limit. The directory is only listed if the limit is exceeded.
+     *
+     * @throws IOException error listing the entries.
+     */
+    private void evict() throws IOException {
+        if ((maxSize == 0) || (size.get() <= maxSize)) {
+            return;
+        }
+        List<Path> contents = listContents();
+        contents.sort(Comparator.comparing(DownloadCache::lastModified));
+        for (Path content : contents) {
+            if (size.get() <= maxSize) {
+                break;
+            }
+            String fileName = content.getFileName().toString();
+            String key = fileName.substring(0, fileName.length() - CONTENT_SUFFIX.length());
+            Lock lock = locks.get(key);
+            // entries in use are skipped.
+            if (lock.tryLock()) {
+                try {
+                    Files.deleteIfExists(directory.resolve(key + METADATA_SUFFIX));
+                    removeContent(content);
+                    LOGGER.trace("Evicted cache entry '{}'.", key);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+    }
+
+    /**
+     * Remove content file and update total size.
+     *
+     * @param content content file.
+     * @throws IOException error removing the file.
+     */
+    private void removeContent(Path content) throws IOException {
+        long contentSize = sizeOf(content);
+        if (Files.deleteIfExists(content)) {
+            size.addAndGet(-contentSize);
+        }
+    }
+
+    private List<Path> listContents() throws IOException {
+        List<Path> contents = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().endsWith(CONTENT_SUFFIX)).forEach(contents::add);
+        }
+        return contents;
+    }
+
+    private static long sizeOf(Path file) {
+        try {
+            return Files.size(file);
+        } catch (IOException ex) {
+            return 0;
+        }
+    }
+
+    private static FileTime lastModified(Path file) {
+        try {
+            return Files.getLastModifiedTime(file);
+        } catch (IOException ex) {
+            return FileTime.fromMillis(0);
+        }
+    }
+
+    private static String key(URI url) {
+        return DigestUtils.sha256Hex(url.toString());
+    }
+
+    /**
+     * Cached content of an URL.
+     */
+    static final class Entry {
+
+        private final Path content;
+        private final String etag;
+        private final String lastModified;
+
+        Entry(Path content, String etag, String lastModified) {
+            this.content = content;
+            this.etag = etag;
+            this.lastModified = lastModified;
+        }
+
+        Path getContent() {
+            return content;
+        }
+
+        String getEtag() {
+            return etag;
+        }
+
+        String getLastModified() {
+            return lastModified;
+        }
+    }
+}
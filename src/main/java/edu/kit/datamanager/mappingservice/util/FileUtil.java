@@ -15,24 +15,29 @@
  */
 package edu.kit.datamanager.mappingservice.util;
 
-import edu.kit.datamanager.clients.SimpleServiceClient;
 import edu.kit.datamanager.mappingservice.exception.MappingException;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.MediaType;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
-import java.nio.charset.StandardCharsets;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.Optional;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 
 /**
  *
@@ -52,10 +57,17 @@ public class FileUtil {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(FileUtil.class);
 
-    private static final int MAX_LENGTH_OF_HEADER = 100;
+    /**
+     * Default maximum size of downloaded resources (100 MiB).
+     */
+    public static final long DEFAULT_MAX_DOWNLOAD_SIZE = 100L * 1024 * 1024;
+    /**
+     * Default timeouts for downloading resources in seconds.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 10;
+    public static final int DEFAULT_READ_TIMEOUT = 30;
 
-    private static final Pattern JSON_FIRST_BYTE = Pattern.compile("(\\R\\s)*\\s*\\{\\s*\"(.|\\s)*", Pattern.MULTILINE);//^\\s{\\s*\".*");
-    private static final Pattern XML_FIRST_BYTE = Pattern.compile("((.|\\s)*<\\?xml[^<]*)?\\s*<\\s*(\\w+:)?\\w+(.|\\s)*", Pattern.MULTILINE);
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
 
     /**
      * Downloads or copy the file behind the given URI and returns its path on
@@ -65,25 +77,68 @@ public class FileUtil {
      * @return the path to the created file.
      */
     public static Optional<Path> downloadResource(URI resourceURL) {
-        String content;
+        return downloadResource(resourceURL, DEFAULT_MAX_DOWNLOAD_SIZE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT);
+    }
+
+    /**
+     * Downloads or copy the file behind the given URI and returns its path on
+     * local disc. Remote resources are streamed to disc without holding the
+     * content in memory. You should delete or move to another location
+     * afterwards.
+     *
+     * @param resourceURL           the given URI
+     * @param maxSize               maximum size of a remote resource in bytes
+     *                              (0 = unlimited).
+     * @param connectTimeoutSeconds timeout for establishing the connection.
+     * @param readTimeoutSeconds    maximum time of inactivity while reading
+     *                              the resource.
+     * @return the path to the created file.
+     * @throws MappingException if resource can't be downloaded or exceeds the
+     *                          maximum size.
+     */
+    public static Optional<Path> downloadResource(URI resourceURL, long maxSize, int connectTimeoutSeconds, int readTimeoutSeconds) {
+        return downloadResource(resourceURL, new ResourceDownloader(maxSize, connectTimeoutSeconds, readTimeoutSeconds));
+    }
+
+    /**
+     * Downloads or copy the file behind the given URI and returns its path on
+     * local disc. Remote resources are fetched by the given downloader which
+     * may serve unchanged resources from its cache. You should delete or move
+     * to another location afterwards.
+     *
+     * @param resourceURL the given URI
+     * @param downloader  downloader for remote resources.
+     * @return the path to the created file.
+     * @throws MappingException if resource can't be downloaded or exceeds the
+     *                          maximum size.
+     */
+    public static Optional<Path> downloadResource(URI resourceURL, ResourceDownloader downloader) {
         Path downloadedFile = null;
         try {
             if (resourceURL != null) {
-                String suffix = FilenameUtils.getExtension(resourceURL.getPath());
+                // gzip compressed content is decompressed while copying.
+                String suffix = FilenameUtils.getExtension(removeGzipExtension(resourceURL.getPath()));
                 suffix = suffix.trim().isEmpty() ? DEFAULT_SUFFIX : "." + suffix;
                 if (resourceURL.getHost() != null) {
-                    content = SimpleServiceClient
-                            .create(resourceURL.toString())
-                            .accept(MediaType.TEXT_PLAIN)
-                            .getResource(String.class);
                     downloadedFile = createTempFile("download", suffix);
-                    FileUtils.writeStringToFile(downloadedFile.toFile(), content, StandardCharsets.UTF_8);
+                    try {
+                        long bytes = downloader.download(resourceURL, downloadedFile);
+                        LOGGER.debug("Downloaded {} bytes from '{}'.", bytes, resourceURL);
+                    } catch (IOException | RuntimeException ex) {
+                        removeFile(downloadedFile);
+                        throw ex;
+                    }
                 } else {
                     // copy local file to new place.
                     File srcFile = new File(resourceURL.getPath());
-                    File destFile = FileUtil.createTempFile("local", suffix).toFile();
-                    FileUtils.copyFile(srcFile, destFile);
-                    downloadedFile = destFile.toPath();
+                    Path destFile = FileUtil.createTempFile("local", suffix);
+                    try (InputStream content = decompressIfNeeded(new FileInputStream(srcFile))) {
+                        copy(content, destFile, 0);
+                    } catch (IOException | RuntimeException ex) {
+                        removeFile(destFile);
+                        throw ex;
+                    }
+                    downloadedFile = destFile;
                 }
             }
         } catch (Throwable tw) {
@@ -96,7 +151,101 @@ public class FileUtil {
     }
 
     /**
-     * Fix extension of file if possible.
+     * Store stream in a temporary file. Gzip compressed content is
+     * decompressed while writing, the extension of the file is guessed from
+     * its (decompressed) content.
+     *
+     * @param source  source stream (will be closed).
+     * @param prefix  prefix of the temporary file.
+     * @param maxSize maximum number of (decompressed) bytes (0 = unlimited).
+     * @return the path to the created file.
+     * @throws MappingException if stream can't be stored or exceeds the
+     *                          maximum size.
+     */
+    public static Path storeResource(InputStream source, String prefix, long maxSize) {
+        Path storedFile = createTempFile(prefix, null);
+        try (InputStream content = decompressIfNeeded(source)) {
+            long bytes = copy(content, storedFile, maxSize);
+            LOGGER.trace("Stored {} bytes in '{}'.", bytes, storedFile);
+        } catch (IOException | RuntimeException ex) {
+            removeFile(storedFile);
+            throw new MappingException("Error storing resource!", ex);
+        }
+        return fixFileExtension(storedFile);
+    }
+
+    /**
+     * Wrap stream decompressing gzip compressed content. Content is
+     * identified by its magic bytes, other content is passed unchanged.
+     *
+     * @param source source stream.
+     * @return stream providing the (decompressed) content.
+     * @throws IOException error reading the stream.
+     */
+    public static InputStream decompressIfNeeded(InputStream source) throws IOException {
+        BufferedInputStream input = new BufferedInputStream(source, COPY_BUFFER_SIZE);
+        input.mark(2);
+        int first = input.read();
+        int second = input.read();
+        input.reset();
+        if ((first == 0x1f) && (second == 0x8b)) {
+            return new GZIPInputStream(input, COPY_BUFFER_SIZE);
+        }
+        return input;
+    }
+
+    /**
+     * Remove extension of gzip compressed files, e.g. 'data.json.gz' gets
+     * 'data.json'.
+     *
+     * @param path path of a file.
+     * @return path without gzip extension.
+     */
+    private static String removeGzipExtension(String path) {
+        if (path == null) {
+            return null;
+        }
+        String lowerCase = path.toLowerCase();
+        for (String extension : new String[]{".gz", ".gzip"}) {
+            if (lowerCase.endsWith(extension)) {
+                return path.substring(0, path.length() - extension.length());
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Copy stream to file via NIO channels.
+     *
+     * @param source  source stream.
+     * @param target  target file (will be overwritten).
+     * @param maxSize maximum number of bytes (0 = unlimited).
+     * @return number of bytes written.
+     * @throws IOException error copying stream or maximum size exceeded.
+     */
+    static long copy(InputStream source, Path target, long maxSize) throws IOException {
+        long bytes = 0;
+        try (ReadableByteChannel in = Channels.newChannel(source);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(COPY_BUFFER_SIZE);
+            while (in.read(buffer) >= 0) {
+                buffer.flip();
+                bytes += buffer.remaining();
+                if ((maxSize > 0) && (bytes > maxSize)) {
+                    throw new IOException("Resource exceeds maximum size of " + maxSize + " bytes.");
+                }
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                buffer.clear();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Fix extension of file if possible. Only the header of the file is
+     * inspected.
      *
      * @param pathToFile the given URI
      * @return the path to the (renamed) file.
@@ -106,8 +255,7 @@ public class FileUtil {
         Path renamedFile = pathToFile;
         try {
             if ((pathToFile != null) && (pathToFile.toFile().exists())) {
-                String contentOfFile = FileUtils.readFileToString(pathToFile.toFile(), StandardCharsets.UTF_8);
-                String newExtension = guessFileExtension(contentOfFile.getBytes());
+                String newExtension = guessFileExtension(pathToFile);
                 if (newExtension != null) {
                     if (!pathToFile.toString().endsWith(newExtension)) {
                         renamedFile = Paths.get(pathToFile + newExtension);
@@ -123,8 +271,9 @@ public class FileUtil {
     }
 
     /**
-     * Create temporary file. Attention: The file will not be removed
-     * automatically.
+     * Create temporary file inside the scratch space. Attention: The file
+     * will not be removed automatically unless it was created inside a
+     * scope of the scratch space.
      *
      * @param prefix prefix of the file
      * @param suffix suffix of the file
@@ -136,7 +285,13 @@ public class FileUtil {
         prefix = ((prefix == null) || (prefix.trim().isEmpty())) ? DEFAULT_PREFIX : prefix;
         suffix = ((suffix == null) || (suffix.trim().isEmpty())) ? DEFAULT_SUFFIX : suffix;
         try {
-            tempFile = Files.createTempFile(prefix, suffix);
+            Path directory = ScratchSpace.getDefault().getDirectory();
+            try {
+                tempFile = Files.createTempFile(directory, prefix, suffix);
+            } catch (NoSuchFileException nsfe) {
+                // directory was removed externally (e.g. by a tmp cleaner)
+                tempFile = Files.createTempFile(Files.createDirectories(directory), prefix, suffix);
+            }
         } catch (IOException ioe) {
             throw new MappingException("Error creating tmp file!", ioe);
         }
@@ -156,21 +311,19 @@ public class FileUtil {
         }
     }
 
-    private static String guessFileExtension(byte[] schema) {
-        // Cut schema to a maximum of MAX_LENGTH_OF_HEADER characters.
-        int length = schema.length > MAX_LENGTH_OF_HEADER ? MAX_LENGTH_OF_HEADER : schema.length;
-        String schemaAsString = new String(schema, 0, length);
-        LOGGER.trace("Guess type for '{}'", schemaAsString);
-
-        Matcher m = JSON_FIRST_BYTE.matcher(schemaAsString);
-        if (m.matches()) {
-            return ".json";
-        } else {
-            m = XML_FIRST_BYTE.matcher(schemaAsString);
-            if (m.matches()) {
-                return ".xml";
-            }
+    /**
+     * Guess extension of a file by its content.
+     *
+     * @param pathToFile path to the file.
+     * @return extension including leading dot or null if unknown.
+     * @throws IOException error reading the file.
+     */
+    private static String guessFileExtension(Path pathToFile) throws IOException {
+        if (!Files.isRegularFile(pathToFile)) {
+            return null;
         }
-        return null;
+        Optional<ContentTypeDetector.ContentType> contentType = ContentTypeDetector.detect(pathToFile);
+        LOGGER.trace("Guessed type for '{}': {}", pathToFile, contentType);
+        return contentType.map(ContentTypeDetector.ContentType::getExtension).orElse(null);
     }
 }
@@ -0,0 +1,376 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalLong;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Downloads remote resources with 'java.net.http.HttpClient'. Clients are
+ * shared by all downloaders with the same connect timeout, so connections
+ * are reused and HTTP/2 is negotiated if supported by the server.
+ * <p>
+ * If a cache directory is given, downloaded resources are kept on disk and
+ * revalidated with 'If-None-Match'/'If-Modified-Since'. An unchanged
+ * resource is copied from the cache after a '304 Not Modified' response.
+ * Gzip compressed responses and resources are decompressed while writing.
+ */
+public class ResourceDownloader {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ResourceDownloader.class);
+
+    /**
+     * Shared clients by connect timeout in seconds.
+     */
+    private static final Map<Integer, HttpClient> CLIENTS = new ConcurrentHashMap<>();
+
+    private final HttpClient client;
+    private final long maxSize;
+    private final int readTimeoutSeconds;
+    private final DownloadCache cache;
+
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+
+    /**
+     * Create downloader without cache.
+     *
+     * @param maxSize               maximum size of a resource in bytes (0 =
+     *                              unlimited).
+     * @param connectTimeoutSeconds timeout for establishing the connection.
+     * @param readTimeoutSeconds    maximum time of inactivity while waiting
+     *                              for the response or reading its content.
+     */
+    public ResourceDownloader(long maxSize, int connectTimeoutSeconds, int readTimeoutSeconds) {
+        this.client = getClient(connectTimeoutSeconds);
+        this.maxSize = Math.max(0, maxSize);
+        this.readTimeoutSeconds = Math.max(1, readTimeoutSeconds);
+        this.cache = null;
+    }
+
+    /**
+     * Create downloader with cache.
+     *
+     * @param maxSize               maximum size of a resource in bytes (0 =
+     *                              unlimited).
+     * @param connectTimeoutSeconds timeout for establishing the connection.
+     * @param readTimeoutSeconds    maximum time of inactivity while waiting
+     *                              for the response or reading its content.
+     * @param cacheDirectory        directory of the cache.
+     * @param cacheMaxSize          maximum size of the cache in bytes (0 =
+     *                              unlimited).
+     * @throws IOException if cache directory can't be created.
+     */
+    public ResourceDownloader(long maxSize, int connectTimeoutSeconds, int readTimeoutSeconds, Path cacheDirectory, long cacheMaxSize) throws IOException {
+        this.client = getClient(connectTimeoutSeconds);
+        this.maxSize = Math.max(0, maxSize);
+        this.readTimeoutSeconds = Math.max(1, readTimeoutSeconds);
+        this.cache = new DownloadCache(cacheDirectory, cacheMaxSize);
+    }
+
+    /**
+     * Download resource to file.
+     *
+     * @param resourceURL URL of the resource.
+     * @param target      file receiving the content (will be overwritten).
+     * @return number of bytes written.
+     * @throws IOException error downloading resource or maximum size
+     *                     exceeded.
+     */
+    public long download(URI resourceURL, Path target) throws IOException {
+        if (cache == null) {
+            return fetch(resourceURL, target, null);
+        }
+        // concurrent downloads of the same URL wait for the cached entry.
+        Lock lock = cache.getLock(resourceURL);
+        lock.lock();
+        try {
+            return fetch(resourceURL, target, cache.get(resourceURL).orElse(null));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get number of resources transferred completely.
+     *
+     * @return number of downloads.
+     */
+    public long getDownloads() {
+        return downloads.get();
+    }
+
+    /**
+     * Get number of resources served from cache after revalidation.
+     *
+     * @return number of '304 Not Modified' responses.
+     */
+    public long getNotModified() {
+        return notModified.get();
+    }
+
+    /**
+     * Check if downloads are cached.
+     *
+     * @return true if cache is enabled.
+     */
+    public boolean isCaching() {
+        return cache != null;
+    }
+
+    /**
+     * Send request (conditional if cached) and write content to file.
+     *
+     * @param resourceURL URL of the resource.
+     * @param target      file receiving the content.
+     * @param entry       cached entry (may be null).
+     * @return number of bytes written.
+     * @throws IOException error downloading resource.
+     */
+    private long fetch(URI resourceURL, Path target, DownloadCache.Entry entry) throws IOException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(resourceURL)
+                .GET()
+                .timeout(Duration.ofSeconds(readTimeoutSeconds))
+                .header("Accept-Encoding", "gzip");
+        if (entry != null) {
+            if (entry.getEtag() != null) {
+                request.header("If-None-Match", entry.getEtag());
+            }
+            if (entry.getLastModified() != null) {
+                request.header("If-Modified-Since", entry.getLastModified());
+            }
+        }
+        HttpResponse<InputStream> response;
+        try {
+            response = client.send(request.build(), responseInfo -> new TimeoutBodySubscriber(TimeUnit.SECONDS.toMillis(readTimeoutSeconds)));
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while downloading '" + resourceURL + "'.");
+        }
+        try (InputStream body = response.body()) {
+            int status = response.statusCode();
+            if ((status == 304) && (entry != null)) {
+                Files.copy(entry.getContent(), target, StandardCopyOption.REPLACE_EXISTING);
+                cache.touch(entry);
+                notModified.incrementAndGet();
+                LOGGER.trace("Resource '{}' not modified, using cached content.", resourceURL);
+                return Files.size(target);
+            }
+            if ((status < 200) || (status >= 300)) {
+                throw new IOException("Unexpected status " + status + " for '" + resourceURL + "'.");
+            }
+            HttpHeaders headers = response.headers();
+            OptionalLong contentLength = headers.firstValueAsLong("Content-Length");
+            if ((maxSize > 0) && contentLength.isPresent() && (contentLength.getAsLong() > maxSize)) {
+                throw new IOException("Resource '" + resourceURL + "' exceeds maximum size of " + maxSize + " bytes (" + contentLength.getAsLong() + " bytes).");
+            }
+            InputStream content = body;
+            if ("gzip".equalsIgnoreCase(headers.firstValue("Content-Encoding").orElse(null))) {
+                content = new GZIPInputStream(content);
+            }
+            long bytes = FileUtil.copy(FileUtil.decompressIfNeeded(content), target, maxSize);
+            downloads.incrementAndGet();
+            if (cache != null) {
+                Optional<String> etag = headers.firstValue("ETag");
+                Optional<String> lastModified = headers.firstValue("Last-Modified");
+                if (etag.isPresent() || lastModified.isPresent()) {
+                    cache.put(resourceURL, target, etag.orElse(null), lastModified.orElse(null));
+                } else {
+                    cache.remove(resourceURL);
+                }
+            }
+            return bytes;
+        }
+    }
+
+    private static HttpClient getClient(int connectTimeoutSeconds) {
+        return CLIENTS.computeIfAbsent(Math.max(1, connectTimeoutSeconds), timeout -> HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .proxy(ProxySelector.getDefault())
+                .connectTimeout(Duration.ofSeconds(timeout))
+                .build());
+    }
+
+    /**
+     * Body subscriber providing the content as stream. Unlike the stream of
+     * 'BodySubscribers.ofInputStream()' reading fails if no data is received
+     * within the timeout. Closing the stream cancels the transfer.
+     */
+    private static final class TimeoutBodySubscriber extends InputStream implements HttpResponse.BodySubscriber<InputStream> {
+
+        /**
+         * Marks end of content (compared by identity).
+         */
+        private static final List<ByteBuffer> END = Collections.unmodifiableList(new ArrayList<>());
+
+        private final BlockingQueue<List<ByteBuffer>> queue = new LinkedBlockingQueue<>();
+        private final long timeoutMillis;
+        private volatile Flow.Subscription subscription;
+        private volatile Throwable failure;
+        private Iterator<ByteBuffer> buffers = Collections.emptyIterator();
+        private ByteBuffer current;
+        private boolean finished = false;
+        private volatile boolean closed = false;
+
+        TimeoutBodySubscriber(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        @Override
+        public CompletionStage<InputStream> getBody() {
+            return CompletableFuture.completedStage(this);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            if (closed) {
+                subscription.cancel();
+            } else {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onNext(List<ByteBuffer> item) {
+            queue.offer(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            failure = throwable;
+            queue.offer(END);
+        }
+
+        @Override
+        public void onComplete() {
+            queue.offer(END);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!fill()) {
+                return -1;
+            }
+            return current.get() & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (!fill()) {
+                return -1;
+            }
+            int count = Math.min(length, current.remaining());
+            current.get(bytes, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                Flow.Subscription s = subscription;
+                if (s != null) {
+                    s.cancel();
+                }
+                queue.clear();
+            }
+        }
+
+        /**
+         * Make sure that the current buffer holds data.
+         *
+         * @return false at the end of the content.
+         * @throws IOException transfer failed or timed out.
+         */
+        private boolean fill() throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed.");
+            }
+            while ((current == null) || !current.hasRemaining()) {
+                if (buffers.hasNext()) {
+                    current = buffers.next();
+                    continue;
+                }
+                if (finished) {
+                    return false;
+                }
+                List<ByteBuffer> next;
+                try {
+                    next = queue.poll(timeoutMillis, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    close();
+                    throw new InterruptedIOException("Interrupted while reading content.");
+                }
+                if (next == null) {
+                    close();
+                    throw new SocketTimeoutException("Read timed out.");
+                }
+                if (next == END) {
+                    finished = true;
+                    if (failure != null) {
+                        throw new IOException("Error reading content.", failure);
+                    }
+                    return false;
+                }
+                buffers = next.iterator();
+                subscription.request(1);
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import org.apache.commons.io.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Directory holding all temporary files of the service (downloads, uploads
+ * and results). The root may point to a tmpfs (e.g. '/dev/shm') to avoid
+ * disk I/O for short-lived files.
+ * <p>
+ * Requests open a scope which binds a directory of its own to the current
+ * thread. All files created via {@link FileUtil#createTempFile(String, String)}
+ * in this thread are placed there and removed as a unit when the scope is
+ * closed, even if an exception skipped removing a single file. Files and
+ * scopes left behind (e.g. after a crash) are reclaimed by age via
+ * {@link #reclaim(Duration)}. Reclaiming is only supported for a dedicated
+ * root; by default the system temp directory is used without reclaiming.
+ */
+public class ScratchSpace {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(ScratchSpace.class);
+
+    private static final String SCOPE_PREFIX = "scope_";
+
+    /**
+     * Scratch space used by FileUtil.
+     */
+    private static final ScratchSpace DEFAULT = new ScratchSpace();
+
+    private volatile Path root;
+    private volatile boolean dedicated;
+
+    private final ThreadLocal<Scope> currentScope = new ThreadLocal<>();
+    private final Set<Path> openScopes = ConcurrentHashMap.newKeySet();
+
+    private final AtomicLong reclaimedFiles = new AtomicLong();
+    private final AtomicLong reclaimedBytes = new AtomicLong();
+    private volatile long usedSpace;
+
+    /**
+     * Create scratch space in the system temp directory.
+     */
+    ScratchSpace() {
+        root = Paths.get(System.getProperty("java.io.tmpdir"));
+        dedicated = false;
+    }
+
+    /**
+     * Get scratch space used for all temporary files.
+     *
+     * @return default instance.
+     */
+    public static ScratchSpace getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Use a dedicated root directory. All files and directories inside the
+     * root are subject to reclaiming.
+     *
+     * @param root root directory (created if missing).
+     * @throws MappingException if directory can't be created.
+     */
+    public void setRoot(Path root) {
+        try {
+            this.root = Files.createDirectories(root.toAbsolutePath());
+        } catch (IOException ioe) {
+            throw new MappingException("Could not initialize scratch space '" + root + "'.", ioe);
+        }
+        dedicated = true;
+        String type;
+        try {
+            type = Files.getFileStore(this.root).type();
+        } catch (IOException ioe) {
+            type = "unknown";
+        }
+        LOGGER.info("Scratch space '{}' ({}).", this.root, type);
+    }
+
+    /**
+     * Get root directory.
+     *
+     * @return root directory.
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Check if the root is dedicated to this scratch space.
+     *
+     * @return true if reclaiming is supported.
+     */
+    public boolean isDedicated() {
+        return dedicated;
+    }
+
+    /**
+     * Get directory for new temporary files of the current thread.
+     *
+     * @return directory of the current scope or root if no scope is open.
+     */
+    public Path getDirectory() {
+        Scope scope = currentScope.get();
+        return scope != null ? scope.directory : root;
+    }
+
+    /**
+     * Open scope with a directory of its own and bind it to the current
+     * thread until it is closed.
+     *
+     * @return new scope.
+     * @throws MappingException if directory can't be created.
+     */
+    public Scope openScope() {
+        Path directory;
+        try {
+            directory = Files.createTempDirectory(root, SCOPE_PREFIX);
+        } catch (IOException ioe) {
+            throw new MappingException("Error creating scratch directory!", ioe);
+        }
+        Scope scope = new Scope(directory, currentScope.get());
+        openScopes.add(directory);
+        currentScope.set(scope);
+        return scope;
+    }
+
+    /**
+     * Bind the scope of the current thread to a task executed by another
+     * thread, e.g. a download in advance.
+     *
+     * @param <T>  type of the result.
+     * @param task task.
+     * @return task running in the scope of the current thread.
+     */
+    public <T> Callable<T> inCurrentScope(Callable<T> task) {
+        Scope scope = currentScope.get();
+        if (scope == null) {
+            return task;
+        }
+        return () -> {
+            Scope previous = currentScope.get();
+            currentScope.set(scope);
+            try {
+                return task.call();
+            } finally {
+                if (previous != null) {
+                    currentScope.set(previous);
+                } else {
+                    currentScope.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * Remove all files and directories of the root which weren't modified
+     * within the given time. Open scopes are never removed. The used space
+     * is measured on the fly.
+     *
+     * @param maxAge minimum age of the removed entries.
+     * @return number of removed entries.
+     */
+    public int reclaim(Duration maxAge) {
+        if (!dedicated) {
+            return 0;
+        }
+        FileTime threshold = FileTime.from(Instant.now().minus(maxAge));
+        int removed = 0;
+        long used = 0;
+        try (Stream<Path> entries = Files.list(root)) {
+            for (Path entry : (Iterable<Path>) entries::iterator) {
+                long size = sizeOf(entry);
+                if (!openScopes.contains(entry) && isOlder(entry, threshold)) {
+                    LOGGER.debug("Reclaim '{}' from scratch space.", entry);
+                    if (FileUtils.deleteQuietly(entry.toFile())) {
+                        removed++;
+                        reclaimedFiles.incrementAndGet();
+                        reclaimedBytes.addAndGet(size);
+                        continue;
+                    }
+                }
+                used += size;
+            }
+        } catch (IOException ioe) {
+            LOGGER.warn("Error reclaiming scratch space '{}'.", root, ioe);
+        }
+        usedSpace = used;
+        return removed;
+    }
+
+    /**
+     * Get number of open scopes.
+     *
+     * @return number of open scopes.
+     */
+    public int getOpenScopes() {
+        return openScopes.size();
+    }
+
+    /**
+     * Get space used by the root as measured by the last reclaim.
+     *
+     * @return used space in bytes.
+     */
+    public long getUsedSpace() {
+        return usedSpace;
+    }
+
+    /**
+     * Get space available on the file system of the root.
+     *
+     * @return usable space in bytes.
+     */
+    public long getUsableSpace() {
+        return root.toFile().getUsableSpace();
+    }
+
+    /**
+     * Get number of files and directories removed by reclaiming.
+     *
+     * @return number of removed entries.
+     */
+    public long getReclaimedFiles() {
+        return reclaimedFiles.get();
+    }
+
+    /**
+     * Get space freed by reclaiming.
+     *
+     * @return freed space in bytes.
+     */
+    public long getReclaimedBytes() {
+        return reclaimedBytes.get();
+    }
+
+    private static boolean isOlder(Path entry, FileTime threshold) {
+        try {
+            return Files.getLastModifiedTime(entry).compareTo(threshold) < 0;
+        } catch (IOException ioe) {
+            // already removed
+            return false;
+        }
+    }
+
+    private static long sizeOf(Path entry) {
+        try {
+            return Files.isDirectory(entry) ? FileUtils.sizeOfDirectory(entry.toFile()) : Files.size(entry);
+        } catch (IOException | IllegalArgumentException | UncheckedIOException ex) {
+            // removed concurrently
+            return 0;
+        }
+    }
+
+    /**
+     * Directory of a request. Closing the scope removes the directory with
+     * all its files and restores the previous scope of the thread.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final Path directory;
+        private final Scope previous;
+
+        private Scope(Path directory, Scope previous) {
+            this.directory = directory;
+            this.previous = previous;
+        }
+
+        /**
+         * Get directory of the scope.
+         *
+         * @return directory.
+         */
+        public Path getDirectory() {
+            return directory;
+        }
+
+        @Override
+        public void close() {
+            if (currentScope.get() == this) {
+                if (previous != null) {
+                    currentScope.set(previous);
+                } else {
+                    currentScope.remove();
+                }
+            }
+            FileUtils.deleteQuietly(directory.toFile());
+            openScopes.remove(directory);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Access to virtual threads (Java 21+) without requiring them at compile
+ * time. On older runtimes no virtual thread executor is available.
+ */
+public final class VirtualThreads {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreads.class);
+
+    /**
+     * Handle for 'Executors.newVirtualThreadPerTaskExecutor()' (null if not
+     * available).
+     */
+    private static final MethodHandle NEW_EXECUTOR = findFactory();
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * Check if virtual threads are supported by the runtime.
+     *
+     * @return true if virtual threads are available.
+     */
+    public static boolean isSupported() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * Create an executor starting a new virtual thread for each task.
+     *
+     * @return executor or empty if virtual threads are not supported.
+     */
+    public static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        if (NEW_EXECUTOR == null) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of((ExecutorService) NEW_EXECUTOR.invoke());
+        } catch (Throwable ex) {
+            LOGGER.warn("Failed to create executor for virtual threads.", ex);
+            return Optional.empty();
+        }
+    }
+
+    private static MethodHandle findFactory() {
+        try {
+            return MethodHandles.publicLookup().findStatic(Executors.class, "newVirtualThreadPerTaskExecutor", MethodType.methodType(ExecutorService.class));
+        } catch (NoSuchMethodException | IllegalAccessException ex) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the number of requests processed concurrently. Requests which don't
+ * get a permit within the timeout are answered with 503 (SERVICE
+ * UNAVAILABLE). A timeout of 0 waits forever.
+ */
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * Logger for this class.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(ConcurrencyLimitFilter.class);
+
+    private final Semaphore permits;
+    private final long timeoutMillis;
+
+    /**
+     * Create filter.
+     *
+     * @param maxRequests   maximum number of concurrent requests.
+     * @param timeoutMillis maximum time in milliseconds waiting for a permit
+     *                      (0 = wait forever).
+     */
+    public ConcurrencyLimitFilter(int maxRequests, long timeoutMillis) {
+        permits = new Semaphore(Math.max(1, maxRequests), true);
+        this.timeoutMillis = Math.max(0, timeoutMillis);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        boolean acquired;
+        try {
+            if (timeoutMillis == 0) {
+                permits.acquire();
+                acquired = true;
+            } else {
+                acquired = permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            LOGGER.warn("Reject request '{}': too many concurrent requests.", request.getRequestURI());
+            response.sendError(HttpStatus.SERVICE_UNAVAILABLE.value(), "Too many concurrent requests.");
+            return;
+        }
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Get number of available permits.
+     *
+     * @return available permits.
+     */
+    public int getAvailablePermits() {
+        return permits.availablePermits();
+    }
+}
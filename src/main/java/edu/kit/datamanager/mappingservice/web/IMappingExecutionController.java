@@ -16,6 +16,7 @@ import org.springframework.web.util.UriComponentsBuilder;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.net.URISyntaxException;
+import java.util.List;
 
 @ApiResponses(value = {
         @ApiResponse(responseCode = "401", description = "UNAUTHORIZED is returned if authorization in required but was not provided."),
@@ -34,7 +35,9 @@ public interface IMappingExecutionController {
                     "The corresponding reason is returned in the response text. " +
                     "Possible reasons are a missing mapping or an unsuitable input.", content = @Content(mediaType = "String")),
             @ApiResponse(responseCode = "500", description = "INTERNAL SERVER ERROR is returned if errors occur that do not necessarily depend on user input, " +
-                    "e.g. a faulty configuration. No more specific messages are returned for security reasons.")})
+                    "e.g. a faulty configuration. No more specific messages are returned for security reasons."),
+            @ApiResponse(responseCode = "503", description = "SERVICE UNAVAILABLE is returned if the mapping was not started within the queue timeout. " +
+                    "The request may be retried after the time given in the header 'Retry-After'.", content = @Content(mediaType = "String"))})
 
     @RequestMapping(value = {"/{mappingID}/{mappingType}"}, method = {RequestMethod.POST}, consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
     @ResponseBody
@@ -45,4 +48,60 @@ public interface IMappingExecutionController {
             final HttpServletRequest request,
             final HttpServletResponse response,
             final UriComponentsBuilder uriBuilder) throws URISyntaxException;
-}
\ No newline at end of file
+
+    @Operation(summary = "Map documents referenced by URLs with an existing mapping.", description = "This endpoint allows the mapping of documents which are " +
+            "downloaded by the server. The URLs are passed as (repeatable) parameter 'url'. Documents are downloaded concurrently while previous " +
+            "documents are mapped. A single result is returned as is, multiple results are returned as ZIP archive in the order of the URLs.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK is returned if all documents were mapped successfully. " +
+                    "The result (or a ZIP archive holding all results) is returned in the response."),
+            @ApiResponse(responseCode = "400", description = "BAD REQUEST is returned if an URL is invalid, a document can't be downloaded " +
+                    "or the mapping was not successful. The corresponding reason is returned in the response text.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the mapping doesn't exist.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "503", description = "SERVICE UNAVAILABLE is returned if a mapping was not started within the queue timeout. " +
+                    "The request may be retried after the time given in the header 'Retry-After'.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{mappingID}/{mappingType}"}, method = {RequestMethod.POST}, params = {"url"})
+    @ResponseBody
+    ResponseEntity mapDocumentsByUrl(
+            @Parameter(description = "The URLs (http or https) of the documents to be mapped.", required = true) @RequestParam(value = "url") List<String> urls,
+            @Parameter(description = "The mappingID of the already defined mapping schema.", required = true) @PathVariable(value = "mappingID") String mappingID,
+            @Parameter(description = "The mappingType of the already defined mapping schema.", required = true) @PathVariable(name = "mappingType") String mappingType,
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final UriComponentsBuilder uriBuilder);
+
+    @Operation(summary = "Map a batch of documents with an existing mapping.", description = "This endpoint allows the mapping of many documents " +
+            "with a single request. Documents are uploaded as (repeatable) part 'documents', a ZIP archive is unpacked and each file is mapped. " +
+            "The mapping is resolved once and documents are mapped in parallel. The results are streamed back as ZIP archive in the order of " +
+            "the documents. The last entry 'manifest.json' holds the status of each document and the error for failed documents.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK and the ZIP archive holding the results and the manifest are returned."),
+            @ApiResponse(responseCode = "400", description = "BAD REQUEST is returned if no documents were provided or the documents can't be read.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the mapping doesn't exist.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{mappingID}/{mappingType}/batch"}, method = {RequestMethod.POST}, consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
+    @ResponseBody
+    ResponseEntity mapDocuments(
+            @Parameter(description = "The documents (or ZIP archives holding the documents) to be mapped.", required = true) @RequestPart(name = "documents") final List<MultipartFile> documents,
+            @Parameter(description = "The mappingID of the already defined mapping schema.", required = true) @PathVariable(value = "mappingID") String mappingID,
+            @Parameter(description = "The mappingType of the already defined mapping schema.", required = true) @PathVariable(name = "mappingType") String mappingType,
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final UriComponentsBuilder uriBuilder);
+
+    @Operation(summary = "Map a document with all mappings of a mappingID.", description = "This endpoint allows the mapping of a document with all " +
+            "mapping types registered for a mappingID. The document is uploaded once and mapped with all mapping types in parallel. The results are " +
+            "streamed back as ZIP archive holding one entry per mapping type (ordered by mapping type). The last entry 'manifest.json' holds the " +
+            "status of each mapping type and the error for failed mappings.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK and the ZIP archive holding the results and the manifest are returned."),
+            @ApiResponse(responseCode = "400", description = "BAD REQUEST is returned if no document was provided or the document can't be read.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if no mapping exists for the mappingID.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{mappingID}/all"}, method = {RequestMethod.POST}, consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
+    @ResponseBody
+    ResponseEntity mapDocumentWithAllTypes(
+            @Parameter(description = "The document to be mapped.", required = true) @RequestPart(name = "document") final MultipartFile document,
+            @Parameter(description = "The mappingID of the already defined mapping schemas.", required = true) @PathVariable(value = "mappingID") String mappingID,
+            final HttpServletRequest request,
+            final HttpServletResponse response,
+            final UriComponentsBuilder uriBuilder);
+}
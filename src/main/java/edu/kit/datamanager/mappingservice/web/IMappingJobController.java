@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web;
+
+import edu.kit.datamanager.mappingservice.domain.MappingJob;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
+
+@ApiResponses(value = {
+        @ApiResponse(responseCode = "401", description = "UNAUTHORIZED is returned if authorization in required but was not provided."),
+        @ApiResponse(responseCode = "403", description = "FORBIDDEN is returned if the caller has no sufficient privileges.")})
+public interface IMappingJobController {
+
+    @Operation(summary = "Submit a document for asynchronous mapping.", description = "This endpoint queues the mapping of an uploaded document " +
+            "and returns immediately. The state of the job is available at the returned location, the result can be downloaded at " +
+            "'<location>/result' as soon as the job has succeeded. Queued jobs survive a restart of the service.", responses = {
+            @ApiResponse(responseCode = "202", description = "ACCEPTED is returned if the job was queued.", content = @Content(schema = @Schema(implementation = MappingJob.class))),
+            @ApiResponse(responseCode = "400", description = "BAD REQUEST is returned if the input does not meet the minimal requirements.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the mapping doesn't exist.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "503", description = "SERVICE UNAVAILABLE is returned if the queue is full.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{mappingID}/{mappingType}"}, method = {RequestMethod.POST}, consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
+    @ResponseBody
+    ResponseEntity submitJob(
+            @Parameter(description = "The document to be mapped.", required = true) @RequestPart(name = "document") final MultipartFile document,
+            @Parameter(description = "The mappingID of the already defined mapping schema.", required = true) @PathVariable(value = "mappingID") String mappingID,
+            @Parameter(description = "The mappingType of the already defined mapping schema.", required = true) @PathVariable(name = "mappingType") String mappingType,
+            final UriComponentsBuilder uriBuilder);
+
+    @Operation(summary = "Get the state of a mapping job.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK and the job are returned if the job exists.", content = @Content(schema = @Schema(implementation = MappingJob.class))),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the job doesn't exist.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{jobId}"}, method = {RequestMethod.GET})
+    @ResponseBody
+    ResponseEntity getJob(
+            @Parameter(description = "The id of the job.", required = true) @PathVariable(value = "jobId") String jobId);
+
+    @Operation(summary = "Download the result of a mapping job.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK and the result are returned if the job has succeeded."),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the job doesn't exist.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "409", description = "CONFLICT is returned if the job is not finished yet or has failed.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{jobId}/result"}, method = {RequestMethod.GET})
+    @ResponseBody
+    ResponseEntity getJobResult(
+            @Parameter(description = "The id of the job.", required = true) @PathVariable(value = "jobId") String jobId);
+
+    @Operation(summary = "Delete a mapping job including its result.", responses = {
+            @ApiResponse(responseCode = "204", description = "NO CONTENT is returned if the job was deleted."),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the job doesn't exist.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "409", description = "CONFLICT is returned if the job is running.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{jobId}"}, method = {RequestMethod.DELETE})
+    @ResponseBody
+    ResponseEntity deleteJob(
+            @Parameter(description = "The id of the job.", required = true) @PathVariable(value = "jobId") String jobId);
+}
@@ -0,0 +1,95 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web;
+
+import edu.kit.datamanager.mappingservice.domain.MappingPipeline;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.servlet.http.HttpServletResponse;
+
+@ApiResponses(value = {
+        @ApiResponse(responseCode = "401", description = "UNAUTHORIZED is returned if authorization in required but was not provided."),
+        @ApiResponse(responseCode = "403", description = "FORBIDDEN is returned if the caller has no sufficient privileges.")})
+public interface IMappingPipelineController {
+
+    @Operation(summary = "Create a new pipeline.", description = "A pipeline is an ordered list of steps, each step references an existing " +
+            "mapping by its mappingId and mappingType, e.g. {\"pipelineId\":\"xml2html\",\"steps\":[{\"mappingId\":\"dc\",\"mappingType\":\"GEMMA\"}," +
+            "{\"mappingId\":\"dc\",\"mappingType\":\"HANDLEBARS\"}]}. The result of each step is passed to the next step.", responses = {
+            @ApiResponse(responseCode = "201", description = "CREATED is returned if the pipeline was created.", content = @Content(schema = @Schema(implementation = MappingPipeline.class))),
+            @ApiResponse(responseCode = "400", description = "BAD REQUEST is returned if the pipeline has no id or steps or a step references a missing mapping.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "409", description = "CONFLICT is returned if the pipeline already exists.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {""}, method = {RequestMethod.POST}, consumes = {MediaType.APPLICATION_JSON_VALUE})
+    @ResponseBody
+    ResponseEntity createPipeline(
+            @Parameter(description = "The pipeline.", required = true) @RequestBody MappingPipeline pipeline,
+            final UriComponentsBuilder uriBuilder);
+
+    @Operation(summary = "Get all pipelines.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK and all pipelines are returned.", content = @Content(array = @ArraySchema(schema = @Schema(implementation = MappingPipeline.class))))})
+
+    @RequestMapping(value = {""}, method = {RequestMethod.GET})
+    @ResponseBody
+    ResponseEntity getPipelines();
+
+    @Operation(summary = "Get a pipeline by its id.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK and the pipeline are returned if the pipeline exists.", content = @Content(schema = @Schema(implementation = MappingPipeline.class))),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the pipeline doesn't exist.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{pipelineId}"}, method = {RequestMethod.GET})
+    @ResponseBody
+    ResponseEntity getPipeline(
+            @Parameter(description = "The id of the pipeline.", required = true) @PathVariable(value = "pipelineId") String pipelineId);
+
+    @Operation(summary = "Delete a pipeline.", description = "The mappings referenced by the pipeline are kept.", responses = {
+            @ApiResponse(responseCode = "204", description = "NO CONTENT is returned if the pipeline was deleted."),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the pipeline doesn't exist.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{pipelineId}"}, method = {RequestMethod.DELETE})
+    @ResponseBody
+    ResponseEntity deletePipeline(
+            @Parameter(description = "The id of the pipeline.", required = true) @PathVariable(value = "pipelineId") String pipelineId);
+
+    @Operation(summary = "Map a document with a pipeline.", description = "The uploaded document is mapped by all steps of the pipeline within " +
+            "a single request. Intermediate results are kept in memory, only the result of the last step is returned.", responses = {
+            @ApiResponse(responseCode = "200", description = "OK and the result of the last step are returned if all steps were successful."),
+            @ApiResponse(responseCode = "400", description = "BAD REQUEST is returned if the document can't be read or a step fails. " +
+                    "The failing step is returned in the response text.", content = @Content(mediaType = "String")),
+            @ApiResponse(responseCode = "404", description = "NOT FOUND is returned if the pipeline doesn't exist.", content = @Content(mediaType = "String"))})
+
+    @RequestMapping(value = {"/{pipelineId}/execution"}, method = {RequestMethod.POST}, consumes = {MediaType.MULTIPART_FORM_DATA_VALUE})
+    @ResponseBody
+    ResponseEntity executePipeline(
+            @Parameter(description = "The document to be mapped.", required = true) @RequestPart(name = "document") final MultipartFile document,
+            @Parameter(description = "The id of the pipeline.", required = true) @PathVariable(value = "pipelineId") String pipelineId,
+            final HttpServletResponse response);
+}
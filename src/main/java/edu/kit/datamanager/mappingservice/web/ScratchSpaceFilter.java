@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web;
+
+import edu.kit.datamanager.mappingservice.util.ScratchSpace;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Opens a scope of the scratch space for each request. All temporary files
+ * created while processing the request are removed together with the scope
+ * after the response is written.
+ */
+public class ScratchSpaceFilter extends OncePerRequestFilter {
+
+    private final ScratchSpace scratchSpace;
+
+    /**
+     * Create filter.
+     *
+     * @param scratchSpace scratch space holding the scopes.
+     */
+    public ScratchSpaceFilter(ScratchSpace scratchSpace) {
+        this.scratchSpace = scratchSpace;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        try (ScratchSpace.Scope scope = scratchSpace.openScope()) {
+            filterChain.doFilter(request, response);
+        }
+    }
+}
@@ -15,17 +15,27 @@
  */
 package edu.kit.datamanager.mappingservice.web.impl;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
 import edu.kit.datamanager.mappingservice.dao.IMappingRecordDao;
 import edu.kit.datamanager.mappingservice.domain.MappingRecord;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.exception.MappingRejectedException;
 import edu.kit.datamanager.mappingservice.impl.MappingService;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
 import edu.kit.datamanager.mappingservice.util.FileUtil;
 import edu.kit.datamanager.mappingservice.web.IMappingExecutionController;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.commons.io.input.CloseShieldInputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.core.io.FileSystemResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -34,11 +44,26 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 /**
  * Controller for executing document mappings
@@ -49,12 +74,22 @@ public class MappingExecutionController implements IMappingExecutionController {
 
     private static final Logger LOG = LoggerFactory.getLogger(MappingExecutionController.class);
 
+    /**
+     * Name of the entry holding the status of all documents of a batch.
+     */
+    private static final String MANIFEST = "manifest.json";
+
+    private static final byte[] ZIP_SIGNATURE = {'P', 'K', 3, 4};
+
     @Autowired
     private MappingService mappingService;
 
     @Autowired
     private IMappingRecordDao mappingRecordDao;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
     @Override
     public ResponseEntity mapDocument(MultipartFile document,
                                       String mappingID,
@@ -68,14 +103,6 @@ public class MappingExecutionController implements IMappingExecutionController {
 
         Path resultPath = null;
         if (!document.isEmpty() && !mappingID.isBlank() && !mappingType.isBlank()) {
-            Path inputPath = FileUtil.createTempFile("inputMultipart", "");
-            File inputFile = inputPath.toFile();
-            try {
-                document.transferTo(inputFile);
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-
             Optional<MappingRecord> record = mappingRecordDao.findByMappingIdAndMappingType(mappingID, mappingType);
             if (!record.isPresent()) {
                 String message = String.format("No mapping record found for mapping %s/%s.", mappingID, mappingType);
@@ -83,14 +110,19 @@ public class MappingExecutionController implements IMappingExecutionController {
                 return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
             }
 
+            Path inputPath = null;
             try {
-                System.out.println(inputPath);
-                resultPath = mappingService.executeMapping(inputFile.toURI(), mappingID, mappingType).get();
+                inputPath = storeDocument(document);
+                resultPath = mappingService.executeMapping(inputPath, mappingID, mappingType).get();
+            } catch (MappingRejectedException e) {
+                return serviceUnavailable(e);
             } catch (Exception e) {
-                LOG.error("Could not get resultPath");
-                e.printStackTrace();
+                LOG.error("Could not get resultPath", e);
+            } finally {
+                if (inputPath != null) {
+                    FileUtil.removeFile(inputPath);
+                }
             }
-            FileUtil.removeFile(inputPath);
         } else {
             LOG.error("The input does not meet the minimal requirements. Have a look in the debug logs for more detailed information.");
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The input does not meet the minimal requirements." +
@@ -103,12 +135,462 @@ public class MappingExecutionController implements IMappingExecutionController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(message);
         } else if (!Files.exists(resultPath) || !Files.isRegularFile(resultPath) || !Files.isReadable(resultPath)) {
             LOG.trace("The result path {} is for some reason not reachable.", resultPath);
+            FileUtil.removeFile(resultPath);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal error while accessing result");
         }
 
-        return ResponseEntity.
-                ok().
-                header(HttpHeaders.CONTENT_LENGTH, String.valueOf(resultPath.toFile().length())).
-                body(new FileSystemResource(resultPath.toFile()));
+        return writeResult(resultPath, response);
+    }
+
+    @Override
+    public ResponseEntity mapDocumentsByUrl(List<String> urls,
+                                            String mappingID,
+                                            String mappingType,
+                                            HttpServletRequest request,
+                                            HttpServletResponse response,
+                                            UriComponentsBuilder uriBuilder) {
+        LOG.debug("URLs: {}", urls);
+        LOG.debug("MappingID: {}", mappingID);
+        LOG.debug("MappingType: {}", mappingType);
+
+        if (urls.isEmpty() || mappingID.isBlank() || mappingType.isBlank()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The input does not meet the minimal requirements." +
+                    "Please check if you provided all necessary information. This is documented in swagger '/swagger-ui/index.html'.");
+        }
+        List<URI> contentUrls = new ArrayList<>();
+        for (String url : urls) {
+            URI contentUrl;
+            try {
+                contentUrl = new URI(url.trim());
+            } catch (URISyntaxException e) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid URL '" + url + "'.");
+            }
+            // local files must not be accessible via this endpoint.
+            if (!"http".equalsIgnoreCase(contentUrl.getScheme()) && !"https".equalsIgnoreCase(contentUrl.getScheme())) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Invalid URL '" + url + "'. Only http and https are supported.");
+            }
+            contentUrls.add(contentUrl);
+        }
+        if (!mappingRecordDao.findByMappingIdAndMappingType(mappingID, mappingType).isPresent()) {
+            String message = String.format("No mapping record found for mapping %s/%s.", mappingID, mappingType);
+            LOG.error(message + " Returning 404.");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
+        }
+
+        List<Path> results;
+        try {
+            results = mappingService.executeMapping(contentUrls, mappingID, mappingType);
+        } catch (MappingRejectedException e) {
+            return serviceUnavailable(e);
+        } catch (MappingException e) {
+            LOG.error("Error mapping documents.", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+        if (results.size() == 1) {
+            return writeResult(results.get(0), response);
+        }
+        // the archive is streamed directly to the client.
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + mappingID + "_results.zip\"");
+        try {
+            writeZip(contentUrls, results, response.getOutputStream());
+        } catch (IOException e) {
+            LOG.error("Error writing results.", e);
+        }
+        return null;
+    }
+
+    @Override
+    public ResponseEntity mapDocuments(List<MultipartFile> documents,
+                                       String mappingID,
+                                       String mappingType,
+                                       HttpServletRequest request,
+                                       HttpServletResponse response,
+                                       UriComponentsBuilder uriBuilder) {
+        LOG.debug("Documents: {}", documents.size());
+        LOG.debug("MappingID: {}", mappingID);
+        LOG.debug("MappingType: {}", mappingType);
+
+        if (documents.isEmpty() || mappingID.isBlank() || mappingType.isBlank()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The input does not meet the minimal requirements." +
+                    "Please check if you provided all necessary information. This is documented in swagger '/swagger-ui/index.html'.");
+        }
+        // resolved once, nothing may fail after the response is committed.
+        Optional<MappingRecord> mappingRecord = mappingRecordDao.findByMappingIdAndMappingType(mappingID, mappingType);
+        if (!mappingRecord.isPresent()) {
+            String message = String.format("No mapping record found for mapping %s/%s.", mappingID, mappingType);
+            LOG.error(message + " Returning 404.");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
+        }
+
+        List<Path> inputPaths = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+        try {
+            for (MultipartFile document : documents) {
+                if (isZip(document)) {
+                    extractZip(document, inputPaths, names);
+                } else if (!document.isEmpty()) {
+                    inputPaths.add(storeDocument(document));
+                    names.add(document.getOriginalFilename());
+                }
+            }
+        } catch (BatchLimitException e) {
+            LOG.error("Rejected batch: {}", e.getMessage());
+            inputPaths.forEach(FileUtil::removeFile);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } catch (IOException | MappingException e) {
+            LOG.error("Error reading documents.", e);
+            inputPaths.forEach(FileUtil::removeFile);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error reading documents.");
+        }
+        if (inputPaths.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("No documents found.");
+        }
+
+        // the archive is streamed directly to the client.
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + mappingID + "_results.zip\"");
+        try (ZipOutputStream zip = new ZipOutputStream(response.getOutputStream())) {
+            ArrayNode manifest = JsonNodeFactory.instance.arrayNode();
+            mappingService.executeBatch(inputPaths, mappingRecord.get(), result -> {
+                try {
+                    writeBatchResult(zip, manifest, names.get(result.getIndex()), result);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    result.getResult().ifPresent(FileUtil::removeFile);
+                    FileUtil.removeFile(inputPaths.get(result.getIndex()));
+                }
+            });
+            zip.putNextEntry(new ZipEntry(MANIFEST));
+            zip.write(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+            zip.closeEntry();
+        } catch (IOException | UncheckedIOException e) {
+            LOG.error("Error writing results.", e);
+        } finally {
+            inputPaths.forEach(FileUtil::removeFile);
+        }
+        return null;
+    }
+
+    @Override
+    public ResponseEntity mapDocumentWithAllTypes(MultipartFile document,
+                                                  String mappingID,
+                                                  HttpServletRequest request,
+                                                  HttpServletResponse response,
+                                                  UriComponentsBuilder uriBuilder) {
+        LOG.debug("Document: {}", document.getName());
+        LOG.debug("MappingID: {}", mappingID);
+
+        if (document.isEmpty() || mappingID.isBlank()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The input does not meet the minimal requirements." +
+                    "Please check if you provided all necessary information. This is documented in swagger '/swagger-ui/index.html'.");
+        }
+        if (mappingRecordDao.findByMappingIdOrderByMappingTypeAsc(mappingID).isEmpty()) {
+            String message = String.format("No mapping record found for mapping %s.", mappingID);
+            LOG.error(message + " Returning 404.");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
+        }
+
+        Path inputPath;
+        try {
+            inputPath = storeDocument(document);
+        } catch (IOException | MappingException e) {
+            LOG.error("Error reading document.", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error reading document.");
+        }
+        Map<String, MappingService.BatchResult> results;
+        try {
+            results = mappingService.executeMapping(inputPath, mappingID);
+        } catch (MappingException e) {
+            LOG.error("Error mapping document.", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } finally {
+            FileUtil.removeFile(inputPath);
+        }
+
+        // the archive is streamed directly to the client.
+        response.setStatus(HttpStatus.OK.value());
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + mappingID + "_results.zip\"");
+        try (ZipOutputStream zip = new ZipOutputStream(response.getOutputStream())) {
+            ArrayNode manifest = JsonNodeFactory.instance.arrayNode();
+            for (Map.Entry<String, MappingService.BatchResult> result : results.entrySet()) {
+                writeMappingTypeResult(zip, manifest, result.getKey(), result.getValue());
+            }
+            zip.putNextEntry(new ZipEntry(MANIFEST));
+            zip.write(new ObjectMapper().writerWithDefaultPrettyPrinter().writeValueAsBytes(manifest));
+            zip.closeEntry();
+        } catch (IOException e) {
+            LOG.error("Error writing results.", e);
+        } finally {
+            results.values().forEach(result -> result.getResult().ifPresent(FileUtil::removeFile));
+        }
+        return null;
+    }
+
+    /**
+     * Write result of a mapping type to the archive and add its status to
+     * the manifest. The entry is named by the mapping type, the extension is
+     * guessed from the result.
+     *
+     * @param zip         archive.
+     * @param manifest    status of all mapping types.
+     * @param mappingType mapping type.
+     * @param result      result of the mapping type.
+     * @throws IOException error writing the archive.
+     */
+    private static void writeMappingTypeResult(ZipOutputStream zip, ArrayNode manifest, String mappingType, MappingService.BatchResult result) throws IOException {
+        ObjectNode status = manifest.addObject();
+        status.put("mappingType", mappingType);
+        if (result.getResult().isPresent()) {
+            Path resultPath = result.getResult().get();
+            String extension = ContentTypeDetector.detect(resultPath).map(ContentTypeDetector.ContentType::getExtension).orElse("");
+            String entryName = FilenameUtils.getName(mappingType) + extension;
+            zip.putNextEntry(new ZipEntry(entryName));
+            Files.copy(resultPath, zip);
+            zip.closeEntry();
+            status.put("status", "SUCCEEDED");
+            status.put("result", entryName);
+        } else {
+            status.put("status", "FAILED");
+            status.put("error", result.getErrorMessage());
+        }
+    }
+
+    /**
+     * Write result of a document of a batch to the archive and add its
+     * status to the manifest.
+     *
+     * @param zip      archive.
+     * @param manifest status of all documents.
+     * @param name     name of the source document.
+     * @param result   result of the document.
+     * @throws IOException error writing the archive.
+     */
+    private static void writeBatchResult(ZipOutputStream zip, ArrayNode manifest, String name, MappingService.BatchResult result) throws IOException {
+        ObjectNode status = manifest.addObject();
+        status.put("index", result.getIndex() + 1);
+        status.put("document", name);
+        if (result.getResult().isPresent()) {
+            Path resultPath = result.getResult().get();
+            String entryName = entryName(result.getIndex(), name, resultPath);
+            zip.putNextEntry(new ZipEntry(entryName));
+            Files.copy(resultPath, zip);
+            zip.closeEntry();
+            status.put("status", "SUCCEEDED");
+            status.put("result", entryName);
+        } else {
+            status.put("status", "FAILED");
+            status.put("error", result.getErrorMessage());
+        }
+    }
+
+    /**
+     * Check if an uploaded document is a ZIP archive.
+     *
+     * @param document uploaded document.
+     * @return true if document starts with the signature of a ZIP archive.
+     * @throws IOException error reading the document.
+     */
+    private static boolean isZip(MultipartFile document) throws IOException {
+        try (InputStream input = document.getInputStream()) {
+            byte[] signature = input.readNBytes(ZIP_SIGNATURE.length);
+            return Arrays.equals(signature, ZIP_SIGNATURE);
+        }
+    }
+
+    /**
+     * Answer a mapping rejected due to overload with 503 (SERVICE
+     * UNAVAILABLE). Clients should retry after the queue timeout.
+     *
+     * @param e rejection of the mapping.
+     * @return response entity.
+     */
+    private ResponseEntity serviceUnavailable(MappingRejectedException e) {
+        LOG.warn("Mapping rejected: {} Returning 503.", e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, Long.toString(Math.max(1, applicationProperties.getExecutionQueueTimeout())))
+                .body(e.getMessage());
+    }
+
+    /**
+     * Store all files of a ZIP archive as local files. The number of documents
+     * of the batch and the extracted bytes of the archive are limited.
+     *
+     * @param document   uploaded ZIP archive.
+     * @param inputPaths list receiving the paths of the local files.
+     * @param names      list receiving the names of the files.
+     * @throws IOException         error reading the archive.
+     * @throws BatchLimitException if the archive exceeds the limits.
+     */
+    private void extractZip(MultipartFile document, List<Path> inputPaths, List<String> names) throws IOException {
+        int maxDocuments = applicationProperties.getExecutionBatchMaxDocuments();
+        long maxSize = applicationProperties.getExecutionBatchMaxSize();
+        long maxEntrySize = applicationProperties.getDownloadMaxSize();
+        long extracted = 0;
+        try (ZipInputStream zip = new ZipInputStream(document.getInputStream())) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (!entry.isDirectory()) {
+                    if ((maxDocuments > 0) && (inputPaths.size() >= maxDocuments)) {
+                        throw new BatchLimitException("Batch exceeds maximum number of " + maxDocuments + " documents.");
+                    }
+                    long limit = maxEntrySize;
+                    boolean limitedBySize = false;
+                    if ((maxSize > 0) && ((limit == 0) || (maxSize - extracted < limit))) {
+                        // 'storeResource' takes 0 as unlimited, so at least one byte is allowed.
+                        limit = Math.max(1, maxSize - extracted);
+                        limitedBySize = true;
+                    }
+                    Path inputPath;
+                    try {
+                        inputPath = FileUtil.storeResource(CloseShieldInputStream.wrap(zip), "inputBatch", limit);
+                    } catch (MappingException e) {
+                        if (limitedBySize) {
+                            throw new BatchLimitException("Batch exceeds maximum size of " + maxSize + " bytes.");
+                        }
+                        throw e;
+                    }
+                    inputPaths.add(inputPath);
+                    names.add(entry.getName());
+                    extracted += Files.size(inputPath);
+                    if ((maxSize > 0) && (extracted > maxSize)) {
+                        throw new BatchLimitException("Batch exceeds maximum size of " + maxSize + " bytes.");
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Write result file directly to the response and remove it afterwards,
+     * even if the client aborts the transfer. The file is transferred via its
+     * channel without buffering it in memory.
+     *
+     * @param resultPath path of the result file.
+     * @param response   response of the request.
+     * @return null as the response is already written.
+     */
+    static ResponseEntity writeResult(Path resultPath, HttpServletResponse response) {
+        try (FileChannel channel = FileChannel.open(resultPath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            response.setStatus(HttpStatus.OK.value());
+            response.setContentType(detectMediaType(resultPath).toString());
+            response.setContentLengthLong(size);
+            WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+            long position = 0;
+            while (position < size) {
+                position += channel.transferTo(position, size - position, target);
+            }
+            response.flushBuffer();
+        } catch (IOException e) {
+            LOG.error("Error writing result '{}'.", resultPath, e);
+        } finally {
+            FileUtil.removeFile(resultPath);
+        }
+        return null;
+    }
+
+    /**
+     * Detect media type of a result. A known media type allows compressing
+     * the response.
+     *
+     * @param resultPath path of the result file.
+     * @return media type (application/octet-stream if unknown).
+     */
+    private static MediaType detectMediaType(Path resultPath) {
+        MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
+        try {
+            Optional<ContentTypeDetector.ContentType> contentType = ContentTypeDetector.detect(resultPath);
+            if (contentType.isPresent()) {
+                mediaType = MediaType.parseMediaType(contentType.get().getMediaType());
+            }
+        } catch (IOException e) {
+            LOG.warn("Can't detect type of result '{}'.", resultPath, e);
+        }
+        return mediaType;
+    }
+
+    /**
+     * Write all results as ZIP archive. Entries are named by their position
+     * and the name of the source document. Result files are removed
+     * afterwards.
+     *
+     * @param contentUrls  URLs of the source documents.
+     * @param results      result files in order of the URLs.
+     * @param outputStream target stream.
+     * @throws IOException error writing the archive.
+     */
+    private static void writeZip(List<URI> contentUrls, List<Path> results, OutputStream outputStream) throws IOException {
+        try (ZipOutputStream zip = new ZipOutputStream(outputStream)) {
+            for (int index = 0; index < results.size(); index++) {
+                Path result = results.get(index);
+                zip.putNextEntry(new ZipEntry(entryName(index, contentUrls.get(index).getPath(), result)));
+                Files.copy(result, zip);
+                zip.closeEntry();
+            }
+        } finally {
+            results.forEach(FileUtil::removeFile);
+        }
+    }
+
+    /**
+     * Get name of a result inside an archive. Entries are named by their
+     * position and the name of the source document, the extension is
+     * guessed from the result.
+     *
+     * @param index      index of the document.
+     * @param sourceName name or path of the source document.
+     * @param result     result file.
+     * @return name of the entry.
+     * @throws IOException error reading the result.
+     */
+    private static String entryName(int index, String sourceName, Path result) throws IOException {
+        String baseName = FilenameUtils.getBaseName(sourceName);
+        String extension = ContentTypeDetector.detect(result).map(ContentTypeDetector.ContentType::getExtension).orElse("");
+        return (index + 1) + "_" + (baseName.isEmpty() ? "result" : baseName) + extension;
+    }
+
+    /**
+     * Store uploaded document as local file which is passed to the mapping
+     * tool without further copies. The extension is guessed from the header
+     * of the document. Uploads buffered in memory are written once, uploads
+     * already spooled to disk are moved if possible. Gzip compressed uploads
+     * are decompressed while writing.
+     *
+     * @param document uploaded document.
+     * @return path to the local file.
+     * @throws IOException error storing the document.
+     */
+    private Path storeDocument(MultipartFile document) throws IOException {
+        Optional<ContentTypeDetector.ContentType> contentType;
+        try (InputStream header = document.getInputStream()) {
+            contentType = ContentTypeDetector.detect(header);
+        }
+        if (contentType.isPresent() && (contentType.get() == ContentTypeDetector.ContentType.GZIP)) {
+            return FileUtil.storeResource(document.getInputStream(), "inputMultipart", applicationProperties.getDownloadMaxSize());
+        }
+        Path inputPath = FileUtil.createTempFile("inputMultipart", contentType.map(ContentTypeDetector.ContentType::getExtension).orElse(null));
+        try {
+            // transferTo(File) allows to move the spooled file
+            document.transferTo(inputPath.toFile());
+        } catch (IOException | RuntimeException e) {
+            FileUtil.removeFile(inputPath);
+            throw e;
+        }
+        return inputPath;
+    }
+
+    /**
+     * Batch exceeding the number of documents or the extracted bytes.
+     */
+    private static final class BatchLimitException extends MappingException {
+
+        BatchLimitException(String message) {
+            super(message);
+        }
     }
 }
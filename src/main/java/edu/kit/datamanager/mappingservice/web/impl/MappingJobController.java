@@ -0,0 +1,149 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web.impl;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.dao.IMappingRecordDao;
+import edu.kit.datamanager.mappingservice.domain.MappingJob;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.exception.MappingRejectedException;
+import edu.kit.datamanager.mappingservice.impl.MappingJobService;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
+import edu.kit.datamanager.mappingservice.util.FileUtil;
+import edu.kit.datamanager.mappingservice.web.IMappingJobController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Controller for asynchronous mapping jobs.
+ */
+@Controller
+@RequestMapping(value = "/api/v1/mappingJobs")
+public class MappingJobController implements IMappingJobController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappingJobController.class);
+
+    @Autowired
+    private MappingJobService mappingJobService;
+
+    @Autowired
+    private IMappingRecordDao mappingRecordDao;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Override
+    public ResponseEntity submitJob(MultipartFile document,
+                                    String mappingID,
+                                    String mappingType,
+                                    UriComponentsBuilder uriBuilder) {
+        LOG.debug("Submit job for mapping {}/{}.", mappingID, mappingType);
+        if (document.isEmpty() || mappingID.isBlank() || mappingType.isBlank()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The input does not meet the minimal requirements." +
+                    "Please check if you provided all necessary information. This is documented in swagger '/swagger-ui/index.html'.");
+        }
+        if (!mappingRecordDao.findByMappingIdAndMappingType(mappingID, mappingType).isPresent()) {
+            String message = String.format("No mapping record found for mapping %s/%s.", mappingID, mappingType);
+            LOG.error(message + " Returning 404.");
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
+        }
+        // avoids storing the document, checked again atomically on submit.
+        if (mappingJobService.isQueueFull()) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many queued jobs.");
+        }
+        MappingJob job;
+        try {
+            Path inputPath = FileUtil.storeResource(document.getInputStream(), "inputJob", applicationProperties.getDownloadMaxSize());
+            job = mappingJobService.submit(inputPath, mappingID, mappingType);
+        } catch (MappingRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Too many queued jobs.");
+        } catch (IOException | MappingException e) {
+            LOG.error("Error storing document.", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error storing document.");
+        }
+        URI location = uriBuilder.path("/api/v1/mappingJobs/{jobId}").buildAndExpand(job.getJobId()).toUri();
+        return ResponseEntity.accepted().location(location).body(job);
+    }
+
+    @Override
+    public ResponseEntity getJob(String jobId) {
+        Optional<MappingJob> job = mappingJobService.getJob(jobId);
+        if (!job.isPresent()) {
+            return jobNotFound(jobId);
+        }
+        return ResponseEntity.ok(job.get());
+    }
+
+    @Override
+    public ResponseEntity getJobResult(String jobId) {
+        Optional<MappingJob> job = mappingJobService.getJob(jobId);
+        if (!job.isPresent()) {
+            return jobNotFound(jobId);
+        }
+        if (job.get().getStatus() == MappingJob.Status.FAILED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Job '" + jobId + "' has failed: " + job.get().getErrorMessage());
+        }
+        if (job.get().getStatus() != MappingJob.Status.SUCCEEDED) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Job '" + jobId + "' is " + job.get().getStatus().name().toLowerCase() + ".");
+        }
+        Optional<Path> result = mappingJobService.getResult(job.get());
+        if (!result.isPresent()) {
+            LOG.error("Result of job '{}' is missing.", jobId);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Internal error while accessing result");
+        }
+        MediaType mediaType = MediaType.APPLICATION_OCTET_STREAM;
+        try {
+            mediaType = ContentTypeDetector.detect(result.get()).map(type -> MediaType.parseMediaType(type.getMediaType())).orElse(mediaType);
+        } catch (IOException e) {
+            LOG.warn("Can't detect type of result '{}'.", result.get(), e);
+        }
+        return ResponseEntity.ok().contentType(mediaType).body(new FileSystemResource(result.get()));
+    }
+
+    @Override
+    public ResponseEntity deleteJob(String jobId) {
+        Optional<MappingJob> job = mappingJobService.getJob(jobId);
+        if (!job.isPresent()) {
+            return jobNotFound(jobId);
+        }
+        try {
+            mappingJobService.deleteJob(job.get());
+        } catch (MappingException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
+        }
+        return ResponseEntity.noContent().build();
+    }
+
+    private static ResponseEntity jobNotFound(String jobId) {
+        String message = String.format("No mapping job found for id %s.", jobId);
+        LOG.error(message + " Returning 404.");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
+    }
+}
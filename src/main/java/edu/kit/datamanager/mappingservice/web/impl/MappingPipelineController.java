@@ -0,0 +1,133 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web.impl;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.dao.IMappingPipelineDao;
+import edu.kit.datamanager.mappingservice.domain.MappingPipeline;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.impl.MappingService;
+import edu.kit.datamanager.mappingservice.util.FileUtil;
+import edu.kit.datamanager.mappingservice.web.IMappingPipelineController;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Controller for mapping pipelines.
+ */
+@Controller
+@RequestMapping(value = "/api/v1/mappingPipelines")
+public class MappingPipelineController implements IMappingPipelineController {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MappingPipelineController.class);
+
+    @Autowired
+    private MappingService mappingService;
+
+    @Autowired
+    private IMappingPipelineDao mappingPipelineDao;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Override
+    public ResponseEntity createPipeline(MappingPipeline pipeline, UriComponentsBuilder uriBuilder) {
+        LOG.debug("Create pipeline {}.", pipeline.getPipelineId());
+        if ((pipeline.getPipelineId() != null) && mappingPipelineDao.existsById(pipeline.getPipelineId())) {
+            LOG.error("Conflict with existing pipeline!");
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Pipeline already exists!");
+        }
+        try {
+            mappingService.createPipeline(pipeline);
+        } catch (MappingException e) {
+            LOG.error("Invalid pipeline.", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        }
+        URI location = uriBuilder.path("/api/v1/mappingPipelines/{pipelineId}").buildAndExpand(pipeline.getPipelineId()).toUri();
+        return ResponseEntity.created(location).body(pipeline);
+    }
+
+    @Override
+    public ResponseEntity getPipelines() {
+        return ResponseEntity.ok(mappingPipelineDao.findAll());
+    }
+
+    @Override
+    public ResponseEntity getPipeline(String pipelineId) {
+        Optional<MappingPipeline> pipeline = mappingPipelineDao.findById(pipelineId);
+        if (!pipeline.isPresent()) {
+            return pipelineNotFound(pipelineId);
+        }
+        return ResponseEntity.ok(pipeline.get());
+    }
+
+    @Override
+    public ResponseEntity deletePipeline(String pipelineId) {
+        if (!mappingPipelineDao.existsById(pipelineId)) {
+            return pipelineNotFound(pipelineId);
+        }
+        mappingService.deletePipeline(pipelineId);
+        return ResponseEntity.noContent().build();
+    }
+
+    @Override
+    public ResponseEntity executePipeline(MultipartFile document, String pipelineId, HttpServletResponse response) {
+        LOG.debug("Execute pipeline {}.", pipelineId);
+        if (document.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("The input does not meet the minimal requirements." +
+                    "Please check if you provided all necessary information. This is documented in swagger '/swagger-ui/index.html'.");
+        }
+        if (!mappingPipelineDao.existsById(pipelineId)) {
+            return pipelineNotFound(pipelineId);
+        }
+        Path inputPath = null;
+        Path resultPath;
+        try {
+            inputPath = FileUtil.storeResource(document.getInputStream(), "inputPipeline", applicationProperties.getDownloadMaxSize());
+            resultPath = mappingService.executePipeline(inputPath, pipelineId);
+        } catch (IOException e) {
+            LOG.error("Error reading document.", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body("Error reading document.");
+        } catch (MappingException e) {
+            LOG.error("Error executing pipeline.", e);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
+        } finally {
+            if (inputPath != null) {
+                FileUtil.removeFile(inputPath);
+            }
+        }
+        return MappingExecutionController.writeResult(resultPath, response);
+    }
+
+    private static ResponseEntity pipelineNotFound(String pipelineId) {
+        String message = String.format("No mapping pipeline found for id %s.", pipelineId);
+        LOG.error(message + " Returning 404.");
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(message);
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.xslt;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.mapping.ICompilableMappingTool;
+import edu.kit.datamanager.mappingservice.mapping.MappingUtil;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.XMLConstants;
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.Templates;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerConfigurationException;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.stream.StreamResult;
+import javax.xml.transform.stream.StreamSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Mapping tool transforming XML documents with a XSLT stylesheet. The
+ * stylesheet is compiled to thread safe {@link Templates}, each mapping only
+ * creates a new transformer. Source and result are streamed. For security
+ * reasons external DTDs and stylesheets are not accessible.
+ */
+public class XsltMapping implements ICompilableMappingTool<Templates> {
+
+    /**
+     * Logger for this class.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(XsltMapping.class);
+
+    private final TransformerFactory transformerFactory;
+
+    public XsltMapping(ApplicationProperties configuration) {
+        transformerFactory = TransformerFactory.newInstance();
+        try {
+            transformerFactory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        } catch (TransformerConfigurationException tce) {
+            throw new MappingException("Error: Can't enable secure processing for XSLT!", tce);
+        }
+        transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_DTD, "");
+        transformerFactory.setAttribute(XMLConstants.ACCESS_EXTERNAL_STYLESHEET, "");
+        transformerFactory.setErrorListener(new LoggingErrorListener());
+    }
+
+    /**
+     * Map the source file to a new file using a given mapping tool.
+     *
+     * @param mappingFile The absolute path to mapping file.
+     * @param srcFile     The absolute path to the source file.
+     * @param resultFile  The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int mapFile(Path mappingFile, Path srcFile, Path resultFile) {
+        Templates templates;
+        try {
+            templates = compile(mappingFile);
+        } catch (MappingException mex) {
+            LOGGER.error("Failed to compile stylesheet '" + mappingFile + "'.", mex);
+            return MappingUtil.FAILURE;
+        }
+        return mapFile(templates, srcFile, resultFile);
+    }
+
+    /**
+     * Compile the stylesheet.
+     *
+     * @param mappingFile The absolute path to the stylesheet.
+     * @return compiled stylesheet.
+     * @throws MappingException if stylesheet is invalid or can't be read.
+     */
+    @Override
+    public Templates compile(Path mappingFile) {
+        try (InputStream stylesheet = Files.newInputStream(mappingFile)) {
+            return transformerFactory.newTemplates(new StreamSource(stylesheet, mappingFile.toUri().toString()));
+        } catch (IOException | TransformerException ex) {
+            throw new MappingException("Error: Can't compile stylesheet '" + mappingFile + "'!", ex);
+        }
+    }
+
+    /**
+     * Transform the source file. Source and result are streamed.
+     *
+     * @param templates  The compiled stylesheet.
+     * @param srcFile    The absolute path to the source file.
+     * @param resultFile The absolute path to the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int mapFile(Templates templates, Path srcFile, Path resultFile) {
+        LOGGER.trace("Run XSLT on '{}' -> '{}'", srcFile, resultFile);
+        int returnCode = MappingUtil.SUCCESS;
+        try (InputStream source = Files.newInputStream(srcFile);
+             OutputStream result = Files.newOutputStream(resultFile)) {
+            Transformer transformer = templates.newTransformer();
+            transformer.setErrorListener(new LoggingErrorListener());
+            transformer.transform(new StreamSource(source, srcFile.toUri().toString()), new StreamResult(result));
+        } catch (IOException | TransformerException ex) {
+            LOGGER.error("Failed to transform '" + srcFile + "'.", ex);
+            returnCode = MappingUtil.FAILURE;
+        }
+        return returnCode;
+    }
+
+    /**
+     * Transform the source document. Source and result are streamed without
+     * any files.
+     *
+     * @param templates  The compiled stylesheet.
+     * @param source     Stream holding the source document.
+     * @param sourceType Type of the source document (null if unknown).
+     * @param result     Stream receiving the created mapping.
+     * @return Errorcode (0 = SUCCESS)
+     */
+    @Override
+    public int map(Templates templates, InputStream source, ContentTypeDetector.ContentType sourceType, OutputStream result) {
+        LOGGER.trace("Run XSLT on {} stream", sourceType);
+        int returnCode = MappingUtil.SUCCESS;
+        try {
+            Transformer transformer = templates.newTransformer();
+            transformer.setErrorListener(new LoggingErrorListener());
+            transformer.transform(new StreamSource(source), new StreamResult(result));
+        } catch (TransformerException ex) {
+            LOGGER.error("Failed to transform stream.", ex);
+            returnCode = MappingUtil.FAILURE;
+        }
+        return returnCode;
+    }
+
+    /**
+     * Error listener logging warnings and aborting on errors.
+     */
+    private static class LoggingErrorListener implements ErrorListener {
+
+        @Override
+        public void warning(TransformerException exception) {
+            LOGGER.warn("XSLT: {}", exception.getMessageAndLocation());
+        }
+
+        @Override
+        public void error(TransformerException exception) throws TransformerException {
+            throw exception;
+        }
+
+        @Override
+        public void fatalError(TransformerException exception) throws TransformerException {
+            throw exception;
+        }
+    }
+}
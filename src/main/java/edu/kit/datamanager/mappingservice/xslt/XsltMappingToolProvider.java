@@ -0,0 +1,37 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.xslt;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.mapping.IMappingTool;
+import edu.kit.datamanager.mappingservice.mapping.IMappingToolProvider;
+import edu.kit.datamanager.mappingservice.mapping.Mapping;
+
+/**
+ * Provider for XSLT mappings.
+ */
+public class XsltMappingToolProvider implements IMappingToolProvider {
+
+    @Override
+    public String getMappingType() {
+        return Mapping.XSLT.name();
+    }
+
+    @Override
+    public IMappingTool createMappingTool(ApplicationProperties configuration) {
+        return new XsltMapping(configuration);
+    }
+}
@@ -0,0 +1,89 @@
+# -*- coding: utf-8 -*-
+"""
+Long running worker for gemma mappings.
+
+The worker loads the configured gemma script once and then executes it for
+every request read from stdin, exactly as if it was called as
+'python3 <script> <mapping> <input> <output>'. Modules imported by the
+script stay loaded between requests. Each message is a frame consisting of
+a 4 byte big endian length followed by an UTF-8 encoded JSON document.
+
+Requests:  {"id": 1, "command": "map", "arguments": [mapping, input, output]}
+           {"id": 2, "command": "ping"}
+Responses: {"id": 1, "status": 0} or {"id": 1, "status": 1, "error": "..."}
+
+Usage: python3 gemma_worker.py <gemma script>
+"""
+import importlib.util
+import json
+import os
+import struct
+import sys
+import traceback
+
+
+def read_frame(stream):
+    header = stream.read(4)
+    if len(header) < 4:
+        return None
+    (length,) = struct.unpack(">I", header)
+    payload = stream.read(length)
+    if len(payload) < length:
+        return None
+    return json.loads(payload.decode("utf-8"))
+
+
+def write_frame(stream, message):
+    payload = json.dumps(message).encode("utf-8")
+    stream.write(struct.pack(">I", len(payload)))
+    stream.write(payload)
+    stream.flush()
+
+
+def load_script(location):
+    # The script runs as main module, its directory is searched for imports.
+    sys.path.insert(0, os.path.dirname(location))
+    spec = importlib.util.spec_from_file_location("__main__", location)
+    if spec is None:
+        raise ImportError("Can't load gemma script '%s'" % location)
+    return spec
+
+
+def run_script(spec, arguments):
+    saved_argv = sys.argv
+    sys.argv = [spec.origin] + list(arguments)
+    try:
+        spec.loader.exec_module(importlib.util.module_from_spec(spec))
+    finally:
+        sys.argv = saved_argv
+
+
+def main():
+    protocol_in = sys.stdin.buffer
+    protocol_out = sys.stdout.buffer
+    # All output of the gemma module is redirected to stderr.
+    sys.stdout = sys.stderr
+    spec = load_script(os.path.abspath(sys.argv[1]))
+
+    write_frame(protocol_out, {"id": 0, "status": 0})
+    while True:
+        request = read_frame(protocol_in)
+        if request is None:
+            break
+        response = {"id": request.get("id"), "status": 0}
+        if request.get("command") == "map":
+            try:
+                run_script(spec, request.get("arguments"))
+            except SystemExit as exit_:
+                if exit_.code not in (None, 0):
+                    response["status"] = 1
+                    response["error"] = "Gemma script exited with %s" % exit_.code
+            except BaseException:
+                response["status"] = 1
+                response["error"] = traceback.format_exc()
+        sys.stderr.flush()
+        write_frame(protocol_out, response)
+
+
+if __name__ == "__main__":
+    main()
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.mapping.MappingUtil;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for InProcessGemmaMapping.
+ */
+public class InProcessGemmaMappingTest {
+
+    private static final String RESULT = "{\n"
+            + "  \"Publisher\": \"The publisher\",\n"
+            + "  \"Publication Date\": \"2019\"\n"
+            + "}";
+
+    private final static Path RESULT_FILE = new File("/tmp/result.inprocess.json").getAbsoluteFile().toPath();
+
+    @AfterEach
+    public void tearDown() {
+        FileUtils.deleteQuietly(RESULT_FILE.toFile());
+    }
+
+    /**
+     * Test of mapFile method, of class InProcessGemmaMapping.
+     */
+    @Test
+    public void testMapFile() throws IOException {
+        System.out.println("testMapFile");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").getAbsoluteFile().toPath();
+        InProcessGemmaMapping instance = new InProcessGemmaMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.SUCCESS, result);
+        assertEquals(RESULT, FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of mapFile method with all types (result was created by the
+     * python script).
+     */
+    @Test
+    public void testMapFileWithAllTypes() throws IOException {
+        System.out.println("testMapFileWithAllTypes");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/types.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/types.json").getAbsoluteFile().toPath();
+        File expectedFile = new File("src/test/resources/result/gemma/types.elastic.json");
+        InProcessGemmaMapping instance = new InProcessGemmaMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.SUCCESS, result);
+        assertEquals(FileUtils.readFileToString(expectedFile, StandardCharsets.UTF_8), FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of mapFile method with missing source file.
+     */
+    @Test
+    public void testMapFileWithInvalidSource() {
+        System.out.println("testMapFileWithInvalidSource");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/notexists.json").getAbsoluteFile().toPath();
+        InProcessGemmaMapping instance = new InProcessGemmaMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.FAILURE, result);
+        assertFalse(RESULT_FILE.toFile().exists());
+    }
+
+    /**
+     * Test of mapFile method with invalid mapping.
+     */
+    @Test
+    public void testMapFileWithInvalidMapping() {
+        System.out.println("testMapFileWithInvalidMapping");
+        Path mappingFile = new File("src/test/resources/examples/gemma/simple.json").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").getAbsoluteFile().toPath();
+        InProcessGemmaMapping instance = new InProcessGemmaMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.FAILURE, result);
+        assertFalse(RESULT_FILE.toFile().exists());
+    }
+
+    /**
+     * Test of mapFile method for XML.
+     */
+    @Test
+    public void testMapXmlFile() throws IOException {
+        System.out.println("testMapXmlFile");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/simple.xml.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.xml").getAbsoluteFile().toPath();
+        InProcessGemmaMapping instance = new InProcessGemmaMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.SUCCESS, result);
+        assertEquals(RESULT, FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of mapFile method for TEI with and without streaming (result was
+     * created by the python script).
+     */
+    @Test
+    public void testMapTeiFile() throws IOException {
+        System.out.println("testMapTeiFile");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/tei.xml.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/tei.xml").getAbsoluteFile().toPath();
+        File expectedFile = new File("src/test/resources/result/gemma/tei.elastic.json");
+        ApplicationProperties configuration = new ApplicationProperties();
+        for (boolean streaming : new boolean[]{true, false}) {
+            FileUtils.deleteQuietly(RESULT_FILE.toFile());
+            configuration.setGemmaStreaming(streaming);
+            InProcessGemmaMapping instance = new InProcessGemmaMapping(configuration);
+            int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+            assertEquals(MappingUtil.SUCCESS, result);
+            assertEquals(FileUtils.readFileToString(expectedFile, StandardCharsets.UTF_8), FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8));
+        }
+    }
+
+    /**
+     * Test of mapFile method for other formats without python configuration.
+     */
+    @Test
+    public void testMapOtherFileWithoutPython() {
+        System.out.println("testMapOtherFileWithoutPython");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsoluteFile().toPath();
+        InProcessGemmaMapping instance = new InProcessGemmaMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.FAILURE, result);
+    }
+
+    /**
+     * Test of map method with streams, of class InProcessGemmaMapping.
+     */
+    @Test
+    public void testMapStream() throws IOException {
+        System.out.println("testMapStream");
+        InProcessGemmaMapping instance = new InProcessGemmaMapping(new ApplicationProperties());
+        GemmaPlan plan = instance.compile(new File("src/test/resources/mapping/gemma/simple.xml.mapping").getAbsoluteFile().toPath());
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream source = Files.newInputStream(new File("src/test/resources/examples/gemma/simple.xml").toPath())) {
+            assertEquals(MappingUtil.SUCCESS, instance.map(plan, source, ContentTypeDetector.ContentType.XML, result));
+        }
+        assertEquals(RESULT, result.toString(StandardCharsets.UTF_8));
+        result.reset();
+        try (InputStream source = Files.newInputStream(new File("src/test/resources/examples/gemma/simple.xml").toPath())) {
+            assertEquals(MappingUtil.FAILURE, instance.map(plan, source, ContentTypeDetector.ContentType.JSON, result));
+        }
+    }
+}
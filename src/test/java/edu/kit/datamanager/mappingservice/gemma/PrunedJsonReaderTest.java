@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PrunedJsonReader.
+ */
+public class PrunedJsonReaderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String SOURCE = "{"
+            + "\"skipped\": {\"a\": [1, 2, {\"b\": 3}]},"
+            + "\"list\": [{\"x\": \"first\", \"y\": 1}, {\"x\": \"second\", \"y\": 2}, {\"x\": \"third\", \"y\": 3}, {\"x\": \"fourth\"}],"
+            + "\"scalar\": \"value\","
+            + "\"empty\": \"\","
+            + "\"nested\": {\"list\": [[1, 2], [3, 4]], \"null\": null},"
+            + "\"emptyList\": []"
+            + "}";
+
+    /**
+     * Test of read method with paths to lists, scalars and missing values.
+     */
+    @Test
+    public void testRead() throws IOException {
+        System.out.println("testRead");
+        String mapping = "{\"properties\": {"
+                + "\"first\": {\"path\": \"list.x\", \"type\": \"string\"},"
+                + "\"second\": {\"path\": \"list.1.x\", \"type\": \"string\"},"
+                + "\"outOfRange\": {\"path\": \"list.10.y\", \"type\": \"integer\"},"
+                + "\"scalar\": {\"path\": \"scalar.any.thing\", \"type\": \"string\"},"
+                + "\"empty\": {\"path\": \"empty.any\", \"type\": \"string\", \"default\": \"none\"},"
+                + "\"nested\": {\"path\": \"nested.list.1.0\", \"type\": \"integer\"},"
+                + "\"null\": {\"path\": \"nested.null\", \"type\": \"string\"},"
+                + "\"emptyList\": {\"path\": \"emptyList.0\", \"type\": \"string\"},"
+                + "\"missing\": {\"path\": \"missing\", \"type\": \"string\", \"default\": null}"
+                + "}}";
+        GemmaPlan plan = GemmaEngine.compile(MAPPER.readTree(mapping), null);
+        JsonNode pruned = read(SOURCE, plan);
+        assertFalse(pruned.has("skipped"));
+        // first element is read for all paths, second element only for 'x'
+        assertEquals(4, pruned.get("list").size());
+        assertTrue(pruned.get("list").get(0).has("y"));
+        assertFalse(pruned.get("list").get(1).has("y"));
+        assertTrue(pruned.get("list").get(2).isNull());
+        assertMappedEqual(plan, SOURCE, pruned);
+    }
+
+    /**
+     * Test of read method with negative indices.
+     */
+    @Test
+    public void testReadWithNegativeIndex() throws IOException {
+        System.out.println("testReadWithNegativeIndex");
+        String mapping = "{\"properties\": {"
+                + "\"last\": {\"path\": \"list.-1.x\", \"type\": \"string\"},"
+                + "\"secondLast\": {\"path\": \"list.-2.y\", \"type\": \"integer\"}"
+                + "}}";
+        GemmaPlan plan = GemmaEngine.compile(MAPPER.readTree(mapping), null);
+        JsonNode pruned = read(SOURCE, plan);
+        assertEquals(4, pruned.get("list").size());
+        assertMappedEqual(plan, SOURCE, pruned);
+    }
+
+    /**
+     * Test of read method with placeholders for skipped elements.
+     */
+    @Test
+    public void testReadWithPlaceholders() throws IOException {
+        System.out.println("testReadWithPlaceholders");
+        String mapping = "{\"properties\": {"
+                + "\"third\": {\"path\": \"list.2.x\", \"type\": \"string\"},"
+                + "\"tooLarge\": {\"path\": \"nested.list.5.1\", \"type\": \"integer\"}"
+                + "}}";
+        GemmaPlan plan = GemmaEngine.compile(MAPPER.readTree(mapping), null);
+        JsonNode pruned = read(SOURCE, plan);
+        assertEquals(3, pruned.get("list").size());
+        assertTrue(pruned.get("list").get(1).isNull());
+        assertEquals(2, pruned.get("nested").get("list").size());
+        assertMappedEqual(plan, SOURCE, pruned);
+    }
+
+    /**
+     * Test of read method with scalar or empty document.
+     */
+    @Test
+    public void testReadWithoutObject() throws IOException {
+        System.out.println("testReadWithoutObject");
+        String mapping = "{\"properties\": {\"value\": {\"path\": \"a.b\", \"type\": \"string\"}}}";
+        GemmaPlan plan = GemmaEngine.compile(MAPPER.readTree(mapping), null);
+        assertMappedEqual(plan, "\"text\"", read("\"text\"", plan));
+        assertMappedEqual(plan, "[{\"a\": {\"b\": 1}}]", read("[{\"a\": {\"b\": 1}}]", plan));
+        assertTrue(read("", plan).isMissingNode());
+    }
+
+    /**
+     * Compare pruned document with complete document for all types.
+     */
+    @Test
+    public void testReadWithAllTypes() throws IOException {
+        System.out.println("testReadWithAllTypes");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/types.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/types.json").getAbsoluteFile().toPath();
+        GemmaPlan plan = GemmaEngine.compile(GemmaEngine.readTree(mappingFile), mappingFile);
+        assertEquals(GemmaEngine.map(plan, GemmaEngine.readTree(srcFile)), GemmaEngine.map(plan, GemmaEngine.readTree(srcFile, plan)));
+    }
+
+    private JsonNode read(String source, GemmaPlan plan) throws IOException {
+        return new PrunedJsonReader(MAPPER).read(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), plan.getPathTree());
+    }
+
+    private void assertMappedEqual(GemmaPlan plan, String source, JsonNode pruned) throws IOException {
+        JsonNode expected = GemmaEngine.map(plan, MAPPER.readTree(source));
+        assertEquals(expected, GemmaEngine.map(plan, pruned));
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.gemma;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PrunedXmlReader.
+ */
+public class PrunedXmlReaderTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private static final String SOURCE = "<root a=\"1\" xmlns:x=\"urn:x\">"
+            + "<x:single>text</x:single>"
+            + "<empty/>"
+            + "<list><item>1</item><item>2</item><item>3</item></list>"
+            + "<twice><item>1</item><item>2</item></twice>"
+            + "<mixed>a <!-- comment --><b>c</b> d <![CDATA[<e>]]></mixed>"
+            + "<skipped><deep>value</deep></skipped>"
+            + "</root>";
+
+    /**
+     * Test of read method without path tree (same as 'xmltodict.parse').
+     */
+    @Test
+    public void testReadComplete() throws IOException {
+        System.out.println("testReadComplete");
+        JsonNode expected = MAPPER.readTree("{\"root\": {\"@a\": \"1\", \"@xmlns:x\": \"urn:x\","
+                + "\"x:single\": \"text\","
+                + "\"empty\": null,"
+                + "\"list\": {\"item\": [\"1\", \"2\", \"3\"]},"
+                + "\"twice\": {\"item\": [\"1\", \"2\"]},"
+                + "\"mixed\": {\"b\": \"c\", \"#text\": \"a  d <e>\"},"
+                + "\"skipped\": {\"deep\": \"value\"}"
+                + "}}");
+        assertEquals(expected, read(SOURCE, null));
+    }
+
+    /**
+     * Test of read method with path tree.
+     */
+    @Test
+    public void testRead() throws IOException {
+        System.out.println("testRead");
+        String mapping = "{\"properties\": {"
+                + "\"single\": {\"path\": \"root.x:single\", \"type\": \"string\"},"
+                + "\"attribute\": {\"path\": \"root.@a\", \"type\": \"string\"},"
+                + "\"first\": {\"path\": \"root.list.item.0\", \"type\": \"string\"},"
+                + "\"second\": {\"path\": \"root.twice.item.1\", \"type\": \"string\"},"
+                + "\"mixed\": {\"path\": \"root.mixed.#text\", \"type\": \"string\"},"
+                + "\"mixedB\": {\"path\": \"root.mixed.b.any\", \"type\": \"string\"},"
+                + "\"empty\": {\"path\": \"root.empty\", \"type\": \"string\", \"default\": \"none\"}"
+                + "}}";
+        GemmaPlan plan = GemmaEngine.compile(MAPPER.readTree(mapping), null);
+        JsonNode pruned = read(SOURCE, plan);
+        JsonNode root = pruned.get("root");
+        assertFalse(root.has("skipped"));
+        assertFalse(root.has("@xmlns:x"));
+        // repeated elements are still a list
+        assertEquals(2, root.get("twice").get("item").size());
+        assertEquals(2, root.get("list").get("item").size());
+        assertTrue(root.get("list").get("item").get(1).isNull());
+        assertMappedEqual(plan, SOURCE, pruned);
+    }
+
+    /**
+     * Test of read method with paths to elements whose children are skipped.
+     */
+    @Test
+    public void testReadWithSkippedChildren() throws IOException {
+        System.out.println("testReadWithSkippedChildren");
+        // 'mixed' has to stay an object even if 'b' is skipped.
+        String mapping = "{\"properties\": {"
+                + "\"mixed\": {\"path\": \"root.mixed.c\", \"type\": \"string\"},"
+                + "\"list\": {\"path\": \"root.list.item.x\", \"type\": \"string\"},"
+                + "\"missingRoot\": {\"path\": \"other.value\", \"type\": \"string\"}"
+                + "}}";
+        GemmaPlan plan = GemmaEngine.compile(MAPPER.readTree(mapping), null);
+        JsonNode pruned = read(SOURCE, plan);
+        assertTrue(pruned.get("root").get("mixed").isObject());
+        assertMappedEqual(plan, SOURCE, pruned);
+    }
+
+    /**
+     * Test of read method with negative index and complete values.
+     */
+    @Test
+    public void testReadWithNegativeIndex() throws IOException {
+        System.out.println("testReadWithNegativeIndex");
+        String mapping = "{\"properties\": {"
+                + "\"last\": {\"path\": \"root.list.item.-1\", \"type\": \"string\"},"
+                + "\"twice\": {\"path\": \"root.twice\", \"type\": \"object\"}"
+                + "}}";
+        GemmaPlan plan = GemmaEngine.compile(MAPPER.readTree(mapping), null);
+        JsonNode pruned = read(SOURCE, plan);
+        assertEquals(3, pruned.get("root").get("list").get("item").size());
+        assertMappedEqual(plan, SOURCE, pruned);
+    }
+
+    /**
+     * Test of read method with DTD.
+     */
+    @Test
+    public void testReadWithDtd() {
+        System.out.println("testReadWithDtd");
+        String source = "<?xml version=\"1.0\"?><!DOCTYPE root [<!ENTITY xxe SYSTEM \"file:///etc/passwd\">]><root>&xxe;</root>";
+        assertThrows(IOException.class, () -> read(source, null));
+        assertThrows(IOException.class, () -> read("<root><unclosed></root>", null));
+    }
+
+    /**
+     * Compare pruned document with complete document for TEI example.
+     */
+    @Test
+    public void testReadTei() throws IOException {
+        System.out.println("testReadTei");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/tei.xml.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/tei.xml").getAbsoluteFile().toPath();
+        GemmaPlan plan = GemmaEngine.compile(GemmaEngine.readTree(mappingFile), mappingFile);
+        assertEquals(GemmaEngine.map(plan, GemmaEngine.readXml(srcFile)), GemmaEngine.map(plan, GemmaEngine.readXml(srcFile, plan)));
+    }
+
+    /**
+     * Test of strip method.
+     */
+    @Test
+    public void testStrip() {
+        System.out.println("testStrip");
+        assertEquals("a b", PrunedXmlReader.strip(" \t\na b  \r\n"));
+        assertEquals("", PrunedXmlReader.strip(" \n "));
+        assertEquals("​a", PrunedXmlReader.strip("​a"));
+    }
+
+    private JsonNode read(String source, GemmaPlan plan) throws IOException {
+        return new PrunedXmlReader().read(new ByteArrayInputStream(source.getBytes(StandardCharsets.UTF_8)), plan != null ? plan.getPathTree() : null);
+    }
+
+    private void assertMappedEqual(GemmaPlan plan, String source, JsonNode pruned) throws IOException {
+        JsonNode expected = GemmaEngine.map(plan, read(source, null));
+        assertEquals(expected, GemmaEngine.map(plan, pruned));
+    }
+}
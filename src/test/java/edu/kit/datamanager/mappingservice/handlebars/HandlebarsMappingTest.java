@@ -0,0 +1,142 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.handlebars;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jknack.handlebars.Template;
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.mapping.MappingUtil;
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for HandlebarsMapping.
+ */
+public class HandlebarsMappingTest {
+
+    private static final String RESULT = "{\n"
+            + "  \"Publisher\": \"The publisher\",\n"
+            + "  \"Publication Date\": \"2019\"\n"
+            + "}";
+
+    private final static Path RESULT_FILE = new File("/tmp/result.handlebars.json").getAbsoluteFile().toPath();
+
+    @AfterEach
+    public void tearDown() {
+        FileUtils.deleteQuietly(RESULT_FILE.toFile());
+    }
+
+    /**
+     * Test of mapFile method, of class HandlebarsMapping.
+     */
+    @Test
+    public void testMapFile() throws IOException {
+        System.out.println("testMapFile");
+        Path mappingFile = new File("src/test/resources/mapping/handlebars/simple.hbs").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").getAbsoluteFile().toPath();
+        HandlebarsMapping instance = new HandlebarsMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.SUCCESS, result);
+        assertEquals(RESULT, FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of mapFile method with XML source.
+     */
+    @Test
+    public void testMapXmlFile() throws IOException {
+        System.out.println("testMapXmlFile");
+        Path mappingFile = new File("src/test/resources/mapping/handlebars/simple.xml.hbs").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.xml").getAbsoluteFile().toPath();
+        HandlebarsMapping instance = new HandlebarsMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.SUCCESS, result);
+        assertEquals(RESULT, FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of mapFile method with compiled template and helper
+     * 'maybeStringify'.
+     */
+    @Test
+    public void testMapFileWithCompiledTemplate() throws IOException {
+        System.out.println("testMapFileWithCompiledTemplate");
+        Path mappingFile = new File("src/test/resources/mapping/handlebars/mytemplate.hbs").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/handlebars/record.json").getAbsoluteFile().toPath();
+        HandlebarsMapping instance = new HandlebarsMapping(new ApplicationProperties());
+        Template template = instance.compile(mappingFile);
+        for (int index = 0; index < 2; index++) {
+            FileUtils.deleteQuietly(RESULT_FILE.toFile());
+            int result = instance.mapFile(template, srcFile, RESULT_FILE);
+            assertEquals(MappingUtil.SUCCESS, result);
+            JsonNode document = new ObjectMapper().readTree(RESULT_FILE.toFile());
+            assertEquals("21.T11148/0123456789", document.get("pid").asText());
+            assertEquals("Title with \"quotes\"", document.get("title").get(0).asText());
+            assertEquals(42, document.get("size").get(0).asInt());
+            assertEquals(4.5, document.get("size").get(1).asDouble());
+        }
+    }
+
+    /**
+     * Test of mapFile method with invalid template and invalid source.
+     */
+    @Test
+    public void testMapFileWithInvalidInput() {
+        System.out.println("testMapFileWithInvalidInput");
+        Path mappingFile = new File("src/test/resources/mapping/handlebars/simple.hbs").getAbsoluteFile().toPath();
+        Path invalidFile = new File("src/test/resources/mapping/handlebars/notexists.hbs").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").getAbsoluteFile().toPath();
+        HandlebarsMapping instance = new HandlebarsMapping(new ApplicationProperties());
+        assertThrows(MappingException.class, () -> instance.compile(invalidFile));
+        assertEquals(MappingUtil.FAILURE, instance.mapFile(invalidFile, srcFile, RESULT_FILE));
+        // unsupported format
+        assertEquals(MappingUtil.FAILURE, instance.mapFile(mappingFile, mappingFile, RESULT_FILE));
+        // source not available
+        assertEquals(MappingUtil.FAILURE, instance.mapFile(mappingFile, invalidFile.resolveSibling("notexists.json"), RESULT_FILE));
+    }
+
+    /**
+     * Test of map method with streams, of class HandlebarsMapping.
+     */
+    @Test
+    public void testMapStream() throws IOException {
+        System.out.println("testMapStream");
+        HandlebarsMapping instance = new HandlebarsMapping(new ApplicationProperties());
+        Template template = instance.compile(new File("src/test/resources/mapping/handlebars/simple.hbs").getAbsoluteFile().toPath());
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream source = Files.newInputStream(new File("src/test/resources/examples/gemma/simple.json").toPath())) {
+            assertEquals(MappingUtil.SUCCESS, instance.map(template, source, ContentTypeDetector.ContentType.JSON, result));
+        }
+        assertEquals(RESULT, result.toString(StandardCharsets.UTF_8));
+        try (InputStream source = Files.newInputStream(new File("src/test/resources/examples/gemma/simple.json").toPath())) {
+            assertEquals(MappingUtil.FAILURE, instance.map(template, source, ContentTypeDetector.ContentType.CSV, new ByteArrayOutputStream()));
+        }
+    }
+}
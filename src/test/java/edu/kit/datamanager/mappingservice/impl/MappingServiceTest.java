@@ -17,7 +17,9 @@ package edu.kit.datamanager.mappingservice.impl;
 
 import edu.kit.datamanager.mappingservice.MappingServiceApplication;
 import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.dao.IMappingPipelineDao;
 import edu.kit.datamanager.mappingservice.dao.IMappingRecordDao;
+import edu.kit.datamanager.mappingservice.domain.MappingPipeline;
 import edu.kit.datamanager.mappingservice.domain.MappingRecord;
 import edu.kit.datamanager.mappingservice.exception.MappingException;
 import edu.kit.datamanager.mappingservice.mapping.Mapping;
@@ -27,6 +29,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.restdocs.RestDocumentationExtension;
@@ -49,13 +52,17 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Stream;
 
 import static edu.kit.datamanager.mappingservice.mapping.Mapping.GEMMA;
+import static edu.kit.datamanager.mappingservice.mapping.Mapping.HANDLEBARS;
+import static edu.kit.datamanager.mappingservice.mapping.Mapping.XSLT;
 import static org.junit.jupiter.api.Assertions.*;
 
 @ExtendWith({RestDocumentationExtension.class, SpringExtension.class})
@@ -81,9 +88,15 @@ public class MappingServiceTest {
     @Autowired
     IMappingRecordDao mappingRepo;
 
+    @Autowired
+    IMappingPipelineDao pipelineRepo;
+
     @Autowired
     MappingService mappingService4Test;
 
+    @Autowired
+    AutowireCapableBeanFactory beanFactory;
+
     private final static String TEMP_DIR_4_MAPPING = "/tmp/mapping-service/";
 
     @BeforeEach
@@ -99,11 +112,12 @@ public class MappingServiceTest {
             ex.printStackTrace();
         }
         mappingRepo.deleteAll();
+        pipelineRepo.deleteAll();
     }
 
     @Test
     public void testConstructor() throws URISyntaxException {
-        new MappingService(applicationProperties);
+        new MappingService(applicationProperties).destroy();
     }
 
     @Test
@@ -114,7 +128,7 @@ public class MappingServiceTest {
             ap.setMappingsLocation(relativePath);
             File file = new File(relativePath.getPath());
             assertFalse(file.exists());
-            new MappingService(ap);
+            new MappingService(ap).destroy();
             assertTrue(file.exists());
             FileUtils.deleteDirectory(file);
             assertFalse(file.exists());
@@ -455,6 +469,290 @@ public class MappingServiceTest {
         assertTrue(resultPath.get().toFile().delete());
     }
 
+    /**
+     * Test of executeMapping method with local file, of class MappingService.
+     */
+    @Test
+    public void testExecuteMappingWithLocalFile() throws IOException {
+        System.out.println("testExecuteMappingWithLocalFile");
+        MappingRecord mappingRecord = new MappingRecord();
+        String mappingId = "myMappingId";
+        String mappingType = GEMMA.name();
+        String mappingFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath();
+        mappingRecord.setMappingId(mappingId);
+        mappingRecord.setMappingDocumentUri(mappingFile);
+        mappingRecord.setMappingType(mappingType);
+        mappingRepo.save(mappingRecord);
+        Path srcFile = Paths.get("src/test/resources/examples/gemma/simple.json");
+        String expectedResult = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        Optional<Path> resultPath = mappingService4Test.executeMapping(srcFile, mappingId, mappingType);
+        assertTrue(resultPath.isPresent());
+        String result = FileUtils.readFileToString(resultPath.get().toFile(), StandardCharsets.UTF_8);
+        assertEquals(expectedResult, result);
+        assertTrue(resultPath.get().toFile().delete());
+        // source file is not touched
+        assertTrue(Files.isRegularFile(srcFile));
+        try {
+            mappingService4Test.executeMapping(srcFile, "unknownMapping", mappingType);
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("unknownMapping"));
+        }
+        try {
+            mappingService4Test.executeMapping(Paths.get("/invalid/path/to/file"), mappingId, mappingType);
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("doesn't exist"));
+        }
+    }
+
+    /**
+     * Test of executeMapping method with list of URLs, of class
+     * MappingService.
+     */
+    @Test
+    public void testExecuteMappingWithListOfUrls() throws IOException {
+        System.out.println("testExecuteMappingWithListOfUrls");
+        MappingRecord mappingRecord = new MappingRecord();
+        String mappingId = "myMappingId";
+        String mappingType = GEMMA.name();
+        String mappingFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath();
+        mappingRecord.setMappingId(mappingId);
+        mappingRecord.setMappingDocumentUri(mappingFile);
+        mappingRecord.setMappingType(mappingType);
+        mappingRepo.save(mappingRecord);
+        URI contentUrl = new File("src/test/resources/examples/gemma/simple.json").toURI();
+        String expectedResult = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        List<URI> contentUrls = List.of(contentUrl, contentUrl, contentUrl, contentUrl, contentUrl, contentUrl, contentUrl);
+        List<Path> results = mappingService4Test.executeMapping(contentUrls, mappingId, mappingType);
+        assertEquals(contentUrls.size(), results.size());
+        for (Path result : results) {
+            assertEquals(expectedResult, FileUtils.readFileToString(result.toFile(), StandardCharsets.UTF_8));
+            assertTrue(result.toFile().delete());
+        }
+        // a failing document removes all results.
+        List<URI> invalidUrls = List.of(contentUrl, new File("/invalid/path/to/file").toURI(), contentUrl);
+        try {
+            mappingService4Test.executeMapping(invalidUrls, mappingId, mappingType);
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("/invalid/path/to/file"));
+        }
+        try {
+            mappingService4Test.executeMapping(contentUrls, "unknownMapping", mappingType);
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("unknownMapping"));
+        }
+    }
+
+    /**
+     * Test of executeBatch method, of class MappingService.
+     */
+    @Test
+    public void testExecuteBatch() throws IOException {
+        System.out.println("testExecuteBatch");
+        MappingRecord mappingRecord = new MappingRecord();
+        String mappingId = "myMappingId";
+        String mappingType = GEMMA.name();
+        String mappingFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath();
+        mappingRecord.setMappingId(mappingId);
+        mappingRecord.setMappingDocumentUri(mappingFile);
+        mappingRecord.setMappingType(mappingType);
+        mappingRepo.save(mappingRecord);
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").toPath();
+        Path invalidFile = new File("src/test/resources/examples/anyContentWithoutSuffix").toPath();
+        String expectedResult = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        List<Path> srcFiles = List.of(srcFile, srcFile, invalidFile, srcFile, srcFile, srcFile, srcFile, srcFile, srcFile, srcFile);
+        List<MappingService.BatchResult> results = new ArrayList<>();
+        mappingService4Test.executeBatch(srcFiles, mappingId, mappingType, results::add);
+        assertEquals(srcFiles.size(), results.size());
+        for (int index = 0; index < results.size(); index++) {
+            MappingService.BatchResult result = results.get(index);
+            // results are passed in order of the documents.
+            assertEquals(index, result.getIndex());
+            if (srcFiles.get(index) == invalidFile) {
+                assertFalse(result.getResult().isPresent());
+                assertNotNull(result.getErrorMessage());
+            } else {
+                assertEquals(expectedResult, FileUtils.readFileToString(result.getResult().get().toFile(), StandardCharsets.UTF_8));
+                assertNull(result.getErrorMessage());
+                assertTrue(result.getResult().get().toFile().delete());
+            }
+        }
+        assertTrue(Files.exists(srcFile));
+        try {
+            mappingService4Test.executeBatch(srcFiles, "unknownMapping", mappingType, results::add);
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("unknownMapping"));
+        }
+    }
+
+    /**
+     * Test of executeBatch method with an interrupted thread, of class
+     * MappingService.
+     */
+    @Test
+    public void testExecuteBatchInterrupted() {
+        System.out.println("testExecuteBatchInterrupted");
+        MappingRecord mappingRecord = new MappingRecord();
+        mappingRecord.setMappingId("myMappingId");
+        mappingRecord.setMappingType(GEMMA.name());
+        mappingRecord.setMappingDocumentUri(new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath());
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").toPath();
+        List<Path> srcFiles = List.of(srcFile, srcFile, srcFile);
+        List<MappingService.BatchResult> results = new ArrayList<>();
+        Thread.currentThread().interrupt();
+        try {
+            mappingService4Test.executeBatch(srcFiles, mappingRecord, results::add);
+        } finally {
+            // the interrupt is kept.
+            assertTrue(Thread.interrupted());
+        }
+        // every document is reported.
+        assertEquals(srcFiles.size(), results.size());
+        for (int index = 0; index < results.size(); index++) {
+            assertEquals(index, results.get(index).getIndex());
+            assertFalse(results.get(index).getResult().isPresent());
+            assertTrue(results.get(index).getErrorMessage().contains("Interrupted"));
+        }
+        assertTrue(Files.exists(srcFile));
+    }
+
+    @Test
+    public void testExecuteMappingWithAllTypes() throws IOException {
+        System.out.println("testExecuteMappingWithAllTypes");
+        String mappingId = "myMappingId";
+        mappingService4Test.createMapping(FileUtils.readFileToString(new File("src/test/resources/mapping/gemma/simple.mapping"), StandardCharsets.UTF_8),
+                newMappingRecord(mappingId, GEMMA.name()));
+        // more than one mapping type per mappingId is allowed.
+        mappingService4Test.createMapping(FileUtils.readFileToString(new File("src/test/resources/mapping/handlebars/simple.hbs"), StandardCharsets.UTF_8),
+                newMappingRecord(mappingId, HANDLEBARS.name()));
+        MappingRecord unknownMapping = newMappingRecord(mappingId, "unknownMapping");
+        unknownMapping.setMappingDocumentUri(new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath());
+        mappingRepo.save(unknownMapping);
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").toPath();
+        String expectedResult = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+
+        Map<String, MappingService.BatchResult> results = mappingService4Test.executeMapping(srcFile, mappingId);
+        assertEquals(List.of(GEMMA.name(), HANDLEBARS.name(), "unknownMapping"), new ArrayList<>(results.keySet()));
+        assertEquals(expectedResult, FileUtils.readFileToString(results.get(GEMMA.name()).getResult().get().toFile(), StandardCharsets.UTF_8));
+        assertTrue(FileUtils.readFileToString(results.get(HANDLEBARS.name()).getResult().get().toFile(), StandardCharsets.UTF_8).contains("Publisher"));
+        assertFalse(results.get("unknownMapping").getResult().isPresent());
+        assertNotNull(results.get("unknownMapping").getErrorMessage());
+        results.values().forEach(result -> result.getResult().ifPresent(path -> assertTrue(path.toFile().delete())));
+        assertTrue(Files.exists(srcFile));
+
+        // failed mapping types are reported by mapping type.
+        results = mappingService4Test.executeMapping(srcFile.toUri(), mappingId);
+        assertEquals(List.of(GEMMA.name(), HANDLEBARS.name(), "unknownMapping"), new ArrayList<>(results.keySet()));
+        assertEquals(expectedResult, FileUtils.readFileToString(results.get(GEMMA.name()).getResult().get().toFile(), StandardCharsets.UTF_8));
+        assertFalse(results.get("unknownMapping").getResult().isPresent());
+        results.values().forEach(result -> result.getResult().ifPresent(path -> assertTrue(path.toFile().delete())));
+        assertTrue(Files.exists(srcFile));
+        try {
+            mappingService4Test.executeMapping(srcFile, "unknownMapping");
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("unknownMapping"));
+        }
+    }
+
+    @Test
+    public void testExecutePipeline() throws IOException, URISyntaxException {
+        System.out.println("testExecutePipeline");
+        String mappingId = "xml2publisher";
+        mappingService4Test.createMapping(FileUtils.readFileToString(new File("src/test/resources/mapping/xslt/simple.xsl"), StandardCharsets.UTF_8),
+                newMappingRecord(mappingId, XSLT.name()));
+        mappingService4Test.createMapping("{\"publisher\": {{{maybeStringify Publisher}}}, \"year\": {{{maybeStringify [Publication Date]}}} }",
+                newMappingRecord(mappingId, HANDLEBARS.name()));
+        MappingPipeline pipeline = newPipeline(mappingId, XSLT.name(), HANDLEBARS.name());
+        mappingService4Test.createPipeline(pipeline);
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.xml").toPath();
+
+        Path resultFile = mappingService4Test.executePipeline(srcFile, pipeline.getPipelineId());
+        assertEquals("{\"publisher\": \"The publisher\", \"year\": \"2019\" }", FileUtils.readFileToString(resultFile.toFile(), StandardCharsets.UTF_8));
+        assertTrue(resultFile.toFile().delete());
+        assertTrue(Files.exists(srcFile));
+        try {
+            // XSLT can't read JSON
+            mappingService4Test.executePipeline(new File("src/test/resources/examples/gemma/simple.json").toPath(), pipeline.getPipelineId());
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("Step 1"));
+        }
+        try {
+            mappingService4Test.executePipeline(srcFile, "unknownPipeline");
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("unknownPipeline"));
+        }
+        // intermediate results are limited to the maximum download size.
+        long maxSize = applicationProperties.getDownloadMaxSize();
+        MappingService limitedService;
+        try {
+            applicationProperties.setDownloadMaxSize(10);
+            limitedService = new MappingService(applicationProperties);
+        } finally {
+            applicationProperties.setDownloadMaxSize(maxSize);
+        }
+        beanFactory.autowireBean(limitedService);
+        try {
+            limitedService.executePipeline(srcFile, pipeline.getPipelineId());
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("exceeds maximum size of 10 bytes"));
+        } finally {
+            limitedService.destroy();
+        }
+        mappingService4Test.deletePipeline(pipeline.getPipelineId());
+        assertFalse(pipelineRepo.existsById(pipeline.getPipelineId()));
+    }
+
+    @Test
+    public void testCreateInvalidPipeline() throws IOException {
+        System.out.println("testCreateInvalidPipeline");
+        String mappingId = "myMappingId";
+        mappingService4Test.createMapping(FileUtils.readFileToString(new File("src/test/resources/mapping/gemma/simple.mapping"), StandardCharsets.UTF_8),
+                newMappingRecord(mappingId, GEMMA.name()));
+        MappingPipeline pipeline = newPipeline(mappingId, GEMMA.name());
+        mappingService4Test.createPipeline(pipeline);
+        for (MappingPipeline invalid : List.of(pipeline, newPipeline(mappingId), newPipeline(mappingId, HANDLEBARS.name()))) {
+            try {
+                mappingService4Test.createPipeline(invalid);
+                fail("Exception expected!");
+            } catch (MappingException ie) {
+                assertTrue(ie.getMessage().contains(invalid.getPipelineId()));
+            }
+        }
+        try {
+            mappingService4Test.deletePipeline("unknownPipeline");
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("unknownPipeline"));
+        }
+    }
+
+    private static MappingPipeline newPipeline(String mappingId, String... mappingTypes) {
+        MappingPipeline pipeline = new MappingPipeline();
+        pipeline.setPipelineId(mappingId + "_" + String.join("_", mappingTypes));
+        for (String mappingType : mappingTypes) {
+            MappingPipeline.Step step = new MappingPipeline.Step();
+            step.setMappingId(mappingId);
+            step.setMappingType(mappingType);
+            pipeline.getSteps().add(step);
+        }
+        return pipeline;
+    }
+
+    private static MappingRecord newMappingRecord(String mappingId, String mappingType) {
+        MappingRecord mappingRecord = new MappingRecord();
+        mappingRecord.setMappingId(mappingId);
+        mappingRecord.setMappingType(mappingType);
+        return mappingRecord;
+    }
+
     @Test
     public void testExecuteMappingWithoutgivenMapping() throws IOException {
         System.out.println("executeMapping");
@@ -471,12 +769,13 @@ public class MappingServiceTest {
         File srcFile = new File("src/test/resources/examples/gemma/simple.json");
         URI contentUrl = srcFile.toURI();
         String expectedResult = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
-        List<Path> resultPath = mappingService4Test.executeMapping(contentUrl, mappingId);
-        assertFalse(resultPath.isEmpty());
-        assertEquals(1, resultPath.size());
-        assertTrue(resultPath.get(0).toFile().exists());
-        String result = FileUtils.readFileToString(resultPath.get(0).toFile(), StandardCharsets.UTF_8);
+        Map<String, MappingService.BatchResult> results = mappingService4Test.executeMapping(contentUrl, mappingId);
+        assertEquals(2, results.size());
+        assertFalse(results.get("unknownMapping").getResult().isPresent());
+        Path resultPath = results.get(mappingType).getResult().get();
+        assertTrue(resultPath.toFile().exists());
+        String result = FileUtils.readFileToString(resultPath.toFile(), StandardCharsets.UTF_8);
         assertEquals(expectedResult, result);
-        assertTrue(resultPath.get(0).toFile().delete());
+        assertTrue(resultPath.toFile().delete());
     }
 }
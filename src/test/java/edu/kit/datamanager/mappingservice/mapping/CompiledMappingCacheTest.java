@@ -0,0 +1,114 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.domain.MappingRecord;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.gemma.GemmaPlan;
+import edu.kit.datamanager.mappingservice.gemma.InProcessGemmaMapping;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CompiledMappingCache.
+ */
+public class CompiledMappingCacheTest {
+
+    private static final String MAPPING_FILE = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath();
+
+    private static final String INVALID_MAPPING_FILE = new File("src/test/resources/examples/gemma/simple.json").getAbsolutePath();
+
+    /**
+     * Test of get method, of class CompiledMappingCache.
+     */
+    @Test
+    public void testGet() {
+        System.out.println("testGet");
+        CompiledMappingCache instance = new CompiledMappingCache(10);
+        InProcessGemmaMapping tool = new InProcessGemmaMapping(new ApplicationProperties());
+        MappingRecord mappingRecord = createRecord("simple", "sha1:1", MAPPING_FILE);
+        GemmaPlan plan = instance.get(mappingRecord, tool);
+        assertEquals(2, plan.getRules().size());
+        assertSame(plan, instance.get(mappingRecord, tool));
+        assertEquals(1, instance.size());
+        // new document hash results in new plan
+        mappingRecord.setDocumentHash("sha1:2");
+        assertNotSame(plan, instance.get(mappingRecord, tool));
+        assertEquals(2, instance.size());
+    }
+
+    /**
+     * Test of invalidate method, of class CompiledMappingCache.
+     */
+    @Test
+    public void testInvalidate() {
+        System.out.println("testInvalidate");
+        CompiledMappingCache instance = new CompiledMappingCache(10);
+        InProcessGemmaMapping tool = new InProcessGemmaMapping(new ApplicationProperties());
+        MappingRecord mappingRecord = createRecord("simple", "sha1:1", MAPPING_FILE);
+        MappingRecord otherRecord = createRecord("other", "sha1:1", MAPPING_FILE);
+        GemmaPlan plan = instance.get(mappingRecord, tool);
+        instance.get(otherRecord, tool);
+        mappingRecord.setDocumentHash("sha1:2");
+        instance.get(mappingRecord, tool);
+        assertEquals(3, instance.size());
+        instance.invalidate("simple", Mapping.GEMMA.name());
+        assertEquals(1, instance.size());
+        mappingRecord.setDocumentHash("sha1:1");
+        assertNotSame(plan, instance.get(mappingRecord, tool));
+    }
+
+    /**
+     * Test of get method with invalid mapping document.
+     */
+    @Test
+    public void testGetWithInvalidMapping() {
+        System.out.println("testGetWithInvalidMapping");
+        CompiledMappingCache instance = new CompiledMappingCache(10);
+        InProcessGemmaMapping tool = new InProcessGemmaMapping(new ApplicationProperties());
+        MappingRecord mappingRecord = createRecord("invalid", "sha1:1", INVALID_MAPPING_FILE);
+        assertThrows(MappingException.class, () -> instance.get(mappingRecord, tool));
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Test of get method with disabled cache.
+     */
+    @Test
+    public void testGetWithoutCaching() {
+        System.out.println("testGetWithoutCaching");
+        CompiledMappingCache instance = new CompiledMappingCache(0);
+        InProcessGemmaMapping tool = new InProcessGemmaMapping(new ApplicationProperties());
+        MappingRecord mappingRecord = createRecord("simple", "sha1:1", MAPPING_FILE);
+        GemmaPlan plan = instance.get(mappingRecord, tool);
+        assertNotNull(plan);
+        assertNotSame(plan, instance.get(mappingRecord, tool));
+        assertEquals(0, instance.size());
+    }
+
+    private MappingRecord createRecord(String mappingId, String documentHash, String mappingFile) {
+        MappingRecord mappingRecord = new MappingRecord();
+        mappingRecord.setMappingId(mappingId);
+        mappingRecord.setMappingType(Mapping.GEMMA.name());
+        mappingRecord.setDocumentHash(documentHash);
+        mappingRecord.setMappingDocumentUri(mappingFile);
+        return mappingRecord;
+    }
+}
@@ -17,8 +17,11 @@ package edu.kit.datamanager.mappingservice.mapping;
 
 import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
 import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.gemma.InProcessGemmaMapping;
+import edu.kit.datamanager.mappingservice.handlebars.HandlebarsMapping;
 import edu.kit.datamanager.mappingservice.python.gemma.GemmaMapping;
 import edu.kit.datamanager.mappingservice.python.util.PythonUtils;
+import edu.kit.datamanager.mappingservice.xslt.XsltMapping;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
@@ -69,7 +72,7 @@ public class IMappingToolTest {
     }
 
     /**
-     * Test of getMappingTool method, of class IMappingTool.
+     * Test of getMappingTool method, of class MappingToolRegistry.
      */
     @Test
     public void testGetMappingToolWithWrongParameters() {
@@ -78,7 +81,7 @@ public class IMappingToolTest {
         String[] mapping = {"", "Gemma", null};
         for (String map : mapping) {
             try {
-                IMappingTool result = IMappingTool.getMappingTool(applicationProperties, map);
+                IMappingTool result = new MappingToolRegistry(applicationProperties).getMappingTool(map);
                 fail("Expected an exception! (mapping = '" + map + "')");
             } catch (MappingException iex) {
                 assertTrue(true);
@@ -87,15 +90,20 @@ public class IMappingToolTest {
     }
 
     /**
-     * Test of getMappingTool method, of class IMappingTool.
+     * Test of getMappingTool method, of class MappingToolRegistry.
      */
     @Test
     public void testGetMappingTool() {
         System.out.println("getMappingTool");
         ApplicationProperties applicationProperties = new ApplicationProperties();
         String mapping = "GEMMA";
-        IMappingTool result = IMappingTool.getMappingTool(applicationProperties, mapping);
-        assertTrue(result instanceof GemmaMapping);
+        MappingToolRegistry registry = new MappingToolRegistry(applicationProperties);
+        IMappingTool result = registry.getMappingTool(mapping);
+        assertTrue(result instanceof InProcessGemmaMapping);
+        result = registry.getMappingTool(Mapping.HANDLEBARS.name());
+        assertTrue(result instanceof HandlebarsMapping);
+        result = registry.getMappingTool(Mapping.XSLT.name());
+        assertTrue(result instanceof XsltMapping);
     }
 
     /**
@@ -110,7 +118,7 @@ public class IMappingToolTest {
         Path resultFile = new File("/tmp/result.elastic.json").getAbsoluteFile().toPath();
         conf.setGemmaLocation(GEMMA_CLASS);
         conf.setPythonLocation(PYTHON_EXECUTABLE);
-        IMappingTool instance = IMappingTool.getMappingTool(conf, Mapping.GEMMA.name());
+        IMappingTool instance = new MappingToolRegistry(conf).getMappingTool(Mapping.GEMMA.name());
         int expResult = 0;
         int result = instance.mapFile(mappingFile, srcFile, resultFile);
         assertEquals(expResult, result);
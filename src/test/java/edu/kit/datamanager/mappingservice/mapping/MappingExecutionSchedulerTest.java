@@ -0,0 +1,166 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.exception.MappingRejectedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MappingExecutionScheduler.
+ */
+public class MappingExecutionSchedulerTest {
+
+    /**
+     * Test global limit.
+     */
+    @Test
+    public void testGlobalLimit() throws Exception {
+        System.out.println("testGlobalLimit");
+        MappingExecutionScheduler instance = new MappingExecutionScheduler(2, null, 0);
+        assertEquals(2, runConcurrently(instance, "GEMMA", 8));
+        assertEquals(8, instance.getExecuted());
+        assertEquals(0, instance.getActive());
+        assertEquals(0, instance.getWaiting());
+    }
+
+    /**
+     * Test limit by mapping type.
+     */
+    @Test
+    public void testTypeLimit() throws Exception {
+        System.out.println("testTypeLimit");
+        MappingExecutionScheduler instance = new MappingExecutionScheduler(0, Map.of("GEMMA", 1), 0);
+        assertEquals(1, runConcurrently(instance, "GEMMA", 4));
+        assertTrue(runConcurrently(instance, "XSLT", 4) > 1);
+    }
+
+    /**
+     * Test rejection after queue timeout.
+     */
+    @Test
+    public void testQueueTimeout() throws Exception {
+        System.out.println("testQueueTimeout");
+        MappingExecutionScheduler instance = new MappingExecutionScheduler(1, null, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Integer> blocking = executor.submit(() -> instance.execute("GEMMA", () -> {
+                started.countDown();
+                finish.await();
+                return MappingUtil.SUCCESS;
+            }));
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            MappingException mex = assertThrows(MappingRejectedException.class, () -> instance.execute("GEMMA", () -> MappingUtil.SUCCESS));
+            assertTrue(mex.getMessage().contains("not started within"));
+            assertEquals(1, instance.getRejected());
+            finish.countDown();
+            assertEquals(MappingUtil.SUCCESS, blocking.get(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+        // permits are released after failing tasks.
+        assertThrows(IllegalStateException.class, () -> instance.execute("GEMMA", () -> {
+            throw new IllegalStateException();
+        }));
+        assertEquals(MappingUtil.SUCCESS, instance.execute("GEMMA", () -> MappingUtil.SUCCESS));
+    }
+
+    /**
+     * Test checked exceptions of tasks.
+     */
+    @Test
+    public void testCheckedException() {
+        System.out.println("testCheckedException");
+        MappingExecutionScheduler instance = new MappingExecutionScheduler(0, null, 0);
+        MappingException mex = assertThrows(MappingException.class, () -> instance.execute("GEMMA", () -> {
+            throw new IOException("any error");
+        }));
+        assertTrue(mex.getCause() instanceof IOException);
+    }
+
+    /**
+     * Test of parseTypeLimits method, of class MappingExecutionScheduler.
+     */
+    @Test
+    public void testParseTypeLimits() {
+        System.out.println("testParseTypeLimits");
+        assertTrue(MappingExecutionScheduler.parseTypeLimits(null).isEmpty());
+        assertTrue(MappingExecutionScheduler.parseTypeLimits(" ").isEmpty());
+        assertEquals(Map.of("GEMMA", 4, "XSLT", 8), MappingExecutionScheduler.parseTypeLimits("GEMMA:4, XSLT : 8"));
+        assertThrows(MappingException.class, () -> MappingExecutionScheduler.parseTypeLimits("GEMMA"));
+        assertThrows(MappingException.class, () -> MappingExecutionScheduler.parseTypeLimits("GEMMA:four"));
+    }
+
+    /**
+     * Test metrics.
+     */
+    @Test
+    public void testMetrics() {
+        System.out.println("testMetrics");
+        MappingExecutionScheduler instance = new MappingExecutionScheduler(1, null, 0);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        instance.bindTo(registry);
+        instance.execute("GEMMA", () -> MappingUtil.SUCCESS);
+        assertEquals(1.0, registry.get("mapping.execution.queue.wait").functionTimer().count());
+        assertEquals(0.0, registry.get("mapping.execution.active").gauge().value());
+        assertEquals(0.0, registry.get("mapping.execution.rejected").functionCounter().count());
+    }
+
+    /**
+     * Execute tasks concurrently.
+     *
+     * @return maximum number of tasks executed at the same time.
+     */
+    private int runConcurrently(MappingExecutionScheduler instance, String mappingType, int tasks) throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(tasks);
+        try {
+            List<Callable<Integer>> callables = new ArrayList<>();
+            for (int index = 0; index < tasks; index++) {
+                callables.add(() -> instance.execute(mappingType, () -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(50);
+                    running.decrementAndGet();
+                    return MappingUtil.SUCCESS;
+                }));
+            }
+            for (Future<Integer> future : executor.invokeAll(callables)) {
+                assertEquals(MappingUtil.SUCCESS, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return maxRunning.get();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MappingResultCache.
+ */
+public class MappingResultCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test of get and put method, of class MappingResultCache.
+     */
+    @Test
+    public void testGetAndPut() throws IOException {
+        System.out.println("testGetAndPut");
+        MappingResultCache instance = new MappingResultCache(tempDir.resolve("cache"), 0, 0);
+        assertFalse(instance.get("input", "sha1:1", "GEMMA").isPresent());
+        assertEquals(1, instance.getMisses());
+        Path result = createFile("result", "{\"title\":\"cached\"}");
+        instance.put("input", "sha1:1", "GEMMA", result);
+        Files.delete(result);
+        assertEquals(1, instance.size());
+
+        Optional<Path> cached = instance.get("input", "sha1:1", "GEMMA");
+        assertTrue(cached.isPresent());
+        assertEquals("{\"title\":\"cached\"}", Files.readString(cached.get()));
+        assertEquals(1, instance.getHits());
+        // removing the returned file doesn't affect the cache
+        Files.delete(cached.get());
+        cached = instance.get("input", "sha1:1", "GEMMA");
+        assertTrue(cached.isPresent());
+        Files.delete(cached.get());
+        assertEquals(2, instance.getHits());
+
+        // all parts of the key have to match
+        assertFalse(instance.get("other", "sha1:1", "GEMMA").isPresent());
+        assertFalse(instance.get("input", "sha1:2", "GEMMA").isPresent());
+        assertFalse(instance.get("input", "sha1:1", "XSLT").isPresent());
+        assertEquals(4, instance.getMisses());
+    }
+
+    /**
+     * Test of eviction by size, of class MappingResultCache.
+     */
+    @Test
+    public void testEvictionBySize() throws IOException {
+        System.out.println("testEvictionBySize");
+        Path cacheDir = tempDir.resolve("cache");
+        MappingResultCache instance = new MappingResultCache(cacheDir, 100, 0);
+        instance.put("first", "sha1:1", "GEMMA", createFile("first", "x".repeat(60)));
+        instance.put("second", "sha1:1", "GEMMA", createFile("second", "y".repeat(60)));
+        assertEquals(1, instance.size());
+        assertFalse(instance.get("first", "sha1:1", "GEMMA").isPresent());
+        Optional<Path> cached = instance.get("second", "sha1:1", "GEMMA");
+        assertTrue(cached.isPresent());
+        Files.delete(cached.get());
+        // evicted results are removed from disk
+        assertEquals(1, countFiles(cacheDir));
+    }
+
+    /**
+     * Test of invalidateAll method, of class MappingResultCache.
+     */
+    @Test
+    public void testInvalidateAll() throws IOException {
+        System.out.println("testInvalidateAll");
+        Path cacheDir = tempDir.resolve("cache");
+        MappingResultCache instance = new MappingResultCache(cacheDir, 0, 3600);
+        instance.put("input", "sha1:1", "GEMMA", createFile("result", "content"));
+        assertEquals(1, countFiles(cacheDir));
+        instance.invalidateAll();
+        assertEquals(0, instance.size());
+        assertEquals(0, countFiles(cacheDir));
+    }
+
+    /**
+     * Test of constructor, of class MappingResultCache. Results of previous
+     * runs are removed.
+     */
+    @Test
+    public void testConstructorRemovesOldResults() throws IOException {
+        System.out.println("testConstructorRemovesOldResults");
+        Path cacheDir = tempDir.resolve("cache");
+        new MappingResultCache(cacheDir, 0, 0).put("input", "sha1:1", "GEMMA", createFile("result", "content"));
+        assertEquals(1, countFiles(cacheDir));
+        MappingResultCache instance = new MappingResultCache(cacheDir, 0, 0);
+        assertEquals(0, countFiles(cacheDir));
+        assertFalse(instance.get("input", "sha1:1", "GEMMA").isPresent());
+    }
+
+    private Path createFile(String name, String content) throws IOException {
+        return Files.writeString(tempDir.resolve(name), content, StandardCharsets.UTF_8);
+    }
+
+    private static long countFiles(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.count();
+        }
+    }
+}
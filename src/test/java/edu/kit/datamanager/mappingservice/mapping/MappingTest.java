@@ -30,7 +30,7 @@ public class MappingTest {
     @Test
     public void testValues() {
         System.out.println("values");
-        Mapping[] expResult = {Mapping.GEMMA};
+        Mapping[] expResult = {Mapping.GEMMA, Mapping.HANDLEBARS, Mapping.XSLT};
         Mapping[] result = Mapping.values();
         assertArrayEquals(expResult, result);
     }
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.mapping;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.gemma.InProcessGemmaMapping;
+import edu.kit.datamanager.mappingservice.python.gemma.GemmaMapping;
+import org.junit.jupiter.api.Test;
+
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MappingToolRegistry.
+ */
+public class MappingToolRegistryTest {
+
+    /**
+     * Test of getMappingTypes method, of class MappingToolRegistry.
+     */
+    @Test
+    public void testGetMappingTypes() {
+        System.out.println("testGetMappingTypes");
+        MappingToolRegistry instance = new MappingToolRegistry(new ApplicationProperties());
+        Set<String> mappingTypes = instance.getMappingTypes();
+        for (Mapping mapping : Mapping.values()) {
+            assertTrue(mappingTypes.contains(mapping.name()));
+            assertTrue(instance.isRegistered(mapping.name()));
+        }
+        assertFalse(instance.isRegistered("Gemma"));
+        assertFalse(instance.isRegistered(null));
+    }
+
+    /**
+     * Test of getMappingTool method, of class MappingToolRegistry.
+     */
+    @Test
+    public void testGetMappingTool() throws MalformedURLException {
+        System.out.println("testGetMappingTool");
+        ApplicationProperties conf = new ApplicationProperties();
+        conf.setGemmaInProcess(true);
+        MappingToolRegistry instance = new MappingToolRegistry(conf);
+        IMappingTool tool = instance.getMappingTool(Mapping.GEMMA.name());
+        assertTrue(tool instanceof InProcessGemmaMapping);
+        assertSame(tool, instance.getMappingTool(Mapping.GEMMA.name()));
+
+        conf.setGemmaInProcess(false);
+        conf.setGemmaLocation(new URL("file:src/test/resources/python/mapping_single.py"));
+        conf.setPythonLocation(new URL("file:///usr/bin/python3"));
+        instance = new MappingToolRegistry(conf);
+        assertTrue(instance.getMappingTool(Mapping.GEMMA.name()) instanceof GemmaMapping);
+    }
+
+    /**
+     * Test of getMappingTool method with invalid mapping types, of class
+     * MappingToolRegistry.
+     */
+    @Test
+    public void testGetMappingToolWithWrongParameters() {
+        System.out.println("testGetMappingToolWithWrongParameters");
+        MappingToolRegistry instance = new MappingToolRegistry(new ApplicationProperties());
+        String[] mapping = {"", "Gemma", null};
+        for (String map : mapping) {
+            try {
+                instance.getMappingTool(map);
+                fail("Expected an exception! (mapping = '" + map + "')");
+            } catch (MappingException mex) {
+                assertTrue(mex.getMessage().contains("is not a valid mapping"));
+            }
+        }
+    }
+
+    /**
+     * Test of register method, of class MappingToolRegistry.
+     */
+    @Test
+    public void testRegister() {
+        System.out.println("testRegister");
+        MappingToolRegistry instance = new MappingToolRegistry(new ApplicationProperties());
+        IMappingTool gemma = instance.getMappingTool(Mapping.GEMMA.name());
+        CountingProvider provider = new CountingProvider(Mapping.GEMMA.name());
+        instance.register(provider);
+        IMappingTool replaced = instance.getMappingTool(Mapping.GEMMA.name());
+        assertNotSame(gemma, replaced);
+        assertSame(provider.tool, replaced);
+
+        CountingProvider newProvider = new CountingProvider("NEW_TYPE");
+        instance.register(newProvider);
+        assertTrue(instance.isRegistered("NEW_TYPE"));
+        assertSame(newProvider.tool, instance.getMappingTool("NEW_TYPE"));
+    }
+
+    /**
+     * Test concurrent first access, tool has to be created only once.
+     */
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        System.out.println("testConcurrentAccess");
+        MappingToolRegistry instance = new MappingToolRegistry(new ApplicationProperties());
+        CountingProvider provider = new CountingProvider("SLOW");
+        instance.register(provider);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<IMappingTool>> tasks = new ArrayList<>();
+            for (int index = 0; index < 32; index++) {
+                tasks.add(() -> instance.getMappingTool("SLOW"));
+            }
+            for (Future<IMappingTool> future : executor.invokeAll(tasks)) {
+                assertSame(provider.tool, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, provider.counter.get());
+    }
+
+    /**
+     * Test of warmUp method, of class MappingToolRegistry.
+     */
+    @Test
+    public void testWarmUp() {
+        System.out.println("testWarmUp");
+        MappingToolRegistry instance = new MappingToolRegistry(new ApplicationProperties());
+        CountingProvider provider = new CountingProvider("COUNTING");
+        instance.register(provider);
+        instance.register(new IMappingToolProvider() {
+            @Override
+            public String getMappingType() {
+                return "FAILING";
+            }
+
+            @Override
+            public IMappingTool createMappingTool(ApplicationProperties configuration) {
+                throw new MappingException("Error: Not available!");
+            }
+        });
+        instance.warmUp();
+        assertEquals(1, provider.counter.get());
+        instance.getMappingTool("COUNTING");
+        assertEquals(1, provider.counter.get());
+        assertThrows(MappingException.class, () -> instance.getMappingTool("FAILING"));
+    }
+
+    /**
+     * Test of destroy method, of class MappingToolRegistry.
+     */
+    @Test
+    public void testDestroy() {
+        System.out.println("testDestroy");
+        MappingToolRegistry instance = new MappingToolRegistry(new ApplicationProperties());
+        AtomicInteger closed = new AtomicInteger();
+        instance.register(new CloseableProvider("CLOSEABLE", closed));
+        instance.getMappingTool("CLOSEABLE");
+        // replacing a created tool closes it
+        instance.register(new CloseableProvider("CLOSEABLE", closed));
+        assertEquals(1, closed.get());
+        instance.getMappingTool("CLOSEABLE");
+        instance.destroy();
+        assertEquals(2, closed.get());
+        // tool is created again on next access
+        instance.getMappingTool("CLOSEABLE");
+        instance.destroy();
+        assertEquals(3, closed.get());
+    }
+
+    /**
+     * Provider creating tools which count their invocations of close.
+     */
+    private static class CloseableProvider implements IMappingToolProvider {
+
+        private final String mappingType;
+        private final AtomicInteger closed;
+
+        CloseableProvider(String mappingType, AtomicInteger closed) {
+            this.mappingType = mappingType;
+            this.closed = closed;
+        }
+
+        @Override
+        public String getMappingType() {
+            return mappingType;
+        }
+
+        @Override
+        public IMappingTool createMappingTool(ApplicationProperties configuration) {
+            return new CloseableTool(closed);
+        }
+    }
+
+    /**
+     * Tool counting invocations of close.
+     */
+    private static class CloseableTool implements IMappingTool, AutoCloseable {
+
+        private final AtomicInteger closed;
+
+        CloseableTool(AtomicInteger closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public int mapFile(Path mappingFile, Path srcFile, Path resultFile) {
+            return MappingUtil.SUCCESS;
+        }
+
+        @Override
+        public void close() {
+            closed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Provider counting the created tools.
+     */
+    private static class CountingProvider implements IMappingToolProvider {
+
+        private final String mappingType;
+        private final AtomicInteger counter = new AtomicInteger();
+        private final IMappingTool tool = (mappingFile, srcFile, resultFile) -> MappingUtil.SUCCESS;
+
+        CountingProvider(String mappingType) {
+            this.mappingType = mappingType;
+        }
+
+        @Override
+        public String getMappingType() {
+            return mappingType;
+        }
+
+        @Override
+        public IMappingTool createMappingTool(ApplicationProperties configuration) {
+            counter.incrementAndGet();
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return tool;
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package edu.kit.datamanager.mappingservice.mapping;
 
 import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.domain.MappingRecord;
 import edu.kit.datamanager.mappingservice.exception.MappingException;
 import edu.kit.datamanager.mappingservice.python.util.PythonUtils;
 import edu.kit.datamanager.mappingservice.util.FileUtil;
@@ -30,7 +31,10 @@ import java.net.URL;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -50,6 +54,11 @@ public class MappingUtilTest {
             + "  \"Publication Date\": \"2019\"\n"
             + "}";
 
+    /**
+     * Instances created by a test, closed after the test.
+     */
+    private final List<MappingUtil> instances = new ArrayList<>();
+
     public MappingUtilTest() {
     }
 
@@ -77,16 +86,76 @@ public class MappingUtilTest {
     public static void tearDownClass() {
     }
 
-    @BeforeEach
-    public void setUp() {
-        IMappingTool.toolMapper.clear();
-    }
-
     @AfterEach
     public void tearDown() {
         if (RESULT_FILE.toFile().exists()) {
             FileUtils.deleteQuietly(RESULT_FILE.toFile());
         }
+        instances.forEach(MappingUtil::close);
+        instances.clear();
+    }
+
+    /**
+     * Create instance with its own mapping tools which is closed after the
+     * test.
+     *
+     * @param conf configuration.
+     * @return instance.
+     */
+    private MappingUtil newMappingUtil(ApplicationProperties conf) {
+        MappingUtil instance = new MappingUtil(conf);
+        instances.add(instance);
+        return instance;
+    }
+
+    /**
+     * Test of close method, of class MappingUtil.
+     */
+    @Test
+    public void testCloseWithSharedRegistry() {
+        System.out.println("testCloseWithSharedRegistry");
+        ApplicationProperties conf = new ApplicationProperties();
+        MappingToolRegistry registry = new MappingToolRegistry(conf);
+        AtomicBoolean closed = new AtomicBoolean();
+        registry.register(new IMappingToolProvider() {
+            @Override
+            public String getMappingType() {
+                return "CLOSEABLE";
+            }
+
+            @Override
+            public IMappingTool createMappingTool(ApplicationProperties configuration) {
+                return new CloseableMappingTool(closed);
+            }
+        });
+        assertTrue(registry.getMappingTool("CLOSEABLE") instanceof CloseableMappingTool);
+        // a shared registry is left open.
+        new MappingUtil(conf, registry, new MappingExecutionScheduler(conf)).close();
+        assertFalse(closed.get());
+        registry.destroy();
+        assertTrue(closed.get());
+    }
+
+    /**
+     * Mapping tool recording if it was closed.
+     */
+    private static final class CloseableMappingTool implements IMappingTool, AutoCloseable {
+
+        private final AtomicBoolean closed;
+
+        CloseableMappingTool(AtomicBoolean closed) {
+            this.closed = closed;
+        }
+
+        @Override
+        public int mapFile(Path mappingFile, Path srcFile, Path resultFile) {
+            return MappingUtil.FAILURE;
+        }
+
+        @Override
+        public void close() {
+            closed.set(true);
+        }
     }
 
     /**
@@ -97,7 +166,7 @@ public class MappingUtilTest {
         System.out.println("testGetMappingToolWithWrongParameters");
         int result;
         ApplicationProperties applicationProperties = new ApplicationProperties();
-        MappingUtil instance = new MappingUtil(applicationProperties);
+        MappingUtil instance = newMappingUtil(applicationProperties);
         String[] mapping = {"", "Gemma", null};
         for (String map : mapping) {
             try {
@@ -118,7 +187,7 @@ public class MappingUtilTest {
         ApplicationProperties conf = new ApplicationProperties();
         conf.setGemmaLocation(GEMMA_CLASS);
         conf.setPythonLocation(PYTHON_EXECUTABLE);
-        MappingUtil instance = new MappingUtil(conf);
+        MappingUtil instance = newMappingUtil(conf);
         int expResult = 0;
         int result = instance.mapFile(MAPPING_FILE, SRC_FILE, RESULT_FILE, Mapping.GEMMA.name());
         assertEquals(expResult, result);
@@ -137,7 +206,7 @@ public class MappingUtilTest {
         ApplicationProperties conf = new ApplicationProperties();
         conf.setGemmaLocation(GEMMA_CLASS);
         conf.setPythonLocation(PYTHON_EXECUTABLE);
-        MappingUtil instance = new MappingUtil(conf);
+        MappingUtil instance = newMappingUtil(conf);
         FileUtils.writeStringToFile(RESULT_FILE.toFile(), "", StandardCharsets.UTF_8);
         int expResult = 0;
         int result = instance.mapFile(MAPPING_FILE, SRC_FILE, RESULT_FILE, Mapping.GEMMA.name());
@@ -157,7 +226,7 @@ public class MappingUtilTest {
         ApplicationProperties conf = new ApplicationProperties();
         conf.setGemmaLocation(GEMMA_CLASS);
         conf.setPythonLocation(PYTHON_EXECUTABLE);
-        MappingUtil instance = new MappingUtil(conf);
+        MappingUtil instance = newMappingUtil(conf);
         FileUtils.writeStringToFile(RESULT_FILE.toFile(), "", StandardCharsets.UTF_8);
         assertTrue(RESULT_FILE.toFile().setReadOnly());
         try {
@@ -178,7 +247,7 @@ public class MappingUtilTest {
         ApplicationProperties conf = new ApplicationProperties();
         conf.setGemmaLocation(GEMMA_CLASS);
         conf.setPythonLocation(PYTHON_EXECUTABLE);
-        MappingUtil instance = new MappingUtil(conf);
+        MappingUtil instance = newMappingUtil(conf);
         FileUtils.writeStringToFile(RESULT_FILE.toFile(), "any content", StandardCharsets.UTF_8);
         try {
             int result = instance.mapFile(MAPPING_FILE, SRC_FILE, RESULT_FILE, Mapping.GEMMA.name());
@@ -198,7 +267,8 @@ public class MappingUtilTest {
         // try to map with invalid configuration
         conf.setGemmaLocation(new URL("file:///tmp/invalid_class.py"));
         conf.setPythonLocation(PYTHON_EXECUTABLE);
-        MappingUtil instance = new MappingUtil(conf);
+        conf.setGemmaInProcess(false);
+        MappingUtil instance = newMappingUtil(conf);
         Optional<Path> result;
         result = instance.mapFile(MAPPING_FILE, SRC_FILE, Mapping.GEMMA.name());
         assertFalse(result.isPresent());
@@ -209,8 +279,7 @@ public class MappingUtilTest {
         // try to map with valid configuration.
         conf.setGemmaLocation(GEMMA_CLASS);
         conf.setPythonLocation(PYTHON_EXECUTABLE);
-        IMappingTool.toolMapper.clear();
-        instance = new MappingUtil(conf);
+        instance = newMappingUtil(conf);
         result = instance.mapFile(MAPPING_FILE, SRC_FILE, Mapping.GEMMA.name());
         assertTrue(result.isPresent());
 
@@ -220,4 +289,30 @@ public class MappingUtilTest {
         FileUtil.removeFile(result.get());
     }
 
+    /**
+     * Test of mapFile method with mapping record, of class MappingUtil.
+     */
+    @Test
+    public void testMapFileWithMappingRecord() throws IOException {
+        System.out.println("testMapFileWithMappingRecord");
+        ApplicationProperties conf = new ApplicationProperties();
+        MappingUtil instance = newMappingUtil(conf);
+        MappingRecord mappingRecord = new MappingRecord();
+        mappingRecord.setMappingId("simple");
+        mappingRecord.setMappingType(Mapping.GEMMA.name());
+        mappingRecord.setMappingDocumentUri(MAPPING_FILE.toString());
+        mappingRecord.setDocumentHash("sha1:simple");
+        for (int index = 0; index < 2; index++) {
+            Optional<Path> result = instance.mapFile(mappingRecord, SRC_FILE);
+            assertTrue(result.isPresent());
+            assertEquals(RESULT, FileUtils.readFileToString(result.get().toFile(), StandardCharsets.UTF_8));
+            FileUtil.removeFile(result.get());
+        }
+        instance.invalidate(mappingRecord);
+        // invalid mapping document
+        mappingRecord.setMappingDocumentUri(SRC_FILE.toString());
+        mappingRecord.setDocumentHash("sha1:invalid");
+        Optional<Path> result = instance.mapFile(mappingRecord, SRC_FILE);
+        assertFalse(result.isPresent());
+    }
 }
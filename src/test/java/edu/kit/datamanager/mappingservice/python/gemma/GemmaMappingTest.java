@@ -156,6 +156,34 @@ public class GemmaMappingTest {
         assertFalse(resultFile.toFile().exists());
     }
 
+    /**
+     * Test of mapFile method using python workers.
+     */
+    @Test
+    public void testRunGemmaWithWorkers() throws IOException {
+        GemmaConfiguration conf = new GemmaConfiguration();
+        System.out.println("testRunGemmaWithWorkers");
+        Path mappingFile = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsoluteFile().toPath();
+        Path xmlMappingFile = new File("src/test/resources/mapping/gemma/simple.xml.mapping").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.json").getAbsoluteFile().toPath();
+        Path xmlSrcFile = new File("src/test/resources/examples/gemma/simple.xml").getAbsoluteFile().toPath();
+        Path resultFile = new File("/tmp/result.worker.elastic.json").getAbsoluteFile().toPath();
+        conf.setGemmaLocation(GEMMA_CLASS);
+        conf.setPythonLocation(PYTHON_EXECUTABLE);
+        ApplicationProperties ap = conf2ApplicationProperties(conf);
+        ap.setGemmaWorkers(2);
+        GemmaMapping instance = new GemmaMapping(ap);
+        assertEquals(PythonUtils.SUCCESS, instance.mapFile(mappingFile, srcFile, resultFile));
+        assertEquals(RESULT, FileUtils.readFileToString(resultFile.toFile(), StandardCharsets.UTF_8));
+        FileUtils.deleteQuietly(resultFile.toFile());
+        assertEquals(PythonUtils.SUCCESS, instance.mapFile(xmlMappingFile, xmlSrcFile, resultFile));
+        assertEquals(RESULT, FileUtils.readFileToString(resultFile.toFile(), StandardCharsets.UTF_8));
+        FileUtils.deleteQuietly(resultFile.toFile());
+        Path invalidSrcFile = new File("src/test/resources/examples/gemma/notexists").getAbsoluteFile().toPath();
+        assertEquals(PythonUtils.EXECUTION_ERROR, instance.mapFile(mappingFile, invalidSrcFile, resultFile));
+        assertFalse(resultFile.toFile().exists());
+    }
+
     private ApplicationProperties conf2ApplicationProperties(GemmaConfiguration configuration) {
         ApplicationProperties ap = new ApplicationProperties();
         ap.setGemmaLocation(configuration.getGemmaLocation());
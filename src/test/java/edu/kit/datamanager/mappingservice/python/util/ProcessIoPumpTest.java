@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ProcessIoPump.
+ */
+public class ProcessIoPumpTest {
+
+    /**
+     * Script writing 'lines' lines to stdout and stderr alternately. The
+     * output is much bigger than the buffer of a pipe.
+     */
+    private static final String CHATTY_SCRIPT = "import sys\n"
+            + "for i in range(int(sys.argv[1])):\n"
+            + "    print('out %d' % i)\n"
+            + "    print('err %d' % i, file=sys.stderr)\n";
+
+    private static String PYTHON_EXECUTABLE;
+
+    @BeforeAll
+    public static void setUpClass() throws IOException {
+        OutputStream os = new ByteArrayOutputStream();
+        PythonUtils.run("which", "python3", os, null);
+        PYTHON_EXECUTABLE = os.toString().trim();
+        if (PYTHON_EXECUTABLE.isEmpty()) {
+            throw new IOException("Python seems not to be available!");
+        }
+    }
+
+    /**
+     * Test FORWARD mode, all lines are written to the target streams.
+     */
+    @Test
+    public void testForward() throws Exception {
+        System.out.println("testForward");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteArrayOutputStream error = new ByteArrayOutputStream();
+        ProcessIoPump pump = runChattyScript(50000, output, error, ProcessIoPump.Mode.FORWARD, 10);
+        assertEquals(50000, pump.getOutputLines());
+        assertEquals(50000, pump.getErrorLines());
+        String[] lines = output.toString().split("\n");
+        assertEquals(50000, lines.length);
+        assertEquals("out 0", lines[0]);
+        assertEquals("out 49999", lines[49999]);
+        assertEquals(50000, error.toString().split("\n").length);
+        List<String> tail = pump.getErrorTail();
+        assertEquals(10, tail.size());
+        assertEquals("err 49990", tail.get(0));
+        assertEquals("err 49999", tail.get(9));
+    }
+
+    /**
+     * Test SAMPLE mode, only first and last lines are written.
+     */
+    @Test
+    public void testSample() throws Exception {
+        System.out.println("testSample");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ProcessIoPump pump = runChattyScript(50000, output, output, ProcessIoPump.Mode.SAMPLE, 5);
+        assertEquals(50000, pump.getOutputLines());
+        String result = output.toString();
+        assertTrue(result.contains("out 4\n"));
+        assertFalse(result.contains("out 5\n"));
+        assertTrue(result.contains("... 49990 lines skipped ...\n"));
+        assertFalse(result.contains("out 49994\n"));
+        assertTrue(result.contains("out 49995\n"));
+        assertTrue(result.contains("err 49999\n"));
+        assertEquals(2 * 11, result.split("\n").length);
+
+        // less lines than 2 * maxLines are written only once.
+        output.reset();
+        runChattyScript(7, output, null, ProcessIoPump.Mode.SAMPLE, 5);
+        assertEquals("out 0\nout 1\nout 2\nout 3\nout 4\nout 5\nout 6\n", output.toString());
+    }
+
+    /**
+     * Test DISCARD mode, only the last lines are kept.
+     */
+    @Test
+    public void testDiscard() throws Exception {
+        System.out.println("testDiscard");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ProcessIoPump pump = runChattyScript(1000, output, output, ProcessIoPump.Mode.DISCARD, 3);
+        assertEquals(0, output.size());
+        assertEquals(1000, pump.getErrorLines());
+        assertEquals(List.of("out 997", "out 998", "out 999"), pump.getOutputTail());
+    }
+
+    /**
+     * Test failing target stream, the process output is still drained.
+     */
+    @Test
+    public void testFailingTarget() throws Exception {
+        System.out.println("testFailingTarget");
+        OutputStream failing = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Stream closed");
+            }
+        };
+        ProcessIoPump pump = runChattyScript(50000, failing, failing, ProcessIoPump.Mode.FORWARD, 3);
+        assertEquals(50000, pump.getOutputLines());
+        assertEquals(50000, pump.getErrorLines());
+        assertEquals(List.of("out 49997", "out 49998", "out 49999"), pump.getOutputTail());
+    }
+
+    /**
+     * Test truncation of very long lines.
+     */
+    @Test
+    public void testLongLine() throws Exception {
+        System.out.println("testLongLine");
+        Process process = new ProcessBuilder(PYTHON_EXECUTABLE, "-c", "print('x' * 100000)\nprint('end')").start();
+        ProcessIoPump pump = new ProcessIoPump(process, null, null, ProcessIoPump.Mode.FORWARD, 10);
+        pump.await(30, TimeUnit.SECONDS);
+        assertEquals(0, process.waitFor());
+        List<String> tail = pump.getOutputTail();
+        assertEquals(2, tail.size());
+        assertEquals(ProcessIoPump.MAX_LINE_LENGTH, tail.get(0).length());
+        assertEquals("end", tail.get(1));
+    }
+
+    private ProcessIoPump runChattyScript(int lines, OutputStream output, OutputStream error, ProcessIoPump.Mode mode, int maxLines) throws Exception {
+        Process process = new ProcessBuilder(PYTHON_EXECUTABLE, "-c", CHATTY_SCRIPT, Integer.toString(lines)).start();
+        ProcessIoPump pump = new ProcessIoPump(process, output, error, mode, maxLines);
+        pump.await(30, TimeUnit.SECONDS);
+        assertEquals(0, process.waitFor());
+        return pump;
+    }
+}
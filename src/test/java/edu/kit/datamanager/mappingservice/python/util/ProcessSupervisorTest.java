@@ -0,0 +1,161 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ProcessSupervisor.
+ */
+public class ProcessSupervisorTest {
+
+    /**
+     * Script starting a child process and sleeping.
+     */
+    private static final String SPAWNING_SCRIPT = "import subprocess, sys, time\n"
+            + "child = subprocess.Popen([sys.executable, '-c', 'import time; time.sleep(60)'])\n"
+            + "print(child.pid, flush=True)\n"
+            + "time.sleep(60)\n";
+
+    private static String PYTHON_EXECUTABLE;
+
+    @BeforeAll
+    public static void setUpClass() throws IOException {
+        OutputStream os = new ByteArrayOutputStream();
+        PythonUtils.run("which", "python3", os, null);
+        PYTHON_EXECUTABLE = os.toString().trim();
+        if (PYTHON_EXECUTABLE.isEmpty()) {
+            throw new IOException("Python seems not to be available!");
+        }
+    }
+
+    /**
+     * Test killing the process tree after timeout.
+     */
+    @Test
+    public void testWaitForWithTimeout() throws Exception {
+        System.out.println("testWaitForWithTimeout");
+        ProcessSupervisor instance = new ProcessSupervisor(null);
+        Process process = instance.start(List.of(PYTHON_EXECUTABLE, "-c", SPAWNING_SCRIPT), ProcessSupervisor.Limits.NONE);
+        long childPid = Long.parseLong(new String(readLine(process), StandardCharsets.UTF_8).trim());
+        ProcessHandle child = ProcessHandle.of(childPid).orElseThrow();
+        assertTrue(child.isAlive());
+        assertEquals(1, instance.getActiveProcesses());
+        assertThrows(TimeoutException.class, () -> instance.waitFor(process, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(200)));
+        assertFalse(process.isAlive());
+        child.onExit().get(5, TimeUnit.SECONDS);
+        assertFalse(child.isAlive());
+        assertEquals(1, instance.getKilledProcesses());
+        process.onExit().get(5, TimeUnit.SECONDS);
+        // onExit handlers of the supervisor may run asynchronously.
+        for (int index = 0; (index < 50) && (instance.getActiveProcesses() > 0); index++) {
+            Thread.sleep(100);
+        }
+        assertEquals(0, instance.getActiveProcesses());
+        assertEquals(1, instance.getStartedProcesses());
+    }
+
+    /**
+     * Test waiting for a regularly terminating process.
+     */
+    @Test
+    public void testWaitFor() throws Exception {
+        System.out.println("testWaitFor");
+        ProcessSupervisor instance = new ProcessSupervisor(null);
+        Process process = instance.start(List.of(PYTHON_EXECUTABLE, "-c", "import sys; sys.exit(3)"), null);
+        assertEquals(3, instance.waitFor(process, System.nanoTime() + TimeUnit.SECONDS.toNanos(30)));
+        instance.destroy(process);
+        assertEquals(0, instance.getKilledProcesses());
+        assertFalse(instance.getTotalCpuTime().isNegative());
+    }
+
+    /**
+     * Test prefixing commands with prlimit.
+     */
+    @Test
+    public void testApplyLimits() {
+        System.out.println("testApplyLimits");
+        List<String> command = List.of("python3", "script.py");
+        ProcessSupervisor instance = new ProcessSupervisor(null);
+        assertFalse(instance.isLimitSupported());
+        assertEquals(command, instance.applyLimits(command, new ProcessSupervisor.Limits(10, 1024)));
+        instance = new ProcessSupervisor("/usr/bin/prlimit");
+        assertTrue(instance.isLimitSupported());
+        assertEquals(command, instance.applyLimits(command, ProcessSupervisor.Limits.NONE));
+        assertEquals(List.of("/usr/bin/prlimit", "--cpu=10", "--as=1024", "--", "python3", "script.py"),
+                instance.applyLimits(command, new ProcessSupervisor.Limits(10, 1024)));
+        assertEquals(List.of("/usr/bin/prlimit", "--as=1024", "--", "python3", "script.py"),
+                instance.applyLimits(command, new ProcessSupervisor.Limits(0, 1024)));
+    }
+
+    /**
+     * Test CPU limit (only if prlimit is available).
+     */
+    @Test
+    public void testCpuLimit() throws Exception {
+        System.out.println("testCpuLimit");
+        if (!ProcessSupervisor.getDefault().isLimitSupported()) {
+            System.out.println("prlimit not available, skip test.");
+            return;
+        }
+        Path script = Files.createTempFile("busy", ".py");
+        try {
+            Files.writeString(script, "while True:\n    pass\n");
+            long start = System.nanoTime();
+            int result = PythonUtils.run(PYTHON_EXECUTABLE, script.toString(), null, null, 30, ProcessIoPump.Mode.DISCARD, 10, new ProcessSupervisor.Limits(1, 0));
+            assertEquals(PythonUtils.EXECUTION_ERROR, result);
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(20));
+        } finally {
+            Files.deleteIfExists(script);
+        }
+    }
+
+    /**
+     * Test metrics.
+     */
+    @Test
+    public void testMetrics() {
+        System.out.println("testMetrics");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        new ProcessSupervisorMetrics(new ProcessSupervisor(null)).bindTo(registry);
+        assertEquals(0.0, registry.get("mapping.processes.active").gauge().value());
+        assertEquals(0.0, registry.get("mapping.processes.killed").functionCounter().count());
+        assertNotNull(registry.get("mapping.processes.cpu.time").functionCounter());
+    }
+
+    private static byte[] readLine(Process process) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while (((c = process.getInputStream().read()) >= 0) && (c != '\n')) {
+            line.write(c);
+        }
+        return line.toByteArray();
+    }
+}
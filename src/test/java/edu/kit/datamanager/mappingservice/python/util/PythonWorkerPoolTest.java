@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.python.util;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for PythonWorkerPool.
+ */
+public class PythonWorkerPoolTest {
+
+    private static final String RESULT = "{\n"
+            + "  \"Publisher\": \"The publisher\",\n"
+            + "  \"Publication Date\": \"2019\"\n"
+            + "}";
+
+    private static final String WORKER_SCRIPT = new File("src/main/resources/python/gemma_worker.py").getAbsolutePath();
+    private static final String GEMMA_SCRIPT = new File("src/test/resources/python/mapping_single.py").getAbsolutePath();
+    private static final String MAPPING_FILE = new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath();
+    private static final String SRC_FILE = new File("src/test/resources/examples/gemma/simple.json").getAbsolutePath();
+    private static final File RESULT_FILE = new File("/tmp/result.worker.json");
+
+    private static String pythonExecutable;
+
+    @BeforeAll
+    public static void setUpClass() throws IOException {
+        OutputStream os = new ByteArrayOutputStream();
+        PythonUtils.run("which", "python3", os, null);
+        pythonExecutable = os.toString().trim();
+        if (pythonExecutable.isEmpty()) {
+            throw new IOException("Python seems not to be available!");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() {
+        FileUtils.deleteQuietly(RESULT_FILE);
+    }
+
+    /**
+     * Test of run method, of class PythonWorkerPool.
+     */
+    @Test
+    public void testRun() throws IOException {
+        System.out.println("testRun");
+        try (PythonWorkerPool pool = new PythonWorkerPool(pythonExecutable, WORKER_SCRIPT, 2, 100, 0, GEMMA_SCRIPT)) {
+            assertEquals(2, pool.getIdleWorkers());
+            for (int index = 0; index < 3; index++) {
+                FileUtils.deleteQuietly(RESULT_FILE);
+                assertEquals(PythonUtils.SUCCESS, pool.run(MAPPING_FILE, SRC_FILE, RESULT_FILE.getAbsolutePath()));
+                assertEquals(RESULT, FileUtils.readFileToString(RESULT_FILE, StandardCharsets.UTF_8));
+            }
+            assertEquals(2, pool.getIdleWorkers());
+        }
+    }
+
+    /**
+     * Test of run method with invalid input.
+     */
+    @Test
+    public void testRunWithInvalidInput() {
+        System.out.println("testRunWithInvalidInput");
+        try (PythonWorkerPool pool = new PythonWorkerPool(pythonExecutable, WORKER_SCRIPT, 1, 100, 0, GEMMA_SCRIPT)) {
+            String invalidSrc = new File("src/test/resources/examples/gemma/notexists").getAbsolutePath();
+            assertEquals(PythonUtils.EXECUTION_ERROR, pool.run(MAPPING_FILE, invalidSrc, RESULT_FILE.getAbsolutePath()));
+            assertFalse(RESULT_FILE.exists());
+            // worker is still usable
+            assertEquals(PythonUtils.SUCCESS, pool.run(MAPPING_FILE, SRC_FILE, RESULT_FILE.getAbsolutePath()));
+            assertEquals(1, pool.getIdleWorkers());
+        }
+    }
+
+    /**
+     * Test of run method executing the configured script.
+     */
+    @Test
+    public void testRunWithOtherScript() {
+        System.out.println("testRunWithOtherScript");
+        String otherScript = new File("src/test/resources/python/printOutput.py").getAbsolutePath();
+        try (PythonWorkerPool pool = new PythonWorkerPool(pythonExecutable, WORKER_SCRIPT, 1, 100, 0, otherScript)) {
+            assertEquals(PythonUtils.SUCCESS, pool.run(MAPPING_FILE, SRC_FILE, RESULT_FILE.getAbsolutePath()));
+            // script doesn't create any output file
+            assertFalse(RESULT_FILE.exists());
+        }
+    }
+
+    /**
+     * Test of run method with restart of worker after each job.
+     */
+    @Test
+    public void testRunWithRestart() throws IOException {
+        System.out.println("testRunWithRestart");
+        try (PythonWorkerPool pool = new PythonWorkerPool(pythonExecutable, WORKER_SCRIPT, 1, 1, 1, GEMMA_SCRIPT)) {
+            for (int index = 0; index < 3; index++) {
+                FileUtils.deleteQuietly(RESULT_FILE);
+                assertEquals(PythonUtils.SUCCESS, pool.run(MAPPING_FILE, SRC_FILE, RESULT_FILE.getAbsolutePath()));
+                assertEquals(RESULT, FileUtils.readFileToString(RESULT_FILE, StandardCharsets.UTF_8));
+            }
+        }
+    }
+
+    /**
+     * Test of run method with invalid python.
+     */
+    @Test
+    public void testRunWithInvalidPython() {
+        System.out.println("testRunWithInvalidPython");
+        try (PythonWorkerPool pool = new PythonWorkerPool("/invalid/path/to/python", WORKER_SCRIPT, 1, 100, 0, GEMMA_SCRIPT)) {
+            assertEquals(0, pool.getIdleWorkers());
+            assertEquals(PythonUtils.PYTHON_NOT_FOUND_ERROR, pool.run(MAPPING_FILE, SRC_FILE, RESULT_FILE.getAbsolutePath()));
+        }
+    }
+}
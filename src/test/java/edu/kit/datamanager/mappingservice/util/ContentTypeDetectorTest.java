@@ -0,0 +1,151 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import edu.kit.datamanager.mappingservice.util.ContentTypeDetector.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Optional;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ContentTypeDetector.
+ */
+public class ContentTypeDetectorTest {
+
+    private static Optional<ContentType> detect(String content) {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return ContentTypeDetector.detect(bytes, bytes.length, true);
+    }
+
+    @Test
+    public void testDetectJson() {
+        System.out.println("testDetectJson");
+        assertEquals(Optional.of(ContentType.JSON), detect("{\"a\":1}"));
+        assertEquals(Optional.of(ContentType.JSON), detect("\uFEFF\n  {\n  \"a\" : {\"b\": \"}\\\"\"}\n}\n"));
+        assertEquals(Optional.of(ContentType.JSON), detect("{}"));
+        assertEquals(Optional.of(ContentType.JSON), detect("[{\"a\":1}, {\"a\":2}]"));
+        assertEquals(Optional.of(ContentType.JSON), detect("[ 1, 2 ]"));
+        assertEquals(Optional.empty(), detect("{ no json }"));
+        assertEquals(Optional.empty(), detect("[link](http://example.org)"));
+    }
+
+    @Test
+    public void testDetectNdJson() {
+        System.out.println("testDetectNdJson");
+        assertEquals(Optional.of(ContentType.NDJSON), detect("{\"a\":\"x\\ny\"}\n{\"a\":2}\n"));
+        assertEquals(Optional.of(ContentType.NDJSON), detect("{\"a\":1}\r\n\r\n{\"a\":2}"));
+        assertEquals(Optional.of(ContentType.JSON), detect("{\"a\":1}\n"));
+        assertEquals(Optional.of(ContentType.JSON), detect("{\"a\":1} {\"a\":2}"));
+    }
+
+    @Test
+    public void testDetectXml() {
+        System.out.println("testDetectXml");
+        assertEquals(Optional.of(ContentType.XML), detect("<root/>"));
+        assertEquals(Optional.of(ContentType.XML), detect("<?xml version=\"1.0\"?>\n<ns:root>"));
+        assertEquals(Optional.of(ContentType.XML), detect("<?xml version=\"1.0\"?><!-- <comment> --><!DOCTYPE root><?pi x?>\n<root>"));
+        assertEquals(Optional.of(ContentType.XML), detect("<?xml version=\"1.0\"?><!-- truncated"));
+        assertEquals(Optional.empty(), detect("<!DOCTYPE html><html></html>"));
+        assertEquals(Optional.empty(), detect("< root>"));
+        assertEquals(Optional.empty(), detect("<"));
+    }
+
+    @Test
+    public void testDetectCsv() {
+        System.out.println("testDetectCsv");
+        assertEquals(Optional.of(ContentType.CSV), detect("a,b,c\n1,2,3\n"));
+        assertEquals(Optional.of(ContentType.CSV), detect("a;b\r\n1;2"));
+        assertEquals(Optional.of(ContentType.CSV), detect("a\tb\n\"x\ny, z\"\t2\n"));
+        assertEquals(Optional.empty(), detect("a,b,c\n1,2\n"));
+        assertEquals(Optional.empty(), detect("a,b,c\n"));
+        assertEquals(Optional.empty(), detect("This is just a plain text file."));
+        byte[] truncated = "a,b\n1,2\n3,4,5,6".getBytes(StandardCharsets.UTF_8);
+        assertEquals(Optional.of(ContentType.CSV), ContentTypeDetector.detect(truncated, truncated.length, false));
+        assertEquals(Optional.empty(), ContentTypeDetector.detect(truncated, truncated.length, true));
+        byte[] binary = {'a', ',', 'b', '\n', 0, ',', 1, '\n'};
+        assertEquals(Optional.empty(), ContentTypeDetector.detect(binary, binary.length, true));
+    }
+
+    @Test
+    public void testDetectGzip() throws IOException {
+        System.out.println("testDetectGzip");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            gzip.write("{\"a\":1}".getBytes(StandardCharsets.UTF_8));
+        }
+        byte[] content = bytes.toByteArray();
+        assertEquals(Optional.of(ContentType.GZIP), ContentTypeDetector.detect(content, content.length, true));
+        assertEquals(".gz", ContentType.GZIP.getExtension());
+        assertEquals("application/gzip", ContentType.GZIP.getMediaType());
+    }
+
+    @Test
+    public void testDetectEmpty() {
+        System.out.println("testDetectEmpty");
+        assertEquals(Optional.empty(), detect(""));
+        assertEquals(Optional.empty(), detect(" \n\t "));
+    }
+
+    @Test
+    public void testDetectFile() throws IOException {
+        System.out.println("testDetectFile");
+        assertEquals(Optional.of(ContentType.JSON), ContentTypeDetector.detect(Paths.get("src/test/resources/examples/gemma/simple.json")));
+        assertEquals(Optional.of(ContentType.XML), ContentTypeDetector.detect(Paths.get("src/test/resources/examples/gemma/simple.xml")));
+        assertEquals(Optional.empty(), ContentTypeDetector.detect(Paths.get("src/test/resources/examples/anyContentWithoutSuffix")));
+    }
+
+    @Test
+    public void testDetectStream() throws IOException {
+        System.out.println("testDetectStream");
+        byte[] content = "a,b\n1,2\n".getBytes(StandardCharsets.UTF_8);
+        assertEquals(Optional.of(ContentType.CSV), ContentTypeDetector.detect(new ByteArrayInputStream(content)));
+        byte[] large = new byte[2 * ContentTypeDetector.HEADER_SIZE];
+        Arrays.fill(large, (byte) ' ');
+        large[0] = '<';
+        large[1] = 'a';
+        ByteArrayInputStream input = new ByteArrayInputStream(large);
+        assertEquals(Optional.of(ContentType.XML), ContentTypeDetector.detect(input));
+        assertTrue(input.available() > 0);
+    }
+
+    @Test
+    public void testDetectLargeFileReadsHeaderOnly() throws IOException {
+        System.out.println("testDetectLargeFileReadsHeaderOnly");
+        Path file = Files.createTempFile("detector", ".tmp");
+        try {
+            StringBuilder content = new StringBuilder("{\"a\":\"");
+            for (int index = 0; index < 2 * ContentTypeDetector.HEADER_SIZE; index++) {
+                content.append('x');
+            }
+            content.append("\"}\n");
+            Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+            assertEquals(Optional.of(ContentType.JSON), ContentTypeDetector.detect(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
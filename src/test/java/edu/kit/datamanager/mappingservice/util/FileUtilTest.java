@@ -18,14 +18,24 @@ package edu.kit.datamanager.mappingservice.util;
 import com.google.common.io.Files;
 import edu.kit.datamanager.mappingservice.exception.MappingException;
 
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.HashSet;
 import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.zip.GZIPOutputStream;
 
 import edu.kit.datamanager.mappingservice.util.FileUtil;
 import org.junit.jupiter.api.Test;
@@ -150,6 +160,80 @@ public class FileUtilTest {
         assertTrue(result.get().toFile().delete());
     }
 
+    /**
+     * Test of downloadResource method with gzip compressed file, of class
+     * FileUtil.
+     */
+    @Test
+    public void testDownloadLocalGzipResource() throws IOException {
+        System.out.println("testDownloadLocalGzipResource");
+        File srcFile = new File("src/test/resources/examples/gemma/simple.json");
+        byte[] content = java.nio.file.Files.readAllBytes(srcFile.toPath());
+        Path gzipFile = FileUtil.createTempFile("simple", ".json.gz");
+        try (GZIPOutputStream gzip = new GZIPOutputStream(java.nio.file.Files.newOutputStream(gzipFile))) {
+            gzip.write(content);
+        }
+        Optional<Path> result = FileUtil.downloadResource(gzipFile.toUri());
+        assertTrue(result.isPresent());
+        assertTrue(result.get().toString().endsWith(".json"));
+        assertArrayEquals(content, java.nio.file.Files.readAllBytes(result.get()));
+        assertTrue(result.get().toFile().delete());
+        assertTrue(gzipFile.toFile().delete());
+    }
+
+    /**
+     * Test of downloadResource method with gzip compressed remote file, of
+     * class FileUtil.
+     */
+    @Test
+    public void testDownloadRemoteGzipResource() throws Exception {
+        System.out.println("testDownloadRemoteGzipResource");
+        byte[] content = java.nio.file.Files.readAllBytes(Paths.get("src/test/resources/examples/gemma/simple.xml"));
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(content);
+        }
+        HttpServer server = startServer(compressed.toByteArray(), 0);
+        try {
+            URI resourceURL = new URI("http://localhost:" + server.getAddress().getPort() + "/simple.xml.gz");
+            Optional<Path> result = FileUtil.downloadResource(resourceURL);
+            assertTrue(result.isPresent());
+            assertTrue(result.get().toString().endsWith(".xml"));
+            assertArrayEquals(content, java.nio.file.Files.readAllBytes(result.get()));
+            assertTrue(result.get().toFile().delete());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test of storeResource method, of class FileUtil.
+     */
+    @Test
+    public void testStoreResource() throws IOException {
+        System.out.println("testStoreResource");
+        byte[] content = "<root><a>1</a></root>".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(content);
+        }
+        Path result = FileUtil.storeResource(new ByteArrayInputStream(compressed.toByteArray()), "store", 0);
+        assertTrue(result.toString().endsWith(".xml"));
+        assertArrayEquals(content, java.nio.file.Files.readAllBytes(result));
+        assertTrue(result.toFile().delete());
+        // plain content is stored unchanged
+        result = FileUtil.storeResource(new ByteArrayInputStream(content), "store", 0);
+        assertArrayEquals(content, java.nio.file.Files.readAllBytes(result));
+        assertTrue(result.toFile().delete());
+        // decompressed size is limited
+        try {
+            FileUtil.storeResource(new ByteArrayInputStream(compressed.toByteArray()), "store", 10);
+            fail("Exception expected!");
+        } catch (MappingException ie) {
+            assertTrue(ie.getMessage().contains("Error storing resource"));
+        }
+    }
+
     /**
      * Test of downloadResource method, of class GemmaMapping.
      */
@@ -290,4 +374,106 @@ public class FileUtilTest {
         assertNull(result);
     }
 
+    /**
+     * Test of downloadResource method with binary content, of class FileUtil.
+     */
+    @Test
+    public void testDownloadBinaryResource() throws Exception {
+        System.out.println("testDownloadBinaryResource");
+        byte[] content = new byte[3 * 1024 * 1024];
+        new Random(42).nextBytes(content);
+        HttpServer server = startServer(content, 0);
+        try {
+            URI resourceURL = new URI("http://localhost:" + server.getAddress().getPort() + "/data.bin");
+            Optional<Path> result = FileUtil.downloadResource(resourceURL, content.length, 5, 5);
+            assertTrue(result.isPresent());
+            assertTrue(result.get().toString().endsWith(".bin"));
+            assertArrayEquals(content, java.nio.file.Files.readAllBytes(result.get()));
+            assertTrue(result.get().toFile().delete());
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test of downloadResource method exceeding maximum size, of class
+     * FileUtil.
+     */
+    @Test
+    public void testDownloadResourceExceedingMaxSize() throws Exception {
+        System.out.println("testDownloadResourceExceedingMaxSize");
+        byte[] content = new byte[1024 * 1024];
+        HttpServer server = startServer(content, 0);
+        try {
+            URI resourceURL = new URI("http://localhost:" + server.getAddress().getPort() + "/data.bin");
+            MappingException mex = assertThrows(MappingException.class, () -> FileUtil.downloadResource(resourceURL, 1000, 5, 5));
+            assertTrue(mex.getCause().getMessage().contains("maximum size"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test of downloadResource method with read timeout, of class FileUtil.
+     */
+    @Test
+    public void testDownloadResourceWithReadTimeout() throws Exception {
+        System.out.println("testDownloadResourceWithReadTimeout");
+        HttpServer server = startServer(new byte[10], 5000);
+        try {
+            URI resourceURL = new URI("http://localhost:" + server.getAddress().getPort() + "/slow.json");
+            long start = System.currentTimeMillis();
+            assertThrows(MappingException.class, () -> FileUtil.downloadResource(resourceURL, 0, 5, 1));
+            assertTrue(System.currentTimeMillis() - start < 4000);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Test of downloadResource method with error status, of class FileUtil.
+     */
+    @Test
+    public void testDownloadResourceWithErrorStatus() throws Exception {
+        System.out.println("testDownloadResourceWithErrorStatus");
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            URI resourceURL = new URI("http://localhost:" + server.getAddress().getPort() + "/missing.json");
+            assertThrows(MappingException.class, () -> FileUtil.downloadResource(resourceURL));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Start HTTP server returning the content for all requests.
+     *
+     * @param content     content.
+     * @param delayMillis delay before sending the content.
+     * @return started server.
+     */
+    private static HttpServer startServer(byte[] content, long delayMillis) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/", exchange -> {
+            try {
+                exchange.sendResponseHeaders(200, content.length);
+                Thread.sleep(delayMillis);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(content);
+                }
+            } catch (InterruptedException | IOException ex) {
+                // client closed connection
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
 }
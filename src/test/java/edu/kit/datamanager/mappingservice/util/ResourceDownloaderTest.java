@@ -0,0 +1,252 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ResourceDownloader.
+ */
+public class ResourceDownloaderTest {
+
+    private HttpServer server;
+    private Path cacheDirectory;
+    private final AtomicReference<String> content = new AtomicReference<>("{\"version\":1}");
+    private final AtomicReference<String> etag = new AtomicReference<>("\"v1\"");
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger fullResponses = new AtomicInteger();
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        cacheDirectory = Files.createTempDirectory("downloadCache");
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/doc", exchange -> {
+            requests.incrementAndGet();
+            try {
+                String actualEtag = etag.get();
+                if ((actualEtag != null) && actualEtag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.getResponseHeaders().add("ETag", actualEtag);
+                    exchange.sendResponseHeaders(304, -1);
+                    return;
+                }
+                byte[] body = content.get().getBytes(StandardCharsets.UTF_8);
+                if (actualEtag != null) {
+                    exchange.getResponseHeaders().add("ETag", actualEtag);
+                }
+                fullResponses.incrementAndGet();
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.createContext("/compressed", exchange -> {
+            try {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                    gzip.write(content.get().getBytes(StandardCharsets.UTF_8));
+                }
+                exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+                exchange.sendResponseHeaders(200, compressed.size());
+                try (OutputStream output = exchange.getResponseBody()) {
+                    compressed.writeTo(output);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.createContext("/slow", exchange -> {
+            try {
+                exchange.sendResponseHeaders(200, 10);
+                Thread.sleep(5000);
+                try (OutputStream output = exchange.getResponseBody()) {
+                    output.write(new byte[10]);
+                }
+            } catch (InterruptedException | IOException ex) {
+                // client closed connection
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() throws IOException {
+        server.stop(0);
+        FileUtils.deleteDirectory(cacheDirectory.toFile());
+    }
+
+    private URI url(String path) {
+        return URI.create("http://localhost:" + server.getAddress().getPort() + path);
+    }
+
+    @Test
+    public void testDownloadWithoutCache() throws IOException {
+        System.out.println("testDownloadWithoutCache");
+        ResourceDownloader downloader = new ResourceDownloader(0, 5, 5);
+        assertFalse(downloader.isCaching());
+        Path target = Files.createTempFile("download", ".json");
+        try {
+            downloader.download(url("/doc"), target);
+            downloader.download(url("/doc"), target);
+            assertEquals(content.get(), Files.readString(target));
+            assertEquals(2, fullResponses.get());
+            assertEquals(2, downloader.getDownloads());
+            assertEquals(0, downloader.getNotModified());
+        } finally {
+            Files.delete(target);
+        }
+    }
+
+    @Test
+    public void testRevalidateCachedResource() throws IOException {
+        System.out.println("testRevalidateCachedResource");
+        ResourceDownloader downloader = new ResourceDownloader(0, 5, 5, cacheDirectory, 0);
+        assertTrue(downloader.isCaching());
+        Path target = Files.createTempFile("download", ".json");
+        try {
+            assertEquals(content.get().length(), downloader.download(url("/doc"), target));
+            Files.delete(target);
+            assertEquals(content.get().length(), downloader.download(url("/doc"), target));
+            assertEquals(content.get(), Files.readString(target));
+            assertEquals(2, requests.get());
+            assertEquals(1, fullResponses.get());
+            assertEquals(1, downloader.getNotModified());
+            // changed resource is transferred again.
+            content.set("{\"version\":2}");
+            etag.set("\"v2\"");
+            downloader.download(url("/doc"), target);
+            assertEquals("{\"version\":2}", Files.readString(target));
+            assertEquals(2, fullResponses.get());
+            // cache is shared by all downloaders using the same directory.
+            ResourceDownloader otherDownloader = new ResourceDownloader(0, 5, 5, cacheDirectory, 0);
+            otherDownloader.download(url("/doc"), target);
+            assertEquals("{\"version\":2}", Files.readString(target));
+            assertEquals(1, otherDownloader.getNotModified());
+        } finally {
+            Files.deleteIfExists(target);
+        }
+    }
+
+    @Test
+    public void testResourceWithoutValidatorIsNotCached() throws IOException {
+        System.out.println("testResourceWithoutValidatorIsNotCached");
+        etag.set(null);
+        ResourceDownloader downloader = new ResourceDownloader(0, 5, 5, cacheDirectory, 0);
+        Path target = Files.createTempFile("download", ".json");
+        try {
+            downloader.download(url("/doc"), target);
+            downloader.download(url("/doc"), target);
+            assertEquals(2, fullResponses.get());
+            assertEquals(0, downloader.getNotModified());
+        } finally {
+            Files.delete(target);
+        }
+    }
+
+    @Test
+    public void testCacheEviction() throws IOException {
+        System.out.println("testCacheEviction");
+        DownloadCache cache = new DownloadCache(cacheDirectory, 10);
+        Path content = Files.createTempFile("content", ".txt");
+        try {
+            Files.writeString(content, "123456");
+            cache.put(URI.create("http://localhost/first"), content, "\"1\"", null);
+            DownloadCache.Entry first = cache.get(URI.create("http://localhost/first")).get();
+            Files.setLastModifiedTime(first.getContent(), FileTime.fromMillis(System.currentTimeMillis() - 60000));
+            cache.put(URI.create("http://localhost/second"), content, null, "Wed, 21 Oct 2015 07:28:00 GMT");
+            assertFalse(cache.get(URI.create("http://localhost/first")).isPresent());
+            DownloadCache.Entry entry = cache.get(URI.create("http://localhost/second")).get();
+            assertNull(entry.getEtag());
+            assertEquals("Wed, 21 Oct 2015 07:28:00 GMT", entry.getLastModified());
+            assertEquals(6, cache.size());
+            // replacing an entry keeps the size
+            cache.put(URI.create("http://localhost/second"), content, null, null);
+            assertEquals(6, cache.size());
+            // size of existing entries is restored
+            assertEquals(6, new DownloadCache(cacheDirectory, 10).size());
+            cache.remove(URI.create("http://localhost/second"));
+            assertEquals(0, cache.size());
+        } finally {
+            Files.delete(content);
+        }
+    }
+
+    @Test
+    public void testDownloadGzipEncodedResponse() throws IOException {
+        System.out.println("testDownloadGzipEncodedResponse");
+        ResourceDownloader downloader = new ResourceDownloader(0, 5, 5);
+        Path target = Files.createTempFile("download", ".json");
+        try {
+            downloader.download(url("/compressed"), target);
+            assertEquals(content.get(), Files.readString(target));
+        } finally {
+            Files.delete(target);
+        }
+    }
+
+    @Test
+    public void testReadTimeout() throws IOException {
+        System.out.println("testReadTimeout");
+        ResourceDownloader downloader = new ResourceDownloader(0, 5, 1);
+        Path target = Files.createTempFile("download", ".json");
+        try {
+            long start = System.currentTimeMillis();
+            assertThrows(SocketTimeoutException.class, () -> downloader.download(url("/slow"), target));
+            assertTrue(System.currentTimeMillis() - start < 4000);
+        } finally {
+            Files.delete(target);
+        }
+    }
+
+    @Test
+    public void testMaximumSize() throws IOException {
+        System.out.println("testMaximumSize");
+        ResourceDownloader downloader = new ResourceDownloader(5, 5, 5);
+        Path target = Files.createTempFile("download", ".json");
+        try {
+            IOException ex = assertThrows(IOException.class, () -> downloader.download(url("/doc"), target));
+            assertTrue(ex.getMessage().contains("maximum size"));
+        } finally {
+            Files.delete(target);
+        }
+    }
+}
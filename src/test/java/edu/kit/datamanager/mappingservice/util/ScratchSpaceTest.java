@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ScratchSpace.
+ */
+public class ScratchSpaceTest {
+
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Test of openScope method, of class ScratchSpace.
+     */
+    @Test
+    public void testScope() throws IOException {
+        System.out.println("testScope");
+        ScratchSpace instance = new ScratchSpace();
+        instance.setRoot(tempDir);
+        assertTrue(instance.isDedicated());
+        assertEquals(tempDir, instance.getDirectory());
+        Path file;
+        try (ScratchSpace.Scope scope = instance.openScope()) {
+            assertEquals(scope.getDirectory(), instance.getDirectory());
+            assertEquals(tempDir, scope.getDirectory().getParent());
+            assertEquals(1, instance.getOpenScopes());
+            file = Files.createTempFile(instance.getDirectory(), "result", ".json");
+            try (ScratchSpace.Scope nested = instance.openScope()) {
+                assertEquals(nested.getDirectory(), instance.getDirectory());
+            }
+            assertEquals(scope.getDirectory(), instance.getDirectory());
+        }
+        assertFalse(Files.exists(file));
+        assertFalse(Files.exists(file.getParent()));
+        assertEquals(0, instance.getOpenScopes());
+        assertEquals(tempDir, instance.getDirectory());
+    }
+
+    /**
+     * Test of inCurrentScope method, of class ScratchSpace.
+     */
+    @Test
+    public void testInCurrentScope() throws Exception {
+        System.out.println("testInCurrentScope");
+        ScratchSpace instance = new ScratchSpace();
+        instance.setRoot(tempDir);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try (ScratchSpace.Scope scope = instance.openScope()) {
+            Callable<Path> task = instance::getDirectory;
+            assertEquals(tempDir, executor.submit(task).get());
+            assertEquals(scope.getDirectory(), executor.submit(instance.inCurrentScope(task)).get());
+            // binding is removed afterwards
+            assertEquals(tempDir, executor.submit(task).get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Test of reclaim method, of class ScratchSpace.
+     */
+    @Test
+    public void testReclaim() throws IOException {
+        System.out.println("testReclaim");
+        ScratchSpace instance = new ScratchSpace();
+        instance.setRoot(tempDir);
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofHours(2)));
+        Path orphan = Files.writeString(tempDir.resolve("orphan.json"), "0123456789");
+        Files.setLastModifiedTime(orphan, old);
+        Path orphanedDir = Files.createDirectory(tempDir.resolve("scope_orphan"));
+        Files.writeString(orphanedDir.resolve("result.json"), "01234");
+        Files.setLastModifiedTime(orphanedDir, old);
+        Path recent = Files.writeString(tempDir.resolve("recent.json"), "01");
+        try (ScratchSpace.Scope scope = instance.openScope()) {
+            Files.setLastModifiedTime(scope.getDirectory(), old);
+            assertEquals(2, instance.reclaim(Duration.ofHours(1)));
+            assertFalse(Files.exists(orphan));
+            assertFalse(Files.exists(orphanedDir));
+            assertTrue(Files.exists(recent));
+            // open scopes are never reclaimed
+            assertTrue(Files.exists(scope.getDirectory()));
+        }
+        assertEquals(2, instance.getReclaimedFiles());
+        assertEquals(15, instance.getReclaimedBytes());
+        assertEquals(2, instance.getUsedSpace());
+    }
+
+    /**
+     * Test of reclaim method, of class ScratchSpace. The system temp
+     * directory is never reclaimed.
+     */
+    @Test
+    public void testReclaimWithoutDedicatedRoot() {
+        System.out.println("testReclaimWithoutDedicatedRoot");
+        ScratchSpace instance = new ScratchSpace();
+        assertFalse(instance.isDedicated());
+        assertEquals(0, instance.reclaim(Duration.ZERO));
+    }
+}
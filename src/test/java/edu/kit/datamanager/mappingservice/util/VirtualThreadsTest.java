@@ -0,0 +1,48 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for VirtualThreads.
+ */
+public class VirtualThreadsTest {
+
+    /**
+     * Test of newVirtualThreadPerTaskExecutor method, of class VirtualThreads.
+     */
+    @Test
+    public void testNewVirtualThreadPerTaskExecutor() throws Exception {
+        System.out.println("testNewVirtualThreadPerTaskExecutor");
+        Optional<ExecutorService> executor = VirtualThreads.newVirtualThreadPerTaskExecutor();
+        assertEquals(Runtime.version().feature() >= 21, VirtualThreads.isSupported());
+        assertEquals(VirtualThreads.isSupported(), executor.isPresent());
+        if (executor.isPresent()) {
+            try {
+                assertEquals("done", executor.get().submit(() -> "done").get(10, TimeUnit.SECONDS));
+            } finally {
+                executor.get().shutdown();
+            }
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for ConcurrencyLimitFilter.
+ */
+public class ConcurrencyLimitFilterTest {
+
+    /**
+     * Test rejection of requests exceeding the limit.
+     */
+    @Test
+    public void testDoFilter() throws Exception {
+        System.out.println("testDoFilter");
+        ConcurrencyLimitFilter instance = new ConcurrencyLimitFilter(1, 100);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        HttpServlet blockingServlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            MockHttpServletResponse blockedResponse = new MockHttpServletResponse();
+            Future<?> blocked = executor.submit(() -> {
+                instance.doFilter(new MockHttpServletRequest("POST", "/api/v1/mappingExecution/a/GEMMA"), blockedResponse, new MockFilterChain(blockingServlet));
+                return null;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            assertEquals(0, instance.getAvailablePermits());
+
+            MockHttpServletResponse rejected = new MockHttpServletResponse();
+            instance.doFilter(new MockHttpServletRequest("POST", "/api/v1/mappingExecution/b/GEMMA"), rejected, new MockFilterChain());
+            assertEquals(503, rejected.getStatus());
+
+            finish.countDown();
+            blocked.get(10, TimeUnit.SECONDS);
+            assertEquals(200, blockedResponse.getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, instance.getAvailablePermits());
+        MockHttpServletResponse accepted = new MockHttpServletResponse();
+        instance.doFilter(new MockHttpServletRequest("POST", "/api/v1/mappingExecution/c/GEMMA"), accepted, new MockFilterChain());
+        assertEquals(200, accepted.getStatus());
+    }
+
+    /**
+     * Test waiting for a permit without timeout.
+     */
+    @Test
+    public void testDoFilterWithoutTimeout() throws Exception {
+        System.out.println("testDoFilterWithoutTimeout");
+        ConcurrencyLimitFilter instance = new ConcurrencyLimitFilter(1, 0);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch finish = new CountDownLatch(1);
+        HttpServlet blockingServlet = new HttpServlet() {
+            @Override
+            protected void service(HttpServletRequest req, HttpServletResponse resp) {
+                started.countDown();
+                try {
+                    finish.await();
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            MockHttpServletResponse blockedResponse = new MockHttpServletResponse();
+            Future<?> blocked = executor.submit(() -> {
+                instance.doFilter(new MockHttpServletRequest("POST", "/api/v1/mappingExecution/a/GEMMA"), blockedResponse, new MockFilterChain(blockingServlet));
+                return null;
+            });
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+
+            MockHttpServletResponse waitingResponse = new MockHttpServletResponse();
+            Future<?> waiting = executor.submit(() -> {
+                instance.doFilter(new MockHttpServletRequest("POST", "/api/v1/mappingExecution/b/GEMMA"), waitingResponse, new MockFilterChain());
+                return null;
+            });
+            assertThrows(TimeoutException.class, () -> waiting.get(500, TimeUnit.MILLISECONDS));
+
+            finish.countDown();
+            blocked.get(10, TimeUnit.SECONDS);
+            waiting.get(10, TimeUnit.SECONDS);
+            assertEquals(200, blockedResponse.getStatus());
+            assertEquals(200, waitingResponse.getStatus());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, instance.getAvailablePermits());
+    }
+}
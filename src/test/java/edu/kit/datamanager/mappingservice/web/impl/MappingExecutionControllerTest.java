@@ -1,19 +1,28 @@
 package edu.kit.datamanager.mappingservice.web.impl;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
 import edu.kit.datamanager.entities.PERMISSION;
 import edu.kit.datamanager.mappingservice.MappingServiceApplication;
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
 import edu.kit.datamanager.mappingservice.dao.IMappingRecordDao;
 import edu.kit.datamanager.mappingservice.domain.MappingRecord;
 import edu.kit.datamanager.mappingservice.domain.acl.AclEntry;
+import edu.kit.datamanager.mappingservice.exception.MappingRejectedException;
+import edu.kit.datamanager.mappingservice.mapping.IMappingTool;
+import edu.kit.datamanager.mappingservice.mapping.IMappingToolProvider;
+import edu.kit.datamanager.mappingservice.mapping.MappingToolRegistry;
+import edu.kit.datamanager.mappingservice.util.ScratchSpace;
 import org.apache.commons.io.FileUtils;
 import org.junit.jupiter.api.BeforeEach;
+import org.skyscreamer.jsonassert.JSONAssert;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.migrationsupport.rules.EnableRuleMigrationSupport;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.restdocs.RestDocumentationContextProvider;
 import org.springframework.restdocs.RestDocumentationExtension;
@@ -33,18 +42,35 @@ import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.web.context.WebApplicationContext;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
 import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.document;
 import static org.springframework.restdocs.mockmvc.MockMvcRestDocumentation.documentationConfiguration;
 import static org.springframework.restdocs.operation.preprocess.Preprocessors.*;
@@ -70,12 +96,19 @@ public class MappingExecutionControllerTest {
     private static final String MAPPING_ID = "my_dc";
     private static final String MAPPING_TYPE = "GEMMA";
     private static final String MAPPING_URL = "/api/v1/mappingExecution/" + MAPPING_ID + "/" + MAPPING_TYPE;
+    private static final String REJECTING_TYPE = "REJECTING";
 
     private MockMvc mockMvc;
 
     @Autowired
     private IMappingRecordDao mappingRecordDao;
 
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @Autowired
+    private MappingToolRegistry mappingToolRegistry;
+
     private void createMapping() throws Exception {
         System.out.println("createMapping");
         File mappingsDir = Paths.get(TEMP_DIR_4_MAPPING).toFile();
@@ -143,6 +176,51 @@ public class MappingExecutionControllerTest {
                 andReturn();
     }
 
+    @Test
+    void mapDocumentRemovesResultFile() throws Exception {
+        String mappingContent = FileUtils.readFileToString(new File("src/test/resources/examples/gemma/simple.json"), StandardCharsets.UTF_8);
+        MockMultipartFile mappingFile = new MockMultipartFile("document", "my_dc4gemma.mapping", "application/json", mappingContent.getBytes());
+        Set<Path> resultsBefore = listResultFiles();
+
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL).file(mappingFile)).
+                andDo(print()).
+                andExpect(status().isOk()).
+                andExpect(header().exists("Content-Length")).
+                andReturn();
+        Set<Path> resultsAfter = listResultFiles();
+        resultsAfter.removeAll(resultsBefore);
+        assertEquals(Set.of(), resultsAfter);
+    }
+
+    /**
+     * List all result files of GEMMA mappings in the scratch space.
+     *
+     * @return paths of all result files.
+     */
+    private static Set<Path> listResultFiles() throws IOException {
+        try (Stream<Path> files = Files.walk(ScratchSpace.getDefault().getRoot(), 2)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(MAPPING_TYPE + "_")).collect(Collectors.toCollection(HashSet::new));
+        }
+    }
+
+    @Test
+    void mapGzipCompressedDocument() throws Exception {
+        byte[] documentContent = FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.json"));
+        String resultContent = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(documentContent);
+        }
+        MockMultipartFile document = new MockMultipartFile("document", "simple.json.gz", "application/gzip", compressed.toByteArray());
+
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL).file(document)).
+                andDo(print()).
+                andExpect(status().isOk()).
+                andExpect(content().contentType(MediaType.APPLICATION_JSON)).
+                andExpect(MockMvcResultMatchers.content().json(resultContent)).
+                andReturn();
+    }
+
     @Test
     void mapWithoutDocument() throws Exception {
         this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL)).
@@ -209,4 +287,288 @@ public class MappingExecutionControllerTest {
                 andExpect(status().isNotFound()).
                 andReturn();
     }
-}
\ No newline at end of file
+
+    /**
+     * Start HTTP server providing the example document at '/simple.json'.
+     *
+     * @return started server.
+     */
+    private static HttpServer startServer() throws IOException {
+        byte[] content = FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.json"));
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/simple.json", exchange -> {
+            try {
+                exchange.sendResponseHeaders(200, content.length);
+                try (OutputStream body = exchange.getResponseBody()) {
+                    body.write(content);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        return server;
+    }
+
+    @Test
+    void mapDocumentByUrl() throws Exception {
+        String resultContent = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        HttpServer server = startServer();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/simple.json";
+            this.mockMvc.perform(MockMvcRequestBuilders.post(MAPPING_URL).param("url", url)).
+                    andDo(print()).
+                    andExpect(status().isOk()).
+                    andExpect(content().contentType(MediaType.APPLICATION_JSON)).
+                    andExpect(MockMvcResultMatchers.content().json(resultContent)).
+                    andReturn();
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void mapDocumentsByUrl() throws Exception {
+        String resultContent = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        HttpServer server = startServer();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/simple.json";
+            byte[] zip = this.mockMvc.perform(MockMvcRequestBuilders.post(MAPPING_URL).param("url", url, url, url)).
+                    andExpect(status().isOk()).
+                    andExpect(content().contentType("application/zip")).
+                    andReturn().getResponse().getContentAsByteArray();
+            int entries = 0;
+            try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip))) {
+                ZipEntry entry;
+                while ((entry = input.getNextEntry()) != null) {
+                    entries++;
+                    assertEquals(entries + "_simple.json", entry.getName());
+                    JSONAssert.assertEquals(resultContent, new String(input.readAllBytes(), StandardCharsets.UTF_8), false);
+                }
+            }
+            assertEquals(3, entries);
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    @Test
+    void mapDocumentRejectedByScheduler() throws Exception {
+        registerRejectingMapping();
+        MockMultipartFile document = new MockMultipartFile("document", "simple.json", "application/json",
+                FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.json")));
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/mappingExecution/" + MAPPING_ID + "/" + REJECTING_TYPE).file(document)).
+                andDo(print()).
+                andExpect(status().isServiceUnavailable()).
+                andExpect(header().exists("Retry-After")).
+                andExpect(content().string(containsString("not started within")));
+
+        HttpServer server = startServer();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/simple.json";
+            this.mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/mappingExecution/" + MAPPING_ID + "/" + REJECTING_TYPE).param("url", url, url)).
+                    andExpect(status().isServiceUnavailable()).
+                    andExpect(header().exists("Retry-After"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Register a mapping whose execution is always rejected as if the
+     * scheduler was overloaded.
+     */
+    private void registerRejectingMapping() {
+        mappingToolRegistry.register(new IMappingToolProvider() {
+            @Override
+            public String getMappingType() {
+                return REJECTING_TYPE;
+            }
+
+            @Override
+            public IMappingTool createMappingTool(ApplicationProperties configuration) {
+                return (mappingFile, srcFile, resultFile) -> {
+                    throw new MappingRejectedException("Error: Mapping '" + REJECTING_TYPE + "' not started within 0 seconds (too many concurrent mappings)!");
+                };
+            }
+        });
+        MappingRecord record = new MappingRecord();
+        record.setMappingId(MAPPING_ID);
+        record.setMappingType(REJECTING_TYPE);
+        record.setMappingDocumentUri(new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath());
+        mappingRecordDao.save(record);
+    }
+
+    @Test
+    void mapDocumentByLocalUrl() throws Exception {
+        String url = new File("src/test/resources/examples/gemma/simple.json").toURI().toString();
+        this.mockMvc.perform(MockMvcRequestBuilders.post(MAPPING_URL).param("url", url)).
+                andDo(print()).
+                andExpect(status().isBadRequest()).
+                andReturn();
+    }
+
+    @Test
+    void mapDocumentByUnreachableUrl() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.post(MAPPING_URL).param("url", "http://localhost:1/simple.json")).
+                andDo(print()).
+                andExpect(status().isBadRequest()).
+                andReturn();
+    }
+
+    @Test
+    void mapDocumentByUrlWithInvalidID() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.post("/api/v1/mappingExecution/xsfdfg/GEMMA").param("url", "http://localhost/simple.json")).
+                andDo(print()).
+                andExpect(status().isNotFound()).
+                andExpect(content().string("No mapping record found for mapping xsfdfg/GEMMA.")).
+                andReturn();
+    }
+
+    /**
+     * Read all entries of a ZIP archive.
+     *
+     * @param zip content of the archive.
+     * @return content of all entries by name (in order of the archive).
+     */
+    private static Map<String, String> readZip(byte[] zip) throws IOException {
+        Map<String, String> entries = new LinkedHashMap<>();
+        try (ZipInputStream input = new ZipInputStream(new ByteArrayInputStream(zip))) {
+            ZipEntry entry;
+            while ((entry = input.getNextEntry()) != null) {
+                entries.put(entry.getName(), new String(input.readAllBytes(), StandardCharsets.UTF_8));
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    void mapBatchOfDocuments() throws Exception {
+        byte[] documentContent = FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.json"));
+        byte[] invalidContent = FileUtils.readFileToByteArray(new File("src/test/resources/examples/anyContentWithoutSuffix"));
+        String resultContent = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+
+        byte[] zip = this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL + "/batch").
+                        file(new MockMultipartFile("documents", "first.json", "application/json", documentContent)).
+                        file(new MockMultipartFile("documents", "invalid.txt", "text/plain", invalidContent)).
+                        file(new MockMultipartFile("documents", "third.json", "application/json", documentContent))).
+                andExpect(status().isOk()).
+                andExpect(content().contentType("application/zip")).
+                andReturn().getResponse().getContentAsByteArray();
+        Map<String, String> entries = readZip(zip);
+        assertEquals(List.of("1_first.json", "3_third.json", "manifest.json"), new ArrayList<>(entries.keySet()));
+        JSONAssert.assertEquals(resultContent, entries.get("1_first.json"), false);
+        JSONAssert.assertEquals(resultContent, entries.get("3_third.json"), false);
+        JSONAssert.assertEquals("[{\"index\":1,\"document\":\"first.json\",\"status\":\"SUCCEEDED\",\"result\":\"1_first.json\"}," +
+                "{\"index\":2,\"document\":\"invalid.txt\",\"status\":\"FAILED\"}," +
+                "{\"index\":3,\"document\":\"third.json\",\"status\":\"SUCCEEDED\",\"result\":\"3_third.json\"}]", entries.get("manifest.json"), false);
+    }
+
+    @Test
+    void mapBatchOfDocumentsInZip() throws Exception {
+        byte[] documentContent = FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.json"));
+        String resultContent = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            zip.putNextEntry(new ZipEntry("records/"));
+            zip.closeEntry();
+            for (int index = 1; index <= 20; index++) {
+                zip.putNextEntry(new ZipEntry("records/record" + index + ".json"));
+                zip.write(documentContent);
+                zip.closeEntry();
+            }
+        }
+
+        byte[] zip = this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL + "/batch").
+                        file(new MockMultipartFile("documents", "records.zip", "application/zip", archive.toByteArray()))).
+                andExpect(status().isOk()).
+                andExpect(content().contentType("application/zip")).
+                andReturn().getResponse().getContentAsByteArray();
+        Map<String, String> entries = readZip(zip);
+        assertEquals(21, entries.size());
+        for (int index = 1; index <= 20; index++) {
+            JSONAssert.assertEquals(resultContent, entries.get(index + "_record" + index + ".json"), false);
+        }
+        assertEquals(20, new ObjectMapper().readTree(entries.get("manifest.json")).size());
+    }
+
+    @Test
+    void mapBatchExceedingLimits() throws Exception {
+        byte[] documentContent = FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.json"));
+        ByteArrayOutputStream archive = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(archive)) {
+            for (int index = 1; index <= 10; index++) {
+                zip.putNextEntry(new ZipEntry("record" + index + ".json"));
+                zip.write(documentContent);
+                zip.closeEntry();
+            }
+        }
+        MockMultipartFile documents = new MockMultipartFile("documents", "records.zip", "application/zip", archive.toByteArray());
+        int maxDocuments = applicationProperties.getExecutionBatchMaxDocuments();
+        long maxSize = applicationProperties.getExecutionBatchMaxSize();
+        try {
+            applicationProperties.setExecutionBatchMaxDocuments(5);
+            this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL + "/batch").file(documents)).
+                    andExpect(status().isBadRequest()).
+                    andExpect(content().string("Batch exceeds maximum number of 5 documents."));
+
+            applicationProperties.setExecutionBatchMaxDocuments(0);
+            applicationProperties.setExecutionBatchMaxSize(5L * documentContent.length);
+            this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL + "/batch").file(documents)).
+                    andExpect(status().isBadRequest()).
+                    andExpect(content().string("Batch exceeds maximum size of " + (5L * documentContent.length) + " bytes."));
+
+            applicationProperties.setExecutionBatchMaxSize(10L * documentContent.length);
+            this.mockMvc.perform(MockMvcRequestBuilders.multipart(MAPPING_URL + "/batch").file(documents)).
+                    andExpect(status().isOk());
+        } finally {
+            applicationProperties.setExecutionBatchMaxDocuments(maxDocuments);
+            applicationProperties.setExecutionBatchMaxSize(maxSize);
+        }
+    }
+
+    @Test
+    void mapBatchWithInvalidID() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/mappingExecution/xsfdfg/GEMMA/batch").
+                        file(new MockMultipartFile("documents", "first.json", "application/json", "{}".getBytes()))).
+                andDo(print()).
+                andExpect(status().isNotFound()).
+                andExpect(content().string("No mapping record found for mapping xsfdfg/GEMMA."));
+    }
+
+    @Test
+    void mapDocumentWithAllTypes() throws Exception {
+        String handlebarsContent = FileUtils.readFileToString(new File("src/test/resources/mapping/handlebars/simple.hbs"), StandardCharsets.UTF_8);
+        MappingRecord record = new MappingRecord();
+        record.setMappingId(MAPPING_ID);
+        record.setMappingType("HANDLEBARS");
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/mappingAdministration/").
+                        file(new MockMultipartFile("record", "record.json", "application/json", new ObjectMapper().writeValueAsBytes(record))).
+                        file(new MockMultipartFile("document", "simple.hbs", "text/plain", handlebarsContent.getBytes()))).
+                andExpect(status().isCreated());
+        byte[] documentContent = FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.json"));
+        String resultContent = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+
+        byte[] zip = this.mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/mappingExecution/" + MAPPING_ID + "/all").
+                        file(new MockMultipartFile("document", "simple.json", "application/json", documentContent))).
+                andExpect(status().isOk()).
+                andExpect(content().contentType("application/zip")).
+                andReturn().getResponse().getContentAsByteArray();
+        Map<String, String> entries = readZip(zip);
+        assertEquals(List.of("GEMMA.json", "HANDLEBARS.json", "manifest.json"), new ArrayList<>(entries.keySet()));
+        JSONAssert.assertEquals(resultContent, entries.get("GEMMA.json"), false);
+        assertTrue(entries.get("HANDLEBARS.json").contains("Publisher"));
+        JSONAssert.assertEquals("[{\"mappingType\":\"GEMMA\",\"status\":\"SUCCEEDED\",\"result\":\"GEMMA.json\"}," +
+                "{\"mappingType\":\"HANDLEBARS\",\"status\":\"SUCCEEDED\",\"result\":\"HANDLEBARS.json\"}]", entries.get("manifest.json"), false);
+    }
+
+    @Test
+    void mapDocumentWithAllTypesWithInvalidID() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/mappingExecution/xsfdfg/all").
+                        file(new MockMultipartFile("document", "first.json", "application/json", "{}".getBytes()))).
+                andDo(print()).
+                andExpect(status().isNotFound()).
+                andExpect(content().string("No mapping record found for mapping xsfdfg."));
+    }
+}
@@ -0,0 +1,327 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web.impl;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.kit.datamanager.entities.PERMISSION;
+import edu.kit.datamanager.mappingservice.MappingServiceApplication;
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.dao.IMappingJobDao;
+import edu.kit.datamanager.mappingservice.dao.IMappingRecordDao;
+import edu.kit.datamanager.mappingservice.domain.MappingJob;
+import edu.kit.datamanager.mappingservice.domain.MappingRecord;
+import edu.kit.datamanager.mappingservice.domain.acl.AclEntry;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.exception.MappingRejectedException;
+import edu.kit.datamanager.mappingservice.impl.MappingJobService;
+import edu.kit.datamanager.mappingservice.mapping.IMappingTool;
+import edu.kit.datamanager.mappingservice.mapping.IMappingToolProvider;
+import edu.kit.datamanager.mappingservice.mapping.MappingToolRegistry;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+import org.springframework.test.context.web.ServletTestExecutionListener;
+import org.springframework.security.test.context.support.WithSecurityContextTestExecutionListener;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, classes = MappingServiceApplication.class)
+@AutoConfigureMockMvc
+@TestExecutionListeners(listeners = {ServletTestExecutionListener.class,
+        DependencyInjectionTestExecutionListener.class,
+        DirtiesContextTestExecutionListener.class,
+        TransactionalTestExecutionListener.class,
+        WithSecurityContextTestExecutionListener.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"server.port=41300"})
+public class MappingJobControllerTest {
+
+    private static final String MAPPING_ID = "my_dc";
+    private static final String MAPPING_TYPE = "GEMMA";
+    private static final String JOBS_URL = "/api/v1/mappingJobs/";
+    private static final long TIMEOUT_MILLIS = 30000;
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IMappingRecordDao mappingRecordDao;
+
+    @Autowired
+    private IMappingJobDao mappingJobDao;
+
+    @Autowired
+    private MappingJobService mappingJobService;
+
+    @Autowired
+    private MappingToolRegistry mappingToolRegistry;
+
+    @Autowired
+    private ApplicationProperties applicationProperties;
+
+    @BeforeEach
+    void setUp(WebApplicationContext webApplicationContext) throws Exception {
+        mappingRecordDao.deleteAll();
+        mappingJobDao.deleteAll();
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        String mappingContent = FileUtils.readFileToString(new File("src/test/resources/mapping/gemma/simple.mapping"), StandardCharsets.UTF_8);
+        MappingRecord record = new MappingRecord();
+        record.setMappingId(MAPPING_ID);
+        record.setMappingType(MAPPING_TYPE);
+        Set<AclEntry> aclEntries = new HashSet<>();
+        aclEntries.add(new AclEntry("SELF", PERMISSION.READ));
+        record.setAcl(aclEntries);
+        MockMultipartFile recordFile = new MockMultipartFile("record", "record.json", "application/json", new ObjectMapper().writeValueAsString(record).getBytes());
+        MockMultipartFile mappingFile = new MockMultipartFile("document", "my_dc4gemma.mapping", "application/json", mappingContent.getBytes());
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/mappingAdministration/").file(recordFile).file(mappingFile)).
+                andExpect(status().isCreated());
+    }
+
+    /**
+     * Submit document and get job id.
+     *
+     * @param documentFile file holding the document.
+     * @return id of the job.
+     */
+    private String submit(String documentFile) throws Exception {
+        MockMultipartFile document = new MockMultipartFile("document", "document.json", "application/json", FileUtils.readFileToByteArray(new File(documentFile)));
+        String response = this.mockMvc.perform(MockMvcRequestBuilders.multipart(JOBS_URL + MAPPING_ID + "/" + MAPPING_TYPE).file(document)).
+                andDo(print()).
+                andExpect(status().isAccepted()).
+                andExpect(header().string("Location", containsString(JOBS_URL))).
+                andReturn().getResponse().getContentAsString();
+        JsonNode job = new ObjectMapper().readTree(response);
+        assertEquals(MAPPING_ID, job.get("mappingId").asText());
+        assertFalse(job.has("inputFile"));
+        return job.get("jobId").asText();
+    }
+
+    /**
+     * Wait until job is finished.
+     *
+     * @param jobId id of the job.
+     * @return final status.
+     */
+    private String awaitJob(String jobId) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (true) {
+            String response = this.mockMvc.perform(MockMvcRequestBuilders.get(JOBS_URL + jobId)).
+                    andExpect(status().isOk()).
+                    andReturn().getResponse().getContentAsString();
+            String status = new ObjectMapper().readTree(response).get("status").asText();
+            if (MappingJob.Status.valueOf(status).isFinished() || (System.currentTimeMillis() > deadline)) {
+                return status;
+            }
+            Thread.sleep(50);
+        }
+    }
+
+    @Test
+    void submitAndDownloadResult() throws Exception {
+        String resultContent = FileUtils.readFileToString(new File("src/test/resources/result/gemma/simple.elastic.json"), StandardCharsets.UTF_8);
+        String jobId = submit("src/test/resources/examples/gemma/simple.json");
+        assertEquals("SUCCEEDED", awaitJob(jobId));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get(JOBS_URL + jobId + "/result")).
+                andDo(print()).
+                andExpect(status().isOk()).
+                andExpect(MockMvcResultMatchers.content().json(resultContent));
+        Path resultFile = Paths.get(mappingJobDao.findById(jobId).get().getResultFile());
+        assertTrue(Files.exists(resultFile));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.delete(JOBS_URL + jobId)).
+                andExpect(status().isNoContent());
+        assertFalse(Files.exists(resultFile));
+        this.mockMvc.perform(MockMvcRequestBuilders.get(JOBS_URL + jobId)).
+                andExpect(status().isNotFound());
+    }
+
+    @Test
+    void submitInvalidDocument() throws Exception {
+        String jobId = submit("src/test/resources/examples/anyContentWithoutSuffix");
+        assertEquals("FAILED", awaitJob(jobId));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.get(JOBS_URL + jobId + "/result")).
+                andDo(print()).
+                andExpect(status().isConflict());
+    }
+
+    @Test
+    void submitWithInvalidID() throws Exception {
+        MockMultipartFile document = new MockMultipartFile("document", "document.json", "application/json", "{}".getBytes());
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart(JOBS_URL + "xsfdfg/GEMMA").file(document)).
+                andDo(print()).
+                andExpect(status().isNotFound()).
+                andExpect(content().string("No mapping record found for mapping xsfdfg/GEMMA."));
+    }
+
+    @Test
+    void getUnknownJob() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.get(JOBS_URL + "unknown")).
+                andExpect(status().isNotFound());
+        this.mockMvc.perform(MockMvcRequestBuilders.get(JOBS_URL + "unknown/result")).
+                andExpect(status().isNotFound());
+        this.mockMvc.perform(MockMvcRequestBuilders.delete(JOBS_URL + "unknown")).
+                andExpect(status().isNotFound());
+    }
+
+    @Test
+    void resumeInterruptedJob() throws Exception {
+        // job running while the service was stopped
+        Path inputFile = Files.createTempFile("resume", ".json");
+        FileUtils.copyFile(new File("src/test/resources/examples/gemma/simple.json"), inputFile.toFile());
+        MappingJob job = new MappingJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setMappingId(MAPPING_ID);
+        job.setMappingType(MAPPING_TYPE);
+        job.setStatus(MappingJob.Status.RUNNING);
+        job.setCreated(Instant.now());
+        job.setStarted(Instant.now());
+        job.setInputFile(inputFile.toString());
+        mappingJobDao.save(job);
+
+        mappingJobService.resumeJobs();
+        assertEquals("SUCCEEDED", awaitJob(job.getJobId()));
+        assertFalse(Files.exists(inputFile));
+        mappingJobService.deleteJob(mappingJobDao.findById(job.getJobId()).get());
+    }
+
+    @Test
+    void deleteStartedJob() throws Exception {
+        // job started after it was read for deletion
+        MappingJob job = new MappingJob();
+        job.setJobId(UUID.randomUUID().toString());
+        job.setMappingId(MAPPING_ID);
+        job.setMappingType(MAPPING_TYPE);
+        job.setStatus(MappingJob.Status.QUEUED);
+        job.setCreated(Instant.now());
+        mappingJobDao.save(job);
+        assertEquals(1, mappingJobDao.updateStatus(job.getJobId(), MappingJob.Status.QUEUED, MappingJob.Status.RUNNING, Instant.now()));
+        assertEquals(0, mappingJobDao.updateStatus(job.getJobId(), MappingJob.Status.QUEUED, MappingJob.Status.RUNNING, Instant.now()));
+
+        assertThrows(MappingException.class, () -> mappingJobService.deleteJob(job));
+        assertEquals(MappingJob.Status.RUNNING, mappingJobDao.findById(job.getJobId()).get().getStatus());
+
+        // a deleted job isn't started anymore
+        mappingJobDao.updateStatus(job.getJobId(), MappingJob.Status.RUNNING, MappingJob.Status.QUEUED, null);
+        mappingJobService.deleteJob(job);
+        assertFalse(mappingJobDao.existsById(job.getJobId()));
+        assertEquals(0, mappingJobDao.updateStatus(job.getJobId(), MappingJob.Status.QUEUED, MappingJob.Status.RUNNING, Instant.now()));
+    }
+
+    @Test
+    void requeueRejectedJob() throws Exception {
+        // the first execution isn't started within the queue timeout
+        String rejectingType = "REJECTING_ONCE";
+        AtomicInteger calls = new AtomicInteger();
+        mappingToolRegistry.register(new IMappingToolProvider() {
+            @Override
+            public String getMappingType() {
+                return rejectingType;
+            }
+
+            @Override
+            public IMappingTool createMappingTool(ApplicationProperties configuration) {
+                return (mappingFile, srcFile, resultFile) -> {
+                    if (calls.incrementAndGet() == 1) {
+                        throw new MappingRejectedException("Error: Mapping '" + rejectingType + "' not started within 0 seconds (too many concurrent mappings)!");
+                    }
+                    try {
+                        Files.copy(srcFile, resultFile, StandardCopyOption.REPLACE_EXISTING);
+                    } catch (IOException e) {
+                        return 1;
+                    }
+                    return 0;
+                };
+            }
+        });
+        MappingRecord record = new MappingRecord();
+        record.setMappingId(MAPPING_ID);
+        record.setMappingType(rejectingType);
+        record.setMappingDocumentUri(new File("src/test/resources/mapping/gemma/simple.mapping").getAbsolutePath());
+        mappingRecordDao.save(record);
+
+        Path inputFile = Files.createTempFile("rejected", ".json");
+        FileUtils.copyFile(new File("src/test/resources/examples/gemma/simple.json"), inputFile.toFile());
+        MappingJob job = mappingJobService.submit(inputFile, MAPPING_ID, rejectingType);
+        assertEquals("SUCCEEDED", awaitJob(job.getJobId()));
+        assertEquals(2, calls.get());
+        mappingJobService.deleteJob(mappingJobDao.findById(job.getJobId()).get());
+    }
+
+    @Test
+    void submitToFullQueue() throws Exception {
+        // jobs waiting for a worker
+        List<MappingJob> queued = new ArrayList<>();
+        for (long i = 0; i < applicationProperties.getJobsMaxQueued(); i++) {
+            MappingJob job = new MappingJob();
+            job.setJobId(UUID.randomUUID().toString());
+            job.setMappingId(MAPPING_ID);
+            job.setMappingType(MAPPING_TYPE);
+            job.setStatus(MappingJob.Status.QUEUED);
+            job.setCreated(Instant.now());
+            queued.add(job);
+        }
+        mappingJobDao.saveAll(queued);
+
+        Path inputFile = Files.createTempFile("full", ".json");
+        assertThrows(MappingRejectedException.class, () -> mappingJobService.submit(inputFile, MAPPING_ID, MAPPING_TYPE));
+        assertFalse(Files.exists(inputFile));
+
+        MockMultipartFile document = new MockMultipartFile("document", "document.json", "application/json", "{}".getBytes());
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart(JOBS_URL + MAPPING_ID + "/" + MAPPING_TYPE).file(document)).
+                andDo(print()).
+                andExpect(status().isServiceUnavailable());
+        assertEquals(applicationProperties.getJobsMaxQueued(), mappingJobDao.countByStatusIn(Set.of(MappingJob.Status.QUEUED)));
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.web.impl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import edu.kit.datamanager.entities.PERMISSION;
+import edu.kit.datamanager.mappingservice.MappingServiceApplication;
+import edu.kit.datamanager.mappingservice.dao.IMappingPipelineDao;
+import edu.kit.datamanager.mappingservice.dao.IMappingRecordDao;
+import edu.kit.datamanager.mappingservice.domain.MappingRecord;
+import edu.kit.datamanager.mappingservice.domain.acl.AclEntry;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.security.test.context.support.WithSecurityContextTestExecutionListener;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestExecutionListeners;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.support.DependencyInjectionTestExecutionListener;
+import org.springframework.test.context.support.DirtiesContextTestExecutionListener;
+import org.springframework.test.context.transaction.TransactionalTestExecutionListener;
+import org.springframework.test.context.web.ServletTestExecutionListener;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@ExtendWith(SpringExtension.class)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.DEFINED_PORT, classes = MappingServiceApplication.class)
+@AutoConfigureMockMvc
+@TestExecutionListeners(listeners = {ServletTestExecutionListener.class,
+        DependencyInjectionTestExecutionListener.class,
+        DirtiesContextTestExecutionListener.class,
+        TransactionalTestExecutionListener.class,
+        WithSecurityContextTestExecutionListener.class})
+@ActiveProfiles("test")
+@TestPropertySource(properties = {"server.port=41300"})
+public class MappingPipelineControllerTest {
+
+    private static final String MAPPING_ID = "my_dc";
+    private static final String PIPELINE_ID = "xml2publisher";
+    private static final String PIPELINES_URL = "/api/v1/mappingPipelines/";
+    private static final String PIPELINE = "{\"pipelineId\":\"" + PIPELINE_ID + "\",\"steps\":[" +
+            "{\"mappingId\":\"" + MAPPING_ID + "\",\"mappingType\":\"GEMMA\"}," +
+            "{\"mappingId\":\"" + MAPPING_ID + "\",\"mappingType\":\"HANDLEBARS\"}]}";
+
+    private MockMvc mockMvc;
+
+    @Autowired
+    private IMappingRecordDao mappingRecordDao;
+
+    @Autowired
+    private IMappingPipelineDao mappingPipelineDao;
+
+    @BeforeEach
+    void setUp(WebApplicationContext webApplicationContext) throws Exception {
+        mappingRecordDao.deleteAll();
+        mappingPipelineDao.deleteAll();
+        this.mockMvc = MockMvcBuilders.webAppContextSetup(webApplicationContext).build();
+
+        createMapping("GEMMA", FileUtils.readFileToString(new File("src/test/resources/mapping/gemma/simple.xml.mapping"), StandardCharsets.UTF_8));
+        createMapping("HANDLEBARS", "{\"publisher\": {{{maybeStringify Publisher}}} }");
+    }
+
+    /**
+     * Create mapping with id MAPPING_ID.
+     *
+     * @param mappingType type of the mapping.
+     * @param content     content of the mapping document.
+     */
+    private void createMapping(String mappingType, String content) throws Exception {
+        MappingRecord record = new MappingRecord();
+        record.setMappingId(MAPPING_ID);
+        record.setMappingType(mappingType);
+        Set<AclEntry> aclEntries = new HashSet<>();
+        aclEntries.add(new AclEntry("SELF", PERMISSION.READ));
+        record.setAcl(aclEntries);
+        MockMultipartFile recordFile = new MockMultipartFile("record", "record.json", "application/json", new ObjectMapper().writeValueAsString(record).getBytes());
+        MockMultipartFile mappingFile = new MockMultipartFile("document", "mapping", "application/json", content.getBytes());
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart("/api/v1/mappingAdministration/").file(recordFile).file(mappingFile)).
+                andExpect(status().isCreated());
+    }
+
+    private void createPipeline() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.post(PIPELINES_URL).contentType(MediaType.APPLICATION_JSON).content(PIPELINE)).
+                andDo(print()).
+                andExpect(status().isCreated()).
+                andExpect(header().string("Location", containsString(PIPELINES_URL + PIPELINE_ID))).
+                andExpect(content().json(PIPELINE));
+    }
+
+    @Test
+    void createAndExecutePipeline() throws Exception {
+        createPipeline();
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PIPELINES_URL + PIPELINE_ID)).
+                andExpect(status().isOk()).
+                andExpect(content().json(PIPELINE));
+
+        MockMultipartFile document = new MockMultipartFile("document", "simple.xml", "application/xml",
+                FileUtils.readFileToByteArray(new File("src/test/resources/examples/gemma/simple.xml")));
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart(PIPELINES_URL + PIPELINE_ID + "/execution").file(document)).
+                andDo(print()).
+                andExpect(status().isOk()).
+                andExpect(content().json("{\"publisher\": \"The publisher\"}"));
+
+        this.mockMvc.perform(MockMvcRequestBuilders.delete(PIPELINES_URL + PIPELINE_ID)).
+                andExpect(status().isNoContent());
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PIPELINES_URL + PIPELINE_ID)).
+                andExpect(status().isNotFound());
+    }
+
+    @Test
+    void executePipelineWithInvalidDocument() throws Exception {
+        createPipeline();
+        MockMultipartFile document = new MockMultipartFile("document", "invalid.txt", "text/plain",
+                FileUtils.readFileToByteArray(new File("src/test/resources/examples/anyContentWithoutSuffix")));
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart(PIPELINES_URL + PIPELINE_ID + "/execution").file(document)).
+                andDo(print()).
+                andExpect(status().isBadRequest()).
+                andExpect(content().string(containsString("Step 1")));
+    }
+
+    @Test
+    void createPipelineTwice() throws Exception {
+        createPipeline();
+        this.mockMvc.perform(MockMvcRequestBuilders.post(PIPELINES_URL).contentType(MediaType.APPLICATION_JSON).content(PIPELINE)).
+                andExpect(status().isConflict());
+    }
+
+    @Test
+    void createPipelineWithUnknownMapping() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.post(PIPELINES_URL).contentType(MediaType.APPLICATION_JSON).
+                        content("{\"pipelineId\":\"invalid\",\"steps\":[{\"mappingId\":\"xsfdfg\",\"mappingType\":\"GEMMA\"}]}")).
+                andDo(print()).
+                andExpect(status().isBadRequest()).
+                andExpect(content().string(containsString("xsfdfg/GEMMA")));
+        this.mockMvc.perform(MockMvcRequestBuilders.post(PIPELINES_URL).contentType(MediaType.APPLICATION_JSON).
+                        content("{\"pipelineId\":\"invalid\",\"steps\":[]}")).
+                andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void getUnknownPipeline() throws Exception {
+        this.mockMvc.perform(MockMvcRequestBuilders.get(PIPELINES_URL + "unknown")).
+                andExpect(status().isNotFound());
+        this.mockMvc.perform(MockMvcRequestBuilders.delete(PIPELINES_URL + "unknown")).
+                andExpect(status().isNotFound());
+        this.mockMvc.perform(MockMvcRequestBuilders.multipart(PIPELINES_URL + "unknown/execution").
+                        file(new MockMultipartFile("document", "first.json", "application/json", "{}".getBytes()))).
+                andExpect(status().isNotFound()).
+                andExpect(content().string("No mapping pipeline found for id unknown."));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2022 Karlsruhe Institute of Technology.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package edu.kit.datamanager.mappingservice.xslt;
+
+import edu.kit.datamanager.mappingservice.configuration.ApplicationProperties;
+import edu.kit.datamanager.mappingservice.exception.MappingException;
+import edu.kit.datamanager.mappingservice.mapping.MappingUtil;
+import org.apache.commons.io.FileUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.xml.transform.Templates;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for XsltMapping.
+ */
+public class XsltMappingTest {
+
+    private static final String RESULT = "{\n"
+            + "  \"Publisher\": \"The publisher\",\n"
+            + "  \"Publication Date\": \"2019\"\n"
+            + "}";
+
+    private final static Path RESULT_FILE = new File("/tmp/result.xslt.json").getAbsoluteFile().toPath();
+
+    @AfterEach
+    public void tearDown() {
+        FileUtils.deleteQuietly(RESULT_FILE.toFile());
+    }
+
+    /**
+     * Test of mapFile method, of class XsltMapping.
+     */
+    @Test
+    public void testMapFile() throws IOException {
+        System.out.println("testMapFile");
+        Path mappingFile = new File("src/test/resources/mapping/xslt/simple.xsl").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.xml").getAbsoluteFile().toPath();
+        XsltMapping instance = new XsltMapping(new ApplicationProperties());
+        int result = instance.mapFile(mappingFile, srcFile, RESULT_FILE);
+        assertEquals(MappingUtil.SUCCESS, result);
+        assertEquals(RESULT, FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test of mapFile method with compiled stylesheet.
+     */
+    @Test
+    public void testMapFileWithCompiledStylesheet() throws IOException {
+        System.out.println("testMapFileWithCompiledStylesheet");
+        Path mappingFile = new File("src/test/resources/mapping/xslt/tei2dc.xsl").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/tei.xml").getAbsoluteFile().toPath();
+        XsltMapping instance = new XsltMapping(new ApplicationProperties());
+        Templates templates = instance.compile(mappingFile);
+        for (int index = 0; index < 2; index++) {
+            FileUtils.deleteQuietly(RESULT_FILE.toFile());
+            int result = instance.mapFile(templates, srcFile, RESULT_FILE);
+            assertEquals(MappingUtil.SUCCESS, result);
+            String content = FileUtils.readFileToString(RESULT_FILE.toFile(), StandardCharsets.UTF_8);
+            assertTrue(content.contains("<dc:title>Main title</dc:title><dc:title>Sub &amp; title</dc:title>"));
+            assertTrue(content.contains("<dc:creator>Jürgen Müller</dc:creator>"));
+            assertTrue(content.contains("<dc:date>2019-05-21</dc:date>"));
+        }
+    }
+
+    /**
+     * Test of mapFile method with invalid stylesheet and invalid source.
+     */
+    @Test
+    public void testMapFileWithInvalidInput() {
+        System.out.println("testMapFileWithInvalidInput");
+        Path mappingFile = new File("src/test/resources/mapping/xslt/simple.xsl").getAbsoluteFile().toPath();
+        Path invalidStylesheet = new File("src/test/resources/examples/gemma/simple.json").getAbsoluteFile().toPath();
+        Path srcFile = new File("src/test/resources/examples/gemma/simple.xml").getAbsoluteFile().toPath();
+        XsltMapping instance = new XsltMapping(new ApplicationProperties());
+        assertThrows(MappingException.class, () -> instance.compile(invalidStylesheet));
+        assertEquals(MappingUtil.FAILURE, instance.mapFile(invalidStylesheet, srcFile, RESULT_FILE));
+        // source is no XML
+        assertEquals(MappingUtil.FAILURE, instance.mapFile(mappingFile, invalidStylesheet, RESULT_FILE));
+        FileUtils.deleteQuietly(RESULT_FILE.toFile());
+        // source not available
+        assertEquals(MappingUtil.FAILURE, instance.mapFile(mappingFile, new File("notexists.xml").getAbsoluteFile().toPath(), RESULT_FILE));
+    }
+
+    /**
+     * Test of map method with streams, of class XsltMapping.
+     */
+    @Test
+    public void testMapStream() throws IOException {
+        System.out.println("testMapStream");
+        XsltMapping instance = new XsltMapping(new ApplicationProperties());
+        Templates templates = instance.compile(new File("src/test/resources/mapping/xslt/simple.xsl").getAbsoluteFile().toPath());
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (InputStream source = Files.newInputStream(new File("src/test/resources/examples/gemma/simple.xml").toPath())) {
+            assertEquals(MappingUtil.SUCCESS, instance.map(templates, source, null, result));
+        }
+        assertEquals(RESULT, result.toString(StandardCharsets.UTF_8));
+    }
+}
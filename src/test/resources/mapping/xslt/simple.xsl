@@ -0,0 +1,11 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform">
+  <xsl:output method="text" encoding="UTF-8"/>
+  <xsl:template match="/metadata">
+    <xsl:text>{&#10;  "Publisher": "</xsl:text>
+    <xsl:value-of select="publisher"/>
+    <xsl:text>",&#10;  "Publication Date": "</xsl:text>
+    <xsl:value-of select="publisher/@publicationDate"/>
+    <xsl:text>"&#10;}</xsl:text>
+  </xsl:template>
+</xsl:stylesheet>
@@ -0,0 +1,18 @@
+<?xml version="1.0" encoding="UTF-8"?>
+<xsl:stylesheet version="1.0" xmlns:xsl="http://www.w3.org/1999/XSL/Transform"
+                xmlns:tei="http://www.tei-c.org/ns/1.0"
+                xmlns:dc="http://purl.org/dc/elements/1.1/"
+                exclude-result-prefixes="tei">
+  <xsl:output method="xml" encoding="UTF-8" indent="no"/>
+  <xsl:template match="/tei:TEI">
+    <dc:record>
+      <xsl:for-each select="tei:teiHeader/tei:fileDesc/tei:titleStmt/tei:title">
+        <dc:title><xsl:value-of select="."/></dc:title>
+      </xsl:for-each>
+      <xsl:for-each select="tei:teiHeader/tei:fileDesc/tei:titleStmt/tei:author/tei:persName">
+        <dc:creator><xsl:value-of select="."/></dc:creator>
+      </xsl:for-each>
+      <dc:date><xsl:value-of select="tei:teiHeader/tei:fileDesc/tei:publicationStmt/tei:date/@when"/></dc:date>
+    </dc:record>
+  </xsl:template>
+</xsl:stylesheet>